@@ -0,0 +1,79 @@
+package com.adammcquistan.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.adammcquistan.models.Matrix;
+import com.adammcquistan.models.Matrix4;
+import com.adammcquistan.models.Vector4;
+
+/**
+ * A chain of 4 x 4 transforms applied to a point, once with the fixed-size
+ * value types and once with the general Matrix, the point as a 4 x 1 column
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FixedSizeBenchmark {
+    private static final int STEPS = 1000;
+
+    private Matrix4 transform;
+    private Vector4 point;
+    private Matrix matrix;
+    private Matrix column;
+
+    @Setup
+    public void setUp() {
+        double c = Math.cos(0.01);
+        double s = Math.sin(0.01);
+        transform = new Matrix4(
+                c, -s, 0, 0.1,
+                s, c, 0, 0.2,
+                0, 0, 1, 0.3,
+                0, 0, 0, 1);
+        point = new Vector4(1, 2, 3, 1);
+        matrix = transform.toMatrix();
+        column = new Matrix(new double[][] { { 1 }, { 2 }, { 3 }, { 1 } });
+    }
+
+    @Benchmark
+    public Vector4 fixedTransform() {
+        Vector4 p = point;
+        for (int i = 0; i < STEPS; i++) {
+            p = transform.matvec(p);
+        }
+        return p;
+    }
+
+    @Benchmark
+    public Matrix generalTransform() {
+        Matrix p = column;
+        for (int i = 0; i < STEPS; i++) {
+            p = matrix.matmul(p);
+        }
+        return p;
+    }
+
+    @Benchmark
+    public Matrix4 fixedInverse() {
+        return transform.inverse().matmul(transform);
+    }
+
+    @Benchmark
+    public Matrix generalInverse() {
+        return matrix.getInverse().matmul(matrix);
+    }
+}
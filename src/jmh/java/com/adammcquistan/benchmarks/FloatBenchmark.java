@@ -0,0 +1,97 @@
+package com.adammcquistan.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.adammcquistan.models.FloatMatrix;
+import com.adammcquistan.models.FloatVector;
+import com.adammcquistan.models.Matrix;
+import com.adammcquistan.models.Vector;
+
+/**
+ * Single precision dot products and matrix products next to the double ones
+ * on the same values
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FloatBenchmark {
+
+    @Param({ "256", "512" })
+    public int size;
+
+    private Vector v1;
+    private Vector v2;
+    private FloatVector f1;
+    private FloatVector f2;
+    private Matrix a;
+    private Matrix b;
+    private FloatMatrix fa;
+    private FloatMatrix fb;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        int length = size * size * 16;
+        double[] x = new double[length];
+        double[] y = new double[length];
+        for (int i = 0; i < length; i++) {
+            x[i] = random.nextDouble();
+            y[i] = random.nextDouble();
+        }
+        v1 = new Vector(x);
+        v2 = new Vector(y);
+        f1 = FloatVector.of(v1);
+        f2 = FloatVector.of(v2);
+        a = new Matrix(size, size);
+        b = new Matrix(size, size);
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                a.set(i, j, random.nextDouble());
+                b.set(i, j, random.nextDouble());
+            }
+        }
+        fa = FloatMatrix.of(a);
+        fb = FloatMatrix.of(b);
+    }
+
+    @Benchmark
+    public double dot() {
+        return v1.dot(v2);
+    }
+
+    @Benchmark
+    public float floatDot() {
+        return f1.dot(f2);
+    }
+
+    @Benchmark
+    public double floatDotDouble() {
+        return f1.dotDouble(f2);
+    }
+
+    @Benchmark
+    public Matrix matmul() {
+        return a.matmul(b);
+    }
+
+    @Benchmark
+    public FloatMatrix floatMatmul() {
+        return fa.matmul(fb);
+    }
+}
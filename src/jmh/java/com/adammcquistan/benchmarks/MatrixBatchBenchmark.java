@@ -0,0 +1,88 @@
+package com.adammcquistan.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.adammcquistan.models.Matrix;
+import com.adammcquistan.models.MatrixBatch;
+
+/**
+ * 10k small n x n products as one batched call next to the same products
+ * done one Matrix at a time
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MatrixBatchBenchmark {
+    private static final int COUNT = 10000;
+
+    @Param({ "3", "4", "6" })
+    public int size;
+
+    private MatrixBatch a;
+    private MatrixBatch b;
+    private Matrix[] as;
+    private Matrix[] bs;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        as = new Matrix[COUNT];
+        bs = new Matrix[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            as[i] = new Matrix(size, size);
+            bs[i] = new Matrix(size, size);
+            for (int r = 0; r < size; r++) {
+                for (int c = 0; c < size; c++) {
+                    as[i].set(r, c, random.nextDouble() + (r == c ? size : 0));
+                    bs[i].set(r, c, random.nextDouble());
+                }
+            }
+        }
+        a = MatrixBatch.of(as);
+        b = MatrixBatch.of(bs);
+    }
+
+    @Benchmark
+    public MatrixBatch batchMatmul() {
+        return a.matmul(b);
+    }
+
+    @Benchmark
+    public Matrix[] loopMatmul() {
+        Matrix[] result = new Matrix[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            result[i] = as[i].matmul(bs[i]);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public MatrixBatch batchInverse() {
+        return a.inverse();
+    }
+
+    @Benchmark
+    public Matrix[] loopInverse() {
+        Matrix[] result = new Matrix[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            result[i] = as[i].getInverse();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,134 @@
+package com.adammcquistan.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.LUDecomposition;
+import org.apache.commons.math3.linear.QRDecomposition;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.linear.RealVector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.adammcquistan.models.Matrix;
+import com.adammcquistan.models.Vector;
+
+/**
+ * Matrix hot paths on square n x n inputs next to the equivalent
+ * commons-math3 RealMatrix calls, which serve as the baseline
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MatrixBenchmark {
+
+    @Param({ "16", "64", "256", "512" })
+    public int size;
+
+    private Matrix m1;
+    private Matrix m2;
+    private RealMatrix r1;
+    private RealMatrix r2;
+    private Vector x;
+    private RealVector rx;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        double[][] a = new double[size][size];
+        double[][] b = new double[size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                a[i][j] = random.nextDouble();
+                b[i][j] = random.nextDouble();
+            }
+            // diagonally dominant so the inverse is well conditioned
+            a[i][i] += size;
+        }
+        m1 = new Matrix(a);
+        m2 = new Matrix(b);
+        r1 = new Array2DRowRealMatrix(a);
+        r2 = new Array2DRowRealMatrix(b);
+        x = new Vector(b[0]);
+        rx = new ArrayRealVector(b[0]);
+    }
+
+    @Benchmark
+    public Matrix matmul() {
+        return m1.matmul(m2);
+    }
+
+    @Benchmark
+    public Matrix transpose() {
+        return m1.transpose();
+    }
+
+    @Benchmark
+    public Matrix getInverse() {
+        return m1.getInverse();
+    }
+
+    @Benchmark
+    public Matrix orthoNormalize() {
+        return m1.orthoNormalize();
+    }
+
+    @Benchmark
+    public Matrix elementwiseChain() {
+        return m1.multiply(2.0).add(m2).subtract(m1).divide(m2);
+    }
+
+    @Benchmark
+    public Matrix lazyElementwiseChain() {
+        return m1.lazy().multiply(2.0).add(m2).subtract(m1).divide(m2).evaluate();
+    }
+
+    @Benchmark
+    public Vector matvec() {
+        return m1.matvec(x);
+    }
+
+    @Benchmark
+    public Vector matvecTransposed() {
+        return m1.matvecTransposed(x);
+    }
+
+    @Benchmark
+    public RealMatrix commonsMathMultiply() {
+        return r1.multiply(r2);
+    }
+
+    @Benchmark
+    public RealMatrix commonsMathTranspose() {
+        return r1.transpose();
+    }
+
+    @Benchmark
+    public RealMatrix commonsMathInverse() {
+        return new LUDecomposition(r1).getSolver().getInverse();
+    }
+
+    @Benchmark
+    public RealMatrix commonsMathOrthoNormalize() {
+        return new QRDecomposition(r1).getQ();
+    }
+
+    @Benchmark
+    public RealVector commonsMathOperate() {
+        return r1.operate(rx);
+    }
+}
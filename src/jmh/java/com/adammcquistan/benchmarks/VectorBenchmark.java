@@ -0,0 +1,75 @@
+package com.adammcquistan.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.RealVector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.adammcquistan.models.Vector;
+
+/**
+ * Vector hot paths next to the equivalent commons-math3 ArrayRealVector calls
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VectorBenchmark {
+
+    @Param({ "16", "1024", "65536", "1000000" })
+    public int size;
+
+    private Vector v1;
+    private Vector v2;
+    private RealVector r1;
+    private RealVector r2;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        double[] a = new double[size];
+        double[] b = new double[size];
+        for (int i = 0; i < size; i++) {
+            a[i] = random.nextDouble();
+            b[i] = random.nextDouble();
+        }
+        v1 = new Vector(a);
+        v2 = new Vector(b);
+        r1 = new ArrayRealVector(a);
+        r2 = new ArrayRealVector(b);
+    }
+
+    @Benchmark
+    public double dot() {
+        return v1.dot(v2);
+    }
+
+    @Benchmark
+    public Vector add() {
+        return v1.add(v2);
+    }
+
+    @Benchmark
+    public double commonsMathDot() {
+        return r1.dotProduct(r2);
+    }
+
+    @Benchmark
+    public RealVector commonsMathAdd() {
+        return r1.add(r2);
+    }
+}
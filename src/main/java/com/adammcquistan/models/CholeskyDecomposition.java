@@ -0,0 +1,342 @@
+package com.adammcquistan.models;
+
+import java.util.Arrays;
+
+/**
+ * Cholesky decomposition A = LL^T of a symmetric positive definite n x n
+ * matrix, only the lower triangle of A is read.
+ *
+ * L is kept column-major in a single array and computed in place a block of
+ * BLOCK columns at a time: the block is finished left-looking, then its
+ * columns are subtracted from every column to its right while they are
+ * still in cache. Solves, the inverse and rank-1 updates all walk whole
+ * contiguous columns of L. A matrix that turns out not to be positive
+ * definite leaves the decomposition unusable, see isPositiveDefinite().
+ * Built with a Workspace, L and the scratch of solve and inverse come from
+ * it and release() returns them.
+ */
+public class CholeskyDecomposition {
+    static final int BLOCK = 32;
+
+    /** column j holds L(j..n, j) at l[j * n + j .. (j + 1) * n), zeros above */
+    private final double[] l;
+    private final int n;
+    private final boolean positiveDefinite;
+    private final Workspace workspace;
+
+    public CholeskyDecomposition(Matrix m) throws ArithmeticException {
+        this(m, null);
+    }
+
+    /**
+     * Keeps L in an array acquired from workspace, call release() once done
+     * with the decomposition
+     */
+    public CholeskyDecomposition(Matrix m, Workspace workspace) throws ArithmeticException {
+        if (m.rows() != m.cols()) {
+            throw new ArithmeticException("This matrix is not an n x n matrix it's a " + m.rows() + " x " + m.cols());
+        }
+        this.n = m.rows();
+        this.workspace = workspace;
+        this.l = scratch(n * n);
+        for (int j = 0; j < n; j++) {
+            for (int i = j; i < n; i++) {
+                l[j * n + i] = m.get(i, j);
+            }
+        }
+        this.positiveDefinite = factor();
+    }
+
+    /**
+     * Hands L back to the workspace it was built with, the decomposition must
+     * not be used afterwards. Does nothing without a workspace.
+     */
+    public void release() {
+        discard(l);
+    }
+
+    /**
+     * @return an array whose first length elements are zero
+     */
+    private double[] scratch(int length) {
+        if (workspace == null) {
+            return new double[length];
+        }
+        double[] buffer = workspace.acquire(length);
+        Arrays.fill(buffer, 0, length, 0.0);
+        return buffer;
+    }
+
+    private void discard(double[] buffer) {
+        if (workspace != null) {
+            workspace.release(buffer);
+        }
+    }
+
+    /**
+     * @return false when a pivot that is not positive and finite showed up,
+     * however small a positive pivot is relative to the rest of the matrix
+     */
+    private boolean factor() {
+        for (int k0 = 0; k0 < n; k0 += BLOCK) {
+            int k1 = Math.min(n, k0 + BLOCK);
+            for (int j = k0; j < k1; j++) {
+                int colJ = j * n;
+                // earlier blocks were already subtracted by their trailing updates
+                for (int k = k0; k < j; k++) {
+                    subtractColumn(k, j, l[k * n + j]);
+                }
+                double d = l[colJ + j];
+                if (!(d > 0.0) || d == Double.POSITIVE_INFINITY) {
+                    return false;
+                }
+                d = Math.sqrt(d);
+                l[colJ + j] = d;
+                for (int i = j + 1; i < n; i++) {
+                    l[colJ + i] /= d;
+                }
+            }
+            for (int j = k1; j < n; j++) {
+                for (int k = k0; k < k1; k++) {
+                    subtractColumn(k, j, l[k * n + j]);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * L(j..n, j) -= s * L(j..n, k)
+     */
+    private void subtractColumn(int k, int j, double s) {
+        if (s == 0.0) {
+            return;
+        }
+        int colK = k * n;
+        int colJ = j * n;
+        for (int i = j; i < n; i++) {
+            l[colJ + i] -= s * l[colK + i];
+        }
+    }
+
+    public boolean isPositiveDefinite() {
+        return positiveDefinite;
+    }
+
+    /**
+     * @return the lower triangular factor L
+     */
+    public Matrix getL() {
+        return Matrix.wrapColumnMajor(Arrays.copyOf(l, n * n), n, n);
+    }
+
+    public double determinant() throws ArithmeticException {
+        return Math.exp(logDeterminant());
+    }
+
+    /**
+     * log(det A) = 2 sum log L(i, i), which stays finite where the
+     * determinant itself would over- or underflow
+     */
+    public double logDeterminant() throws ArithmeticException {
+        checkPositiveDefinite();
+        double s = 0.0;
+        for (int i = 0; i < n; i++) {
+            s += Math.log(l[i * n + i]);
+        }
+        return 2.0 * s;
+    }
+
+    /**
+     * Solves Ax = b
+     * @return x
+     */
+    public Vector solve(Vector b) throws ArithmeticException {
+        if (b.size() != n) {
+            throw new ArithmeticException("Vector size (" + b.size() + ") <> matrix rows (" + n + ")");
+        }
+        checkPositiveDefinite();
+        double[] x = b.toArray();
+        forward(x, 0, 0);
+        backward(x, 0);
+        return Vector.wrap(x);
+    }
+
+    /**
+     * Solves Ax = b into x, which may be b itself
+     * @return x
+     */
+    public Vector solve(Vector b, Vector x) throws ArithmeticException {
+        if (b.size() != n) {
+            throw new ArithmeticException("Vector size (" + b.size() + ") <> matrix rows (" + n + ")");
+        }
+        if (x.size() != n) {
+            throw new ArithmeticException("Vector size (" + x.size() + ") <> matrix rows (" + n + ")");
+        }
+        checkPositiveDefinite();
+        double[] y = scratch(n);
+        b.copyTo(y, 0);
+        forward(y, 0, 0);
+        backward(y, 0);
+        for (int i = 0; i < n; i++) {
+            x.replace(i, y[i]);
+        }
+        discard(y);
+        return x;
+    }
+
+    /**
+     * Solves AX = B for every column of B at once
+     * @return X
+     */
+    public Matrix solve(Matrix b) throws ArithmeticException {
+        if (b.rows() != n) {
+            throw new ArithmeticException("Matrix rows (" + b.rows() + ") <> matrix rows (" + n + ")");
+        }
+        checkPositiveDefinite();
+        int nrhs = b.cols();
+        double[] x = b.T().toRowMajorArray();
+        for (int c = 0; c < nrhs; c++) {
+            forward(x, c * n, 0);
+            backward(x, c * n);
+        }
+        return Matrix.wrapColumnMajor(x, n, nrhs);
+    }
+
+    /**
+     * A^-1 = W^T W with W = L^-1. Column c of W solves Lw = e_c and is zero
+     * above c, element (i, j) of the inverse is then the dot product of
+     * columns i and j of W, so both steps run over contiguous columns.
+     */
+    public Matrix inverse() throws ArithmeticException {
+        return inverse(new Matrix(n, n));
+    }
+
+    /**
+     * Writes the inverse into dest, an n x n matrix not sharing storage with
+     * the one decomposed
+     * @return dest
+     */
+    public Matrix inverse(Matrix dest) throws ArithmeticException {
+        if (dest.rows() != n || dest.cols() != n) {
+            throw new ArithmeticException("Incompatible destination dimensions [" + dest.rows() + " x " + dest.cols() + "], expected [" + n + " x " + n + "]");
+        }
+        checkPositiveDefinite();
+        double[] w = scratch(n * n);
+        for (int c = 0; c < n; c++) {
+            w[c * n + c] = 1.0;
+            forward(w, c * n, c);
+        }
+        for (int i = 0; i < n; i++) {
+            int colI = i * n;
+            for (int j = 0; j <= i; j++) {
+                int colJ = j * n;
+                double s = 0.0;
+                for (int k = i; k < n; k++) {
+                    s += w[colI + k] * w[colJ + k];
+                }
+                dest.set(i, j, s);
+                dest.set(j, i, s);
+            }
+        }
+        discard(w);
+        return dest;
+    }
+
+    /**
+     * Overwrites x[base, base + n) with the solution of Ly = x, the first
+     * values up to from being zero
+     */
+    private void forward(double[] x, int base, int from) {
+        for (int j = from; j < n; j++) {
+            int colJ = j * n;
+            double y = x[base + j] / l[colJ + j];
+            x[base + j] = y;
+            if (y == 0.0) {
+                continue;
+            }
+            for (int i = j + 1; i < n; i++) {
+                x[base + i] -= y * l[colJ + i];
+            }
+        }
+    }
+
+    /**
+     * Overwrites x[base, base + n) with the solution of L^T z = x
+     */
+    private void backward(double[] x, int base) {
+        for (int j = n - 1; j >= 0; j--) {
+            int colJ = j * n;
+            double s = x[base + j];
+            for (int i = j + 1; i < n; i++) {
+                s -= l[colJ + i] * x[base + i];
+            }
+            x[base + j] = s / l[colJ + j];
+        }
+    }
+
+    /**
+     * Turns this into the decomposition of A + xx^T in O(n^2)
+     */
+    public void update(Vector x) throws ArithmeticException {
+        checkUpdate(x);
+        double[] w = x.toArray();
+        for (int k = 0; k < n; k++) {
+            int colK = k * n;
+            double lkk = l[colK + k];
+            double r = Math.hypot(lkk, w[k]);
+            double c = r / lkk;
+            double s = w[k] / lkk;
+            l[colK + k] = r;
+            for (int i = k + 1; i < n; i++) {
+                l[colK + i] = (l[colK + i] + s * w[i]) / c;
+                w[i] = c * w[i] - s * l[colK + i];
+            }
+        }
+    }
+
+    /**
+     * Turns this into the decomposition of A - xx^T in O(n^2)
+     * @throws ArithmeticException, leaving the decomposition as it was, when
+     * A - xx^T is not positive definite
+     */
+    public void downdate(Vector x) throws ArithmeticException {
+        checkUpdate(x);
+        // A - xx^T is positive definite exactly when ||L^-1 x|| < 1
+        double[] p = x.toArray();
+        forward(p, 0, 0);
+        double ss = 0.0;
+        for (double v : p) {
+            ss += v * v;
+        }
+        if (!(1.0 - ss > Math.ulp(1.0) * n)) {
+            throw new ArithmeticException("Downdated matrix is not positive definite");
+        }
+        double[] w = x.toArray();
+        for (int k = 0; k < n; k++) {
+            int colK = k * n;
+            double lkk = l[colK + k];
+            double r = Math.sqrt((lkk - w[k]) * (lkk + w[k]));
+            double c = r / lkk;
+            double s = w[k] / lkk;
+            l[colK + k] = r;
+            for (int i = k + 1; i < n; i++) {
+                l[colK + i] = (l[colK + i] - s * w[i]) / c;
+                w[i] = c * w[i] - s * l[colK + i];
+            }
+        }
+    }
+
+    private void checkUpdate(Vector x) throws ArithmeticException {
+        if (x.size() != n) {
+            throw new ArithmeticException("Vector size (" + x.size() + ") <> matrix rows (" + n + ")");
+        }
+        checkPositiveDefinite();
+    }
+
+    private void checkPositiveDefinite() throws ArithmeticException {
+        if (!positiveDefinite) {
+            throw new ArithmeticException("Matrix is not symmetric positive definite");
+        }
+    }
+}
@@ -0,0 +1,520 @@
+package com.adammcquistan.models;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Streams delimited numeric text (CSV, TSV, ...) into matrix storage.
+ *
+ * Input is read a chunk of bytes at a time and only the complete lines of
+ * each chunk are parsed, the partial last line is carried over to the next
+ * one. Numbers are parsed straight from the bytes, only those with more than
+ * 15 significant digits or a large exponent fall back to Double.parseDouble
+ * to stay correctly rounded. With parallel(true) each chunk is cut into one
+ * piece per pool thread at line boundaries and the pieces are parsed at once,
+ * their rows still land in file order.
+ *
+ * read() collects every row into one Matrix, readBlocks() hands out blocks
+ * of at most blockRows rows and never holds more than one block and one
+ * chunk, so files far larger than the heap can be reduced as they stream by.
+ */
+public class DelimitedReader {
+    private static final int DEFAULT_CHUNK_BYTES = 1 << 20;
+    /** chunks smaller than this are not worth splitting across threads */
+    private static final int MIN_PARALLEL_BYTES = 1 << 16;
+    private static final int MAX_FAST_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Receives each block of rows, firstRow being the index of its first row
+     * in the whole input
+     */
+    public interface BlockHandler {
+        void handle(Matrix block, long firstRow);
+    }
+
+    private final byte delimiter;
+    private boolean skipHeader;
+    private boolean parallel;
+    private int chunkBytes = DEFAULT_CHUNK_BYTES;
+
+    public DelimitedReader(char delimiter) {
+        if (delimiter > 127 || delimiter == '\n' || delimiter == '\r' || delimiter == '.'
+                || delimiter == '-' || delimiter == '+' || (delimiter >= '0' && delimiter <= '9')) {
+            throw new IllegalArgumentException("Unusable delimiter '" + delimiter + "'");
+        }
+        this.delimiter = (byte) delimiter;
+    }
+
+    public static DelimitedReader csv() {
+        return new DelimitedReader(',');
+    }
+
+    public static DelimitedReader tsv() {
+        return new DelimitedReader('\t');
+    }
+
+    /**
+     * Ignores the first line of the input, for files with column names
+     */
+    public DelimitedReader skipHeader(boolean skip) {
+        this.skipHeader = skip;
+        return this;
+    }
+
+    /**
+     * Parses each chunk on the Parallelism pool
+     */
+    public DelimitedReader parallel(boolean parallel) {
+        this.parallel = parallel;
+        return this;
+    }
+
+    /**
+     * Bytes read per chunk, a chunk grows past this only to fit a single line
+     */
+    public DelimitedReader chunkBytes(int bytes) {
+        if (bytes <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive, got " + bytes);
+        }
+        this.chunkBytes = bytes;
+        return this;
+    }
+
+    public Matrix read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return read(channel);
+        }
+    }
+
+    /**
+     * Reads every row of the input into one matrix
+     * @throws NumberFormatException on a field that is not a number
+     * @throws IllegalArgumentException on a row with a different number of
+     * values than the first
+     */
+    public Matrix read(ReadableByteChannel channel) throws IOException {
+        RowSink sink = new RowSink(0, null);
+        stream(channel, sink);
+        return sink.toMatrix();
+    }
+
+    public long readBlocks(Path path, int blockRows, BlockHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return readBlocks(channel, blockRows, handler);
+        }
+    }
+
+    /**
+     * Passes the input to handler blockRows rows at a time, only the last
+     * block may be shorter. Each block is a new matrix the handler may keep.
+     * @return the number of rows read
+     */
+    public long readBlocks(ReadableByteChannel channel, int blockRows, BlockHandler handler) throws IOException {
+        if (blockRows <= 0) {
+            throw new IllegalArgumentException("Block rows must be positive, got " + blockRows);
+        }
+        RowSink sink = new RowSink(blockRows, handler);
+        stream(channel, sink);
+        sink.flush();
+        return sink.firstRow;
+    }
+
+    private void stream(ReadableByteChannel channel, RowSink sink) throws IOException {
+        byte[] buf = new byte[chunkBytes];
+        int filled = 0;
+        long position = 0;
+        boolean header = skipHeader;
+        boolean eof = false;
+        while (!eof) {
+            while (filled < buf.length) {
+                int n = channel.read(ByteBuffer.wrap(buf, filled, buf.length - filled));
+                if (n < 0) {
+                    eof = true;
+                    break;
+                }
+                filled += n;
+            }
+            int end = eof ? filled : lastNewline(buf, filled) + 1;
+            int start = 0;
+            if (header) {
+                int newline = indexOf(buf, (byte) '\n', 0, end);
+                if (newline >= 0) {
+                    start = newline + 1;
+                    header = false;
+                } else if (eof) {
+                    start = end;
+                } else {
+                    end = 0;
+                }
+            }
+            if (end == 0 && !eof) {
+                // a single line longer than the whole chunk
+                buf = Arrays.copyOf(buf, buf.length * 2);
+                continue;
+            }
+            parse(buf, start, end, position, sink);
+            System.arraycopy(buf, end, buf, 0, filled - end);
+            position += end;
+            filled -= end;
+        }
+    }
+
+    private void parse(byte[] buf, int from, int to, long position, RowSink sink) {
+        ForkJoinPool pool = Parallelism.getPool();
+        int pieces = pool.getParallelism();
+        if (!parallel || pieces <= 1 || to - from < MIN_PARALLEL_BYTES) {
+            new Parser(buf, position, sink).parse(from, to);
+            return;
+        }
+        int[] bounds = new int[pieces + 1];
+        bounds[0] = from;
+        for (int k = 1; k < pieces; k++) {
+            int cut = Math.max(bounds[k - 1], from + (int) ((long) (to - from) * k / pieces));
+            int newline = indexOf(buf, (byte) '\n', cut, to);
+            bounds[k] = newline < 0 ? to : newline + 1;
+        }
+        bounds[pieces] = to;
+        RowSink[] sinks = new RowSink[pieces];
+        pool.invoke(new ParseTask(buf, position, bounds, sinks, 0, pieces));
+        for (RowSink piece : sinks) {
+            sink.addRows(piece, position);
+        }
+    }
+
+    private static int lastNewline(byte[] buf, int filled) {
+        for (int i = filled - 1; i >= 0; i--) {
+            if (buf[i] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(byte[] buf, byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buf[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Parses the lines in one range of a chunk into a sink, position is the
+     * offset of buf[0] in the input and only used for error messages
+     */
+    private final class Parser {
+        private final byte[] buf;
+        private final long position;
+        private final RowSink sink;
+        private int pos;
+
+        Parser(byte[] buf, long position, RowSink sink) {
+            this.buf = buf;
+            this.position = position;
+            this.sink = sink;
+        }
+
+        void parse(int from, int to) {
+            pos = from;
+            while (pos < to) {
+                int lineStart = pos;
+                skipBlanks(to);
+                if (pos == to || buf[pos] == '\n' || buf[pos] == '\r') {
+                    // empty line
+                    skipLineEnd(to, lineStart);
+                    continue;
+                }
+                while (true) {
+                    sink.add(parseNumber(to));
+                    skipBlanks(to);
+                    if (pos < to && buf[pos] == delimiter) {
+                        pos++;
+                        skipBlanks(to);
+                        continue;
+                    }
+                    break;
+                }
+                skipLineEnd(to, lineStart);
+                sink.endRow(position + lineStart);
+            }
+        }
+
+        private void skipBlanks(int to) {
+            while (pos < to && (buf[pos] == ' ' || buf[pos] == '\t') && buf[pos] != delimiter) {
+                pos++;
+            }
+        }
+
+        private void skipLineEnd(int to, int lineStart) {
+            if (pos < to && buf[pos] == '\r') {
+                pos++;
+            }
+            if (pos < to && buf[pos] != '\n') {
+                throw new NumberFormatException("Unexpected '" + (char) (buf[pos] & 0xff) + "' in the line at byte " + (position + lineStart));
+            }
+            pos++;
+        }
+
+        private double parseNumber(int to) {
+            int start = pos;
+            boolean negative = false;
+            if (pos < to && (buf[pos] == '-' || buf[pos] == '+')) {
+                negative = buf[pos] == '-';
+                pos++;
+            }
+            long mantissa = 0;
+            int significant = 0;
+            int exponent = 0;
+            boolean digits = false;
+            while (pos < to && isDigit(buf[pos])) {
+                digits = true;
+                if (mantissa != 0 || buf[pos] != '0') {
+                    if (significant < 18) {
+                        mantissa = mantissa * 10 + (buf[pos] - '0');
+                    } else {
+                        exponent++;
+                    }
+                    significant++;
+                }
+                pos++;
+            }
+            if (pos < to && buf[pos] == '.') {
+                pos++;
+                while (pos < to && isDigit(buf[pos])) {
+                    digits = true;
+                    if (mantissa != 0 || buf[pos] != '0') {
+                        if (significant < 18) {
+                            mantissa = mantissa * 10 + (buf[pos] - '0');
+                            exponent--;
+                        }
+                        significant++;
+                    } else {
+                        exponent--;
+                    }
+                    pos++;
+                }
+            }
+            if (!digits) {
+                return parseSpecial(start, to, negative);
+            }
+            if (pos < to && (buf[pos] == 'e' || buf[pos] == 'E')) {
+                pos++;
+                boolean negativeExponent = false;
+                if (pos < to && (buf[pos] == '-' || buf[pos] == '+')) {
+                    negativeExponent = buf[pos] == '-';
+                    pos++;
+                }
+                if (pos == to || !isDigit(buf[pos])) {
+                    throw malformed(start, to);
+                }
+                int e = 0;
+                while (pos < to && isDigit(buf[pos])) {
+                    // saturate, anything this large is 0 or infinite anyway
+                    e = Math.min(e * 10 + (buf[pos] - '0'), 100000);
+                    pos++;
+                }
+                exponent += negativeExponent ? -e : e;
+            }
+            double value;
+            if (mantissa == 0) {
+                value = 0.0;
+            } else if (significant <= MAX_FAST_DIGITS && exponent >= -22 && exponent <= 22) {
+                // both operands are exact doubles so the one rounding is correct
+                value = exponent >= 0
+                        ? mantissa * POWERS_OF_TEN[exponent]
+                        : mantissa / POWERS_OF_TEN[-exponent];
+            } else {
+                return Double.parseDouble(new String(buf, start, pos - start, StandardCharsets.US_ASCII));
+            }
+            return negative ? -value : value;
+        }
+
+        private double parseSpecial(int start, int to, boolean negative) {
+            if (matches("nan", to)) {
+                return Double.NaN;
+            }
+            if (matches("infinity", to) || matches("inf", to)) {
+                return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+            }
+            throw malformed(start, to);
+        }
+
+        private boolean matches(String word, int to) {
+            if (to - pos < word.length()) {
+                return false;
+            }
+            for (int i = 0; i < word.length(); i++) {
+                if (Character.toLowerCase((char) buf[pos + i]) != word.charAt(i)) {
+                    return false;
+                }
+            }
+            pos += word.length();
+            return true;
+        }
+
+        private NumberFormatException malformed(int start, int to) {
+            int end = start;
+            while (end < to && buf[end] != delimiter && buf[end] != '\n' && buf[end] != '\r') {
+                end++;
+            }
+            String field = new String(buf, start, end - start, StandardCharsets.UTF_8);
+            return new NumberFormatException("Not a number: \"" + field + "\" at byte " + (position + start));
+        }
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    /**
+     * Parses the pieces [bounds[k], bounds[k + 1]) for k in [k0, k1) into
+     * sinks[k]
+     */
+    private final class ParseTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] buf;
+        private final long position;
+        private final int[] bounds;
+        private final RowSink[] sinks;
+        private final int k0, k1;
+
+        ParseTask(byte[] buf, long position, int[] bounds, RowSink[] sinks, int k0, int k1) {
+            this.buf = buf;
+            this.position = position;
+            this.bounds = bounds;
+            this.sinks = sinks;
+            this.k0 = k0;
+            this.k1 = k1;
+        }
+
+        @Override
+        protected void compute() {
+            if (k1 - k0 == 1) {
+                sinks[k0] = new RowSink(0, null);
+                new Parser(buf, position, sinks[k0]).parse(bounds[k0], bounds[k0 + 1]);
+                return;
+            }
+            int mid = k0 + (k1 - k0) / 2;
+            invokeAll(new ParseTask(buf, position, bounds, sinks, k0, mid),
+                    new ParseTask(buf, position, bounds, sinks, mid, k1));
+        }
+    }
+
+    /**
+     * Collects parsed values row by row in one growing row-major array. With
+     * a handler the array is handed over, and a new one started, every time
+     * it holds blockRows rows.
+     */
+    private static final class RowSink {
+        private static final int INIT_VALUES = 1024;
+
+        private final int blockRows;
+        private final BlockHandler handler;
+        private double[] data = new double[INIT_VALUES];
+        private int size;
+        private int rows;
+        private int cols = -1;
+        /** index of the first row in data within the whole input */
+        long firstRow;
+
+        RowSink(int blockRows, BlockHandler handler) {
+            this.blockRows = blockRows;
+            this.handler = handler;
+        }
+
+        void add(double value) {
+            if (size == data.length) {
+                grow(size + 1);
+            }
+            data[size++] = value;
+        }
+
+        void endRow(long lineStart) {
+            int fields = size - rows * Math.max(cols, 0);
+            if (cols < 0) {
+                cols = fields;
+            } else if (fields != cols) {
+                throw new IllegalArgumentException("Line at byte " + lineStart + " has " + fields + " values, expected " + cols);
+            }
+            rows++;
+            if (rows == blockRows) {
+                flush();
+            }
+        }
+
+        /**
+         * Appends the rows another sink parsed, in the block mode of this one
+         */
+        void addRows(RowSink other, long position) {
+            if (other.rows == 0) {
+                return;
+            }
+            if (cols < 0) {
+                cols = other.cols;
+            } else if (other.cols != cols) {
+                throw new IllegalArgumentException("Rows of " + other.cols + " values in the chunk at byte " + position + ", expected " + cols);
+            }
+            int copied = 0;
+            while (copied < other.rows) {
+                int count = blockRows > 0 ? Math.min(other.rows - copied, blockRows - rows) : other.rows - copied;
+                if (size + count * cols > data.length) {
+                    grow(size + count * cols);
+                }
+                System.arraycopy(other.data, copied * cols, data, size, count * cols);
+                size += count * cols;
+                rows += count;
+                copied += count;
+                if (rows == blockRows) {
+                    flush();
+                }
+            }
+        }
+
+        private void grow(int minLength) {
+            long grown = Math.max((long) minLength, data.length + (long) (data.length >> 1));
+            if (grown > Integer.MAX_VALUE - 8) {
+                if (minLength > Integer.MAX_VALUE - 8) {
+                    throw new IllegalStateException("Input holds more values than fit in one matrix");
+                }
+                grown = Integer.MAX_VALUE - 8;
+            }
+            data = Arrays.copyOf(data, (int) grown);
+        }
+
+        /**
+         * Hands the complete rows collected so far to the handler
+         */
+        void flush() {
+            if (rows == 0) {
+                return;
+            }
+            handler.handle(toMatrix(), firstRow);
+            firstRow += rows;
+            data = new double[blockRows * cols];
+            size = 0;
+            rows = 0;
+        }
+
+        Matrix toMatrix() {
+            if (cols < 0) {
+                return new Matrix();
+            }
+            int length = rows * cols;
+            return Matrix.wrap(length == data.length ? data : Arrays.copyOf(data, length), rows, cols);
+        }
+    }
+}
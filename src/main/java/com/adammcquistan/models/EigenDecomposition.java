@@ -0,0 +1,566 @@
+package com.adammcquistan.models;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Eigendecomposition A = V diag(lambda) V^T of a symmetric n x n matrix.
+ *
+ * The constructor computes every eigenpair: A is copied once into a single
+ * n x n array, reduced to tridiagonal form by Householder reflections
+ * (accumulated in that same array) and the tridiagonal matrix is
+ * diagonalized by the implicit QL algorithm. For the QL sweeps the
+ * accumulated transform is kept transposed so every rotation combines two
+ * contiguous rows, each of which ends up as one eigenvector. The rows are
+ * sorted in place, so that array is the only n x n one besides A.
+ *
+ * largest(m, k) finds only the k algebraically largest eigenpairs with the
+ * Lanczos iteration, which touches A through matvec alone and keeps one
+ * n-vector per step instead of an n x n workspace.
+ *
+ * Eigenvalues are ordered from largest to smallest, eigenvector i belongs to
+ * eigenvalue i.
+ */
+public class EigenDecomposition {
+    private static final int MAX_QL_ITERATIONS = 60;
+    private static final double LANCZOS_TOLERANCE = 1e-10;
+    /** steps between two convergence checks of the Lanczos iteration */
+    private static final int LANCZOS_CHECK = 8;
+
+    private final int n;
+    private final double[] values;
+    /** eigenvector i at vectors[i * n .. (i + 1) * n), null when not computed */
+    private final double[] vectors;
+
+    public EigenDecomposition(Matrix m) throws ArithmeticException {
+        this(m, true);
+    }
+
+    /**
+     * @param computeVectors false to get the eigenvalues alone, which skips
+     * accumulating the transformations
+     */
+    public EigenDecomposition(Matrix m, boolean computeVectors) throws ArithmeticException {
+        checkSymmetric(m);
+        this.n = m.rows();
+        double[] v = m.toRowMajorArray();
+        double[] d = new double[n];
+        double[] e = new double[n];
+        tridiagonalize(v, d, e, n, computeVectors);
+        if (computeVectors) {
+            transposeInPlace(v, n);
+        }
+        ql(d, e, computeVectors ? v : null, n);
+
+        int[] order = descending(d, n);
+        this.values = new double[n];
+        for (int i = 0; i < n; i++) {
+            values[i] = d[order[i]];
+        }
+        if (computeVectors) {
+            permuteRows(v, order, n);
+        }
+        this.vectors = computeVectors ? v : null;
+    }
+
+    /**
+     * Moves row order[i] of the n x n row-major a into row i, one cycle of
+     * the permutation at a time with a single row of scratch
+     */
+    private static void permuteRows(double[] a, int[] order, int n) {
+        boolean[] placed = new boolean[n];
+        double[] first = new double[n];
+        for (int start = 0; start < n; start++) {
+            if (placed[start] || order[start] == start) {
+                continue;
+            }
+            System.arraycopy(a, start * n, first, 0, n);
+            int i = start;
+            while (order[i] != start) {
+                System.arraycopy(a, order[i] * n, a, i * n, n);
+                placed[i] = true;
+                i = order[i];
+            }
+            System.arraycopy(first, 0, a, i * n, n);
+            placed[i] = true;
+        }
+    }
+
+    private EigenDecomposition(int n, double[] values, double[] vectors) {
+        this.n = n;
+        this.values = values;
+        this.vectors = vectors;
+    }
+
+    /**
+     * The k algebraically largest eigenpairs of the symmetric matrix m by
+     * Lanczos iteration with full reorthogonalization, run until the
+     * residual of every wanted pair is negligible
+     */
+    public static EigenDecomposition largest(Matrix m, int k) throws ArithmeticException {
+        checkSymmetric(m);
+        int n = m.rows();
+        if (k < 1 || k > n) {
+            throw new IllegalArgumentException("Number of eigenpairs must be between 1 and " + n + ", got " + k);
+        }
+        // the Krylov space has to grow well past k anyway, so go dense
+        if (n <= 2 * k + 2 * LANCZOS_CHECK) {
+            EigenDecomposition full = new EigenDecomposition(m);
+            double[] values = new double[k];
+            double[] vectors = new double[k * n];
+            System.arraycopy(full.values, 0, values, 0, k);
+            System.arraycopy(full.vectors, 0, vectors, 0, k * n);
+            return new EigenDecomposition(n, values, vectors);
+        }
+        return new Lanczos(m, k).run();
+    }
+
+    private static void checkSymmetric(Matrix m) throws ArithmeticException {
+        if (m.rows() != m.cols()) {
+            throw new ArithmeticException("This matrix is not an n x n matrix it's a " + m.rows() + " x " + m.cols());
+        }
+        if (!m.isSymmetric()) {
+            throw new ArithmeticException("Matrix is not symmetric");
+        }
+    }
+
+    /**
+     * @return the number of eigenpairs held, n or the k asked of largest
+     */
+    public int size() {
+        return values.length;
+    }
+
+    public double getEigenvalue(int i) {
+        return values[i];
+    }
+
+    public Vector getEigenvalues() {
+        return Vector.wrap(values.clone());
+    }
+
+    public Vector getEigenvector(int i) throws UnsupportedOperationException {
+        checkVectors();
+        if (i < 0 || i >= values.length) {
+            throw new ArrayIndexOutOfBoundsException("Eigenvector " + i + " of " + values.length);
+        }
+        double[] v = new double[n];
+        System.arraycopy(vectors, i * n, v, 0, n);
+        return Vector.wrap(v);
+    }
+
+    /**
+     * @return the n x size() matrix with the eigenvectors as columns
+     */
+    public Matrix getV() throws UnsupportedOperationException {
+        checkVectors();
+        return Matrix.wrapColumnMajor(vectors.clone(), n, values.length);
+    }
+
+    private void checkVectors() throws UnsupportedOperationException {
+        if (vectors == null) {
+            throw new UnsupportedOperationException("Eigenvectors were not computed");
+        }
+    }
+
+    /**
+     * Householder reduction of the row-major symmetric v to tridiagonal form
+     * with diagonal d and subdiagonal e[1..n), e[0] = 0. With accumulate the
+     * orthogonal transform is left in v, otherwise v is just scratch.
+     * (tred2 of EISPACK, as in JAMA.)
+     */
+    private static void tridiagonalize(double[] v, double[] d, double[] e, int n, boolean accumulate) {
+        if (n == 0) {
+            return;
+        }
+        int last = (n - 1) * n;
+        for (int j = 0; j < n; j++) {
+            d[j] = v[last + j];
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int rowI = i * n;
+            double scale = 0.0;
+            double h = 0.0;
+            for (int k = 0; k < i; k++) {
+                scale += Math.abs(d[k]);
+            }
+            if (scale == 0.0) {
+                e[i] = d[i - 1];
+                for (int j = 0; j < i; j++) {
+                    d[j] = v[(i - 1) * n + j];
+                    v[rowI + j] = 0.0;
+                    v[j * n + i] = 0.0;
+                }
+            } else {
+                for (int k = 0; k < i; k++) {
+                    d[k] /= scale;
+                    h += d[k] * d[k];
+                }
+                double f = d[i - 1];
+                double g = Math.sqrt(h);
+                if (f > 0) {
+                    g = -g;
+                }
+                e[i] = scale * g;
+                h = h - f * g;
+                d[i - 1] = f - g;
+                for (int j = 0; j < i; j++) {
+                    e[j] = 0.0;
+                }
+                for (int j = 0; j < i; j++) {
+                    f = d[j];
+                    v[j * n + i] = f;
+                    g = e[j] + v[j * n + j] * f;
+                    for (int k = j + 1; k <= i - 1; k++) {
+                        g += v[k * n + j] * d[k];
+                        e[k] += v[k * n + j] * f;
+                    }
+                    e[j] = g;
+                }
+                f = 0.0;
+                for (int j = 0; j < i; j++) {
+                    e[j] /= h;
+                    f += e[j] * d[j];
+                }
+                double hh = f / (h + h);
+                for (int j = 0; j < i; j++) {
+                    e[j] -= hh * d[j];
+                }
+                for (int j = 0; j < i; j++) {
+                    f = d[j];
+                    g = e[j];
+                    for (int k = j; k <= i - 1; k++) {
+                        v[k * n + j] -= (f * e[k] + g * d[k]);
+                    }
+                    d[j] = v[(i - 1) * n + j];
+                    v[rowI + j] = 0.0;
+                }
+            }
+            d[i] = h;
+        }
+
+        if (!accumulate) {
+            // the diagonal sits on the diagonal of v, nothing below it is needed
+            for (int j = 0; j < n; j++) {
+                d[j] = v[j * n + j];
+            }
+            e[0] = 0.0;
+            return;
+        }
+        for (int i = 0; i < n - 1; i++) {
+            v[last + i] = v[i * n + i];
+            v[i * n + i] = 1.0;
+            double h = d[i + 1];
+            if (h != 0.0) {
+                for (int k = 0; k <= i; k++) {
+                    d[k] = v[k * n + i + 1] / h;
+                }
+                for (int j = 0; j <= i; j++) {
+                    double g = 0.0;
+                    for (int k = 0; k <= i; k++) {
+                        g += v[k * n + i + 1] * v[k * n + j];
+                    }
+                    for (int k = 0; k <= i; k++) {
+                        v[k * n + j] -= g * d[k];
+                    }
+                }
+            }
+            for (int k = 0; k <= i; k++) {
+                v[k * n + i + 1] = 0.0;
+            }
+        }
+        for (int j = 0; j < n; j++) {
+            d[j] = v[last + j];
+            v[last + j] = 0.0;
+        }
+        v[last + n - 1] = 1.0;
+        e[0] = 0.0;
+    }
+
+    private static void transposeInPlace(double[] a, int n) {
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                double tmp = a[i * n + j];
+                a[i * n + j] = a[j * n + i];
+                a[j * n + i] = tmp;
+            }
+        }
+    }
+
+    /**
+     * Implicit QL iteration on the symmetric tridiagonal matrix with
+     * diagonal d and subdiagonal e[1..n), leaving the eigenvalues in d.
+     * When w is given its rows are rotated along, so rows of the identity
+     * become the eigenvectors of the tridiagonal matrix and rows of the
+     * transposed Householder transform those of the original one.
+     * (tql2 of EISPACK, as in JAMA, with the vectors stored as rows.)
+     */
+    private static void ql(double[] d, double[] e, double[] w, int n) throws ArithmeticException {
+        if (n == 0) {
+            return;
+        }
+        for (int i = 1; i < n; i++) {
+            e[i - 1] = e[i];
+        }
+        e[n - 1] = 0.0;
+
+        double f = 0.0;
+        double tst1 = 0.0;
+        double eps = Math.ulp(1.0);
+        for (int l = 0; l < n; l++) {
+            tst1 = Math.max(tst1, Math.abs(d[l]) + Math.abs(e[l]));
+            int m = l;
+            while (m < n - 1 && Math.abs(e[m]) > eps * tst1) {
+                m++;
+            }
+            if (m > l) {
+                int iter = 0;
+                do {
+                    if (++iter > MAX_QL_ITERATIONS) {
+                        throw new ArithmeticException("Eigenvalue iteration did not converge");
+                    }
+                    double g = d[l];
+                    double p = (d[l + 1] - g) / (2.0 * e[l]);
+                    double r = Math.hypot(p, 1.0);
+                    if (p < 0) {
+                        r = -r;
+                    }
+                    d[l] = e[l] / (p + r);
+                    d[l + 1] = e[l] * (p + r);
+                    double dl1 = d[l + 1];
+                    double h = g - d[l];
+                    for (int i = l + 2; i < n; i++) {
+                        d[i] -= h;
+                    }
+                    f = f + h;
+
+                    p = d[m];
+                    double c = 1.0;
+                    double c2 = c;
+                    double c3 = c;
+                    double el1 = e[l + 1];
+                    double s = 0.0;
+                    double s2 = 0.0;
+                    for (int i = m - 1; i >= l; i--) {
+                        c3 = c2;
+                        c2 = c;
+                        s2 = s;
+                        g = c * e[i];
+                        h = c * p;
+                        r = Math.hypot(p, e[i]);
+                        e[i + 1] = s * r;
+                        s = e[i] / r;
+                        c = p / r;
+                        p = c * d[i] - s * g;
+                        d[i + 1] = h + s * (c * g + s * d[i]);
+                        if (w != null) {
+                            int rowI = i * n;
+                            int rowNext = rowI + n;
+                            for (int k = 0; k < n; k++) {
+                                double t = w[rowNext + k];
+                                w[rowNext + k] = s * w[rowI + k] + c * t;
+                                w[rowI + k] = c * w[rowI + k] - s * t;
+                            }
+                        }
+                    }
+                    p = -s * s2 * c3 * el1 * e[l] / dl1;
+                    e[l] = s * p;
+                    d[l] = c * p;
+                } while (Math.abs(e[l]) > eps * tst1);
+            }
+            d[l] = d[l] + f;
+            e[l] = 0.0;
+        }
+    }
+
+    /**
+     * @return the indices of the first n values of d, largest value first
+     */
+    private static int[] descending(double[] d, int n) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        // n is small next to the O(n^3) decomposition, a selection sort will do
+        for (int i = 0; i < n - 1; i++) {
+            int best = i;
+            for (int j = i + 1; j < n; j++) {
+                if (d[order[j]] > d[order[best]]) {
+                    best = j;
+                }
+            }
+            int tmp = order[i];
+            order[i] = order[best];
+            order[best] = tmp;
+        }
+        return order;
+    }
+
+    /**
+     * Lanczos vectors q_0, q_1, ... are kept as rows of one growing array.
+     * Every step orthogonalizes the new vector against all earlier ones
+     * (twice, which is enough in floating point), so no spurious copies of
+     * converged eigenvalues appear. Every LANCZOS_CHECK steps the tridiagonal
+     * T of the steps so far is diagonalized and the run stops once each of
+     * the k largest Ritz pairs (theta, y) has |beta * y(last)|, its residual
+     * norm, below the tolerance relative to the largest |theta|.
+     */
+    private static final class Lanczos {
+        private final Matrix a;
+        private final int n;
+        private final int k;
+        private double[] q;
+        private double[] alpha;
+        private double[] beta;
+        private final Random random = new Random(42);
+
+        Lanczos(Matrix a, int k) {
+            this.a = a;
+            this.n = a.rows();
+            this.k = k;
+            int capacity = Math.min(n, 2 * k + 4 * LANCZOS_CHECK);
+            this.q = new double[capacity * n];
+            this.alpha = new double[capacity];
+            this.beta = new double[capacity];
+        }
+
+        EigenDecomposition run() throws ArithmeticException {
+            startVector(0);
+            double[] w = new double[n];
+            Vector wv = Vector.wrap(w);
+            double normEstimate = 0.0;
+            for (int j = 0; j < n; j++) {
+                ensureSteps(j + 1);
+                a.gemv(1.0, row(j), 0.0, wv);
+                double aj = dot(w, 0, q, j * n);
+                alpha[j] = aj;
+                for (int pass = 0; pass < 2; pass++) {
+                    for (int i = 0; i <= j; i++) {
+                        axpy(-dot(w, 0, q, i * n), q, i * n, w, 0);
+                    }
+                }
+                double bj = Math.sqrt(dot(w, 0, w, 0));
+                normEstimate = Math.max(normEstimate, Math.abs(aj) + bj + (j > 0 ? beta[j - 1] : 0.0));
+                int steps = j + 1;
+                if (steps == n) {
+                    beta[j] = 0.0;
+                    return ritz(steps, true);
+                }
+                if (bj <= LANCZOS_TOLERANCE * normEstimate) {
+                    // invariant subspace, carry on from a fresh direction
+                    beta[j] = 0.0;
+                    ensureSteps(steps + 1);
+                    startVector(steps);
+                } else {
+                    beta[j] = bj;
+                    ensureSteps(steps + 1);
+                    for (int i = 0; i < n; i++) {
+                        q[steps * n + i] = w[i] / bj;
+                    }
+                }
+                if (steps >= k + LANCZOS_CHECK && steps % LANCZOS_CHECK == 0) {
+                    EigenDecomposition result = ritz(steps, false);
+                    if (result != null) {
+                        return result;
+                    }
+                }
+            }
+            return ritz(n, true);
+        }
+
+        /**
+         * @return the k largest Ritz pairs of the first steps Lanczos
+         * vectors, or null when one of them has not converged and force is false
+         */
+        private EigenDecomposition ritz(int steps, boolean force) throws ArithmeticException {
+            double[] d = new double[steps];
+            double[] e = new double[steps];
+            double[] s = new double[steps * steps];
+            for (int i = 0; i < steps; i++) {
+                d[i] = alpha[i];
+                if (i > 0) {
+                    e[i] = beta[i - 1];
+                }
+                s[i * steps + i] = 1.0;
+            }
+            ql(d, e, s, steps);
+            int[] order = descending(d, steps);
+            double scale = Math.max(Math.abs(d[order[0]]), Math.abs(d[order[steps - 1]]));
+            double residualScale = beta[steps - 1];
+            if (!force) {
+                for (int i = 0; i < k; i++) {
+                    double last = s[order[i] * steps + steps - 1];
+                    if (Math.abs(residualScale * last) > LANCZOS_TOLERANCE * scale) {
+                        return null;
+                    }
+                }
+            }
+            double[] values = new double[k];
+            double[] vectors = new double[k * n];
+            for (int i = 0; i < k; i++) {
+                values[i] = d[order[i]];
+                int y = order[i] * steps;
+                for (int r = 0; r < steps; r++) {
+                    axpy(s[y + r], q, r * n, vectors, i * n);
+                }
+            }
+            return new EigenDecomposition(n, values, vectors);
+        }
+
+        private Vector row(int j) {
+            return new Vector(q, j * n, n);
+        }
+
+        /**
+         * Puts a random unit vector orthogonal to the first j Lanczos vectors in row j
+         */
+        private void startVector(int j) throws ArithmeticException {
+            int base = j * n;
+            for (int attempt = 0; attempt < 10; attempt++) {
+                for (int i = 0; i < n; i++) {
+                    q[base + i] = random.nextDouble() - 0.5;
+                }
+                for (int pass = 0; pass < 2; pass++) {
+                    for (int i = 0; i < j; i++) {
+                        axpy(-dot(q, base, q, i * n), q, i * n, q, base);
+                    }
+                }
+                double norm = Math.sqrt(dot(q, base, q, base));
+                if (norm > 1e-8) {
+                    for (int i = 0; i < n; i++) {
+                        q[base + i] /= norm;
+                    }
+                    return;
+                }
+            }
+            throw new ArithmeticException("Could not extend the Lanczos basis");
+        }
+
+        private void ensureSteps(int steps) {
+            if (steps * n <= q.length) {
+                return;
+            }
+            int capacity = Math.min(n, Math.max(steps, alpha.length + (alpha.length >> 1)));
+            q = Arrays.copyOf(q, capacity * n);
+            alpha = Arrays.copyOf(alpha, capacity);
+            beta = Arrays.copyOf(beta, capacity);
+        }
+
+        private double dot(double[] x, int xOff, double[] y, int yOff) {
+            double s = 0.0;
+            for (int i = 0; i < n; i++) {
+                s += x[xOff + i] * y[yOff + i];
+            }
+            return s;
+        }
+
+        /**
+         * y += t * x over n values
+         */
+        private void axpy(double t, double[] x, int xOff, double[] y, int yOff) {
+            for (int i = 0; i < n; i++) {
+                y[yOff + i] += t * x[xOff + i];
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.adammcquistan.models;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Single precision matrix multiply kernel behind FloatMatrix.matmul.
+ *
+ * A KC x NC panel of B is packed row by row so it stays in L2. With the
+ * Vector API available (see Simd) the panel goes through a register tiled
+ * kernel, four rows of C by two float vectors of columns at a time.
+ * Otherwise, and for the columns left over, every row of C takes four rows
+ * of the panel at a time: the inner loop
+ * c[j] += a0 b0[j] + a1 b1[j] + a2 b2[j] + a3 b3[j] streams over contiguous
+ * floats that the JIT vectorizes, and C is loaded and stored once per four
+ * products instead of once per product.
+ */
+final class FloatGemm {
+    static final int KC = 256;
+    static final int NC = 512;
+
+    private FloatGemm() {
+    }
+
+    /**
+     * Computes C += A * B where A is m x k, B is k x n and C is m x n, every
+     * operand described by its array, the offset of element (0, 0) and its
+     * strides as in Gemm
+     */
+    static void multiply(int m, int n, int k,
+            float[] a, int aOff, int aRs, int aCs,
+            float[] b, int bOff, int bRs, int bCs,
+            float[] c, int cOff, int cRs) {
+        blocked(0, m, n, k, a, aOff, aRs, aCs, b, bOff, bRs, bCs, c, cOff, cRs);
+    }
+
+    /**
+     * Same as multiply with the rows of C split into fork/join tasks, each
+     * element of C still sees its products in the same order
+     */
+    static void parallelMultiply(ForkJoinPool pool, long threshold, int m, int n, int k,
+            float[] a, int aOff, int aRs, int aCs,
+            float[] b, int bOff, int bRs, int bCs,
+            float[] c, int cOff, int cRs) {
+        if ((long) m * n * k < threshold || m <= RowTask.LEAF_ROWS || pool.getParallelism() <= 1) {
+            multiply(m, n, k, a, aOff, aRs, aCs, b, bOff, bRs, bCs, c, cOff, cRs);
+            return;
+        }
+        pool.invoke(new RowTask(0, m, n, k, a, aOff, aRs, aCs, b, bOff, bRs, bCs, c, cOff, cRs));
+    }
+
+    private static final class RowTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int LEAF_ROWS = 64;
+
+        private final int rowStart, rowEnd, n, k;
+        private final float[] a, b, c;
+        private final int aOff, aRs, aCs, bOff, bRs, bCs, cOff, cRs;
+
+        RowTask(int rowStart, int rowEnd, int n, int k,
+                float[] a, int aOff, int aRs, int aCs,
+                float[] b, int bOff, int bRs, int bCs,
+                float[] c, int cOff, int cRs) {
+            this.rowStart = rowStart;
+            this.rowEnd = rowEnd;
+            this.n = n;
+            this.k = k;
+            this.a = a;
+            this.aOff = aOff;
+            this.aRs = aRs;
+            this.aCs = aCs;
+            this.b = b;
+            this.bOff = bOff;
+            this.bRs = bRs;
+            this.bCs = bCs;
+            this.c = c;
+            this.cOff = cOff;
+            this.cRs = cRs;
+        }
+
+        @Override
+        protected void compute() {
+            if (rowEnd - rowStart <= LEAF_ROWS) {
+                blocked(rowStart, rowEnd, n, k, a, aOff, aRs, aCs, b, bOff, bRs, bCs, c, cOff, cRs);
+                return;
+            }
+            int mid = rowStart + (rowEnd - rowStart) / 2;
+            invokeAll(new RowTask(rowStart, mid, n, k, a, aOff, aRs, aCs, b, bOff, bRs, bCs, c, cOff, cRs),
+                    new RowTask(mid, rowEnd, n, k, a, aOff, aRs, aCs, b, bOff, bRs, bCs, c, cOff, cRs));
+        }
+    }
+
+    static void blocked(int rowStart, int rowEnd, int n, int k,
+            float[] a, int aOff, int aRs, int aCs,
+            float[] b, int bOff, int bRs, int bCs,
+            float[] c, int cOff, int cRs) {
+        int ncMax = Math.min(NC, n);
+        float[] bPack = new float[Math.min(KC, k) * ncMax];
+        for (int jc = 0; jc < n; jc += NC) {
+            int nc = Math.min(NC, n - jc);
+            for (int pc = 0; pc < k; pc += KC) {
+                int kc = Math.min(KC, k - pc);
+                packB(kc, nc, b, bOff + pc * bRs + jc * bCs, bRs, bCs, bPack);
+                int done = 0;
+                if (Simd.useFor(nc)) {
+                    done = Simd.KERNELS.floatPanel(rowStart, rowEnd, kc, nc, a, aOff + pc * aCs, aRs, aCs, bPack, c, cOff + jc, cRs);
+                }
+                if (done < nc) {
+                    for (int i = rowStart; i < rowEnd; i++) {
+                        rowKernel(kc, nc, done, a, aOff + i * aRs + pc * aCs, aCs, bPack, c, cOff + i * cRs + jc);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void packB(int kc, int nc, float[] b, int bOff, int bRs, int bCs, float[] bPack) {
+        for (int p = 0; p < kc; p++) {
+            int src = bOff + p * bRs;
+            int dst = p * nc;
+            if (bCs == 1) {
+                System.arraycopy(b, src, bPack, dst, nc);
+            } else {
+                for (int j = 0; j < nc; j++) {
+                    bPack[dst + j] = b[src + j * bCs];
+                }
+            }
+        }
+    }
+
+    /**
+     * C(i, from..nc) += A(i, 0..kc) * panel
+     */
+    private static void rowKernel(int kc, int nc, int from, float[] a, int ai, int aCs, float[] bPack, float[] c, int ci) {
+        int p = 0;
+        for (; p + 3 < kc; p += 4) {
+            float a0 = a[ai + p * aCs];
+            float a1 = a[ai + (p + 1) * aCs];
+            float a2 = a[ai + (p + 2) * aCs];
+            float a3 = a[ai + (p + 3) * aCs];
+            int b0 = p * nc;
+            int b1 = b0 + nc;
+            int b2 = b1 + nc;
+            int b3 = b2 + nc;
+            for (int j = from; j < nc; j++) {
+                c[ci + j] += a0 * bPack[b0 + j] + a1 * bPack[b1 + j] + a2 * bPack[b2 + j] + a3 * bPack[b3 + j];
+            }
+        }
+        for (; p < kc; p++) {
+            float ap = a[ai + p * aCs];
+            int bp = p * nc;
+            for (int j = from; j < nc; j++) {
+                c[ci + j] += ap * bPack[bp + j];
+            }
+        }
+    }
+}
@@ -0,0 +1,460 @@
+package com.adammcquistan.models;
+
+import java.util.StringJoiner;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Single precision counterpart of Matrix: one flat float[] with the same
+ * offset, row stride and column stride addressing, so rows, columns and T()
+ * are views here too.
+ *
+ * Conversions are explicit, FloatMatrix.of(Matrix) rounds and toMatrix()
+ * widens. Decompositions and inverses are only offered on Matrix; convert,
+ * decompose in double and convert the result back if it is needed in float.
+ */
+public class FloatMatrix {
+    private static final int ADD = 0;
+    private static final int SUBTRACT = 1;
+    private static final int MULTIPLY = 2;
+    private static final int DIVIDE = 3;
+
+    private float[] data;
+    private int rows;
+    private int cols;
+    private int offset;
+    private int stride;
+    private int colStride = 1;
+
+    /**
+     * Creates a rows x cols matrix filled with zeros
+     */
+    public FloatMatrix(int rows, int cols) {
+        if (rows < 0 || cols < 0) {
+            throw new IllegalArgumentException("Matrix dimensions must be non-negative, got " + rows + " x " + cols);
+        }
+        this.data = new float[rows * cols];
+        this.rows = rows;
+        this.cols = cols;
+        this.stride = cols;
+    }
+
+    public FloatMatrix(float[][] arr) {
+        this(arr.length, arr.length == 0 ? 0 : arr[0].length);
+        for (int rowIdx = 0; rowIdx < arr.length; rowIdx++) {
+            float[] row = arr[rowIdx];
+            if (row.length != cols) {
+                throw new IllegalArgumentException("Row " + rowIdx + " has " + row.length + " values, expected " + cols);
+            }
+            System.arraycopy(row, 0, data, rowIdx * stride, cols);
+        }
+    }
+
+    /**
+     * Wraps a row-major array as a rows x cols matrix without copying it
+     */
+    static FloatMatrix wrap(float[] arr, int rows, int cols) {
+        FloatMatrix m = new FloatMatrix(0, 0);
+        m.data = arr;
+        m.rows = rows;
+        m.cols = cols;
+        m.stride = cols;
+        return m;
+    }
+
+    /**
+     * @return m rounded to single precision
+     */
+    public static FloatMatrix of(Matrix m) {
+        FloatMatrix result = new FloatMatrix(m.rows(), m.cols());
+        for (int row = 0; row < m.rows(); row++) {
+            for (int col = 0; col < m.cols(); col++) {
+                result.data[row * result.cols + col] = (float) m.get(row, col);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return this matrix widened to double precision
+     */
+    public Matrix toMatrix() {
+        double[] arr = new double[rows * cols];
+        for (int row = 0; row < rows; row++) {
+            int a = offset + row * stride;
+            for (int col = 0; col < cols; col++) {
+                arr[row * cols + col] = data[a + col * colStride];
+            }
+        }
+        return Matrix.wrap(arr, rows, cols);
+    }
+
+    /**
+     * Returns the row as a vector backed by this matrix's storage
+     */
+    public FloatVector getRow(int rowIdx) {
+        if (rowIdx < 0 || rowIdx >= rows) {
+            throw new ArrayIndexOutOfBoundsException("Attempting to select row @ index " + rowIdx + " from a matrix with only " + rows + " rows");
+        }
+        return new FloatVector(data, offset + rowIdx * stride, cols, colStride);
+    }
+
+    /**
+     * Returns the column as a vector backed by this matrix's storage
+     */
+    public FloatVector getColumn(int colIdx) {
+        if (colIdx < 0 || colIdx >= cols) {
+            throw new ArrayIndexOutOfBoundsException("Attempting to select column @ index " + colIdx + " from a matrix with only " + cols + " columns");
+        }
+        return new FloatVector(data, offset + colIdx * colStride, rows, stride);
+    }
+
+    public float get(int rowIdx, int colIdx) {
+        checkIndex(rowIdx, colIdx);
+        return data[offset + rowIdx * stride + colIdx * colStride];
+    }
+
+    public void set(int rowIdx, int colIdx, float value) {
+        checkIndex(rowIdx, colIdx);
+        data[offset + rowIdx * stride + colIdx * colStride] = value;
+    }
+
+    private void checkIndex(int rowIdx, int colIdx) {
+        if (rowIdx < 0 || rowIdx >= rows || colIdx < 0 || colIdx >= cols) {
+            throw new ArrayIndexOutOfBoundsException("Index (" + rowIdx + ", " + colIdx + ") is outside a " + rows + " x " + cols + " matrix");
+        }
+    }
+
+    public void replaceRow(int rowIdx, FloatVector v) {
+        if (v.size() != cols) {
+            throw new IllegalArgumentException("Vector size (" + v.size() + ") <> matrix columns (" + cols + ")");
+        }
+        FloatVector row = getRow(rowIdx);
+        for (int col = 0; col < cols; col++) {
+            row.replace(col, v.get(col));
+        }
+    }
+
+    public void replaceColumn(int colIdx, FloatVector v) {
+        if (v.size() != rows) {
+            throw new IllegalArgumentException("Vector size (" + v.size() + ") <> matrix rows (" + rows + ")");
+        }
+        FloatVector column = getColumn(colIdx);
+        for (int row = 0; row < rows; row++) {
+            column.replace(row, v.get(row));
+        }
+    }
+
+    public void fill(float x) {
+        for (int row = 0; row < rows; row++) {
+            int a = offset + row * stride;
+            for (int col = 0; col < cols; col++) {
+                data[a + col * colStride] = x;
+            }
+        }
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    public FloatMatrix add(FloatMatrix m) {
+        return add(m, new FloatMatrix(rows, cols));
+    }
+
+    public FloatMatrix add(float x) {
+        return add(x, new FloatMatrix(rows, cols));
+    }
+
+    public FloatMatrix subtract(FloatMatrix m) {
+        return subtract(m, new FloatMatrix(rows, cols));
+    }
+
+    public FloatMatrix subtract(float x) {
+        return subtract(x, new FloatMatrix(rows, cols));
+    }
+
+    public FloatMatrix multiply(FloatMatrix m) {
+        return multiply(m, new FloatMatrix(rows, cols));
+    }
+
+    public FloatMatrix multiply(float x) {
+        return multiply(x, new FloatMatrix(rows, cols));
+    }
+
+    public FloatMatrix divide(FloatMatrix m) {
+        return divide(m, new FloatMatrix(rows, cols));
+    }
+
+    public FloatMatrix divide(float x) {
+        return divide(x, new FloatMatrix(rows, cols));
+    }
+
+    /*
+     * As in Matrix the "into" variants write into a caller supplied matrix of
+     * the same shape, which may be this matrix or m, and the InPlace variants
+     * overwrite this matrix.
+     */
+
+    public FloatMatrix add(FloatMatrix m, FloatMatrix dest) {
+        return elementWise(ADD, m, dest);
+    }
+
+    public FloatMatrix add(float x, FloatMatrix dest) {
+        return elementWise(ADD, x, dest);
+    }
+
+    public FloatMatrix addInPlace(FloatMatrix m) {
+        return add(m, this);
+    }
+
+    public FloatMatrix addInPlace(float x) {
+        return add(x, this);
+    }
+
+    public FloatMatrix subtract(FloatMatrix m, FloatMatrix dest) {
+        return elementWise(SUBTRACT, m, dest);
+    }
+
+    public FloatMatrix subtract(float x, FloatMatrix dest) {
+        return elementWise(SUBTRACT, x, dest);
+    }
+
+    public FloatMatrix subtractInPlace(FloatMatrix m) {
+        return subtract(m, this);
+    }
+
+    public FloatMatrix subtractInPlace(float x) {
+        return subtract(x, this);
+    }
+
+    public FloatMatrix multiply(FloatMatrix m, FloatMatrix dest) {
+        return elementWise(MULTIPLY, m, dest);
+    }
+
+    public FloatMatrix multiply(float x, FloatMatrix dest) {
+        return elementWise(MULTIPLY, x, dest);
+    }
+
+    public FloatMatrix multiplyInPlace(FloatMatrix m) {
+        return multiply(m, this);
+    }
+
+    public FloatMatrix multiplyInPlace(float x) {
+        return multiply(x, this);
+    }
+
+    public FloatMatrix divide(FloatMatrix m, FloatMatrix dest) {
+        return elementWise(DIVIDE, m, dest);
+    }
+
+    public FloatMatrix divide(float x, FloatMatrix dest) {
+        return elementWise(DIVIDE, x, dest);
+    }
+
+    public FloatMatrix divideInPlace(FloatMatrix m) {
+        return divide(m, this);
+    }
+
+    public FloatMatrix divideInPlace(float x) {
+        return divide(x, this);
+    }
+
+    public FloatMatrix scaleInPlace(float alpha) {
+        return multiply(alpha, this);
+    }
+
+    /**
+     * Row by row through the FloatVector kernels, whose row views share this
+     * storage
+     */
+    private FloatMatrix elementWise(int op, FloatMatrix m, FloatMatrix dest) {
+        checkSizeElementWiseCompatibility(m);
+        checkSizeElementWiseCompatibility(dest);
+        for (int row = 0; row < rows; row++) {
+            FloatVector a = getRow(row);
+            FloatVector b = m.getRow(row);
+            FloatVector c = dest.getRow(row);
+            switch (op) {
+            case ADD:
+                a.add(b, c);
+                break;
+            case SUBTRACT:
+                a.subtract(b, c);
+                break;
+            case MULTIPLY:
+                a.multiply(b, c);
+                break;
+            default:
+                a.divide(b, c);
+            }
+        }
+        return dest;
+    }
+
+    private FloatMatrix elementWise(int op, float x, FloatMatrix dest) {
+        checkSizeElementWiseCompatibility(dest);
+        for (int row = 0; row < rows; row++) {
+            FloatVector a = getRow(row);
+            FloatVector c = dest.getRow(row);
+            switch (op) {
+            case ADD:
+                a.add(x, c);
+                break;
+            case SUBTRACT:
+                a.subtract(x, c);
+                break;
+            case MULTIPLY:
+                a.multiply(x, c);
+                break;
+            default:
+                a.divide(x, c);
+            }
+        }
+        return dest;
+    }
+
+    /**
+     * Y = alpha * X + Y, updating this matrix (Y) in place
+     * @return this matrix
+     */
+    public FloatMatrix axpy(float alpha, FloatMatrix x) {
+        checkSizeElementWiseCompatibility(x);
+        for (int row = 0; row < rows; row++) {
+            getRow(row).axpy(alpha, x.getRow(row));
+        }
+        return this;
+    }
+
+    /**
+     * @return an independent row-major copy of the transpose, see T() for a
+     * view
+     */
+    public FloatMatrix transpose() {
+        return T().copy();
+    }
+
+    /**
+     * Transposed view sharing this matrix's storage
+     */
+    public FloatMatrix T() {
+        FloatMatrix t = wrap(data, cols, rows);
+        t.offset = offset;
+        t.stride = colStride;
+        t.colStride = stride;
+        return t;
+    }
+
+    /**
+     * Matrix product with float accumulation, computed into a freshly
+     * allocated result by the FloatGemm kernel
+     */
+    public FloatMatrix matmul(FloatMatrix m) {
+        checkMatMulCompatibility(m);
+        FloatMatrix result = new FloatMatrix(rows, m.cols);
+        FloatGemm.multiply(rows, m.cols, cols,
+                data, offset, stride, colStride,
+                m.data, m.offset, m.stride, m.colStride,
+                result.data, 0, result.stride);
+        return result;
+    }
+
+    /**
+     * Matrix product split into row blocks on the Parallelism pool when it
+     * has at least Parallelism.getMatmulThreshold() multiply-adds
+     */
+    public FloatMatrix parallelMatmul(FloatMatrix m) {
+        return parallelMatmul(m, Parallelism.getPool());
+    }
+
+    public FloatMatrix parallelMatmul(FloatMatrix m, ForkJoinPool pool) {
+        checkMatMulCompatibility(m);
+        FloatMatrix result = new FloatMatrix(rows, m.cols);
+        FloatGemm.parallelMultiply(pool, Parallelism.getMatmulThreshold(), rows, m.cols, cols,
+                data, offset, stride, colStride,
+                m.data, m.offset, m.stride, m.colStride,
+                result.data, 0, result.stride);
+        return result;
+    }
+
+    /**
+     * @return A x with every row dot product accumulated in float
+     */
+    public FloatVector matvec(FloatVector x) {
+        checkMatVecCompatibility(x);
+        float[] result = new float[rows];
+        for (int row = 0; row < rows; row++) {
+            result[row] = getRow(row).dot(x);
+        }
+        return FloatVector.wrap(result);
+    }
+
+    /**
+     * @return A x with every row dot product accumulated in double
+     */
+    public Vector matvecDouble(FloatVector x) {
+        checkMatVecCompatibility(x);
+        double[] result = new double[rows];
+        for (int row = 0; row < rows; row++) {
+            result[row] = getRow(row).dotDouble(x);
+        }
+        return Vector.wrap(result);
+    }
+
+    private void checkMatVecCompatibility(FloatVector x) throws ArithmeticException {
+        if (x.size() != cols) {
+            throw new ArithmeticException("Incompatible vector size " + x.size() + " for a matrix with " + cols + " columns");
+        }
+    }
+
+    private void checkSizeElementWiseCompatibility(FloatMatrix m) throws ArithmeticException {
+        if (rows != m.rows || cols != m.cols) {
+            throw new ArithmeticException("Incompatible matrix dimensions [" + rows + " x " + cols + "] vs [" + m.rows + " x " + m.cols + "]");
+        }
+    }
+
+    private void checkMatMulCompatibility(FloatMatrix m) throws ArithmeticException {
+        if (cols != m.rows) {
+            throw new ArithmeticException("Incompatible matrix dimensions [" + rows + " x " + cols + "] vs [" + m.rows + " x " + m.cols + "]");
+        }
+    }
+
+    public float[][] toArray() {
+        float[][] arr = new float[rows][];
+        for (int row = 0; row < rows; row++) {
+            arr[row] = getRow(row).toArray();
+        }
+        return arr;
+    }
+
+    /**
+     * @return a compact row-major deep copy of this matrix
+     */
+    public FloatMatrix copy() {
+        FloatMatrix result = new FloatMatrix(rows, cols);
+        for (int row = 0; row < rows; row++) {
+            getRow(row).copyTo(result.data, row * cols);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        String s = "FloatMatrix[" + rows + " x " + cols + "]\n  [\n";
+        StringJoiner sj = new StringJoiner(",\n");
+        for (int row = 0; row < rows; row++) {
+            if (cols == 0) {
+                break;
+            }
+            if (rows <= 6 || row < 2 || row > rows - 3) {
+                sj.add(String.format("%6d", row) + ": " + getRow(row));
+            } else if (row == 2) {
+                sj.add("       ... ");
+            }
+        }
+        return s + sj + "\n  ]";
+    }
+}
@@ -0,0 +1,614 @@
+package com.adammcquistan.models;
+
+import java.util.StringJoiner;
+
+/**
+ * Single precision counterpart of Vector, half the memory and memory traffic
+ * for data that does not need 53 bits of mantissa.
+ *
+ * Nothing converts between float and double implicitly: FloatVector.of(Vector)
+ * rounds each value and toVector() widens them back. dot, sum and
+ * sumOfSquares accumulate in float like the data; dotDouble, sumDouble and
+ * sumOfSquaresDouble widen every value and accumulate in double, which is
+ * barely slower since they are bound by reading the floats anyway, and
+ * normL2 always goes through the double sum of squares. Large vectors run on
+ * the Parallelism pool exactly like Vector.
+ */
+public class FloatVector {
+    private static final int INIT_CAPACITY = 100;
+    private static final int MAX_CAPACITY = 1000000;
+    private static final float[] EMPTY = new float[0];
+
+    private static final int ADD = 0;
+    private static final int SUBTRACT = 1;
+    private static final int MULTIPLY = 2;
+    private static final int DIVIDE = 3;
+
+    private int currentIdx = -1;
+    private float[] data;
+    private int offset;
+    private int stride = 1;
+    private boolean view;
+
+    public FloatVector() {
+        data = EMPTY;
+    }
+
+    /**
+     * Creates an empty vector with room for size values before append has
+     * to grow the backing array
+     */
+    public FloatVector(int size) {
+        data = new float[size];
+    }
+
+    public FloatVector(float[] arr) {
+        data = arr.clone();
+        currentIdx = arr.length - 1;
+    }
+
+    /**
+     * Wraps every stride-th value of an existing array starting at offset,
+     * used by FloatMatrix to hand out rows and columns without copying them
+     */
+    FloatVector(float[] data, int offset, int size, int stride) {
+        this.data = data;
+        this.offset = offset;
+        this.stride = stride;
+        this.currentIdx = size - 1;
+        this.view = true;
+    }
+
+    static FloatVector wrap(float[] arr) {
+        FloatVector v = new FloatVector(0);
+        v.data = arr;
+        v.currentIdx = arr.length - 1;
+        return v;
+    }
+
+    private static FloatVector sized(int n) {
+        return wrap(new float[n]);
+    }
+
+    /**
+     * @return v rounded to single precision
+     */
+    public static FloatVector of(Vector v) {
+        float[] arr = new float[v.size()];
+        for (int i = 0; i < arr.length; i++) {
+            arr[i] = (float) v.get(i);
+        }
+        return wrap(arr);
+    }
+
+    /**
+     * @return this vector widened to double precision
+     */
+    public Vector toVector() {
+        double[] arr = new double[size()];
+        for (int i = 0; i < arr.length; i++) {
+            arr[i] = data[offset + i * stride];
+        }
+        return Vector.wrap(arr);
+    }
+
+    public boolean append(float item) {
+        if (!ensureCapacity(size() + 1)) {
+            return false;
+        }
+        data[++currentIdx] = item;
+        return true;
+    }
+
+    public boolean appendAll(float[] arr) {
+        if (!ensureCapacity(size() + arr.length)) {
+            return false;
+        }
+        System.arraycopy(arr, 0, data, currentIdx + 1, arr.length);
+        currentIdx += arr.length;
+        return true;
+    }
+
+    public boolean appendAll(FloatVector v) {
+        if (!ensureCapacity(size() + v.size())) {
+            return false;
+        }
+        v.copyTo(data, currentIdx + 1);
+        currentIdx += v.size();
+        return true;
+    }
+
+    /**
+     * Grows the backing array like Vector does, a view always gets its own
+     * array here
+     */
+    private boolean ensureCapacity(int minCapacity) {
+        if (!view && minCapacity <= data.length) {
+            return true;
+        }
+        if (minCapacity > MAX_CAPACITY || minCapacity < 0) {
+            return false;
+        }
+        int current = view ? size() : data.length;
+        int newLength = Math.max(INIT_CAPACITY, current + (current >> 1));
+        newLength = Math.min(Math.max(newLength, minCapacity), MAX_CAPACITY);
+        float[] newData = new float[newLength];
+        copyTo(newData, 0);
+        data = newData;
+        offset = 0;
+        stride = 1;
+        view = false;
+        return true;
+    }
+
+    public void fill(float x) {
+        for (int i = 0; i < size(); i++) {
+            data[offset + i * stride] = x;
+        }
+    }
+
+    public float get(int idx) {
+        if (idx < 0 || idx > currentIdx) {
+            throw new ArrayIndexOutOfBoundsException("Attempting to get value @ index " + idx + " in an array of size " + size());
+        }
+        return data[offset + idx * stride];
+    }
+
+    public void replace(int idx, float value) {
+        if (idx < 0 || idx > currentIdx) {
+            throw new ArrayIndexOutOfBoundsException("Attempting to replace value @ index " + idx + " in an array of size " + size());
+        }
+        data[offset + idx * stride] = value;
+    }
+
+    public int size() {
+        return currentIdx + 1;
+    }
+
+    public FloatVector add(FloatVector v) {
+        return add(v, sized(size()));
+    }
+
+    public FloatVector add(float x) {
+        return add(x, sized(size()));
+    }
+
+    public FloatVector subtract(FloatVector v) {
+        return subtract(v, sized(size()));
+    }
+
+    public FloatVector subtract(float x) {
+        return subtract(x, sized(size()));
+    }
+
+    public FloatVector multiply(FloatVector v) {
+        return multiply(v, sized(size()));
+    }
+
+    public FloatVector multiply(float x) {
+        return multiply(x, sized(size()));
+    }
+
+    public FloatVector divide(FloatVector v) {
+        return divide(v, sized(size()));
+    }
+
+    public FloatVector divide(float x) {
+        return divide(x, sized(size()));
+    }
+
+    /*
+     * As in Vector the "into" variants write into a caller supplied vector of
+     * the same size, which may be this vector or v, and the InPlace variants
+     * overwrite this vector.
+     */
+
+    public FloatVector add(FloatVector v, FloatVector dest) {
+        return elementWise(ADD, v, dest);
+    }
+
+    public FloatVector add(float x, FloatVector dest) {
+        return elementWise(ADD, x, dest);
+    }
+
+    public FloatVector addInPlace(FloatVector v) {
+        return add(v, this);
+    }
+
+    public FloatVector addInPlace(float x) {
+        return add(x, this);
+    }
+
+    public FloatVector subtract(FloatVector v, FloatVector dest) {
+        return elementWise(SUBTRACT, v, dest);
+    }
+
+    public FloatVector subtract(float x, FloatVector dest) {
+        return elementWise(SUBTRACT, x, dest);
+    }
+
+    public FloatVector subtractInPlace(FloatVector v) {
+        return subtract(v, this);
+    }
+
+    public FloatVector subtractInPlace(float x) {
+        return subtract(x, this);
+    }
+
+    public FloatVector multiply(FloatVector v, FloatVector dest) {
+        return elementWise(MULTIPLY, v, dest);
+    }
+
+    public FloatVector multiply(float x, FloatVector dest) {
+        return elementWise(MULTIPLY, x, dest);
+    }
+
+    public FloatVector multiplyInPlace(FloatVector v) {
+        return multiply(v, this);
+    }
+
+    public FloatVector multiplyInPlace(float x) {
+        return multiply(x, this);
+    }
+
+    public FloatVector divide(FloatVector v, FloatVector dest) {
+        return elementWise(DIVIDE, v, dest);
+    }
+
+    public FloatVector divide(float x, FloatVector dest) {
+        return elementWise(DIVIDE, x, dest);
+    }
+
+    public FloatVector divideInPlace(FloatVector v) {
+        return divide(v, this);
+    }
+
+    public FloatVector divideInPlace(float x) {
+        return divide(x, this);
+    }
+
+    public FloatVector scaleInPlace(float alpha) {
+        return multiply(alpha, this);
+    }
+
+    private FloatVector elementWise(int op, FloatVector v, FloatVector dest) {
+        // a one element v is a scalar, except for divide which never broadcast in Vector
+        if (v.size() == 1 && size() != 1 && op != DIVIDE) {
+            return elementWise(op, v.get(0), dest);
+        }
+        checkSizeCompatibility(v);
+        checkSizeCompatibility(dest);
+        int n = size();
+        if (VectorTasks.useFor(n)) {
+            VectorTasks.forEach(n, (from, to) -> elementWiseRange(op, v, dest, from, to));
+        } else {
+            elementWiseRange(op, v, dest, 0, n);
+        }
+        return dest;
+    }
+
+    private void elementWiseRange(int op, FloatVector v, FloatVector dest, int from, int to) {
+        float[] a = data, b = v.data, c = dest.data;
+        if (stride != 1 || v.stride != 1 || dest.stride != 1) {
+            for (int i = from; i < to; i++) {
+                c[dest.offset + i * dest.stride] = apply(op, a[offset + i * stride], b[v.offset + i * v.stride]);
+            }
+            return;
+        }
+        int ao = offset, bo = v.offset, co = dest.offset;
+        // one plain loop per operation so each of them gets vectorized by the JIT
+        switch (op) {
+        case ADD:
+            for (int i = from; i < to; i++) {
+                c[co + i] = a[ao + i] + b[bo + i];
+            }
+            break;
+        case SUBTRACT:
+            for (int i = from; i < to; i++) {
+                c[co + i] = a[ao + i] - b[bo + i];
+            }
+            break;
+        case MULTIPLY:
+            for (int i = from; i < to; i++) {
+                c[co + i] = a[ao + i] * b[bo + i];
+            }
+            break;
+        default:
+            for (int i = from; i < to; i++) {
+                c[co + i] = a[ao + i] / b[bo + i];
+            }
+        }
+    }
+
+    private FloatVector elementWise(int op, float x, FloatVector dest) {
+        checkSizeCompatibility(dest);
+        int n = size();
+        if (VectorTasks.useFor(n)) {
+            VectorTasks.forEach(n, (from, to) -> elementWiseRange(op, x, dest, from, to));
+        } else {
+            elementWiseRange(op, x, dest, 0, n);
+        }
+        return dest;
+    }
+
+    private void elementWiseRange(int op, float x, FloatVector dest, int from, int to) {
+        float[] a = data, c = dest.data;
+        if (stride != 1 || dest.stride != 1) {
+            for (int i = from; i < to; i++) {
+                c[dest.offset + i * dest.stride] = apply(op, a[offset + i * stride], x);
+            }
+            return;
+        }
+        int ao = offset, co = dest.offset;
+        switch (op) {
+        case ADD:
+            for (int i = from; i < to; i++) {
+                c[co + i] = a[ao + i] + x;
+            }
+            break;
+        case SUBTRACT:
+            for (int i = from; i < to; i++) {
+                c[co + i] = a[ao + i] - x;
+            }
+            break;
+        case MULTIPLY:
+            for (int i = from; i < to; i++) {
+                c[co + i] = a[ao + i] * x;
+            }
+            break;
+        default:
+            for (int i = from; i < to; i++) {
+                c[co + i] = a[ao + i] / x;
+            }
+        }
+    }
+
+    private static float apply(int op, float a, float b) {
+        switch (op) {
+        case ADD:
+            return a + b;
+        case SUBTRACT:
+            return a - b;
+        case MULTIPLY:
+            return a * b;
+        default:
+            return a / b;
+        }
+    }
+
+    /**
+     * y = alpha * x + y, updating this vector (y) in place
+     * @return this vector
+     */
+    public FloatVector axpy(float alpha, FloatVector x) {
+        checkSizeCompatibility(x);
+        int n = size();
+        if (VectorTasks.useFor(n)) {
+            VectorTasks.forEach(n, (from, to) -> axpyRange(alpha, x, from, to));
+        } else {
+            axpyRange(alpha, x, 0, n);
+        }
+        return this;
+    }
+
+    private void axpyRange(float alpha, FloatVector x, int from, int to) {
+        if (stride != 1 || x.stride != 1) {
+            for (int i = from; i < to; i++) {
+                data[offset + i * stride] += alpha * x.data[x.offset + i * x.stride];
+            }
+            return;
+        }
+        for (int i = from; i < to; i++) {
+            data[offset + i] += alpha * x.data[x.offset + i];
+        }
+    }
+
+    /*
+     * Reductions split and combine like those of Vector, so they do not
+     * depend on the number of threads either. The float variants combine
+     * their partial sums in double before the final rounding.
+     */
+
+    public float dot(FloatVector v) {
+        checkSizeCompatibility(v);
+        int n = size();
+        if (VectorTasks.useFor(n)) {
+            return (float) VectorTasks.reduce(n, (from, to) -> dotRange(v, from, to), Double::sum);
+        }
+        return dotRange(v, 0, n);
+    }
+
+    private float dotRange(FloatVector v, int from, int to) {
+        if (stride != 1 || v.stride != 1) {
+            float s = 0.0f;
+            for (int i = from; i < to; i++) {
+                s += data[offset + i * stride] * v.data[v.offset + i * v.stride];
+            }
+            return s;
+        }
+        if (Simd.useFor(to - from)) {
+            return Simd.KERNELS.dot(data, offset + from, v.data, v.offset + from, to - from);
+        }
+        float s = 0.0f;
+        for (int i = from; i < to; i++) {
+            s += data[offset + i] * v.data[v.offset + i];
+        }
+        return s;
+    }
+
+    /**
+     * Dot product with every value widened and summed in double
+     */
+    public double dotDouble(FloatVector v) {
+        checkSizeCompatibility(v);
+        int n = size();
+        if (VectorTasks.useFor(n)) {
+            return VectorTasks.reduce(n, (from, to) -> dotDoubleRange(v, from, to), Double::sum);
+        }
+        return dotDoubleRange(v, 0, n);
+    }
+
+    private double dotDoubleRange(FloatVector v, int from, int to) {
+        if (stride != 1 || v.stride != 1) {
+            double s = 0.0d;
+            for (int i = from; i < to; i++) {
+                s += (double) data[offset + i * stride] * v.data[v.offset + i * v.stride];
+            }
+            return s;
+        }
+        if (Simd.useFor(to - from)) {
+            return Simd.KERNELS.dotDouble(data, offset + from, v.data, v.offset + from, to - from);
+        }
+        double s = 0.0d;
+        for (int i = from; i < to; i++) {
+            s += (double) data[offset + i] * v.data[v.offset + i];
+        }
+        return s;
+    }
+
+    public float sum() {
+        int n = size();
+        if (VectorTasks.useFor(n)) {
+            return (float) VectorTasks.reduce(n, this::sumRange, Double::sum);
+        }
+        return sumRange(0, n);
+    }
+
+    private float sumRange(int from, int to) {
+        float s = 0.0f;
+        for (int i = from; i < to; i++) {
+            s += data[offset + i * stride];
+        }
+        return s;
+    }
+
+    public double sumDouble() {
+        int n = size();
+        if (VectorTasks.useFor(n)) {
+            return VectorTasks.reduce(n, this::sumDoubleRange, Double::sum);
+        }
+        return sumDoubleRange(0, n);
+    }
+
+    private double sumDoubleRange(int from, int to) {
+        double s = 0.0d;
+        for (int i = from; i < to; i++) {
+            s += data[offset + i * stride];
+        }
+        return s;
+    }
+
+    public float sumOfSquares() {
+        return dot(this);
+    }
+
+    public double sumOfSquaresDouble() {
+        return dotDouble(this);
+    }
+
+    /**
+     * This is the Manhattan norm
+     * @return Manhattan norm
+     */
+    public float normL1() {
+        int n = size();
+        if (VectorTasks.useFor(n)) {
+            return (float) VectorTasks.reduce(n, this::normL1Range, Double::sum);
+        }
+        return normL1Range(0, n);
+    }
+
+    private float normL1Range(int from, int to) {
+        float norm = 0.0f;
+        for (int i = from; i < to; i++) {
+            norm += Math.abs(data[offset + i * stride]);
+        }
+        return norm;
+    }
+
+    /**
+     * Euclidean norm, from the sum of squares in double so that it neither
+     * overflows nor loses the small values
+     */
+    public float normL2() {
+        return (float) Math.sqrt(sumOfSquaresDouble());
+    }
+
+    public float normMax() {
+        int n = size();
+        if (VectorTasks.useFor(n)) {
+            return (float) VectorTasks.reduce(n, this::normMaxRange, Math::max);
+        }
+        return normMaxRange(0, n);
+    }
+
+    /**
+     * NaN as soon as one value is NaN, the same rule as Vector.normMax
+     */
+    private float normMaxRange(int from, int to) {
+        float absMax = 0.0f;
+        for (int i = from; i < to; i++) {
+            absMax = Math.max(absMax, Math.abs(data[offset + i * stride]));
+        }
+        return absMax;
+    }
+
+    private void checkSizeCompatibility(FloatVector v) throws ArithmeticException {
+        if (size() != v.size()) {
+            throw new ArithmeticException("Incompatible vector sizes " + v.size() + " and " + size());
+        }
+    }
+
+    public float[] toArray() {
+        float[] result = new float[size()];
+        copyTo(result, 0);
+        return result;
+    }
+
+    /*
+     * Raw storage access for the kernels in this package, element i is
+     * array()[offset() + i * stride()]
+     */
+
+    float[] array() {
+        return data;
+    }
+
+    int offset() {
+        return offset;
+    }
+
+    int stride() {
+        return stride;
+    }
+
+    void copyTo(float[] dest, int destPos) {
+        if (stride == 1) {
+            System.arraycopy(data, offset, dest, destPos, size());
+            return;
+        }
+        for (int i = 0; i < size(); i++) {
+            dest[destPos + i] = data[offset + i * stride];
+        }
+    }
+
+    @Override
+    public String toString() {
+        String s = "FloatVector[" + size() + "] => ";
+        StringJoiner sj = new StringJoiner(",");
+        if (size() > 8) {
+            for (int i = 0; i < 3; i++) {
+                sj.add(String.format("%10.4f", data[offset + i * stride]));
+            }
+            sj.add("...");
+            for (int i = size() - 3; i < size(); i++) {
+                sj.add(String.format("%10.4f", data[offset + i * stride]));
+            }
+        } else {
+            for (int i = 0; i < size(); i++) {
+                sj.add(String.format("%10.4f", data[offset + i * stride]));
+            }
+        }
+        return s + "[" + sj + "]";
+    }
+}
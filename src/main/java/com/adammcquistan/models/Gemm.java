@@ -0,0 +1,273 @@
+package com.adammcquistan.models;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Cache blocked matrix multiply kernel behind Matrix.matmul.
+ *
+ * Uses the usual GotoBLAS layout: a KC x NC panel of B is packed so it stays
+ * in L2/L3, an MC x KC block of A is packed so it stays in L2, and a 4 x 4
+ * register tiled micro kernel walks both packed buffers sequentially adding
+ * its tile straight into the preallocated result C.
+ */
+final class Gemm {
+    static final int MR = 4;
+    static final int NR = 4;
+    static final int MC = 64;
+    static final int KC = 256;
+    static final int NC = 2048;
+
+    /** products with fewer multiply-adds than this use the plain triple loop */
+    static final long BLOCKED_THRESHOLD = 64L * 64 * 64;
+
+    private Gemm() {
+    }
+
+    /**
+     * Computes C += A * B where A is m x k, B is k x n and C is m x n. Every
+     * operand is described by its array, the offset of element (0, 0) and
+     * its row and column strides.
+     */
+    static void multiply(int m, int n, int k,
+            double[] a, int aOff, int aRs, int aCs,
+            double[] b, int bOff, int bRs, int bCs,
+            double[] c, int cOff, int cRs) {
+        if ((long) m * n * k < BLOCKED_THRESHOLD) {
+            naive(0, m, 0, n, k, a, aOff, aRs, aCs, b, bOff, bRs, bCs, c, cOff, cRs);
+        } else {
+            blocked(0, m, 0, n, k, a, aOff, aRs, aCs, b, bOff, bRs, bCs, c, cOff, cRs);
+        }
+    }
+
+    /**
+     * Same as multiply but splits C into disjoint tiles that run as fork/join
+     * tasks on the given pool. Each element of C is still produced by a single
+     * task in the same order, so the result matches the serial kernel exactly.
+     */
+    static void parallelMultiply(ForkJoinPool pool, long threshold, int m, int n, int k,
+            double[] a, int aOff, int aRs, int aCs,
+            double[] b, int bOff, int bRs, int bCs,
+            double[] c, int cOff, int cRs) {
+        long work = (long) m * n * k;
+        if (work < threshold || work < BLOCKED_THRESHOLD) {
+            multiply(m, n, k, a, aOff, aRs, aCs, b, bOff, bRs, bCs, c, cOff, cRs);
+            return;
+        }
+        pool.invoke(new TileTask(0, m, 0, n, k, a, aOff, aRs, aCs, b, bOff, bRs, bCs, c, cOff, cRs));
+    }
+
+    /**
+     * Halves its tile of C along the longer side until the tile is about
+     * MC rows by NC/4 columns, then runs the blocked kernel on it
+     */
+    private static final class TileTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int LEAF_ROWS = 2 * MC;
+        private static final int LEAF_COLS = NC / 4;
+
+        private final int rowStart, rowEnd, colStart, colEnd, k;
+        private final double[] a, b, c;
+        private final int aOff, aRs, aCs, bOff, bRs, bCs, cOff, cRs;
+
+        TileTask(int rowStart, int rowEnd, int colStart, int colEnd, int k,
+                double[] a, int aOff, int aRs, int aCs,
+                double[] b, int bOff, int bRs, int bCs,
+                double[] c, int cOff, int cRs) {
+            this.rowStart = rowStart;
+            this.rowEnd = rowEnd;
+            this.colStart = colStart;
+            this.colEnd = colEnd;
+            this.k = k;
+            this.a = a;
+            this.aOff = aOff;
+            this.aRs = aRs;
+            this.aCs = aCs;
+            this.b = b;
+            this.bOff = bOff;
+            this.bRs = bRs;
+            this.bCs = bCs;
+            this.c = c;
+            this.cOff = cOff;
+            this.cRs = cRs;
+        }
+
+        @Override
+        protected void compute() {
+            int tileRows = rowEnd - rowStart;
+            int tileCols = colEnd - colStart;
+            if (tileRows <= LEAF_ROWS && tileCols <= LEAF_COLS) {
+                blocked(rowStart, rowEnd, colStart, colEnd, k, a, aOff, aRs, aCs, b, bOff, bRs, bCs, c, cOff, cRs);
+                return;
+            }
+            if (tileRows * (long) LEAF_COLS >= tileCols * (long) LEAF_ROWS) {
+                int mid = rowStart + roundUp(tileRows / 2, MC);
+                invokeAll(sub(rowStart, mid, colStart, colEnd), sub(mid, rowEnd, colStart, colEnd));
+            } else {
+                int mid = colStart + roundUp(tileCols / 2, NR);
+                invokeAll(sub(rowStart, rowEnd, colStart, mid), sub(rowStart, rowEnd, mid, colEnd));
+            }
+        }
+
+        private TileTask sub(int r0, int r1, int c0, int c1) {
+            return new TileTask(r0, r1, c0, c1, k, a, aOff, aRs, aCs, b, bOff, bRs, bCs, c, cOff, cRs);
+        }
+    }
+
+    /**
+     * Row i, column j loop order so the innermost loop streams across a row
+     * of B and a row of C
+     */
+    static void naive(int rowStart, int rowEnd, int colStart, int colEnd, int k,
+            double[] a, int aOff, int aRs, int aCs,
+            double[] b, int bOff, int bRs, int bCs,
+            double[] c, int cOff, int cRs) {
+        for (int i = rowStart; i < rowEnd; i++) {
+            int ci = cOff + i * cRs;
+            for (int p = 0; p < k; p++) {
+                double aip = a[aOff + i * aRs + p * aCs];
+                int bp = bOff + p * bRs;
+                if (bCs == 1) {
+                    for (int j = colStart; j < colEnd; j++) {
+                        c[ci + j] += aip * b[bp + j];
+                    }
+                } else {
+                    for (int j = colStart; j < colEnd; j++) {
+                        c[ci + j] += aip * b[bp + j * bCs];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Blocked product restricted to rows [rowStart, rowEnd) and columns
+     * [colStart, colEnd) of C, so callers can hand disjoint tiles of C to
+     * different threads
+     */
+    static void blocked(int rowStart, int rowEnd, int colStart, int colEnd, int k,
+            double[] a, int aOff, int aRs, int aCs,
+            double[] b, int bOff, int bRs, int bCs,
+            double[] c, int cOff, int cRs) {
+        int ncMax = Math.min(NC, roundUp(colEnd - colStart, NR));
+        int kcMax = Math.min(KC, k);
+        double[] bPack = new double[kcMax * ncMax];
+        double[] aPack = new double[MC * kcMax];
+
+        for (int jc = colStart; jc < colEnd; jc += NC) {
+            int nc = Math.min(NC, colEnd - jc);
+            for (int pc = 0; pc < k; pc += KC) {
+                int kc = Math.min(KC, k - pc);
+                packB(kc, nc, b, bOff + pc * bRs + jc * bCs, bRs, bCs, bPack);
+                for (int ic = rowStart; ic < rowEnd; ic += MC) {
+                    int mc = Math.min(MC, rowEnd - ic);
+                    packA(mc, kc, a, aOff + ic * aRs + pc * aCs, aRs, aCs, aPack);
+                    for (int jr = 0; jr < nc; jr += NR) {
+                        int nr = Math.min(NR, nc - jr);
+                        for (int ir = 0; ir < mc; ir += MR) {
+                            int mr = Math.min(MR, mc - ir);
+                            microKernel(kc, aPack, ir * kc, bPack, jr * kc,
+                                    c, cOff + (ic + ir) * cRs + jc + jr, cRs, mr, nr);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Packs an mc x kc block of A into MR tall row panels, each stored column
+     * by column, padding the last panel with zeros
+     */
+    private static void packA(int mc, int kc, double[] a, int aOff, int aRs, int aCs, double[] aPack) {
+        int idx = 0;
+        for (int ir = 0; ir < mc; ir += MR) {
+            int mr = Math.min(MR, mc - ir);
+            for (int p = 0; p < kc; p++) {
+                int src = aOff + ir * aRs + p * aCs;
+                for (int i = 0; i < mr; i++) {
+                    aPack[idx++] = a[src + i * aRs];
+                }
+                for (int i = mr; i < MR; i++) {
+                    aPack[idx++] = 0.0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Packs a kc x nc panel of B into NR wide column panels, each stored row
+     * by row, padding the last panel with zeros
+     */
+    private static void packB(int kc, int nc, double[] b, int bOff, int bRs, int bCs, double[] bPack) {
+        int idx = 0;
+        for (int jr = 0; jr < nc; jr += NR) {
+            int nr = Math.min(NR, nc - jr);
+            for (int p = 0; p < kc; p++) {
+                int src = bOff + p * bRs + jr * bCs;
+                for (int j = 0; j < nr; j++) {
+                    bPack[idx++] = b[src + j * bCs];
+                }
+                for (int j = nr; j < NR; j++) {
+                    bPack[idx++] = 0.0;
+                }
+            }
+        }
+    }
+
+    /**
+     * 4 x 4 register tile: sixteen accumulators live in registers for the
+     * whole kc loop and only touch C once at the end
+     */
+    private static void microKernel(int kc, double[] aPack, int ai, double[] bPack, int bi,
+            double[] c, int ci, int cRs, int mr, int nr) {
+        double c00 = 0, c01 = 0, c02 = 0, c03 = 0;
+        double c10 = 0, c11 = 0, c12 = 0, c13 = 0;
+        double c20 = 0, c21 = 0, c22 = 0, c23 = 0;
+        double c30 = 0, c31 = 0, c32 = 0, c33 = 0;
+
+        for (int p = 0; p < kc; p++) {
+            double a0 = aPack[ai];
+            double a1 = aPack[ai + 1];
+            double a2 = aPack[ai + 2];
+            double a3 = aPack[ai + 3];
+            double b0 = bPack[bi];
+            double b1 = bPack[bi + 1];
+            double b2 = bPack[bi + 2];
+            double b3 = bPack[bi + 3];
+            c00 += a0 * b0; c01 += a0 * b1; c02 += a0 * b2; c03 += a0 * b3;
+            c10 += a1 * b0; c11 += a1 * b1; c12 += a1 * b2; c13 += a1 * b3;
+            c20 += a2 * b0; c21 += a2 * b1; c22 += a2 * b2; c23 += a2 * b3;
+            c30 += a3 * b0; c31 += a3 * b1; c32 += a3 * b2; c33 += a3 * b3;
+            ai += MR;
+            bi += NR;
+        }
+
+        if (mr == MR && nr == NR) {
+            c[ci] += c00; c[ci + 1] += c01; c[ci + 2] += c02; c[ci + 3] += c03;
+            ci += cRs;
+            c[ci] += c10; c[ci + 1] += c11; c[ci + 2] += c12; c[ci + 3] += c13;
+            ci += cRs;
+            c[ci] += c20; c[ci + 1] += c21; c[ci + 2] += c22; c[ci + 3] += c23;
+            ci += cRs;
+            c[ci] += c30; c[ci + 1] += c31; c[ci + 2] += c32; c[ci + 3] += c33;
+            return;
+        }
+
+        double[] tile = {
+            c00, c01, c02, c03,
+            c10, c11, c12, c13,
+            c20, c21, c22, c23,
+            c30, c31, c32, c33
+        };
+        for (int i = 0; i < mr; i++) {
+            for (int j = 0; j < nr; j++) {
+                c[ci + i * cRs + j] += tile[i * NR + j];
+            }
+        }
+    }
+
+    private static int roundUp(int x, int multiple) {
+        return ((x + multiple - 1) / multiple) * multiple;
+    }
+}
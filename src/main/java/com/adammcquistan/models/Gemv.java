@@ -0,0 +1,154 @@
+package com.adammcquistan.models;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Matrix-vector product kernel behind Matrix.gemv, y = alpha * A x + beta * y.
+ *
+ * When the rows of A are contiguous each y(i) is a dot product, taken four
+ * rows at a time so every x(j) loaded serves four rows. When only the
+ * columns are contiguous (column-major storage, or the transposed view of a
+ * row-major matrix) y is built up as alpha * x(j) times column j added one
+ * column after the other. Either way rows can be split into disjoint blocks
+ * for the fork/join pool, and each y(i) is summed in the same order whether
+ * the product runs serially or in parallel.
+ */
+final class Gemv {
+    /** rows per fork/join leaf */
+    static final int LEAF_ROWS = 256;
+
+    private Gemv() {
+    }
+
+    /**
+     * A is m x n at a[aOff + i * aRs + j * aCs], x is contiguous from xOff
+     * and y(i) is y[yOff + i * yInc]
+     */
+    static void multiply(ForkJoinPool pool, long threshold, int m, int n, double alpha,
+            double[] a, int aOff, int aRs, int aCs,
+            double[] x, int xOff,
+            double beta, double[] y, int yOff, int yInc) {
+        if ((long) m * n >= threshold && m > LEAF_ROWS && pool.getParallelism() > 1) {
+            pool.invoke(new RowTask(0, m, n, alpha, a, aOff, aRs, aCs, x, xOff, beta, y, yOff, yInc));
+        } else {
+            rows(0, m, n, alpha, a, aOff, aRs, aCs, x, xOff, beta, y, yOff, yInc);
+        }
+    }
+
+    private static void rows(int i0, int i1, int n, double alpha,
+            double[] a, int aOff, int aRs, int aCs,
+            double[] x, int xOff,
+            double beta, double[] y, int yOff, int yInc) {
+        if (aRs == 1 && aCs != 1) {
+            axpyColumns(i0, i1, n, alpha, a, aOff, aCs, x, xOff, beta, y, yOff, yInc);
+        } else {
+            dotRows(i0, i1, n, alpha, a, aOff, aRs, aCs, x, xOff, beta, y, yOff, yInc);
+        }
+    }
+
+    private static void dotRows(int i0, int i1, int n, double alpha,
+            double[] a, int aOff, int aRs, int aCs,
+            double[] x, int xOff,
+            double beta, double[] y, int yOff, int yInc) {
+        int i = i0;
+        for (; i + 3 < i1; i += 4) {
+            int r0 = aOff + i * aRs;
+            int r1 = r0 + aRs;
+            int r2 = r1 + aRs;
+            int r3 = r2 + aRs;
+            double s0 = 0.0, s1 = 0.0, s2 = 0.0, s3 = 0.0;
+            for (int j = 0, p = 0; j < n; j++, p += aCs) {
+                double xj = x[xOff + j];
+                s0 += a[r0 + p] * xj;
+                s1 += a[r1 + p] * xj;
+                s2 += a[r2 + p] * xj;
+                s3 += a[r3 + p] * xj;
+            }
+            int k = yOff + i * yInc;
+            store(y, k, alpha * s0, beta);
+            store(y, k + yInc, alpha * s1, beta);
+            store(y, k + 2 * yInc, alpha * s2, beta);
+            store(y, k + 3 * yInc, alpha * s3, beta);
+        }
+        for (; i < i1; i++) {
+            int r = aOff + i * aRs;
+            double s = 0.0;
+            for (int j = 0, p = 0; j < n; j++, p += aCs) {
+                s += a[r + p] * x[xOff + j];
+            }
+            store(y, yOff + i * yInc, alpha * s, beta);
+        }
+    }
+
+    /**
+     * y(i) = alpha * s + beta * y(i), y is not read when beta is 0 so
+     * whatever it held (NaN included) does not leak into the result
+     */
+    private static void store(double[] y, int k, double s, double beta) {
+        y[k] = beta == 0.0 ? s : s + beta * y[k];
+    }
+
+    private static void axpyColumns(int i0, int i1, int n, double alpha,
+            double[] a, int aOff, int aCs,
+            double[] x, int xOff,
+            double beta, double[] y, int yOff, int yInc) {
+        for (int i = i0; i < i1; i++) {
+            int k = yOff + i * yInc;
+            y[k] = beta == 0.0 ? 0.0 : beta * y[k];
+        }
+        for (int j = 0; j < n; j++) {
+            double t = alpha * x[xOff + j];
+            if (t == 0.0) {
+                continue;
+            }
+            int col = aOff + j * aCs;
+            for (int i = i0; i < i1; i++) {
+                y[yOff + i * yInc] += t * a[col + i];
+            }
+        }
+    }
+
+    /**
+     * Halves the row range until a leaf has at most LEAF_ROWS rows
+     */
+    private static final class RowTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int i0, i1, n;
+        private final double alpha, beta;
+        private final double[] a, x, y;
+        private final int aOff, aRs, aCs, xOff, yOff, yInc;
+
+        RowTask(int i0, int i1, int n, double alpha,
+                double[] a, int aOff, int aRs, int aCs,
+                double[] x, int xOff,
+                double beta, double[] y, int yOff, int yInc) {
+            this.i0 = i0;
+            this.i1 = i1;
+            this.n = n;
+            this.alpha = alpha;
+            this.a = a;
+            this.aOff = aOff;
+            this.aRs = aRs;
+            this.aCs = aCs;
+            this.x = x;
+            this.xOff = xOff;
+            this.beta = beta;
+            this.y = y;
+            this.yOff = yOff;
+            this.yInc = yInc;
+        }
+
+        @Override
+        protected void compute() {
+            if (i1 - i0 <= LEAF_ROWS) {
+                rows(i0, i1, n, alpha, a, aOff, aRs, aCs, x, xOff, beta, y, yOff, yInc);
+                return;
+            }
+            int mid = i0 + (i1 - i0) / 2;
+            invokeAll(new RowTask(i0, mid, n, alpha, a, aOff, aRs, aCs, x, xOff, beta, y, yOff, yInc),
+                    new RowTask(mid, i1, n, alpha, a, aOff, aRs, aCs, x, xOff, beta, y, yOff, yInc));
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.adammcquistan.models;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Blocked modified Gram-Schmidt kernel behind Matrix.orthoNormalize, working
+ * in place on a column-major array where column j is a[j * rows .. (j + 1) * rows).
+ *
+ * Columns are finished BLOCK at a time. Within a block each column is
+ * projected against the earlier columns of the block and normalized, then the
+ * whole block is projected out of every column to its right while that
+ * column is still in cache. Every column still sees the projections in
+ * order 0, 1, ..., so the result is the same as the plain column by column
+ * loop; only the memory traffic changes. The update of the columns to the
+ * right is split across a fork/join pool once it is big enough.
+ */
+final class GramSchmidt {
+    static final int BLOCK = 32;
+
+    /** columns with less norm than this left after projection are set to zero */
+    static final double TOLERANCE = 0.000000001;
+
+    private GramSchmidt() {
+    }
+
+    static void orthonormalize(double[] a, int rows, int cols, ForkJoinPool pool, long parallelThreshold) {
+        for (int j0 = 0; j0 < cols; j0 += BLOCK) {
+            int j1 = Math.min(cols, j0 + BLOCK);
+            for (int i = j0; i < j1; i++) {
+                for (int j = j0; j < i; j++) {
+                    project(a, rows, j, i);
+                }
+                normalize(a, rows, i);
+            }
+            if (j1 == cols) {
+                break;
+            }
+            long work = (long) rows * (j1 - j0) * (cols - j1);
+            if (work >= parallelThreshold && pool.getParallelism() > 1) {
+                pool.invoke(new UpdateTask(a, rows, j0, j1, j1, cols));
+            } else {
+                update(a, rows, j0, j1, j1, cols);
+            }
+        }
+    }
+
+    /**
+     * Projects finished columns [j0, j1) out of columns [i0, i1)
+     */
+    private static void update(double[] a, int rows, int j0, int j1, int i0, int i1) {
+        for (int i = i0; i < i1; i++) {
+            for (int j = j0; j < j1; j++) {
+                project(a, rows, j, i);
+            }
+        }
+    }
+
+    /**
+     * column i -= (column i . column j) * column j, column j having unit or zero norm
+     */
+    private static void project(double[] a, int rows, int j, int i) {
+        int qj = j * rows;
+        int vi = i * rows;
+        double d = 0.0;
+        for (int r = 0; r < rows; r++) {
+            d += a[vi + r] * a[qj + r];
+        }
+        for (int r = 0; r < rows; r++) {
+            a[vi + r] -= d * a[qj + r];
+        }
+    }
+
+    private static void normalize(double[] a, int rows, int i) {
+        int vi = i * rows;
+        double ss = 0.0;
+        for (int r = 0; r < rows; r++) {
+            ss += a[vi + r] * a[vi + r];
+        }
+        double norm = Math.sqrt(ss);
+        if (norm > TOLERANCE) {
+            for (int r = 0; r < rows; r++) {
+                a[vi + r] /= norm;
+            }
+        } else {
+            for (int r = 0; r < rows; r++) {
+                a[vi + r] = 0.0;
+            }
+        }
+    }
+
+    /**
+     * Halves the range of columns to update until each task has a few blocks
+     * worth, every column is still updated by exactly one task
+     */
+    private static final class UpdateTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private static final int LEAF_COLS = 4 * BLOCK;
+
+        private final double[] a;
+        private final int rows, j0, j1, i0, i1;
+
+        UpdateTask(double[] a, int rows, int j0, int j1, int i0, int i1) {
+            this.a = a;
+            this.rows = rows;
+            this.j0 = j0;
+            this.j1 = j1;
+            this.i0 = i0;
+            this.i1 = i1;
+        }
+
+        @Override
+        protected void compute() {
+            if (i1 - i0 <= LEAF_COLS) {
+                update(a, rows, j0, j1, i0, i1);
+                return;
+            }
+            int mid = i0 + (i1 - i0) / 2;
+            invokeAll(new UpdateTask(a, rows, j0, j1, i0, mid), new UpdateTask(a, rows, j0, j1, mid, i1));
+        }
+    }
+}
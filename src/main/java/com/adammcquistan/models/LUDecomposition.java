@@ -0,0 +1,434 @@
+package com.adammcquistan.models;
+
+import java.util.Arrays;
+
+/**
+ * LU decomposition with partial pivoting, PA = LU, of an n x n matrix.
+ *
+ * The factorization is done once, in place over a single row-major copy of
+ * the matrix: the strictly lower part holds L (its unit diagonal is implied)
+ * and the upper part holds U. Each solve afterwards costs O(n^2) per right
+ * hand side instead of a full O(n^3) inversion. Built with a Workspace the
+ * factor and all solve scratch come from it and release() returns them.
+ *
+ * As in LAPACK getrf only an exactly zero (or NaN) pivot makes the matrix
+ * singular, so badly scaled but invertible matrices still get inverted. Use
+ * conditionEstimate() to tell how close to singular the matrix is.
+ */
+public class LUDecomposition {
+    private final double[] lu;
+    private final int n;
+    private final int[] pivot;
+    private final boolean singular;
+    private final double norm1;
+    private final Workspace workspace;
+    private int pivotSign = 1;
+
+    public LUDecomposition(Matrix m) throws ArithmeticException {
+        this(m, null);
+    }
+
+    /**
+     * Keeps the factor in arrays acquired from workspace, call release() once
+     * done with the decomposition
+     */
+    public LUDecomposition(Matrix m, Workspace workspace) throws ArithmeticException {
+        if (m.rows() != m.cols()) {
+            throw new ArithmeticException("This matrix is not an n x n matrix it's a " + m.rows() + " x " + m.cols());
+        }
+        this.n = m.rows();
+        this.workspace = workspace;
+        if (workspace == null) {
+            this.lu = m.toRowMajorArray();
+            this.pivot = new int[n];
+        } else {
+            this.lu = workspace.acquire(n * n);
+            this.pivot = workspace.acquireInts(n);
+            m.copyToRowMajor(lu);
+        }
+        for (int i = 0; i < n; i++) {
+            pivot[i] = i;
+        }
+        this.norm1 = norm1();
+        this.singular = factor();
+    }
+
+    /**
+     * Hands the factor back to the workspace it was built with, the
+     * decomposition must not be used afterwards. Does nothing without a
+     * workspace.
+     */
+    public void release() {
+        if (workspace != null) {
+            workspace.release(lu);
+            workspace.release(pivot);
+        }
+    }
+
+    private double[] scratch(int length) {
+        return workspace == null ? new double[length] : workspace.acquire(length);
+    }
+
+    private void discard(double[] buffer) {
+        if (workspace != null) {
+            workspace.release(buffer);
+        }
+    }
+
+    /**
+     * @return the largest absolute column sum of the matrix still in lu
+     */
+    private double norm1() {
+        double max = 0.0;
+        for (int j = 0; j < n; j++) {
+            double sum = 0.0;
+            for (int i = 0; i < n; i++) {
+                sum += Math.abs(lu[i * n + j]);
+            }
+            max = Math.max(max, sum);
+        }
+        return max;
+    }
+
+    /**
+     * Right looking elimination, choosing the largest remaining value in each
+     * column as the pivot
+     * @return true when a zero pivot was found
+     */
+    private boolean factor() {
+        boolean zeroPivot = false;
+        for (int k = 0; k < n; k++) {
+            int p = k;
+            double max = Math.abs(lu[k * n + k]);
+            for (int i = k + 1; i < n; i++) {
+                double cur = Math.abs(lu[i * n + k]);
+                if (cur > max) {
+                    max = cur;
+                    p = i;
+                }
+            }
+            if (p != k) {
+                swapRows(lu, n, p, k);
+                int tmp = pivot[p];
+                pivot[p] = pivot[k];
+                pivot[k] = tmp;
+                pivotSign = -pivotSign;
+            }
+
+            if (!(max > 0.0)) {
+                // nothing left to eliminate below an exact zero, only NaN gets here otherwise
+                zeroPivot = true;
+                continue;
+            }
+
+            double pivotValue = lu[k * n + k];
+            int rowK = k * n;
+            for (int i = k + 1; i < n; i++) {
+                int rowI = i * n;
+                double l = lu[rowI + k] / pivotValue;
+                lu[rowI + k] = l;
+                if (l == 0.0) {
+                    continue;
+                }
+                for (int j = k + 1; j < n; j++) {
+                    lu[rowI + j] -= l * lu[rowK + j];
+                }
+            }
+        }
+        return zeroPivot;
+    }
+
+    private static void swapRows(double[] arr, int width, int r1, int r2) {
+        int a = r1 * width;
+        int b = r2 * width;
+        for (int j = 0; j < width; j++) {
+            double tmp = arr[a + j];
+            arr[a + j] = arr[b + j];
+            arr[b + j] = tmp;
+        }
+    }
+
+    public boolean isSingular() {
+        return singular;
+    }
+
+    /**
+     * @return the determinant, 0 for a singular matrix
+     */
+    public double determinant() {
+        if (singular) {
+            return 0.0;
+        }
+        double det = pivotSign;
+        for (int i = 0; i < n; i++) {
+            det *= lu[i * n + i];
+        }
+        return det;
+    }
+
+    /**
+     * Estimates the reciprocal condition number 1 / (||A||_1 ||A^-1||_1) with
+     * Hager's method, a few O(n^2) solves instead of forming the inverse.
+     * Values near Math.ulp(1.0) mean solutions have lost about all their
+     * digits, 0 is returned for a singular matrix.
+     */
+    public double conditionEstimate() {
+        if (singular || norm1 == 0.0) {
+            return 0.0;
+        }
+        double[] x = scratch(n);
+        double[] y = scratch(n);
+        Arrays.fill(x, 0, n, 1.0 / n);
+        double inverseNorm = 0.0;
+        // the unit vector x currently is, -1 while it is the uniform start
+        int last = -1;
+        for (int iter = 0; iter < 5; iter++) {
+            // y = A^-1 x
+            for (int i = 0; i < n; i++) {
+                y[i] = x[pivot[i]];
+            }
+            substitute(y);
+            inverseNorm = 0.0;
+            for (int i = 0; i < n; i++) {
+                inverseNorm += Math.abs(y[i]);
+                y[i] = y[i] >= 0.0 ? 1.0 : -1.0;
+            }
+            // z = A^-T sign(y), stored in x
+            substituteTransposed(y);
+            for (int i = 0; i < n; i++) {
+                x[pivot[i]] = y[i];
+            }
+            int j = 0;
+            double zx = 0.0;
+            for (int i = 0; i < n; i++) {
+                if (Math.abs(x[i]) > Math.abs(x[j])) {
+                    j = i;
+                }
+                zx += x[i];
+            }
+            zx = last < 0 ? zx / n : x[last];
+            if (Math.abs(x[j]) <= zx || j == last) {
+                break;
+            }
+            Arrays.fill(x, 0, n, 0.0);
+            x[j] = 1.0;
+            last = j;
+        }
+        discard(y);
+        discard(x);
+        return 1.0 / (norm1 * inverseNorm);
+    }
+
+    /**
+     * Overwrites c in x[0, n) with the solution w of U^T L^T w = c, so that
+     * A^T z = c for z[pivot[i]] = w[i]
+     */
+    private void substituteTransposed(double[] x) {
+        // U^T v = c
+        for (int i = 0; i < n; i++) {
+            double s = x[i];
+            for (int j = 0; j < i; j++) {
+                s -= lu[j * n + i] * x[j];
+            }
+            x[i] = s / lu[i * n + i];
+        }
+        // L^T w = v
+        for (int i = n - 1; i >= 0; i--) {
+            double s = x[i];
+            for (int j = i + 1; j < n; j++) {
+                s -= lu[j * n + i] * x[j];
+            }
+            x[i] = s;
+        }
+    }
+
+    /**
+     * Solves Ax = b
+     * @return x
+     */
+    public Vector solve(Vector b) throws ArithmeticException {
+        if (b.size() != n) {
+            throw new ArithmeticException("Vector size (" + b.size() + ") <> matrix rows (" + n + ")");
+        }
+        checkNonSingular();
+
+        double[] x = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = b.get(pivot[i]);
+        }
+        substitute(x);
+        return Vector.wrap(x);
+    }
+
+    /**
+     * Solves Ax = b into x, which may be b itself
+     * @return x
+     */
+    public Vector solve(Vector b, Vector x) throws ArithmeticException {
+        if (b.size() != n) {
+            throw new ArithmeticException("Vector size (" + b.size() + ") <> matrix rows (" + n + ")");
+        }
+        if (x.size() != n) {
+            throw new ArithmeticException("Vector size (" + x.size() + ") <> matrix rows (" + n + ")");
+        }
+        checkNonSingular();
+
+        double[] y = scratch(n);
+        for (int i = 0; i < n; i++) {
+            y[i] = b.get(pivot[i]);
+        }
+        substitute(y);
+        for (int i = 0; i < n; i++) {
+            x.replace(i, y[i]);
+        }
+        discard(y);
+        return x;
+    }
+
+    /**
+     * Overwrites Pb in x[0, n) with the solution of LUx = Pb
+     */
+    private void substitute(double[] x) {
+        // L y = Pb
+        for (int i = 1; i < n; i++) {
+            int rowI = i * n;
+            double s = x[i];
+            for (int j = 0; j < i; j++) {
+                s -= lu[rowI + j] * x[j];
+            }
+            x[i] = s;
+        }
+        // U x = y
+        for (int i = n - 1; i >= 0; i--) {
+            int rowI = i * n;
+            double s = x[i];
+            for (int j = i + 1; j < n; j++) {
+                s -= lu[rowI + j] * x[j];
+            }
+            x[i] = s / lu[rowI + i];
+        }
+    }
+
+    /**
+     * Solves AX = B for every column of B at once
+     * @return X
+     */
+    public Matrix solve(Matrix b) throws ArithmeticException {
+        if (b.rows() != n) {
+            throw new ArithmeticException("Matrix rows (" + b.rows() + ") <> matrix rows (" + n + ")");
+        }
+        checkNonSingular();
+
+        int nrhs = b.cols();
+        double[] x = new double[n * nrhs];
+        for (int i = 0; i < n; i++) {
+            Vector row = b.getRow(pivot[i]);
+            row.copyTo(x, i * nrhs);
+        }
+        substitute(x, nrhs);
+        return Matrix.wrap(x, n, nrhs);
+    }
+
+    /**
+     * Overwrites the row-major n x nrhs block PB at the start of x with the
+     * solution of LUX = PB
+     */
+    private void substitute(double[] x, int nrhs) {
+        for (int k = 0; k < n; k++) {
+            int rowK = k * nrhs;
+            for (int i = k + 1; i < n; i++) {
+                double l = lu[i * n + k];
+                if (l == 0.0) {
+                    continue;
+                }
+                int rowI = i * nrhs;
+                for (int j = 0; j < nrhs; j++) {
+                    x[rowI + j] -= l * x[rowK + j];
+                }
+            }
+        }
+        for (int k = n - 1; k >= 0; k--) {
+            int rowK = k * nrhs;
+            double d = lu[k * n + k];
+            for (int j = 0; j < nrhs; j++) {
+                x[rowK + j] /= d;
+            }
+            for (int i = 0; i < k; i++) {
+                double u = lu[i * n + k];
+                if (u == 0.0) {
+                    continue;
+                }
+                int rowI = i * nrhs;
+                for (int j = 0; j < nrhs; j++) {
+                    x[rowI + j] -= u * x[rowK + j];
+                }
+            }
+        }
+    }
+
+    public Matrix inverse() throws ArithmeticException {
+        return solve(Matrix.makeIdentityMatrix(n));
+    }
+
+    /**
+     * Writes the inverse into dest, an n x n matrix not sharing storage with
+     * the one decomposed
+     * @return dest
+     */
+    public Matrix inverse(Matrix dest) throws ArithmeticException {
+        if (dest.rows() != n || dest.cols() != n) {
+            throw new ArithmeticException("Incompatible destination dimensions [" + dest.rows() + " x " + dest.cols() + "], expected [" + n + " x " + n + "]");
+        }
+        checkNonSingular();
+        // PI, row i holds a one in column pivot[i]
+        double[] x = scratch(n * n);
+        Arrays.fill(x, 0, n * n, 0.0);
+        for (int i = 0; i < n; i++) {
+            x[i * n + pivot[i]] = 1.0;
+        }
+        substitute(x, n);
+        dest.copyFromRowMajor(x);
+        discard(x);
+        return dest;
+    }
+
+    /**
+     * @return the unit lower triangular factor L
+     */
+    public Matrix getL() {
+        Matrix l = new Matrix(n, n);
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < i; j++) {
+                l.set(i, j, lu[i * n + j]);
+            }
+            l.set(i, i, 1.0);
+        }
+        return l;
+    }
+
+    /**
+     * @return the upper triangular factor U
+     */
+    public Matrix getU() {
+        Matrix u = new Matrix(n, n);
+        for (int i = 0; i < n; i++) {
+            for (int j = i; j < n; j++) {
+                u.set(i, j, lu[i * n + j]);
+            }
+        }
+        return u;
+    }
+
+    /**
+     * @return the row permutation, row i of PA is row getPivot()[i] of A
+     */
+    public int[] getPivot() {
+        return Arrays.copyOf(pivot, n);
+    }
+
+    private void checkNonSingular() throws ArithmeticException {
+        if (singular) {
+            throw new ArithmeticException("Matrix is singular and not invertable");
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.adammcquistan.models;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A rows x cols matrix kept in a memory mapped file of raw little-endian
+ * doubles laid out row by row, so tables far larger than the heap can be
+ * read and written without copying them in first.
+ *
+ * A single MappedByteBuffer tops out at 2GB, so the file is mapped as a series
+ * of chunks each holding a whole number of rows.
+ */
+public class MappedMatrix {
+    private static final long MAX_CHUNK_BYTES = Integer.MAX_VALUE - 7;
+    private static final int BLOCK_ROWS = 256;
+
+    private final int rows;
+    private final int cols;
+    private final int rowsPerChunk;
+    private final MappedByteBuffer[] buffers;
+    private final DoubleBuffer[] chunks;
+    private final boolean writable;
+
+    private MappedMatrix(FileChannel channel, long byteOffset, int rows, int cols, boolean writable) throws IOException {
+        if (rows < 0 || cols <= 0) {
+            throw new IllegalArgumentException("Matrix dimensions must be positive, got " + rows + " x " + cols);
+        }
+        long rowBytes = (long) cols * Double.BYTES;
+        if (rowBytes > MAX_CHUNK_BYTES) {
+            throw new IllegalArgumentException("A single row of " + cols + " columns does not fit in one mapping");
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.writable = writable;
+        this.rowsPerChunk = (int) Math.min(Math.max(rows, 1), MAX_CHUNK_BYTES / rowBytes);
+
+        int chunkCount = (rows + rowsPerChunk - 1) / rowsPerChunk;
+        this.buffers = new MappedByteBuffer[chunkCount];
+        this.chunks = new DoubleBuffer[chunkCount];
+        FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+        for (int i = 0; i < chunkCount; i++) {
+            int chunkRows = Math.min(rowsPerChunk, rows - i * rowsPerChunk);
+            long position = byteOffset + (long) i * rowsPerChunk * rowBytes;
+            buffers[i] = channel.map(mode, position, chunkRows * rowBytes);
+            buffers[i].order(ByteOrder.LITTLE_ENDIAN);
+            chunks[i] = buffers[i].asDoubleBuffer();
+        }
+    }
+
+    /**
+     * Maps an existing file of little-endian doubles, the number of rows is
+     * taken from the file size
+     */
+    public static MappedMatrix open(Path path, int cols, boolean writable) throws IOException {
+        try (FileChannel channel = writable
+                ? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(path, StandardOpenOption.READ)) {
+            long rowBytes = (long) cols * Double.BYTES;
+            long size = channel.size();
+            if (cols <= 0 || size % rowBytes != 0) {
+                throw new IllegalArgumentException("File size " + size + " is not a whole number of " + cols + " column rows");
+            }
+            long rows = size / rowBytes;
+            if (rows > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("File holds " + rows + " rows, more than can be indexed");
+            }
+            return new MappedMatrix(channel, 0L, (int) rows, cols, writable);
+        }
+    }
+
+    /**
+     * Maps rows x cols doubles starting byteOffset bytes into the file, for
+     * files that carry a header in front of the data
+     */
+    public static MappedMatrix open(Path path, long byteOffset, int rows, int cols, boolean writable) throws IOException {
+        try (FileChannel channel = writable
+                ? FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(path, StandardOpenOption.READ)) {
+            long needed = byteOffset + (long) rows * cols * Double.BYTES;
+            if (channel.size() < needed) {
+                throw new IllegalArgumentException("File is " + channel.size() + " bytes, " + needed + " are needed for a " + rows + " x " + cols + " matrix");
+            }
+            return new MappedMatrix(channel, byteOffset, rows, cols, writable);
+        }
+    }
+
+    /**
+     * Creates (or truncates) a file sized for a rows x cols matrix of zeros
+     * and maps it read-write
+     */
+    public static MappedMatrix create(Path path, int rows, int cols) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = (long) rows * cols * Double.BYTES;
+            if (size > 0) {
+                channel.write(ByteBuffer.allocate(1), size - 1);
+            }
+            return new MappedMatrix(channel, 0L, rows, cols, true);
+        }
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    public boolean isWritable() {
+        return writable;
+    }
+
+    public double get(int rowIdx, int colIdx) {
+        checkIndex(rowIdx, colIdx);
+        return chunks[rowIdx / rowsPerChunk].get((rowIdx % rowsPerChunk) * cols + colIdx);
+    }
+
+    public void set(int rowIdx, int colIdx, double value) {
+        checkIndex(rowIdx, colIdx);
+        checkWritable();
+        chunks[rowIdx / rowsPerChunk].put((rowIdx % rowsPerChunk) * cols + colIdx, value);
+    }
+
+    /**
+     * @return a heap copy of the row
+     */
+    public Vector getRow(int rowIdx) {
+        checkRow(rowIdx);
+        double[] row = new double[cols];
+        slice(rowIdx / rowsPerChunk, (rowIdx % rowsPerChunk) * cols).get(row, 0, cols);
+        return Vector.wrap(row);
+    }
+
+    /**
+     * @return a heap copy of the column, this touches every page of the file
+     */
+    public Vector getColumn(int colIdx) {
+        if (colIdx < 0 || colIdx >= cols) {
+            throw new ArrayIndexOutOfBoundsException("Attempting to select column @ index " + colIdx + " from a matrix with only " + cols + " columns");
+        }
+        double[] column = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            column[i] = chunks[i / rowsPerChunk].get((i % rowsPerChunk) * cols + colIdx);
+        }
+        return Vector.wrap(column);
+    }
+
+    public void replaceRow(int rowIdx, Vector v) {
+        checkRow(rowIdx);
+        checkWritable();
+        if (v.size() != cols) {
+            throw new IllegalArgumentException("Vector size (" + v.size() + ") <> matrix columns (" + cols + ")");
+        }
+        slice(rowIdx / rowsPerChunk, (rowIdx % rowsPerChunk) * cols).put(v.toArray(), 0, cols);
+    }
+
+    /**
+     * Copies rows [start, end) onto the heap
+     */
+    public Matrix getRows(int start, int end) {
+        if (start < 0 || end > rows || start > end) {
+            throw new ArrayIndexOutOfBoundsException("Row range [" + start + ", " + end + ") is outside a matrix with " + rows + " rows");
+        }
+        double[] block = new double[(end - start) * cols];
+        copyRows(start, end, block);
+        return Matrix.wrap(block, end - start, cols);
+    }
+
+    /**
+     * @return a view of the chunk starting at index, so the relative bulk get
+     * and put of JDK 8 can be used without moving the shared chunk's position
+     */
+    private DoubleBuffer slice(int chunk, int index) {
+        DoubleBuffer view = chunks[chunk].duplicate();
+        view.position(index);
+        return view;
+    }
+
+    private void copyRows(int start, int end, double[] dest) {
+        int row = start;
+        while (row < end) {
+            int chunk = row / rowsPerChunk;
+            int chunkEnd = (int) Math.min(end, (chunk + 1L) * rowsPerChunk);
+            slice(chunk, (row % rowsPerChunk) * cols).get(dest, (row - start) * cols, (chunkEnd - row) * cols);
+            row = chunkEnd;
+        }
+    }
+
+    /**
+     * Multiplies this matrix by a heap matrix, streaming BLOCK_ROWS rows at a
+     * time through the blocked Gemm kernel so only one block is ever copied
+     * onto the heap
+     */
+    public Matrix matmul(Matrix m) {
+        if (cols != m.rows()) {
+            throw new ArithmeticException("Incompatible matrix dimensions [" + rows + " x " + cols + "] vs [" + m.rows() + " x " + m.cols() + "]");
+        }
+        int n = m.cols();
+        double[] b = m.toRowMajorArray();
+        double[] c = new double[Math.multiplyExact(rows, n)];
+        double[] block = new double[Math.min(BLOCK_ROWS, rows) * cols];
+        for (int start = 0; start < rows; start += BLOCK_ROWS) {
+            int end = Math.min(rows, start + BLOCK_ROWS);
+            copyRows(start, end, block);
+            Gemm.multiply(end - start, n, cols,
+                    block, 0, cols, 1,
+                    b, 0, n, 1,
+                    c, start * n, n);
+        }
+        return Matrix.wrap(c, rows, n);
+    }
+
+    /**
+     * @return the vector of every row dotted with v, i.e. this * v
+     */
+    public Vector dotRows(Vector v) {
+        if (v.size() != cols) {
+            throw new ArithmeticException("Incompatible vector size " + v.size() + " for a matrix with " + cols + " columns");
+        }
+        double[] x = v.toArray();
+        double[] result = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            DoubleBuffer chunk = chunks[i / rowsPerChunk];
+            int base = (i % rowsPerChunk) * cols;
+            double s = 0.0;
+            for (int j = 0; j < cols; j++) {
+                s += chunk.get(base + j) * x[j];
+            }
+            result[i] = s;
+        }
+        return Vector.wrap(result);
+    }
+
+    public MappedMatrix addInPlace(double x) {
+        checkWritable();
+        for (DoubleBuffer chunk : chunks) {
+            for (int i = 0; i < chunk.capacity(); i++) {
+                chunk.put(i, chunk.get(i) + x);
+            }
+        }
+        return this;
+    }
+
+    public MappedMatrix subtractInPlace(double x) {
+        return addInPlace(-x);
+    }
+
+    public MappedMatrix multiplyInPlace(double x) {
+        checkWritable();
+        for (DoubleBuffer chunk : chunks) {
+            for (int i = 0; i < chunk.capacity(); i++) {
+                chunk.put(i, chunk.get(i) * x);
+            }
+        }
+        return this;
+    }
+
+    public MappedMatrix divideInPlace(double x) {
+        checkWritable();
+        for (DoubleBuffer chunk : chunks) {
+            for (int i = 0; i < chunk.capacity(); i++) {
+                chunk.put(i, chunk.get(i) / x);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Writes any changes made through this mapping back to the file
+     */
+    public void force() {
+        for (MappedByteBuffer buffer : buffers) {
+            buffer.force();
+        }
+    }
+
+    private void checkRow(int rowIdx) {
+        if (rowIdx < 0 || rowIdx >= rows) {
+            throw new ArrayIndexOutOfBoundsException("Row " + rowIdx + " is outside a matrix with " + rows + " rows");
+        }
+    }
+
+    private void checkIndex(int rowIdx, int colIdx) {
+        if (rowIdx < 0 || rowIdx >= rows || colIdx < 0 || colIdx >= cols) {
+            throw new ArrayIndexOutOfBoundsException("Index (" + rowIdx + ", " + colIdx + ") is outside a " + rows + " x " + cols + " matrix");
+        }
+    }
+
+    private void checkWritable() {
+        if (!writable) {
+            throw new UnsupportedOperationException("Matrix was mapped read-only");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MappedMatrix[" + rows + " x " + cols + "]" + (writable ? "" : " (read-only)");
+    }
+}
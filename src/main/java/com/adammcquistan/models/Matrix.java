@@ -1,67 +1,230 @@
 package com.adammcquistan.models;
 
-import java.util.Arrays;
 import java.util.StringJoiner;
+import java.util.concurrent.ForkJoinPool;
 
+/**
+ * Dense matrix stored in a single flat array. Element (row, col) lives at
+ * data[offset + row * stride + col * colStride]. Matrices are created
+ * row-major (colStride 1) so rows are contiguous and walking across a row
+ * never leaves the cache line it started on; T() returns a view over the
+ * same array with the two strides swapped, and columnMajor() creates a
+ * matrix whose columns are the contiguous ones.
+ *
+ * getRow and getColumn both hand out vectors that read and write through to
+ * this matrix, whichever the layout.
+ */
 public class Matrix {
     private static final int INIT_CAPACITY = 100;
     private static final int MAX_CAPACITY = 1000000;
-    private Vector[] data;
-    private int curRowIdx = -1;
+    private static final double[] EMPTY = new double[0];
+    private static final int TRANSPOSE_BLOCK = 32;
+    
+    private double[] data;
+    private int rows;
+    private int cols;
+    private int offset;
+    private int stride;
+    private int colStride = 1;
+    private boolean view;
     
     public Matrix() {
-        this.data = new Vector[INIT_CAPACITY];
+        this.data = EMPTY;
+    }
+    
+    /**
+     * Creates a rows x cols matrix filled with zeros
+     */
+    public Matrix(int rows, int cols) {
+        if (rows < 0 || cols < 0) {
+            throw new IllegalArgumentException("Matrix dimensions must be non-negative, got " + rows + " x " + cols);
+        }
+        this.data = new double[rows * cols];
+        this.rows = rows;
+        this.cols = cols;
+        this.stride = cols;
     }
     
     public Matrix(double[][] arr) {
-        this();
+        this(arr.length, arr.length == 0 ? 0 : arr[0].length);
         for (int rowIdx = 0; rowIdx < arr.length; rowIdx++) {
             double[] row = arr[rowIdx];
-            appendRow(new Vector(row));
+            if (row.length != cols) {
+                throw new IllegalArgumentException("Row " + rowIdx + " has " + row.length + " values, expected " + cols);
+            }
+            System.arraycopy(row, 0, data, rowIdx * stride, cols);
+        }
+    }
+    
+    /**
+     * Creates a rows x cols matrix of zeros laid out column by column, for
+     * algorithms that mostly walk down columns
+     */
+    public static Matrix columnMajor(int rows, int cols) {
+        Matrix m = new Matrix(rows, cols);
+        m.stride = 1;
+        m.colStride = rows;
+        return m;
+    }
+    
+    /**
+     * @return a copy of this matrix laid out column by column
+     */
+    public Matrix toColumnMajor() {
+        Matrix result = columnMajor(rows, cols);
+        for (int col = 0; col < cols; col++) {
+            getColumn(col).copyTo(result.data, col * rows);
+        }
+        return result;
+    }
+    
+    public boolean isColumnMajor() {
+        return stride == 1 && colStride != 1;
+    }
+    
+    /**
+     * Builds a matrix from the row vectors of the old Vector[] layout,
+     * copying each of them into the flat storage
+     */
+    public Matrix(Vector[] vectors) {
+        this(vectors.length, vectors.length == 0 ? 0 : vectors[0].size());
+        for (int rowIdx = 0; rowIdx < vectors.length; rowIdx++) {
+            Vector v = vectors[rowIdx];
+            if (v.size() != cols) {
+                throw new IllegalArgumentException("Vector size (" + v.size() + ") <> matrix columns (" + cols + ")");
+            }
+            v.copyTo(data, rowIdx * stride);
         }
     }
 
     public boolean appendRow(Vector v) {
-        if (this.cols() != 0 && this.cols() != v.size()) {
+        if (this.rows != 0 && this.cols != v.size()) {
             return false;
         }
-        if (curRowIdx > (data.length - 10)) {
-            int newLength = (int) 1.5 * data.length;
-            if (MAX_CAPACITY < newLength) {
+        if (this.rows == 0) {
+            this.cols = v.size();
+            this.stride = v.size();
+        }
+        if (!ensureRowCapacity(rows + 1)) {
+            return false;
+        }
+        v.copyTo(data, offset + rows * stride);
+        rows++;
+        return true;
+    }
+    
+    /**
+     * Appends every row of arr after a single capacity check
+     * @return false, appending nothing, when a row has the wrong number of
+     * values or the matrix would exceed its maximum number of rows
+     */
+    public boolean appendRows(double[][] arr) {
+        if (arr.length == 0) {
+            return true;
+        }
+        int width = this.rows == 0 ? arr[0].length : this.cols;
+        for (double[] row : arr) {
+            if (row.length != width) {
                 return false;
             }
-            
-            Vector[] newData = new Vector[newLength];
-            System.arraycopy(data, 0, newData, 0, data.length);
-            data = newData;
         }
-        data[++curRowIdx] = new Vector(v.toArray());
+        if (this.rows == 0) {
+            this.cols = width;
+            this.stride = width;
+        }
+        if (!ensureRowCapacity(rows + arr.length)) {
+            return false;
+        }
+        for (double[] row : arr) {
+            System.arraycopy(row, 0, data, offset + rows * stride, cols);
+            rows++;
+        }
         return true;
     }
     
+    /**
+     * Makes room for minRows rows. A view or a column-major matrix always
+     * moves to its own row-major array here, so appending never writes into
+     * the storage it was made from.
+     */
+    private boolean ensureRowCapacity(int minRows) {
+        long needed = offset + (long) minRows * stride;
+        if (!view && colStride == 1 && needed <= data.length) {
+            return true;
+        }
+        if (minRows > MAX_CAPACITY) {
+            return false;
+        }
+        int capacity = Math.max(INIT_CAPACITY, rows + (rows >> 1));
+        capacity = Math.min(Math.max(capacity, minRows), MAX_CAPACITY);
+        if ((long) capacity * cols > Integer.MAX_VALUE - 8) {
+            return false;
+        }
+        double[] newData = new double[capacity * cols];
+        for (int row = 0; row < rows; row++) {
+            copyRowTo(row, newData, row * cols);
+        }
+        data = newData;
+        offset = 0;
+        stride = cols;
+        colStride = 1;
+        view = false;
+        return true;
+    }
+    
+    private void copyRowTo(int row, double[] dest, int destPos) {
+        int a = offset + row * stride;
+        if (colStride == 1) {
+            System.arraycopy(data, a, dest, destPos, cols);
+        } else {
+            for (int col = 0; col < cols; col++) {
+                dest[destPos + col] = data[a + col * colStride];
+            }
+        }
+    }
+    
+    /**
+     * Returns the row as a vector backed by this matrix's storage, so
+     * changes made through Vector.replace are seen by the matrix
+     */
     public Vector getRow(int rowIdx) {
-        if (rowIdx > curRowIdx) {
+        if (rowIdx < 0 || rowIdx >= rows) {
             throw new ArrayIndexOutOfBoundsException();
         }
         
-        return this.data[rowIdx];
+        return new Vector(data, offset + rowIdx * stride, cols, colStride);
     }
     
+    /**
+     * Returns the column as a vector backed by this matrix's storage, nothing
+     * is copied and changes made through Vector.replace are seen by the matrix
+     */
     public Vector getColumn(int colIdx) {
-        if (colIdx > (cols() - 1)) {
+        if (colIdx < 0 || colIdx > (cols() - 1)) {
             throw new ArrayIndexOutOfBoundsException("Attempting to select column @ index " + colIdx + " from a matrix with only " + cols()  + " columns");
         }
         
-        Vector v = new Vector();
-        for (int i = 0; i < rows(); i++) {
-            Vector rowVector = getRow(i);
-            v.append(rowVector.get(colIdx));
+        return new Vector(data, offset + colIdx * colStride, rows, stride);
+    }
+    
+    public double get(int rowIdx, int colIdx) {
+        checkIndex(rowIdx, colIdx);
+        return data[offset + rowIdx * stride + colIdx * colStride];
+    }
+    
+    public void set(int rowIdx, int colIdx, double value) {
+        checkIndex(rowIdx, colIdx);
+        data[offset + rowIdx * stride + colIdx * colStride] = value;
+    }
+    
+    private void checkIndex(int rowIdx, int colIdx) {
+        if (rowIdx < 0 || rowIdx >= rows || colIdx < 0 || colIdx >= cols) {
+            throw new ArrayIndexOutOfBoundsException("Index (" + rowIdx + ", " + colIdx + ") is outside a " + rows + " x " + cols + " matrix");
         }
-        return v;
     }
     
     public void replaceRow(int rowIdx, Vector v) {
-        if (rowIdx > curRowIdx) {
+        if (rowIdx < 0 || rowIdx >= rows) {
             throw new ArrayIndexOutOfBoundsException();
         }
         
@@ -69,11 +232,18 @@ public class Matrix {
             throw new IllegalArgumentException("Vector size (" + v.size() + ") <> matrix columns (" + cols() + ")");
         }
         
-        this.data[rowIdx] = new Vector(v.toArray());
+        if (colStride == 1) {
+            v.copyTo(data, offset + rowIdx * stride);
+            return;
+        }
+        int a = offset + rowIdx * stride;
+        for (int col = 0; col < cols; col++) {
+            data[a + col * colStride] = v.get(col);
+        }
     }
     
     public void replaceColumn(int colIdx, Vector v) {
-        if (colIdx > (cols() - 1)) {
+        if (colIdx < 0 || colIdx > (cols() - 1)) {
             throw new ArrayIndexOutOfBoundsException("Attempting to replace column @ index " + colIdx + " from a matrix with only " + cols()  + " columns");
         }
         
@@ -81,101 +251,183 @@ public class Matrix {
             throw new IllegalArgumentException("Vector size (" + v.size() + ") <> matrix rows (" + rows() + ")");
         }
         
-        for (int i = 0; i < rows(); i++) {
-            Vector w = getRow(i);
-            w.replace(colIdx, v.get(i));
-            replaceRow(i, w);
+        if (stride == 1) {
+            v.copyTo(data, offset + colIdx * colStride);
+            return;
+        }
+        int a = offset + colIdx * colStride;
+        for (int i = 0; i < rows; i++) {
+            data[a + i * stride] = v.get(i);
+        }
+    }
+    
+    public void fill(double x) {
+        for (int row = 0; row < rows; row++) {
+            int a = offset + row * stride;
+            for (int col = 0; col < cols; col++) {
+                data[a + col * colStride] = x;
+            }
         }
     }
     
     public int rows() {
-        return curRowIdx + 1;
+        return rows;
     }
     
     public int cols() {
-        if (curRowIdx < 0) {
-            return 0;
-        }
-        return this.data[0].size();
+        return cols;
     }
     
+    /*
+     * The "into" variants write their result into a caller supplied matrix of
+     * the same shape instead of allocating one, dest may be this matrix or m.
+     * The InPlace variants overwrite this matrix and return it for chaining.
+     */
+    
     public Matrix add(Matrix m) {
         checkSizeElementWiseCompatibility(m);
-        Matrix result = new Matrix();
-        for (int row = 0; row < this.rows(); row++) {
-            Vector vResult = this.getRow(row).add(m.getRow(row));
-            result.appendRow(vResult);
-        }
-        
-        return result;
+        return add(m, new Matrix(rows, cols));
     }
     
     public Matrix add(Vector v) {
         if (v.size() != 1) {
             throw new ArithmeticException("Addition must be with vector of size 1");
         }
-        Matrix result = new Matrix();
-        for (int row = 0; row < this.rows(); row++) {
-            result.appendRow(this.getRow(row).add(v.get(0)));
-        }
-        return result;
+        return add(v.get(0));
     }
     
     public Matrix add(double x) {
-        Matrix result = new Matrix();
-        for (int row = 0; row < this.rows(); row++) {
-            result.appendRow(this.getRow(row).add(x));
+        return add(x, new Matrix(rows, cols));
+    }
+    
+    public Matrix add(Matrix m, Matrix dest) {
+        checkSizeElementWiseCompatibility(m);
+        checkSizeElementWiseCompatibility(dest);
+        for (int row = 0; row < rows; row++) {
+            int a = offset + row * stride;
+            int b = m.offset + row * m.stride;
+            int c = dest.offset + row * dest.stride;
+            if (colStride == 1 && m.colStride == 1 && dest.colStride == 1) {
+                for (int col = 0; col < cols; col++) {
+                    dest.data[c + col] = data[a + col] + m.data[b + col];
+                }
+            } else {
+                for (int col = 0; col < cols; col++) {
+                    dest.data[c + col * dest.colStride] = data[a + col * colStride] + m.data[b + col * m.colStride];
+                }
+            }
         }
-        return result;
+        return dest;
+    }
+    
+    public Matrix add(double x, Matrix dest) {
+        checkSizeElementWiseCompatibility(dest);
+        for (int row = 0; row < rows; row++) {
+            int a = offset + row * stride;
+            int c = dest.offset + row * dest.stride;
+            if (colStride == 1 && dest.colStride == 1) {
+                for (int col = 0; col < cols; col++) {
+                    dest.data[c + col] = data[a + col] + x;
+                }
+            } else {
+                for (int col = 0; col < cols; col++) {
+                    dest.data[c + col * dest.colStride] = data[a + col * colStride] + x;
+                }
+            }
+        }
+        return dest;
+    }
+    
+    public Matrix addInPlace(Matrix m) {
+        return add(m, this);
+    }
+    
+    public Matrix addInPlace(double x) {
+        return add(x, this);
     }
     
     public Matrix subtract(Matrix m) {
         checkSizeElementWiseCompatibility(m);
-        Matrix result = new Matrix();
-        for (int row = 0; row < this.rows(); row++) {
-            Vector vResult = this.getRow(row).subtract(m.getRow(row));
-            result.appendRow(vResult);
-        }
-        
-        return result;
+        return subtract(m, new Matrix(rows, cols));
     }
     
     public Matrix subtract(Vector v) {
         if (v.size() != 1) {
             throw new ArithmeticException("Subtraction must be with vector of size 1");
         }
-        Matrix result = new Matrix();
-        for (int row = 0; row < this.rows(); row++) {
-            result.appendRow(this.getRow(row).subtract(v.get(0)));
-        }
-        return result;
+        return subtract(v.get(0));
     }
     
     public Matrix subtract(double x) {
-        Matrix result = new Matrix();
-        for (int row = 0; row < this.rows(); row++) {
-            result.appendRow(this.getRow(row).subtract(x));
+        return subtract(x, new Matrix(rows, cols));
+    }
+    
+    public Matrix subtract(Matrix m, Matrix dest) {
+        checkSizeElementWiseCompatibility(m);
+        checkSizeElementWiseCompatibility(dest);
+        for (int row = 0; row < rows; row++) {
+            int a = offset + row * stride;
+            int b = m.offset + row * m.stride;
+            int c = dest.offset + row * dest.stride;
+            if (colStride == 1 && m.colStride == 1 && dest.colStride == 1) {
+                for (int col = 0; col < cols; col++) {
+                    dest.data[c + col] = data[a + col] - m.data[b + col];
+                }
+            } else {
+                for (int col = 0; col < cols; col++) {
+                    dest.data[c + col * dest.colStride] = data[a + col * colStride] - m.data[b + col * m.colStride];
+                }
+            }
         }
-        return result;
+        return dest;
+    }
+    
+    public Matrix subtract(double x, Matrix dest) {
+        checkSizeElementWiseCompatibility(dest);
+        for (int row = 0; row < rows; row++) {
+            int a = offset + row * stride;
+            int c = dest.offset + row * dest.stride;
+            if (colStride == 1 && dest.colStride == 1) {
+                for (int col = 0; col < cols; col++) {
+                    dest.data[c + col] = data[a + col] - x;
+                }
+            } else {
+                for (int col = 0; col < cols; col++) {
+                    dest.data[c + col * dest.colStride] = data[a + col * colStride] - x;
+                }
+            }
+        }
+        return dest;
+    }
+    
+    public Matrix subtractInPlace(Matrix m) {
+        return subtract(m, this);
+    }
+    
+    public Matrix subtractInPlace(double x) {
+        return subtract(x, this);
     }
     
     public Matrix multiply(Matrix m) {
         checkSizeElementWiseCompatibility(m);
-        Matrix result = new Matrix();
-        for (int row = 0; row < this.rows(); row++) {
-            Vector myVector = this.getRow(row);
-            Vector theirVector = m.getRow(row);
-            result.appendRow(myVector.multiply(theirVector));
-        }
-        return result;
+        return multiply(m, new Matrix(rows, cols));
     }
     
+    /**
+     * Element-wise product broadcasting v across every row (or a size one v
+     * as a scalar), for the matrix-vector product A x see matvec
+     */
     public Matrix multiply(Vector v) {
         /* First try standard vector * matrix multiplication */
         if (v.size() == this.cols()) {
-            Matrix result = new Matrix();
-            for (int row = 0; row < this.rows(); row++) {
-                result.appendRow(v.multiply(this.getRow(row)));
+            double[] x = v.toArray();
+            Matrix result = new Matrix(rows, cols);
+            for (int row = 0; row < rows; row++) {
+                int a = offset + row * stride;
+                int c = row * cols;
+                for (int col = 0; col < cols; col++) {
+                    result.data[c + col] = x[col] * data[a + col * colStride];
+                }
             }
             return result;
         }
@@ -184,193 +436,428 @@ public class Matrix {
         if (v.size() != 1) {
             throw new ArithmeticException("Multiplication must be with vector of size 1");
         }
-        Matrix result = new Matrix();
-        for (int row = 0; row < this.rows(); row++) {
-            Vector myVector = this.getRow(row);
-            result.appendRow(myVector.multiply(v.get(0)));
-        }
-        return result;
+        return multiply(v.get(0));
     }
     
     public Matrix multiply(double x) {
-        Matrix result = new Matrix();
-        for (int row = 0; row < this.rows(); row++) {
-            Vector myVector = this.getRow(row);
-            result.appendRow(myVector.multiply(x));
+        return multiply(x, new Matrix(rows, cols));
+    }
+    
+    public Matrix multiply(Matrix m, Matrix dest) {
+        checkSizeElementWiseCompatibility(m);
+        checkSizeElementWiseCompatibility(dest);
+        for (int row = 0; row < rows; row++) {
+            int a = offset + row * stride;
+            int b = m.offset + row * m.stride;
+            int c = dest.offset + row * dest.stride;
+            if (colStride == 1 && m.colStride == 1 && dest.colStride == 1) {
+                for (int col = 0; col < cols; col++) {
+                    dest.data[c + col] = data[a + col] * m.data[b + col];
+                }
+            } else {
+                for (int col = 0; col < cols; col++) {
+                    dest.data[c + col * dest.colStride] = data[a + col * colStride] * m.data[b + col * m.colStride];
+                }
+            }
         }
-        return result;
+        return dest;
     }
-
+    
+    public Matrix multiply(double x, Matrix dest) {
+        checkSizeElementWiseCompatibility(dest);
+        for (int row = 0; row < rows; row++) {
+            int a = offset + row * stride;
+            int c = dest.offset + row * dest.stride;
+            if (colStride == 1 && dest.colStride == 1) {
+                for (int col = 0; col < cols; col++) {
+                    dest.data[c + col] = data[a + col] * x;
+                }
+            } else {
+                for (int col = 0; col < cols; col++) {
+                    dest.data[c + col * dest.colStride] = data[a + col * colStride] * x;
+                }
+            }
+        }
+        return dest;
+    }
+    
+    public Matrix multiplyInPlace(Matrix m) {
+        return multiply(m, this);
+    }
+    
+    public Matrix multiplyInPlace(double x) {
+        return multiply(x, this);
+    }
+    
     public Matrix divide(Matrix m) {
         checkSizeElementWiseCompatibility(m);
-        Matrix result = new Matrix();
-        for (int row = 0; row < this.rows(); row++) {
-            Vector myVector = this.getRow(row);
-            Vector theirVector = m.getRow(row);
-            result.appendRow(myVector.divide(theirVector));
-        }
-        return result;
+        return divide(m, new Matrix(rows, cols));
     }
     
     public Matrix divide(Vector v) {
         if (v.size() != 1) {
             throw new ArithmeticException("Division must be with vector of size 1");
         }
-        Matrix result = new Matrix();
-        for (int row = 0; row < this.rows(); row++) {
-            Vector myVector = this.getRow(row);
-            result.appendRow(myVector.divide(v.get(0)));
-        }
-        return result;
+        return divide(v.get(0));
     }
     
     public Matrix divide(double x) {
-        Matrix result = new Matrix();
-        for (int row = 0; row < this.rows(); row++) {
-            Vector myVector = this.getRow(row);
-            result.appendRow(myVector.divide(x));
+        return divide(x, new Matrix(rows, cols));
+    }
+    
+    public Matrix divide(Matrix m, Matrix dest) {
+        checkSizeElementWiseCompatibility(m);
+        checkSizeElementWiseCompatibility(dest);
+        for (int row = 0; row < rows; row++) {
+            int a = offset + row * stride;
+            int b = m.offset + row * m.stride;
+            int c = dest.offset + row * dest.stride;
+            if (colStride == 1 && m.colStride == 1 && dest.colStride == 1) {
+                for (int col = 0; col < cols; col++) {
+                    dest.data[c + col] = data[a + col] / m.data[b + col];
+                }
+            } else {
+                for (int col = 0; col < cols; col++) {
+                    dest.data[c + col * dest.colStride] = data[a + col * colStride] / m.data[b + col * m.colStride];
+                }
+            }
         }
-        return result;
+        return dest;
+    }
+    
+    public Matrix divide(double x, Matrix dest) {
+        checkSizeElementWiseCompatibility(dest);
+        for (int row = 0; row < rows; row++) {
+            int a = offset + row * stride;
+            int c = dest.offset + row * dest.stride;
+            if (colStride == 1 && dest.colStride == 1) {
+                for (int col = 0; col < cols; col++) {
+                    dest.data[c + col] = data[a + col] / x;
+                }
+            } else {
+                for (int col = 0; col < cols; col++) {
+                    dest.data[c + col * dest.colStride] = data[a + col * colStride] / x;
+                }
+            }
+        }
+        return dest;
     }
     
+    public Matrix divideInPlace(Matrix m) {
+        return divide(m, this);
+    }
     
-    public Matrix transpose() {
-        double[][] original = this.toArray();
-        double[][] transposed = new double[this.cols()][this.rows()];
-        Matrix result = new Matrix();
-        for (int col = 0; col < this.cols(); col++) {
-            for (int row = 0; row < this.rows(); row++) {
-                transposed[col][row] = original[row][col];
+    public Matrix divideInPlace(double x) {
+        return divide(x, this);
+    }
+    
+    public Matrix scaleInPlace(double alpha) {
+        return multiply(alpha, this);
+    }
+    
+    /**
+     * Y = alpha * X + Y, updating this matrix (Y) in place
+     * @return this matrix
+     */
+    public Matrix axpy(double alpha, Matrix x) {
+        checkSizeElementWiseCompatibility(x);
+        for (int row = 0; row < rows; row++) {
+            int a = offset + row * stride;
+            int b = x.offset + row * x.stride;
+            for (int col = 0; col < cols; col++) {
+                data[a + col * colStride] += alpha * x.data[b + col * x.colStride];
             }
-            result.appendRow(new Vector(transposed[col]));
         }
+        return this;
+    }
+    
+    
+    /**
+     * Starts a lazy element-wise expression over this matrix, for example
+     * m.lazy().multiply(2).add(b).divide(d).evaluate() computes the whole
+     * chain in one pass without intermediate matrices
+     */
+    public MatrixExpression lazy() {
+        return MatrixExpression.of(this);
+    }
+    
+    /**
+     * @return a new row-major matrix holding the transpose
+     */
+    public Matrix transpose() {
+        Matrix result = new Matrix(cols, rows);
+        transposeBlock(0, rows, 0, cols, result.data);
         return result;
     }
     
+    /**
+     * Cache-oblivious transpose: keeps halving the longer side of the block
+     * until it is small enough that both the rows read and the columns
+     * written stay in cache, whatever the cache sizes are
+     */
+    private void transposeBlock(int rowStart, int rowEnd, int colStart, int colEnd, double[] dest) {
+        int height = rowEnd - rowStart;
+        int width = colEnd - colStart;
+        if (height <= TRANSPOSE_BLOCK && width <= TRANSPOSE_BLOCK) {
+            for (int row = rowStart; row < rowEnd; row++) {
+                int a = offset + row * stride;
+                for (int col = colStart; col < colEnd; col++) {
+                    dest[col * rows + row] = data[a + col * colStride];
+                }
+            }
+        } else if (height >= width) {
+            int mid = rowStart + height / 2;
+            transposeBlock(rowStart, mid, colStart, colEnd, dest);
+            transposeBlock(mid, rowEnd, colStart, colEnd, dest);
+        } else {
+            int mid = colStart + width / 2;
+            transposeBlock(rowStart, rowEnd, colStart, mid, dest);
+            transposeBlock(rowStart, rowEnd, mid, colEnd, dest);
+        }
+    }
+    
+    /**
+     * Transposed view sharing this matrix's storage, nothing is copied and
+     * writes through either matrix are seen by both. Use transpose() for an
+     * independent copy.
+     */
     public Matrix T() {
-        return this.transpose();
+        Matrix t = new Matrix();
+        t.data = data;
+        t.rows = cols;
+        t.cols = rows;
+        t.offset = offset;
+        t.stride = colStride;
+        t.colStride = stride;
+        t.view = true;
+        return t;
     }
     
+    /**
+     * Matrix product computed into a freshly allocated result. Small products
+     * run a plain loop, larger ones go through the cache blocked Gemm kernel.
+     */
     public Matrix matmul(Matrix m) {
         checkMatMulCompatibility(m);
-        Matrix trans = m.T();
-        double[][] resultArr = new double[this.rows()][m.cols()];
-        for (int row = 0; row < this.rows(); row++) {
-            Vector r = this.getRow(row);
-            for (int col = 0; col < m.cols(); col++) {
-                Vector v = trans.getRow(col);
-                resultArr[row][col] = r.dot(v);
-            }
-        }
-        return new Matrix(resultArr);
+        Matrix result = new Matrix(rows, m.cols);
+        matmulInto(m, result);
+        return result;
+    }
+    
+    /**
+     * Matrix product written into dest, which must be a rows x m.cols()
+     * matrix. dest is overwritten, not accumulated into.
+     */
+    public void matmul(Matrix m, Matrix dest) {
+        checkMatMulCompatibility(m);
+        if (dest.rows != rows || dest.cols != m.cols) {
+            throw new ArithmeticException("Incompatible destination dimensions [" + dest.rows + " x " + dest.cols + "], expected [" + rows + " x " + m.cols + "]");
+        }
+        if (dest.data == data || dest.data == m.data) {
+            throw new IllegalArgumentException("Destination must not share storage with an operand");
+        }
+        if (dest.colStride != 1) {
+            // the kernel writes rows of C contiguously, so go through a row-major scratch result
+            double[] c = new double[rows * m.cols];
+            Gemm.multiply(rows, m.cols, cols,
+                    data, offset, stride, colStride,
+                    m.data, m.offset, m.stride, m.colStride,
+                    c, 0, m.cols);
+            dest.copyFromRowMajor(c);
+            return;
+        }
+        dest.fill(0.0);
+        matmulInto(m, dest);
+    }
+    
+    /**
+     * Matrix product that splits the result into tiles computed in parallel
+     * on the pool configured in Parallelism. Products smaller than
+     * Parallelism.getMatmulThreshold() stay on the calling thread.
+     */
+    public Matrix parallelMatmul(Matrix m) {
+        return parallelMatmul(m, Parallelism.getPool());
+    }
+    
+    public Matrix parallelMatmul(Matrix m, ForkJoinPool pool) {
+        checkMatMulCompatibility(m);
+        Matrix result = new Matrix(rows, m.cols);
+        Gemm.parallelMultiply(pool, Parallelism.getMatmulThreshold(), rows, m.cols, cols,
+                data, offset, stride, colStride,
+                m.data, m.offset, m.stride, m.colStride,
+                result.data, result.offset, result.stride);
+        return result;
+    }
+    
+    /**
+     * @return the matrix-vector product A x as a vector of rows values
+     */
+    public Vector matvec(Vector x) {
+        return gemv(1.0, x, 0.0, Vector.wrap(new double[rows]));
+    }
+    
+    /**
+     * @return A^T x as a vector of cols values, read straight from this
+     * matrix without forming the transpose
+     */
+    public Vector matvecTransposed(Vector x) {
+        return T().matvec(x);
+    }
+    
+    /**
+     * y = alpha * A x + beta * y, updating y in place. With beta 0 the old
+     * values of y are never read. Large products (rows * cols at least
+     * Parallelism.getMatmulThreshold()) are split into row blocks on the
+     * Parallelism pool.
+     * @return y
+     */
+    public Vector gemv(double alpha, Vector x, double beta, Vector y) {
+        if (x.size() != cols) {
+            throw new ArithmeticException("Incompatible vector size " + x.size() + " for a matrix with " + cols + " columns");
+        }
+        if (y.size() != rows) {
+            throw new ArithmeticException("Incompatible vector size " + y.size() + " for a matrix with " + rows + " rows");
+        }
+        if (y.array() == data) {
+            throw new IllegalArgumentException("Destination must not share storage with the matrix");
+        }
+        // the kernel wants x contiguous and must not see it change while writing y
+        boolean copyX = x.stride() != 1 || x.array() == y.array();
+        double[] xs = copyX ? x.toArray() : x.array();
+        int xOff = copyX ? 0 : x.offset();
+        Gemv.multiply(Parallelism.getPool(), Parallelism.getMatmulThreshold(), rows, cols, alpha,
+                data, offset, stride, colStride,
+                xs, xOff,
+                beta, y.array(), y.offset(), y.stride());
+        return y;
+    }
+    
+    /**
+     * y = alpha * A^T x + beta * y, see gemv
+     * @return y
+     */
+    public Vector gemvTransposed(double alpha, Vector x, double beta, Vector y) {
+        return T().gemv(alpha, x, beta, y);
+    }
+    
+    private void matmulInto(Matrix m, Matrix dest) {
+        Gemm.multiply(rows, m.cols, cols,
+                data, offset, stride, colStride,
+                m.data, m.offset, m.stride, m.colStride,
+                dest.data, dest.offset, dest.stride);
     }
     
     public static Matrix makeIdentityMatrix(int n) {
-        double[][] arr = new double[n][n];
-        for (int row = 0; row < n; row++) {
-            for (int col = 0; col < n; col++) {
-                arr[row][col] = row == col ? 1.0 : 0.0;
-            }
+        Matrix ident = new Matrix(n, n);
+        for (int i = 0; i < n; i++) {
+            ident.data[i * n + i] = 1.0;
         }
-        return new Matrix(arr);
+        return ident;
     }
     
     /**
-     * Reduces the n x n matrix to row-echelon form carrying out the ops on it and
-     * an identity matrix
+     * Inverts the n x n matrix. Symmetric positive definite matrices go
+     * through a Cholesky decomposition at about half the work, everything
+     * else (including a symmetric matrix whose Cholesky breaks down) through
+     * an LU decomposition with partial pivoting.
      * @return a the matrix inverse
      */
     public Matrix getInverse() throws ArithmeticException {
+        return getInverse(new Matrix(rows, cols), null);
+    }
+    
+    /**
+     * Inverts the n x n matrix into dest, taking the factor and every scratch
+     * array from ws, so repeated calls with the same dest and workspace do not
+     * allocate. A null ws allocates them instead. dest may be this matrix
+     * itself.
+     * @return dest
+     */
+    public Matrix getInverse(Matrix dest, Workspace ws) throws ArithmeticException {
         if (rows() != cols()) {
             throw new ArithmeticException("This matrix is not an n x n matrix it's a " + rows() + " x " + cols());
         }
+        if (dest.rows != rows || dest.cols != cols) {
+            throw new ArithmeticException("Incompatible destination dimensions [" + dest.rows + " x " + dest.cols + "], expected [" + rows + " x " + cols + "]");
+        }
         
-        Matrix m = new Matrix(toArray());
-        Matrix ident = Matrix.makeIdentityMatrix(m.rows());
-
-        for (int row = 0; row < m.rows(); row++) {
-            Vector pivotRow = m.getRow(row);
-            Vector iV = ident.getRow(row);
-            if (row == 0) {
-                // make sure first element of first row vector is not 0
-                // and if it is make it a 1
-                if (pivotRow.get(row) == 0) {
-                    pivotRow = pivotRow.add(1);
-                    iV = iV.add(1);
+        if (isSymmetric()) {
+            CholeskyDecomposition cholesky = new CholeskyDecomposition(this, ws);
+            try {
+                if (cholesky.isPositiveDefinite()) {
+                    return cholesky.inverse(dest);
                 }
+            } finally {
+                cholesky.release();
             }
-            
-            if (pivotRow.get(row) == 0) {
-                // move the pivot row down and find another that is not zero in the pivot position
-                for (int i = (m.rows() - 1); i > row; i--) {
-                    Vector swapRow = m.getRow(i);
-                    Vector swapIdentRow = ident.getRow(i);
-                    if (swapRow.get(row) != 0) {
-                        m.replaceRow(i, pivotRow);
-                        ident.replaceRow(i, iV);
-                        pivotRow = swapRow;
-                        iV = swapIdentRow;
-                        break;
-                    }
-                }
+        }
+        LUDecomposition lu = new LUDecomposition(this, ws);
+        try {
+            return lu.inverse(dest);
+        } finally {
+            lu.release();
+        }
+    }
+    
+    /**
+     * @return true for a square matrix whose mirrored elements differ by no
+     * more than rounding, n * ulp(1) relative to its largest element
+     */
+    public boolean isSymmetric() {
+        if (rows != cols) {
+            return false;
+        }
+        double maxAbs = 0.0;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                maxAbs = Math.max(maxAbs, Math.abs(get(i, j)));
             }
-            
-            if (pivotRow.get(row) != 0) {
-                // get first non-zero value into a 1
-                double divisor = pivotRow.get(row);
-                pivotRow = pivotRow.divide(divisor);
-                iV = iV.divide(divisor);
-                for (int i = (row + 1); i < m.rows(); i++) {
-                    Vector rowV = m.getRow(i);
-                    Vector rowIdent = ident.getRow(i);
-                    double multiple = rowV.get(row);
-                    rowV = rowV.subtract(pivotRow.multiply(multiple));
-                    rowIdent = rowIdent.subtract(iV.multiply(multiple));
-                    m.replaceRow(i, rowV);
-                    ident.replaceRow(i, rowIdent);
-                }
-                for (int i = (row - 1); i >= 0; i--) {
-                    Vector rowV = m.getRow(i);
-                    Vector rowIdent = ident.getRow(i);
-                    double multiple = rowV.get(row);
-                    rowV = rowV.subtract(pivotRow.multiply(multiple));
-                    rowIdent = rowIdent.subtract(iV.multiply(multiple));
-                    m.replaceRow(i, rowV);
-                    ident.replaceRow(i, rowIdent);
+        }
+        double tol = Math.ulp(1.0) * rows * maxAbs;
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < i; j++) {
+                if (!(Math.abs(get(i, j) - get(j, i)) <= tol)) {
+                    return false;
                 }
             }
-            
-            if (pivotRow.get(row) == 0) {
-                throw new ArithmeticException("Matrix is singular and not invertable");
-            }
-            
-            m.replaceRow(row, pivotRow);
-            ident.replaceRow(row, iV);
         }
-
-        return ident;
+        return true;
     }
     
     /**
-     * Performs Gram-Schmidt orthonormalization
-     * @return orthonormalized matrix
+     * Performs modified Gram-Schmidt orthonormalization of the columns, in
+     * place over one column-major copy. Columns that are (numerically) a
+     * combination of the ones before them come back as zeros. Use
+     * QRDecomposition for the R factor or a least squares solve.
+     * @return orthonormalized matrix, laid out column-major
      */
     public Matrix orthoNormalize() {
-        Matrix m = new Matrix(toArray());
-        for (int i = 0; i < cols(); i++) {
-            Vector v = m.getColumn(i);
-            for (int j = 0; j < i; j++) {
-                Vector w = m.getColumn(j);
-                v = v.subtract(w.multiply(v.dot(w)));
-            }
-            if (v.normL2() > 0.000000001) {
-                v = v.divide(v.normL2());
-            } else {
-                v.fill(0.0);
+        double[] q = T().toRowMajorArray();
+        GramSchmidt.orthonormalize(q, rows, cols, Parallelism.getPool(), Parallelism.getMatmulThreshold());
+        return wrapColumnMajor(q, rows, cols);
+    }
+    
+    /**
+     * Same as orthoNormalize() but written into dest, a rows x cols matrix
+     * that may be this one, with the column-major working copy taken from ws.
+     * A null ws allocates it instead.
+     * @return dest
+     */
+    public Matrix orthoNormalize(Matrix dest, Workspace ws) {
+        if (dest.rows != rows || dest.cols != cols) {
+            throw new ArithmeticException("Incompatible destination dimensions [" + dest.rows + " x " + dest.cols + "], expected [" + rows + " x " + cols + "]");
+        }
+        double[] q = ws == null ? new double[rows * cols] : ws.acquire(rows * cols);
+        try {
+            T().copyToRowMajor(q);
+            GramSchmidt.orthonormalize(q, rows, cols, Parallelism.getPool(), Parallelism.getMatmulThreshold());
+            dest.T().copyFromRowMajor(q);
+        } finally {
+            if (ws != null) {
+                ws.release(q);
             }
-            m.replaceColumn(i, v);
         }
-        return m;
+        return dest;
     }
     
     private void checkSizeElementWiseCompatibility(Matrix m) throws ArithmeticException {
@@ -385,30 +872,137 @@ public class Matrix {
     }
     
     public double[][] toArray() {
-        double[][] arr = new double[this.rows()][];
-        for (int row = 0; row < this.rows(); row++) {
-            Vector v = this.getRow(row);
-            arr[row] = v.toArray();
+        double[][] arr = new double[rows][cols];
+        for (int row = 0; row < rows; row++) {
+            copyRowTo(row, arr[row], 0);
         }
         return arr;
     }
     
+    /*
+     * Raw storage access for the kernels in this package, element (row, col)
+     * is array()[offset() + row * stride() + col * colStride()]
+     */
+    
+    double[] array() {
+        return data;
+    }
+    
+    int offset() {
+        return offset;
+    }
+    
+    int stride() {
+        return stride;
+    }
+    
+    int colStride() {
+        return colStride;
+    }
+    
+    /**
+     * @return the elements row by row in a new array of length rows * cols
+     */
+    double[] toRowMajorArray() {
+        double[] arr = new double[rows * cols];
+        copyToRowMajor(arr);
+        return arr;
+    }
+    
+    /**
+     * Copies the elements row by row into the start of dest
+     */
+    void copyToRowMajor(double[] dest) {
+        for (int row = 0; row < rows; row++) {
+            copyRowTo(row, dest, row * cols);
+        }
+    }
+    
+    /**
+     * Overwrites this matrix with the first rows * cols values of src, read
+     * row by row
+     */
+    void copyFromRowMajor(double[] src) {
+        for (int row = 0; row < rows; row++) {
+            int a = offset + row * stride;
+            int b = row * cols;
+            if (colStride == 1) {
+                System.arraycopy(src, b, data, a, cols);
+            } else {
+                for (int col = 0; col < cols; col++) {
+                    data[a + col * colStride] = src[b + col];
+                }
+            }
+        }
+    }
+    
+    /**
+     * Wraps a row-major array as a rows x cols matrix without copying it
+     */
+    static Matrix wrap(double[] arr, int rows, int cols) {
+        Matrix m = new Matrix();
+        m.data = arr;
+        m.rows = rows;
+        m.cols = cols;
+        m.stride = cols;
+        return m;
+    }
+    
+    /**
+     * Wraps a column-major array as a rows x cols matrix without copying it
+     */
+    static Matrix wrapColumnMajor(double[] arr, int rows, int cols) {
+        Matrix m = wrap(arr, rows, cols);
+        m.stride = 1;
+        m.colStride = rows;
+        return m;
+    }
+    
+    /**
+     * View of rows [start, end) sharing this matrix's storage
+     */
+    Matrix rowBlock(int start, int end) {
+        if (start < 0 || end > rows || start > end) {
+            throw new ArrayIndexOutOfBoundsException("Row range [" + start + ", " + end + ") is outside a matrix with " + rows + " rows");
+        }
+        Matrix m = new Matrix();
+        m.data = data;
+        m.rows = end - start;
+        m.cols = cols;
+        m.offset = offset + start * stride;
+        m.stride = stride;
+        m.colStride = colStride;
+        m.view = true;
+        return m;
+    }
+
+    /**
+     * @return a compact deep copy of this matrix
+     */
+    public Matrix copy() {
+        Matrix result = new Matrix(rows, cols);
+        for (int row = 0; row < rows; row++) {
+            copyRowTo(row, result.data, row * cols);
+        }
+        return result;
+    }
+    
     @Override
     public String toString() {
         String s = "Matrix[" + rows() + " x " + cols() + "]\n  [\n";
         StringJoiner sj = new StringJoiner(",\n");
 
-        int row = 0;
-        for (Vector v : data) {
-            if (v != null && v.size() > 0) {
-                if (rows() > 6 && (row < 2 || row > (rows() - 3))) {
-                    sj.add(String.format("%6d", row) + ": " + v);
-                } else if (rows() > 6 && row == 2) {
-                    sj.add("       ... ");
-                } else if (rows() <= 6) {
-                    sj.add(String.format("%6d", row) + ": " + v);
-                }
-                row++;
+        for (int row = 0; row < rows; row++) {
+            if (cols == 0) {
+                break;
+            }
+            Vector v = getRow(row);
+            if (rows() > 6 && (row < 2 || row > (rows() - 3))) {
+                sj.add(String.format("%6d", row) + ": " + v);
+            } else if (rows() > 6 && row == 2) {
+                sj.add("       ... ");
+            } else if (rows() <= 6) {
+                sj.add(String.format("%6d", row) + ": " + v);
             }
         }
 
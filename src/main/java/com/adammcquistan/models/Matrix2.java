@@ -0,0 +1,186 @@
+package com.adammcquistan.models;
+
+/**
+ * Immutable 2 x 2 matrix held in four final fields mRC (row R, column C), the
+ * fixed size companion of Vector2. Products, determinant and inverse are
+ * written out in full with no loops or arrays, so temporaries in a hot loop
+ * can be scalar replaced just like Vector2.
+ */
+public final class Matrix2 {
+    public static final Matrix2 IDENTITY = new Matrix2(
+            1.0, 0.0,
+            0.0, 1.0);
+
+    private final double m00, m01;
+    private final double m10, m11;
+
+    /**
+     * Values are given row by row
+     */
+    public Matrix2(double m00, double m01,
+            double m10, double m11) {
+        this.m00 = m00;
+        this.m01 = m01;
+        this.m10 = m10;
+        this.m11 = m11;
+    }
+
+    /**
+     * @return the values of m, which must be 2 x 2
+     */
+    public static Matrix2 of(Matrix m) {
+        if (m.rows() != 2 || m.cols() != 2) {
+            throw new IllegalArgumentException("Matrix of [" + m.rows() + " x " + m.cols() + "] is not 2 x 2");
+        }
+        return new Matrix2(
+                m.get(0, 0), m.get(0, 1),
+                m.get(1, 0), m.get(1, 1));
+    }
+
+    /**
+     * Builds the matrix from its rows
+     */
+    public static Matrix2 ofRows(Vector2 r0, Vector2 r1) {
+        return new Matrix2(
+                r0.x(), r0.y(),
+                r1.x(), r1.y());
+    }
+
+    public double get(int rowIdx, int colIdx) {
+        if (rowIdx < 0 || rowIdx >= 2 || colIdx < 0 || colIdx >= 2) {
+            throw new ArrayIndexOutOfBoundsException("Index (" + rowIdx + ", " + colIdx + ") is outside a 2 x 2 matrix");
+        }
+        switch (rowIdx * 2 + colIdx) {
+            case 0:
+                return m00;
+            case 1:
+                return m01;
+            case 2:
+                return m10;
+            default:
+                return m11;
+        }
+    }
+
+    public Vector2 getRow(int rowIdx) {
+        switch (rowIdx) {
+            case 0:
+                return new Vector2(m00, m01);
+            case 1:
+                return new Vector2(m10, m11);
+            default:
+                throw new ArrayIndexOutOfBoundsException("Attempting to select row @ index " + rowIdx + " from a 2 x 2 matrix");
+        }
+    }
+
+    public Vector2 getColumn(int colIdx) {
+        switch (colIdx) {
+            case 0:
+                return new Vector2(m00, m10);
+            case 1:
+                return new Vector2(m01, m11);
+            default:
+                throw new ArrayIndexOutOfBoundsException("Attempting to select column @ index " + colIdx + " from a 2 x 2 matrix");
+        }
+    }
+
+    public Matrix2 add(Matrix2 m) {
+        return new Matrix2(
+                m00 + m.m00, m01 + m.m01,
+                m10 + m.m10, m11 + m.m11);
+    }
+
+    public Matrix2 subtract(Matrix2 m) {
+        return new Matrix2(
+                m00 - m.m00, m01 - m.m01,
+                m10 - m.m10, m11 - m.m11);
+    }
+
+    public Matrix2 multiply(double s) {
+        return new Matrix2(
+                m00 * s, m01 * s,
+                m10 * s, m11 * s);
+    }
+
+    public Matrix2 matmul(Matrix2 m) {
+        return new Matrix2(
+                m00 * m.m00 + m01 * m.m10, m00 * m.m01 + m01 * m.m11,
+                m10 * m.m00 + m11 * m.m10, m10 * m.m01 + m11 * m.m11);
+    }
+
+    /**
+     * @return this matrix times the column vector v
+     */
+    public Vector2 matvec(Vector2 v) {
+        return new Vector2(
+                m00 * v.x() + m01 * v.y(),
+                m10 * v.x() + m11 * v.y());
+    }
+
+    public Matrix2 transpose() {
+        return new Matrix2(
+                m00, m10,
+                m01, m11);
+    }
+
+    public Matrix2 T() {
+        return transpose();
+    }
+
+    public double determinant() {
+        return m00 * m11 - m01 * m10;
+    }
+
+    /**
+     * Closed form inverse by cofactors, singular only when the determinant is
+     * exactly zero or not finite so badly scaled matrices still invert
+     * @return the matrix inverse
+     */
+    public Matrix2 inverse() throws ArithmeticException {
+        double det = determinant();
+        if (det == 0.0 || !Double.isFinite(det)) {
+            throw new ArithmeticException("Matrix is singular and not invertable");
+        }
+        double inv = 1.0 / det;
+        return new Matrix2(
+                m11 * inv, -m01 * inv,
+                -m10 * inv, m00 * inv);
+    }
+
+    public Matrix toMatrix() {
+        return Matrix.wrap(new double[] {
+            m00, m01,
+            m10, m11
+        }, 2, 2);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Matrix2)) {
+            return false;
+        }
+        Matrix2 m = (Matrix2) o;
+        return Double.compare(m00, m.m00) == 0 && Double.compare(m01, m.m01) == 0
+                && Double.compare(m10, m.m10) == 0 && Double.compare(m11, m.m11) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = Double.hashCode(m00);
+        h = 31 * h + Double.hashCode(m01);
+        h = 31 * h + Double.hashCode(m10);
+        h = 31 * h + Double.hashCode(m11);
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return "Matrix2\n  [\n"
+                + String.format("%6d", 0) + ": " + getRow(0) + ",\n"
+                + String.format("%6d", 1) + ": " + getRow(1)
+                + "\n  ]";
+    }
+}
@@ -0,0 +1,225 @@
+package com.adammcquistan.models;
+
+/**
+ * Immutable 3 x 3 matrix in 9 final fields mRC (row R, column C), the
+ * 3D counterpart of Matrix2
+ */
+public final class Matrix3 {
+    public static final Matrix3 IDENTITY = new Matrix3(
+            1.0, 0.0, 0.0,
+            0.0, 1.0, 0.0,
+            0.0, 0.0, 1.0);
+
+    private final double m00, m01, m02;
+    private final double m10, m11, m12;
+    private final double m20, m21, m22;
+
+    /**
+     * Values are given row by row
+     */
+    public Matrix3(double m00, double m01, double m02,
+            double m10, double m11, double m12,
+            double m20, double m21, double m22) {
+        this.m00 = m00;
+        this.m01 = m01;
+        this.m02 = m02;
+        this.m10 = m10;
+        this.m11 = m11;
+        this.m12 = m12;
+        this.m20 = m20;
+        this.m21 = m21;
+        this.m22 = m22;
+    }
+
+    /**
+     * @return the values of m, which must be 3 x 3
+     */
+    public static Matrix3 of(Matrix m) {
+        if (m.rows() != 3 || m.cols() != 3) {
+            throw new IllegalArgumentException("Matrix of [" + m.rows() + " x " + m.cols() + "] is not 3 x 3");
+        }
+        return new Matrix3(
+                m.get(0, 0), m.get(0, 1), m.get(0, 2),
+                m.get(1, 0), m.get(1, 1), m.get(1, 2),
+                m.get(2, 0), m.get(2, 1), m.get(2, 2));
+    }
+
+    /**
+     * Builds the matrix from its rows
+     */
+    public static Matrix3 ofRows(Vector3 r0, Vector3 r1, Vector3 r2) {
+        return new Matrix3(
+                r0.x(), r0.y(), r0.z(),
+                r1.x(), r1.y(), r1.z(),
+                r2.x(), r2.y(), r2.z());
+    }
+
+    public double get(int rowIdx, int colIdx) {
+        if (rowIdx < 0 || rowIdx >= 3 || colIdx < 0 || colIdx >= 3) {
+            throw new ArrayIndexOutOfBoundsException("Index (" + rowIdx + ", " + colIdx + ") is outside a 3 x 3 matrix");
+        }
+        switch (rowIdx * 3 + colIdx) {
+            case 0:
+                return m00;
+            case 1:
+                return m01;
+            case 2:
+                return m02;
+            case 3:
+                return m10;
+            case 4:
+                return m11;
+            case 5:
+                return m12;
+            case 6:
+                return m20;
+            case 7:
+                return m21;
+            default:
+                return m22;
+        }
+    }
+
+    public Vector3 getRow(int rowIdx) {
+        switch (rowIdx) {
+            case 0:
+                return new Vector3(m00, m01, m02);
+            case 1:
+                return new Vector3(m10, m11, m12);
+            case 2:
+                return new Vector3(m20, m21, m22);
+            default:
+                throw new ArrayIndexOutOfBoundsException("Attempting to select row @ index " + rowIdx + " from a 3 x 3 matrix");
+        }
+    }
+
+    public Vector3 getColumn(int colIdx) {
+        switch (colIdx) {
+            case 0:
+                return new Vector3(m00, m10, m20);
+            case 1:
+                return new Vector3(m01, m11, m21);
+            case 2:
+                return new Vector3(m02, m12, m22);
+            default:
+                throw new ArrayIndexOutOfBoundsException("Attempting to select column @ index " + colIdx + " from a 3 x 3 matrix");
+        }
+    }
+
+    public Matrix3 add(Matrix3 m) {
+        return new Matrix3(
+                m00 + m.m00, m01 + m.m01, m02 + m.m02,
+                m10 + m.m10, m11 + m.m11, m12 + m.m12,
+                m20 + m.m20, m21 + m.m21, m22 + m.m22);
+    }
+
+    public Matrix3 subtract(Matrix3 m) {
+        return new Matrix3(
+                m00 - m.m00, m01 - m.m01, m02 - m.m02,
+                m10 - m.m10, m11 - m.m11, m12 - m.m12,
+                m20 - m.m20, m21 - m.m21, m22 - m.m22);
+    }
+
+    public Matrix3 multiply(double s) {
+        return new Matrix3(
+                m00 * s, m01 * s, m02 * s,
+                m10 * s, m11 * s, m12 * s,
+                m20 * s, m21 * s, m22 * s);
+    }
+
+    public Matrix3 matmul(Matrix3 m) {
+        return new Matrix3(
+                m00 * m.m00 + m01 * m.m10 + m02 * m.m20, m00 * m.m01 + m01 * m.m11 + m02 * m.m21, m00 * m.m02 + m01 * m.m12 + m02 * m.m22,
+                m10 * m.m00 + m11 * m.m10 + m12 * m.m20, m10 * m.m01 + m11 * m.m11 + m12 * m.m21, m10 * m.m02 + m11 * m.m12 + m12 * m.m22,
+                m20 * m.m00 + m21 * m.m10 + m22 * m.m20, m20 * m.m01 + m21 * m.m11 + m22 * m.m21, m20 * m.m02 + m21 * m.m12 + m22 * m.m22);
+    }
+
+    /**
+     * @return this matrix times the column vector v
+     */
+    public Vector3 matvec(Vector3 v) {
+        return new Vector3(
+                m00 * v.x() + m01 * v.y() + m02 * v.z(),
+                m10 * v.x() + m11 * v.y() + m12 * v.z(),
+                m20 * v.x() + m21 * v.y() + m22 * v.z());
+    }
+
+    public Matrix3 transpose() {
+        return new Matrix3(
+                m00, m10, m20,
+                m01, m11, m21,
+                m02, m12, m22);
+    }
+
+    public Matrix3 T() {
+        return transpose();
+    }
+
+    public double determinant() {
+        return m00 * (m11 * m22 - m12 * m21) + m01 * (m12 * m20 - m10 * m22) + m02 * (m10 * m21 - m11 * m20);
+    }
+
+    /**
+     * Closed form inverse by cofactors, singular under the same rule as Matrix2
+     * @return the matrix inverse
+     */
+    public Matrix3 inverse() throws ArithmeticException {
+        double c00 = m11 * m22 - m12 * m21;
+        double c01 = m12 * m20 - m10 * m22;
+        double c02 = m10 * m21 - m11 * m20;
+        double det = m00 * c00 + m01 * c01 + m02 * c02;
+        if (det == 0.0 || !Double.isFinite(det)) {
+            throw new ArithmeticException("Matrix is singular and not invertable");
+        }
+        double inv = 1.0 / det;
+        return new Matrix3(
+                c00 * inv, (m02 * m21 - m01 * m22) * inv, (m01 * m12 - m02 * m11) * inv,
+                c01 * inv, (m00 * m22 - m02 * m20) * inv, (m02 * m10 - m00 * m12) * inv,
+                c02 * inv, (m01 * m20 - m00 * m21) * inv, (m00 * m11 - m01 * m10) * inv);
+    }
+
+    public Matrix toMatrix() {
+        return Matrix.wrap(new double[] {
+            m00, m01, m02,
+            m10, m11, m12,
+            m20, m21, m22
+        }, 3, 3);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Matrix3)) {
+            return false;
+        }
+        Matrix3 m = (Matrix3) o;
+        return Double.compare(m00, m.m00) == 0 && Double.compare(m01, m.m01) == 0 && Double.compare(m02, m.m02) == 0
+                && Double.compare(m10, m.m10) == 0 && Double.compare(m11, m.m11) == 0 && Double.compare(m12, m.m12) == 0
+                && Double.compare(m20, m.m20) == 0 && Double.compare(m21, m.m21) == 0 && Double.compare(m22, m.m22) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = Double.hashCode(m00);
+        h = 31 * h + Double.hashCode(m01);
+        h = 31 * h + Double.hashCode(m02);
+        h = 31 * h + Double.hashCode(m10);
+        h = 31 * h + Double.hashCode(m11);
+        h = 31 * h + Double.hashCode(m12);
+        h = 31 * h + Double.hashCode(m20);
+        h = 31 * h + Double.hashCode(m21);
+        h = 31 * h + Double.hashCode(m22);
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return "Matrix3\n  [\n"
+                + String.format("%6d", 0) + ": " + getRow(0) + ",\n"
+                + String.format("%6d", 1) + ": " + getRow(1) + ",\n"
+                + String.format("%6d", 2) + ": " + getRow(2)
+                + "\n  ]";
+    }
+}
@@ -0,0 +1,293 @@
+package com.adammcquistan.models;
+
+/**
+ * Immutable 4 x 4 matrix in 16 final fields mRC (row R, column C), the
+ * 4D counterpart of Matrix2
+ */
+public final class Matrix4 {
+    public static final Matrix4 IDENTITY = new Matrix4(
+            1.0, 0.0, 0.0, 0.0,
+            0.0, 1.0, 0.0, 0.0,
+            0.0, 0.0, 1.0, 0.0,
+            0.0, 0.0, 0.0, 1.0);
+
+    private final double m00, m01, m02, m03;
+    private final double m10, m11, m12, m13;
+    private final double m20, m21, m22, m23;
+    private final double m30, m31, m32, m33;
+
+    /**
+     * Values are given row by row
+     */
+    public Matrix4(double m00, double m01, double m02, double m03,
+            double m10, double m11, double m12, double m13,
+            double m20, double m21, double m22, double m23,
+            double m30, double m31, double m32, double m33) {
+        this.m00 = m00;
+        this.m01 = m01;
+        this.m02 = m02;
+        this.m03 = m03;
+        this.m10 = m10;
+        this.m11 = m11;
+        this.m12 = m12;
+        this.m13 = m13;
+        this.m20 = m20;
+        this.m21 = m21;
+        this.m22 = m22;
+        this.m23 = m23;
+        this.m30 = m30;
+        this.m31 = m31;
+        this.m32 = m32;
+        this.m33 = m33;
+    }
+
+    /**
+     * @return the values of m, which must be 4 x 4
+     */
+    public static Matrix4 of(Matrix m) {
+        if (m.rows() != 4 || m.cols() != 4) {
+            throw new IllegalArgumentException("Matrix of [" + m.rows() + " x " + m.cols() + "] is not 4 x 4");
+        }
+        return new Matrix4(
+                m.get(0, 0), m.get(0, 1), m.get(0, 2), m.get(0, 3),
+                m.get(1, 0), m.get(1, 1), m.get(1, 2), m.get(1, 3),
+                m.get(2, 0), m.get(2, 1), m.get(2, 2), m.get(2, 3),
+                m.get(3, 0), m.get(3, 1), m.get(3, 2), m.get(3, 3));
+    }
+
+    /**
+     * Builds the matrix from its rows
+     */
+    public static Matrix4 ofRows(Vector4 r0, Vector4 r1, Vector4 r2, Vector4 r3) {
+        return new Matrix4(
+                r0.x(), r0.y(), r0.z(), r0.w(),
+                r1.x(), r1.y(), r1.z(), r1.w(),
+                r2.x(), r2.y(), r2.z(), r2.w(),
+                r3.x(), r3.y(), r3.z(), r3.w());
+    }
+
+    public double get(int rowIdx, int colIdx) {
+        if (rowIdx < 0 || rowIdx >= 4 || colIdx < 0 || colIdx >= 4) {
+            throw new ArrayIndexOutOfBoundsException("Index (" + rowIdx + ", " + colIdx + ") is outside a 4 x 4 matrix");
+        }
+        switch (rowIdx * 4 + colIdx) {
+            case 0:
+                return m00;
+            case 1:
+                return m01;
+            case 2:
+                return m02;
+            case 3:
+                return m03;
+            case 4:
+                return m10;
+            case 5:
+                return m11;
+            case 6:
+                return m12;
+            case 7:
+                return m13;
+            case 8:
+                return m20;
+            case 9:
+                return m21;
+            case 10:
+                return m22;
+            case 11:
+                return m23;
+            case 12:
+                return m30;
+            case 13:
+                return m31;
+            case 14:
+                return m32;
+            default:
+                return m33;
+        }
+    }
+
+    public Vector4 getRow(int rowIdx) {
+        switch (rowIdx) {
+            case 0:
+                return new Vector4(m00, m01, m02, m03);
+            case 1:
+                return new Vector4(m10, m11, m12, m13);
+            case 2:
+                return new Vector4(m20, m21, m22, m23);
+            case 3:
+                return new Vector4(m30, m31, m32, m33);
+            default:
+                throw new ArrayIndexOutOfBoundsException("Attempting to select row @ index " + rowIdx + " from a 4 x 4 matrix");
+        }
+    }
+
+    public Vector4 getColumn(int colIdx) {
+        switch (colIdx) {
+            case 0:
+                return new Vector4(m00, m10, m20, m30);
+            case 1:
+                return new Vector4(m01, m11, m21, m31);
+            case 2:
+                return new Vector4(m02, m12, m22, m32);
+            case 3:
+                return new Vector4(m03, m13, m23, m33);
+            default:
+                throw new ArrayIndexOutOfBoundsException("Attempting to select column @ index " + colIdx + " from a 4 x 4 matrix");
+        }
+    }
+
+    public Matrix4 add(Matrix4 m) {
+        return new Matrix4(
+                m00 + m.m00, m01 + m.m01, m02 + m.m02, m03 + m.m03,
+                m10 + m.m10, m11 + m.m11, m12 + m.m12, m13 + m.m13,
+                m20 + m.m20, m21 + m.m21, m22 + m.m22, m23 + m.m23,
+                m30 + m.m30, m31 + m.m31, m32 + m.m32, m33 + m.m33);
+    }
+
+    public Matrix4 subtract(Matrix4 m) {
+        return new Matrix4(
+                m00 - m.m00, m01 - m.m01, m02 - m.m02, m03 - m.m03,
+                m10 - m.m10, m11 - m.m11, m12 - m.m12, m13 - m.m13,
+                m20 - m.m20, m21 - m.m21, m22 - m.m22, m23 - m.m23,
+                m30 - m.m30, m31 - m.m31, m32 - m.m32, m33 - m.m33);
+    }
+
+    public Matrix4 multiply(double s) {
+        return new Matrix4(
+                m00 * s, m01 * s, m02 * s, m03 * s,
+                m10 * s, m11 * s, m12 * s, m13 * s,
+                m20 * s, m21 * s, m22 * s, m23 * s,
+                m30 * s, m31 * s, m32 * s, m33 * s);
+    }
+
+    public Matrix4 matmul(Matrix4 m) {
+        return new Matrix4(
+                m00 * m.m00 + m01 * m.m10 + m02 * m.m20 + m03 * m.m30, m00 * m.m01 + m01 * m.m11 + m02 * m.m21 + m03 * m.m31, m00 * m.m02 + m01 * m.m12 + m02 * m.m22 + m03 * m.m32, m00 * m.m03 + m01 * m.m13 + m02 * m.m23 + m03 * m.m33,
+                m10 * m.m00 + m11 * m.m10 + m12 * m.m20 + m13 * m.m30, m10 * m.m01 + m11 * m.m11 + m12 * m.m21 + m13 * m.m31, m10 * m.m02 + m11 * m.m12 + m12 * m.m22 + m13 * m.m32, m10 * m.m03 + m11 * m.m13 + m12 * m.m23 + m13 * m.m33,
+                m20 * m.m00 + m21 * m.m10 + m22 * m.m20 + m23 * m.m30, m20 * m.m01 + m21 * m.m11 + m22 * m.m21 + m23 * m.m31, m20 * m.m02 + m21 * m.m12 + m22 * m.m22 + m23 * m.m32, m20 * m.m03 + m21 * m.m13 + m22 * m.m23 + m23 * m.m33,
+                m30 * m.m00 + m31 * m.m10 + m32 * m.m20 + m33 * m.m30, m30 * m.m01 + m31 * m.m11 + m32 * m.m21 + m33 * m.m31, m30 * m.m02 + m31 * m.m12 + m32 * m.m22 + m33 * m.m32, m30 * m.m03 + m31 * m.m13 + m32 * m.m23 + m33 * m.m33);
+    }
+
+    /**
+     * @return this matrix times the column vector v
+     */
+    public Vector4 matvec(Vector4 v) {
+        return new Vector4(
+                m00 * v.x() + m01 * v.y() + m02 * v.z() + m03 * v.w(),
+                m10 * v.x() + m11 * v.y() + m12 * v.z() + m13 * v.w(),
+                m20 * v.x() + m21 * v.y() + m22 * v.z() + m23 * v.w(),
+                m30 * v.x() + m31 * v.y() + m32 * v.z() + m33 * v.w());
+    }
+
+    public Matrix4 transpose() {
+        return new Matrix4(
+                m00, m10, m20, m30,
+                m01, m11, m21, m31,
+                m02, m12, m22, m32,
+                m03, m13, m23, m33);
+    }
+
+    public Matrix4 T() {
+        return transpose();
+    }
+
+    public double determinant() {
+        double s0 = m00 * m11 - m10 * m01;
+        double s1 = m00 * m12 - m10 * m02;
+        double s2 = m00 * m13 - m10 * m03;
+        double s3 = m01 * m12 - m11 * m02;
+        double s4 = m01 * m13 - m11 * m03;
+        double s5 = m02 * m13 - m12 * m03;
+        double c5 = m22 * m33 - m32 * m23;
+        double c4 = m21 * m33 - m31 * m23;
+        double c3 = m21 * m32 - m31 * m22;
+        double c2 = m20 * m33 - m30 * m23;
+        double c1 = m20 * m32 - m30 * m22;
+        double c0 = m20 * m31 - m30 * m21;
+        return s0 * c5 - s1 * c4 + s2 * c3 + s3 * c2 - s4 * c1 + s5 * c0;
+    }
+
+    /**
+     * Closed form inverse by cofactors, singular under the same rule as Matrix2
+     * @return the matrix inverse
+     */
+    public Matrix4 inverse() throws ArithmeticException {
+        double s0 = m00 * m11 - m10 * m01;
+        double s1 = m00 * m12 - m10 * m02;
+        double s2 = m00 * m13 - m10 * m03;
+        double s3 = m01 * m12 - m11 * m02;
+        double s4 = m01 * m13 - m11 * m03;
+        double s5 = m02 * m13 - m12 * m03;
+        double c5 = m22 * m33 - m32 * m23;
+        double c4 = m21 * m33 - m31 * m23;
+        double c3 = m21 * m32 - m31 * m22;
+        double c2 = m20 * m33 - m30 * m23;
+        double c1 = m20 * m32 - m30 * m22;
+        double c0 = m20 * m31 - m30 * m21;
+        double det = s0 * c5 - s1 * c4 + s2 * c3 + s3 * c2 - s4 * c1 + s5 * c0;
+        if (det == 0.0 || !Double.isFinite(det)) {
+            throw new ArithmeticException("Matrix is singular and not invertable");
+        }
+        double inv = 1.0 / det;
+        return new Matrix4(
+                (m11 * c5 - m12 * c4 + m13 * c3) * inv, (-m01 * c5 + m02 * c4 - m03 * c3) * inv, (m31 * s5 - m32 * s4 + m33 * s3) * inv, (-m21 * s5 + m22 * s4 - m23 * s3) * inv,
+                (-m10 * c5 + m12 * c2 - m13 * c1) * inv, (m00 * c5 - m02 * c2 + m03 * c1) * inv, (-m30 * s5 + m32 * s2 - m33 * s1) * inv, (m20 * s5 - m22 * s2 + m23 * s1) * inv,
+                (m10 * c4 - m11 * c2 + m13 * c0) * inv, (-m00 * c4 + m01 * c2 - m03 * c0) * inv, (m30 * s4 - m31 * s2 + m33 * s0) * inv, (-m20 * s4 + m21 * s2 - m23 * s0) * inv,
+                (-m10 * c3 + m11 * c1 - m12 * c0) * inv, (m00 * c3 - m01 * c1 + m02 * c0) * inv, (-m30 * s3 + m31 * s1 - m32 * s0) * inv, (m20 * s3 - m21 * s1 + m22 * s0) * inv);
+    }
+
+    public Matrix toMatrix() {
+        return Matrix.wrap(new double[] {
+            m00, m01, m02, m03,
+            m10, m11, m12, m13,
+            m20, m21, m22, m23,
+            m30, m31, m32, m33
+        }, 4, 4);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Matrix4)) {
+            return false;
+        }
+        Matrix4 m = (Matrix4) o;
+        return Double.compare(m00, m.m00) == 0 && Double.compare(m01, m.m01) == 0 && Double.compare(m02, m.m02) == 0 && Double.compare(m03, m.m03) == 0
+                && Double.compare(m10, m.m10) == 0 && Double.compare(m11, m.m11) == 0 && Double.compare(m12, m.m12) == 0 && Double.compare(m13, m.m13) == 0
+                && Double.compare(m20, m.m20) == 0 && Double.compare(m21, m.m21) == 0 && Double.compare(m22, m.m22) == 0 && Double.compare(m23, m.m23) == 0
+                && Double.compare(m30, m.m30) == 0 && Double.compare(m31, m.m31) == 0 && Double.compare(m32, m.m32) == 0 && Double.compare(m33, m.m33) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = Double.hashCode(m00);
+        h = 31 * h + Double.hashCode(m01);
+        h = 31 * h + Double.hashCode(m02);
+        h = 31 * h + Double.hashCode(m03);
+        h = 31 * h + Double.hashCode(m10);
+        h = 31 * h + Double.hashCode(m11);
+        h = 31 * h + Double.hashCode(m12);
+        h = 31 * h + Double.hashCode(m13);
+        h = 31 * h + Double.hashCode(m20);
+        h = 31 * h + Double.hashCode(m21);
+        h = 31 * h + Double.hashCode(m22);
+        h = 31 * h + Double.hashCode(m23);
+        h = 31 * h + Double.hashCode(m30);
+        h = 31 * h + Double.hashCode(m31);
+        h = 31 * h + Double.hashCode(m32);
+        h = 31 * h + Double.hashCode(m33);
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return "Matrix4\n  [\n"
+                + String.format("%6d", 0) + ": " + getRow(0) + ",\n"
+                + String.format("%6d", 1) + ": " + getRow(1) + ",\n"
+                + String.format("%6d", 2) + ": " + getRow(2) + ",\n"
+                + String.format("%6d", 3) + ": " + getRow(3)
+                + "\n  ]";
+    }
+}
@@ -0,0 +1,486 @@
+package com.adammcquistan.models;
+
+/**
+ * A batch of count small matrices of one shape packed back to back in a
+ * single array, matrix i taking rows * cols values row by row from
+ * i * rows * cols. Operations run over the whole batch in one call with no
+ * per-matrix objects; square 2x2, 3x3 and 4x4 batches go through fully
+ * unrolled kernels.
+ */
+public class MatrixBatch {
+    private final double[] data;
+    private final int count;
+    private final int rows;
+    private final int cols;
+
+    /**
+     * Creates count rows x cols matrices filled with zeros
+     */
+    public MatrixBatch(int count, int rows, int cols) {
+        if (count < 0 || rows < 0 || cols < 0) {
+            throw new IllegalArgumentException("Batch dimensions must be non-negative, got " + count + " x " + rows + " x " + cols);
+        }
+        this.data = new double[Math.multiplyExact(count, Math.multiplyExact(rows, cols))];
+        this.count = count;
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    /**
+     * Copies values, which hold rows x cols matrices packed back to back
+     * row by row, into a new batch
+     */
+    public MatrixBatch(double[] values, int rows, int cols) {
+        if (rows <= 0 || cols <= 0 || values.length % (rows * cols) != 0) {
+            throw new IllegalArgumentException("Array of " + values.length + " values is not a whole number of " + rows + " x " + cols + " matrices");
+        }
+        this.data = values.clone();
+        this.count = values.length / (rows * cols);
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    private MatrixBatch(double[] data, int count, int rows, int cols) {
+        this.data = data;
+        this.count = count;
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    /**
+     * Packs copies of the given matrices, which must all have the same shape
+     */
+    public static MatrixBatch of(Matrix... matrices) {
+        if (matrices.length == 0) {
+            return new MatrixBatch(0, 0, 0);
+        }
+        int rows = matrices[0].rows();
+        int cols = matrices[0].cols();
+        MatrixBatch batch = new MatrixBatch(matrices.length, rows, cols);
+        for (int i = 0; i < matrices.length; i++) {
+            batch.setMatrix(i, matrices[i]);
+        }
+        return batch;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    /**
+     * @return a copy of all the values, matrix i starts at i * rows() * cols()
+     */
+    public double[] toArray() {
+        return data.clone();
+    }
+
+    double[] array() {
+        return data;
+    }
+
+    public double get(int index, int rowIdx, int colIdx) {
+        return data[position(index, rowIdx, colIdx)];
+    }
+
+    public void set(int index, int rowIdx, int colIdx, double value) {
+        data[position(index, rowIdx, colIdx)] = value;
+    }
+
+    private int position(int index, int rowIdx, int colIdx) {
+        if (index < 0 || index >= count || rowIdx < 0 || rowIdx >= rows || colIdx < 0 || colIdx >= cols) {
+            throw new ArrayIndexOutOfBoundsException("Index " + index + " (" + rowIdx + ", " + colIdx + ") is outside a batch of " + count + " " + rows + " x " + cols + " matrices");
+        }
+        return (index * rows + rowIdx) * cols + colIdx;
+    }
+
+    /**
+     * @return a copy of matrix index
+     */
+    public Matrix getMatrix(int index) {
+        checkIndex(index);
+        double[] values = new double[rows * cols];
+        System.arraycopy(data, index * rows * cols, values, 0, values.length);
+        return Matrix.wrap(values, rows, cols);
+    }
+
+    public void setMatrix(int index, Matrix m) {
+        checkIndex(index);
+        if (m.rows() != rows || m.cols() != cols) {
+            throw new IllegalArgumentException("Matrix of [" + m.rows() + " x " + m.cols() + "] does not fit a batch of [" + rows + " x " + cols + "] matrices");
+        }
+        int base = index * rows * cols;
+        for (int row = 0; row < rows; row++) {
+            m.getRow(row).copyTo(data, base + row * cols);
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= count) {
+            throw new ArrayIndexOutOfBoundsException("Index " + index + " is outside a batch of " + count + " matrices");
+        }
+    }
+
+    /**
+     * Multiplies matrix i of this batch by matrix i of other. other may also
+     * hold a single matrix, which then multiplies every matrix of the batch.
+     * @return the batch of products
+     */
+    public MatrixBatch matmul(MatrixBatch other) throws ArithmeticException {
+        MatrixBatch dest = new MatrixBatch(count, rows, other.cols);
+        matmul(other, dest);
+        return dest;
+    }
+
+    /**
+     * Multiplies every matrix of the batch by m
+     */
+    public MatrixBatch matmul(Matrix m) throws ArithmeticException {
+        return matmul(of(m));
+    }
+
+    /**
+     * Batched product written into dest, which must not share storage with
+     * either operand
+     */
+    public void matmul(MatrixBatch other, MatrixBatch dest) throws ArithmeticException {
+        if (cols != other.rows || (other.count != count && other.count != 1)) {
+            throw new ArithmeticException("Incompatible batch dimensions " + count + " x [" + rows + " x " + cols + "] vs " + other.count + " x [" + other.rows + " x " + other.cols + "]");
+        }
+        if (dest.count != count || dest.rows != rows || dest.cols != other.cols) {
+            throw new ArithmeticException("Incompatible destination dimensions " + dest.count + " x [" + dest.rows + " x " + dest.cols + "], expected " + count + " x [" + rows + " x " + other.cols + "]");
+        }
+        if (dest.data == data || dest.data == other.data) {
+            throw new IllegalArgumentException("Destination must not share storage with an operand");
+        }
+        int aSize = rows * cols;
+        int bSize = other.count == 1 ? 0 : other.rows * other.cols;
+        int cSize = rows * other.cols;
+        boolean square = rows == cols && other.rows == other.cols;
+        if (square && rows == 2) {
+            for (int i = 0; i < count; i++) {
+                multiply2(data, i * aSize, other.data, i * bSize, dest.data, i * cSize);
+            }
+        } else if (square && rows == 3) {
+            for (int i = 0; i < count; i++) {
+                multiply3(data, i * aSize, other.data, i * bSize, dest.data, i * cSize);
+            }
+        } else if (square && rows == 4) {
+            for (int i = 0; i < count; i++) {
+                multiply4(data, i * aSize, other.data, i * bSize, dest.data, i * cSize);
+            }
+        } else {
+            int n = other.cols;
+            for (int i = 0; i < count; i++) {
+                int ai = i * aSize;
+                int bi = i * bSize;
+                int ci = i * cSize;
+                for (int r = 0; r < rows; r++) {
+                    for (int c = 0; c < n; c++) {
+                        double s = 0.0;
+                        for (int k = 0; k < cols; k++) {
+                            s += data[ai + r * cols + k] * other.data[bi + k * n + c];
+                        }
+                        dest.data[ci + r * n + c] = s;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Multiplies matrix i by row i of xs
+     * @return a count x rows matrix whose row i is matrix i times row i of xs
+     */
+    public Matrix matvec(Matrix xs) throws ArithmeticException {
+        if (xs.rows() != count || xs.cols() != cols) {
+            throw new ArithmeticException("Incompatible matrix dimensions [" + xs.rows() + " x " + xs.cols() + "], expected [" + count + " x " + cols + "]");
+        }
+        return matvec(xs.toRowMajorArray(), cols);
+    }
+
+    /**
+     * Multiplies every matrix of the batch by the same vector x
+     * @return a count x rows matrix whose row i is matrix i times x
+     */
+    public Matrix matvec(Vector x) throws ArithmeticException {
+        if (x.size() != cols) {
+            throw new ArithmeticException("Incompatible vector size " + x.size() + " for matrices with " + cols + " columns");
+        }
+        return matvec(x.toArray(), 0);
+    }
+
+    /**
+     * @param xStep distance between the vectors of consecutive matrices in x,
+     * 0 to use the same vector for all of them
+     */
+    private Matrix matvec(double[] x, int xStep) {
+        double[] y = new double[count * rows];
+        int aSize = rows * cols;
+        if (rows == cols && rows == 2) {
+            for (int i = 0; i < count; i++) {
+                matvec2(data, i * aSize, x, i * xStep, y, i * 2);
+            }
+        } else if (rows == cols && rows == 3) {
+            for (int i = 0; i < count; i++) {
+                matvec3(data, i * aSize, x, i * xStep, y, i * 3);
+            }
+        } else if (rows == cols && rows == 4) {
+            for (int i = 0; i < count; i++) {
+                matvec4(data, i * aSize, x, i * xStep, y, i * 4);
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                int ai = i * aSize;
+                int xi = i * xStep;
+                for (int r = 0; r < rows; r++) {
+                    double s = 0.0;
+                    for (int k = 0; k < cols; k++) {
+                        s += data[ai + r * cols + k] * x[xi + k];
+                    }
+                    y[i * rows + r] = s;
+                }
+            }
+        }
+        return Matrix.wrap(y, count, rows);
+    }
+
+    /**
+     * @return the batch of transposes
+     */
+    public MatrixBatch transpose() {
+        MatrixBatch result = new MatrixBatch(count, cols, rows);
+        int size = rows * cols;
+        for (int i = 0; i < count; i++) {
+            int base = i * size;
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < cols; c++) {
+                    result.data[base + c * rows + r] = data[base + r * cols + c];
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Inverts every matrix of the batch, 2x2, 3x3 and 4x4 by their closed
+     * form cofactor expansions and larger ones through LUDecomposition
+     * @return the batch of inverses
+     */
+    public MatrixBatch inverse() throws ArithmeticException {
+        if (rows != cols) {
+            throw new ArithmeticException("This batch does not hold n x n matrices, they are " + rows + " x " + cols);
+        }
+        MatrixBatch result = new MatrixBatch(count, rows, cols);
+        int size = rows * cols;
+        for (int i = 0; i < count; i++) {
+            int base = i * size;
+            boolean invertible;
+            if (rows == 2) {
+                invertible = inverse2(data, base, result.data, base);
+            } else if (rows == 3) {
+                invertible = inverse3(data, base, result.data, base);
+            } else if (rows == 4) {
+                invertible = inverse4(data, base, result.data, base);
+            } else {
+                double[] values = new double[size];
+                System.arraycopy(data, base, values, 0, size);
+                LUDecomposition lu = new LUDecomposition(Matrix.wrap(values, rows, cols));
+                invertible = !lu.isSingular();
+                if (invertible) {
+                    System.arraycopy(lu.inverse().toRowMajorArray(), 0, result.data, base, size);
+                }
+            }
+            if (!invertible) {
+                throw new ArithmeticException("Matrix " + i + " of the batch is singular and not invertable");
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Only an exactly zero or non-finite determinant makes a matrix singular,
+     * the same rule as Matrix2/3/4 and the LUDecomposition pivots
+     */
+    private static boolean singular(double det) {
+        return det == 0.0 || !Double.isFinite(det);
+    }
+
+    private static boolean inverse2(double[] a, int ai, double[] b, int bi) {
+        double a00 = a[ai], a01 = a[ai + 1];
+        double a10 = a[ai + 2], a11 = a[ai + 3];
+        double det = a00 * a11 - a01 * a10;
+        if (singular(det)) {
+            return false;
+        }
+        double inv = 1.0 / det;
+        b[bi] = a11 * inv;
+        b[bi + 1] = -a01 * inv;
+        b[bi + 2] = -a10 * inv;
+        b[bi + 3] = a00 * inv;
+        return true;
+    }
+
+    private static boolean inverse3(double[] a, int ai, double[] b, int bi) {
+        double a00 = a[ai], a01 = a[ai + 1], a02 = a[ai + 2];
+        double a10 = a[ai + 3], a11 = a[ai + 4], a12 = a[ai + 5];
+        double a20 = a[ai + 6], a21 = a[ai + 7], a22 = a[ai + 8];
+        double c00 = a11 * a22 - a12 * a21;
+        double c01 = a12 * a20 - a10 * a22;
+        double c02 = a10 * a21 - a11 * a20;
+        double det = a00 * c00 + a01 * c01 + a02 * c02;
+        if (singular(det)) {
+            return false;
+        }
+        double inv = 1.0 / det;
+        b[bi] = c00 * inv;
+        b[bi + 1] = (a02 * a21 - a01 * a22) * inv;
+        b[bi + 2] = (a01 * a12 - a02 * a11) * inv;
+        b[bi + 3] = c01 * inv;
+        b[bi + 4] = (a00 * a22 - a02 * a20) * inv;
+        b[bi + 5] = (a02 * a10 - a00 * a12) * inv;
+        b[bi + 6] = c02 * inv;
+        b[bi + 7] = (a01 * a20 - a00 * a21) * inv;
+        b[bi + 8] = (a00 * a11 - a01 * a10) * inv;
+        return true;
+    }
+
+    /**
+     * Cofactor expansion built from the twelve 2x2 determinants of the top
+     * two and bottom two rows
+     */
+    private static boolean inverse4(double[] a, int ai, double[] b, int bi) {
+        double a00 = a[ai], a01 = a[ai + 1], a02 = a[ai + 2], a03 = a[ai + 3];
+        double a10 = a[ai + 4], a11 = a[ai + 5], a12 = a[ai + 6], a13 = a[ai + 7];
+        double a20 = a[ai + 8], a21 = a[ai + 9], a22 = a[ai + 10], a23 = a[ai + 11];
+        double a30 = a[ai + 12], a31 = a[ai + 13], a32 = a[ai + 14], a33 = a[ai + 15];
+        double s0 = a00 * a11 - a10 * a01;
+        double s1 = a00 * a12 - a10 * a02;
+        double s2 = a00 * a13 - a10 * a03;
+        double s3 = a01 * a12 - a11 * a02;
+        double s4 = a01 * a13 - a11 * a03;
+        double s5 = a02 * a13 - a12 * a03;
+        double c5 = a22 * a33 - a32 * a23;
+        double c4 = a21 * a33 - a31 * a23;
+        double c3 = a21 * a32 - a31 * a22;
+        double c2 = a20 * a33 - a30 * a23;
+        double c1 = a20 * a32 - a30 * a22;
+        double c0 = a20 * a31 - a30 * a21;
+        double det = s0 * c5 - s1 * c4 + s2 * c3 + s3 * c2 - s4 * c1 + s5 * c0;
+        if (singular(det)) {
+            return false;
+        }
+        double inv = 1.0 / det;
+        b[bi] = (a11 * c5 - a12 * c4 + a13 * c3) * inv;
+        b[bi + 1] = (-a01 * c5 + a02 * c4 - a03 * c3) * inv;
+        b[bi + 2] = (a31 * s5 - a32 * s4 + a33 * s3) * inv;
+        b[bi + 3] = (-a21 * s5 + a22 * s4 - a23 * s3) * inv;
+        b[bi + 4] = (-a10 * c5 + a12 * c2 - a13 * c1) * inv;
+        b[bi + 5] = (a00 * c5 - a02 * c2 + a03 * c1) * inv;
+        b[bi + 6] = (-a30 * s5 + a32 * s2 - a33 * s1) * inv;
+        b[bi + 7] = (a20 * s5 - a22 * s2 + a23 * s1) * inv;
+        b[bi + 8] = (a10 * c4 - a11 * c2 + a13 * c0) * inv;
+        b[bi + 9] = (-a00 * c4 + a01 * c2 - a03 * c0) * inv;
+        b[bi + 10] = (a30 * s4 - a31 * s2 + a33 * s0) * inv;
+        b[bi + 11] = (-a20 * s4 + a21 * s2 - a23 * s0) * inv;
+        b[bi + 12] = (-a10 * c3 + a11 * c1 - a12 * c0) * inv;
+        b[bi + 13] = (a00 * c3 - a01 * c1 + a02 * c0) * inv;
+        b[bi + 14] = (-a30 * s3 + a31 * s1 - a32 * s0) * inv;
+        b[bi + 15] = (a20 * s3 - a21 * s1 + a22 * s0) * inv;
+        return true;
+    }
+
+    /*
+     * Unrolled kernels, every operand value is loaded into a local before
+     * anything is written
+     */
+
+    private static void multiply2(double[] a, int ai, double[] b, int bi, double[] c, int ci) {
+        double a00 = a[ai], a01 = a[ai + 1];
+        double a10 = a[ai + 2], a11 = a[ai + 3];
+        double b00 = b[bi], b01 = b[bi + 1];
+        double b10 = b[bi + 2], b11 = b[bi + 3];
+        c[ci] = a00 * b00 + a01 * b10;
+        c[ci + 1] = a00 * b01 + a01 * b11;
+        c[ci + 2] = a10 * b00 + a11 * b10;
+        c[ci + 3] = a10 * b01 + a11 * b11;
+    }
+
+    private static void multiply3(double[] a, int ai, double[] b, int bi, double[] c, int ci) {
+        double a00 = a[ai], a01 = a[ai + 1], a02 = a[ai + 2];
+        double a10 = a[ai + 3], a11 = a[ai + 4], a12 = a[ai + 5];
+        double a20 = a[ai + 6], a21 = a[ai + 7], a22 = a[ai + 8];
+        double b00 = b[bi], b01 = b[bi + 1], b02 = b[bi + 2];
+        double b10 = b[bi + 3], b11 = b[bi + 4], b12 = b[bi + 5];
+        double b20 = b[bi + 6], b21 = b[bi + 7], b22 = b[bi + 8];
+        c[ci] = a00 * b00 + a01 * b10 + a02 * b20;
+        c[ci + 1] = a00 * b01 + a01 * b11 + a02 * b21;
+        c[ci + 2] = a00 * b02 + a01 * b12 + a02 * b22;
+        c[ci + 3] = a10 * b00 + a11 * b10 + a12 * b20;
+        c[ci + 4] = a10 * b01 + a11 * b11 + a12 * b21;
+        c[ci + 5] = a10 * b02 + a11 * b12 + a12 * b22;
+        c[ci + 6] = a20 * b00 + a21 * b10 + a22 * b20;
+        c[ci + 7] = a20 * b01 + a21 * b11 + a22 * b21;
+        c[ci + 8] = a20 * b02 + a21 * b12 + a22 * b22;
+    }
+
+    private static void multiply4(double[] a, int ai, double[] b, int bi, double[] c, int ci) {
+        double a00 = a[ai], a01 = a[ai + 1], a02 = a[ai + 2], a03 = a[ai + 3];
+        double a10 = a[ai + 4], a11 = a[ai + 5], a12 = a[ai + 6], a13 = a[ai + 7];
+        double a20 = a[ai + 8], a21 = a[ai + 9], a22 = a[ai + 10], a23 = a[ai + 11];
+        double a30 = a[ai + 12], a31 = a[ai + 13], a32 = a[ai + 14], a33 = a[ai + 15];
+        double b00 = b[bi], b01 = b[bi + 1], b02 = b[bi + 2], b03 = b[bi + 3];
+        double b10 = b[bi + 4], b11 = b[bi + 5], b12 = b[bi + 6], b13 = b[bi + 7];
+        double b20 = b[bi + 8], b21 = b[bi + 9], b22 = b[bi + 10], b23 = b[bi + 11];
+        double b30 = b[bi + 12], b31 = b[bi + 13], b32 = b[bi + 14], b33 = b[bi + 15];
+        c[ci] = a00 * b00 + a01 * b10 + a02 * b20 + a03 * b30;
+        c[ci + 1] = a00 * b01 + a01 * b11 + a02 * b21 + a03 * b31;
+        c[ci + 2] = a00 * b02 + a01 * b12 + a02 * b22 + a03 * b32;
+        c[ci + 3] = a00 * b03 + a01 * b13 + a02 * b23 + a03 * b33;
+        c[ci + 4] = a10 * b00 + a11 * b10 + a12 * b20 + a13 * b30;
+        c[ci + 5] = a10 * b01 + a11 * b11 + a12 * b21 + a13 * b31;
+        c[ci + 6] = a10 * b02 + a11 * b12 + a12 * b22 + a13 * b32;
+        c[ci + 7] = a10 * b03 + a11 * b13 + a12 * b23 + a13 * b33;
+        c[ci + 8] = a20 * b00 + a21 * b10 + a22 * b20 + a23 * b30;
+        c[ci + 9] = a20 * b01 + a21 * b11 + a22 * b21 + a23 * b31;
+        c[ci + 10] = a20 * b02 + a21 * b12 + a22 * b22 + a23 * b32;
+        c[ci + 11] = a20 * b03 + a21 * b13 + a22 * b23 + a23 * b33;
+        c[ci + 12] = a30 * b00 + a31 * b10 + a32 * b20 + a33 * b30;
+        c[ci + 13] = a30 * b01 + a31 * b11 + a32 * b21 + a33 * b31;
+        c[ci + 14] = a30 * b02 + a31 * b12 + a32 * b22 + a33 * b32;
+        c[ci + 15] = a30 * b03 + a31 * b13 + a32 * b23 + a33 * b33;
+    }
+
+    private static void matvec2(double[] a, int ai, double[] x, int xi, double[] y, int yi) {
+        double x0 = x[xi], x1 = x[xi + 1];
+        y[yi] = a[ai] * x0 + a[ai + 1] * x1;
+        y[yi + 1] = a[ai + 2] * x0 + a[ai + 3] * x1;
+    }
+
+    private static void matvec3(double[] a, int ai, double[] x, int xi, double[] y, int yi) {
+        double x0 = x[xi], x1 = x[xi + 1], x2 = x[xi + 2];
+        y[yi] = a[ai] * x0 + a[ai + 1] * x1 + a[ai + 2] * x2;
+        y[yi + 1] = a[ai + 3] * x0 + a[ai + 4] * x1 + a[ai + 5] * x2;
+        y[yi + 2] = a[ai + 6] * x0 + a[ai + 7] * x1 + a[ai + 8] * x2;
+    }
+
+    private static void matvec4(double[] a, int ai, double[] x, int xi, double[] y, int yi) {
+        double x0 = x[xi], x1 = x[xi + 1], x2 = x[xi + 2], x3 = x[xi + 3];
+        y[yi] = a[ai] * x0 + a[ai + 1] * x1 + a[ai + 2] * x2 + a[ai + 3] * x3;
+        y[yi + 1] = a[ai + 4] * x0 + a[ai + 5] * x1 + a[ai + 6] * x2 + a[ai + 7] * x3;
+        y[yi + 2] = a[ai + 8] * x0 + a[ai + 9] * x1 + a[ai + 10] * x2 + a[ai + 11] * x3;
+        y[yi + 3] = a[ai + 12] * x0 + a[ai + 13] * x1 + a[ai + 14] * x2 + a[ai + 15] * x3;
+    }
+
+    @Override
+    public String toString() {
+        return "MatrixBatch[" + count + " x [" + rows + " x " + cols + "]]";
+    }
+}
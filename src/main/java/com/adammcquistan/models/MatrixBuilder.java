@@ -0,0 +1,106 @@
+package com.adammcquistan.models;
+
+import java.util.Arrays;
+
+/**
+ * Accumulates the rows of a Matrix with a fixed number of columns straight
+ * into one row-major array. Growth is geometric so adding a row is amortized
+ * O(cols), and build() hands over the array without copying it when the row
+ * hint was exact.
+ */
+public class MatrixBuilder {
+    private static final int INIT_ROWS = 100;
+
+    private final int cols;
+    private double[] data;
+    private int rows;
+
+    public MatrixBuilder(int cols) {
+        this(cols, INIT_ROWS);
+    }
+
+    /**
+     * @param expectedRows capacity hint, the number of rows expected
+     */
+    public MatrixBuilder(int cols, int expectedRows) {
+        if (cols <= 0 || expectedRows < 0) {
+            throw new IllegalArgumentException("Columns must be positive and expected rows non-negative, got " + cols + " and " + expectedRows);
+        }
+        this.cols = cols;
+        this.data = new double[Math.multiplyExact(cols, expectedRows)];
+    }
+
+    public MatrixBuilder addRow(double[] row) {
+        return addRow(row, 0);
+    }
+
+    /**
+     * Adds cols values of arr starting at from as the next row
+     */
+    public MatrixBuilder addRow(double[] arr, int from) {
+        if (arr.length - from < cols) {
+            throw new IllegalArgumentException("Row has " + (arr.length - from) + " values, expected " + cols);
+        }
+        ensureRows(rows + 1);
+        System.arraycopy(arr, from, data, rows * cols, cols);
+        rows++;
+        return this;
+    }
+
+    public MatrixBuilder addRow(Vector v) {
+        if (v.size() != cols) {
+            throw new IllegalArgumentException("Vector size (" + v.size() + ") <> matrix columns (" + cols + ")");
+        }
+        ensureRows(rows + 1);
+        v.copyTo(data, rows * cols);
+        rows++;
+        return this;
+    }
+
+    public MatrixBuilder addRows(double[][] arr) {
+        for (double[] row : arr) {
+            if (row.length != cols) {
+                throw new IllegalArgumentException("Row has " + row.length + " values, expected " + cols);
+            }
+        }
+        ensureRows(rows + arr.length);
+        for (double[] row : arr) {
+            System.arraycopy(row, 0, data, rows * cols, cols);
+            rows++;
+        }
+        return this;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    private void ensureRows(int minRows) {
+        long needed = (long) minRows * cols;
+        if (needed > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Matrix of " + minRows + " x " + cols + " exceeds the maximum array size");
+        }
+        if (needed > data.length) {
+            long capacityRows = data.length / cols;
+            long grown = Math.max(INIT_ROWS, capacityRows + (capacityRows >> 1));
+            long capacity = Math.min((Integer.MAX_VALUE - 8) / cols, Math.max(grown, minRows));
+            data = Arrays.copyOf(data, (int) (capacity * cols));
+        }
+    }
+
+    /**
+     * Creates the matrix and resets this builder to empty
+     */
+    public Matrix build() {
+        int length = rows * cols;
+        double[] values = length == data.length ? data : Arrays.copyOf(data, length);
+        Matrix m = Matrix.wrap(values, rows, cols);
+        data = new double[0];
+        rows = 0;
+        return m;
+    }
+}
@@ -0,0 +1,370 @@
+package com.adammcquistan.models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A deferred chain of element-wise add, subtract, multiply and divide over
+ * matrices of one shape, started with Matrix.lazy().
+ *
+ * Building the expression does no arithmetic. evaluate() compiles the tree
+ * once into a flat list of steps, merging identical subexpressions (the same
+ * operation on the same operands) so each is computed only once, then runs
+ * every step over one tile of a row at a time. The whole chain is fused into
+ * a single pass over the operands with no intermediate matrices.
+ *
+ * Operand matrices are read when evaluate() is called, not when the
+ * expression is built.
+ */
+public final class MatrixExpression {
+    private static final int TILE = 256;
+
+    private enum Op { LEAF, CONSTANT, ADD, SUBTRACT, MULTIPLY, DIVIDE }
+    private static final Op[] OPS = Op.values();
+
+    private final Op op;
+    private final Matrix matrix;
+    private final double value;
+    private final MatrixExpression left;
+    private final MatrixExpression right;
+    private final int rows;
+    private final int cols;
+    private Program program;
+
+    private MatrixExpression(Op op, Matrix matrix, double value, MatrixExpression left, MatrixExpression right, int rows, int cols) {
+        this.op = op;
+        this.matrix = matrix;
+        this.value = value;
+        this.left = left;
+        this.right = right;
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    static MatrixExpression of(Matrix m) {
+        return new MatrixExpression(Op.LEAF, m, 0.0, null, null, m.rows(), m.cols());
+    }
+
+    private static MatrixExpression constant(double x) {
+        return new MatrixExpression(Op.CONSTANT, null, x, null, null, 0, 0);
+    }
+
+    private MatrixExpression combine(Op op, MatrixExpression e) throws ArithmeticException {
+        if (e.op != Op.CONSTANT && (rows != e.rows || cols != e.cols)) {
+            throw new ArithmeticException("Incompatible matrix dimensions [" + rows + " x " + cols + "] vs [" + e.rows + " x " + e.cols + "]");
+        }
+        return new MatrixExpression(op, null, 0.0, this, e, rows, cols);
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    public MatrixExpression add(MatrixExpression e) throws ArithmeticException {
+        return combine(Op.ADD, e);
+    }
+
+    public MatrixExpression add(Matrix m) throws ArithmeticException {
+        return combine(Op.ADD, of(m));
+    }
+
+    public MatrixExpression add(double x) {
+        return combine(Op.ADD, constant(x));
+    }
+
+    public MatrixExpression subtract(MatrixExpression e) throws ArithmeticException {
+        return combine(Op.SUBTRACT, e);
+    }
+
+    public MatrixExpression subtract(Matrix m) throws ArithmeticException {
+        return combine(Op.SUBTRACT, of(m));
+    }
+
+    public MatrixExpression subtract(double x) {
+        return combine(Op.SUBTRACT, constant(x));
+    }
+
+    public MatrixExpression multiply(MatrixExpression e) throws ArithmeticException {
+        return combine(Op.MULTIPLY, e);
+    }
+
+    public MatrixExpression multiply(Matrix m) throws ArithmeticException {
+        return combine(Op.MULTIPLY, of(m));
+    }
+
+    public MatrixExpression multiply(double x) {
+        return combine(Op.MULTIPLY, constant(x));
+    }
+
+    public MatrixExpression divide(MatrixExpression e) throws ArithmeticException {
+        return combine(Op.DIVIDE, e);
+    }
+
+    public MatrixExpression divide(Matrix m) throws ArithmeticException {
+        return combine(Op.DIVIDE, of(m));
+    }
+
+    public MatrixExpression divide(double x) {
+        return combine(Op.DIVIDE, constant(x));
+    }
+
+    /**
+     * @return a new matrix holding the value of the expression
+     */
+    public Matrix evaluate() {
+        return evaluate(new Matrix(rows, cols));
+    }
+
+    /**
+     * Writes the value of the expression into dest, which may be one of the
+     * operands as long as it is not a transposed view of another operand
+     * @return dest
+     */
+    public Matrix evaluate(Matrix dest) throws ArithmeticException {
+        if (dest.rows() != rows || dest.cols() != cols) {
+            throw new ArithmeticException("Incompatible matrix dimensions [" + rows + " x " + cols + "] vs [" + dest.rows() + " x " + dest.cols() + "]");
+        }
+        if (program == null) {
+            program = new Compiler().compile(this);
+        }
+        program.run(rows, cols, dest);
+        return dest;
+    }
+
+    /**
+     * @return the number of distinct arithmetic steps left after merging
+     * common subexpressions
+     */
+    public int steps() {
+        if (program == null) {
+            program = new Compiler().compile(this);
+        }
+        return program.code.length;
+    }
+
+    @Override
+    public String toString() {
+        switch (op) {
+            case LEAF:
+                return "Matrix[" + rows + " x " + cols + "]";
+            case CONSTANT:
+                return Double.toString(value);
+            default:
+                String symbol = op == Op.ADD ? " + " : op == Op.SUBTRACT ? " - " : op == Op.MULTIPLY ? " * " : " / ";
+                return "(" + left + symbol + right + ")";
+        }
+    }
+
+    /**
+     * Numbers every distinct node of the tree. Operand matrices are told
+     * apart by identity, constants by value, and an operation by its kind and
+     * the numbers of its operands (in either order for add and multiply).
+     */
+    private static final class Compiler {
+        private final Map<MatrixExpression, Integer> seen = new IdentityHashMap<>();
+        private final Map<Matrix, Integer> leafSlots = new IdentityHashMap<>();
+        private final Map<Long, Integer> constantSlots = new HashMap<>();
+        private final Map<List<Integer>, Integer> opSlots = new HashMap<>();
+        private final List<Matrix> slotMatrices = new ArrayList<>();
+        private final List<Double> slotConstants = new ArrayList<>();
+        private final List<int[]> steps = new ArrayList<>();
+
+        Program compile(MatrixExpression root) {
+            int result = slotOf(root);
+            int slots = slotMatrices.size();
+            Matrix[] matrices = slotMatrices.toArray(new Matrix[slots]);
+            double[] constants = new double[slots];
+            boolean[] isConstant = new boolean[slots];
+            for (int i = 0; i < slots; i++) {
+                Double c = slotConstants.get(i);
+                if (c != null) {
+                    constants[i] = c;
+                    isConstant[i] = true;
+                }
+            }
+            return new Program(matrices, constants, isConstant, steps.toArray(new int[steps.size()][]), result);
+        }
+
+        private int slotOf(MatrixExpression e) {
+            Integer known = seen.get(e);
+            if (known != null) {
+                return known;
+            }
+            int slot;
+            if (e.op == Op.LEAF) {
+                Integer s = leafSlots.get(e.matrix);
+                if (s == null) {
+                    s = newSlot(e.matrix, null);
+                    leafSlots.put(e.matrix, s);
+                }
+                slot = s;
+            } else if (e.op == Op.CONSTANT) {
+                Long bits = Double.doubleToLongBits(e.value);
+                Integer s = constantSlots.get(bits);
+                if (s == null) {
+                    s = newSlot(null, e.value);
+                    constantSlots.put(bits, s);
+                }
+                slot = s;
+            } else {
+                int a = slotOf(e.left);
+                int b = slotOf(e.right);
+                boolean commutative = e.op == Op.ADD || e.op == Op.MULTIPLY;
+                List<Integer> key = commutative && b < a
+                        ? Arrays.asList(e.op.ordinal(), b, a)
+                        : Arrays.asList(e.op.ordinal(), a, b);
+                Integer s = opSlots.get(key);
+                if (s == null) {
+                    s = newSlot(null, null);
+                    opSlots.put(key, s);
+                    steps.add(new int[] { e.op.ordinal(), s, a, b });
+                }
+                slot = s;
+            }
+            seen.put(e, slot);
+            return slot;
+        }
+
+        private int newSlot(Matrix m, Double constant) {
+            slotMatrices.add(m);
+            slotConstants.add(constant);
+            return slotMatrices.size() - 1;
+        }
+    }
+
+    /**
+     * The compiled steps, each one {op, destination slot, left slot, right
+     * slot}. A slot is an operand matrix, a constant or an intermediate
+     * result, and everything but constants gets one tile sized buffer.
+     */
+    private static final class Program {
+        private final Matrix[] matrices;
+        private final double[] constants;
+        private final boolean[] isConstant;
+        private final int[][] code;
+        private final int result;
+
+        Program(Matrix[] matrices, double[] constants, boolean[] isConstant, int[][] code, int result) {
+            this.matrices = matrices;
+            this.constants = constants;
+            this.isConstant = isConstant;
+            this.code = code;
+            this.result = result;
+        }
+
+        void run(int rows, int cols, Matrix dest) throws ArithmeticException {
+            for (Matrix m : matrices) {
+                if (m != null && (m.rows() != rows || m.cols() != cols)) {
+                    throw new ArithmeticException("Incompatible matrix dimensions [" + rows + " x " + cols + "] vs [" + m.rows() + " x " + m.cols() + "]");
+                }
+            }
+            double[][] buffers = new double[matrices.length][];
+            for (int i = 0; i < matrices.length; i++) {
+                if (!isConstant[i]) {
+                    buffers[i] = new double[Math.min(TILE, cols)];
+                }
+            }
+            for (int row = 0; row < rows; row++) {
+                for (int colStart = 0; colStart < cols; colStart += TILE) {
+                    int len = Math.min(TILE, cols - colStart);
+                    for (int i = 0; i < matrices.length; i++) {
+                        if (matrices[i] != null) {
+                            load(matrices[i], row, colStart, len, buffers[i]);
+                        }
+                    }
+                    for (int[] step : code) {
+                        apply(step, buffers, len);
+                    }
+                    store(buffers[result], dest, row, colStart, len);
+                }
+            }
+        }
+
+        private void apply(int[] step, double[][] buffers, int len) {
+            double[] out = buffers[step[1]];
+            double[] a = buffers[step[2]];
+            int rhs = step[3];
+            if (isConstant[rhs]) {
+                double x = constants[rhs];
+                switch (OPS[step[0]]) {
+                    case ADD:
+                        for (int i = 0; i < len; i++) {
+                            out[i] = a[i] + x;
+                        }
+                        break;
+                    case SUBTRACT:
+                        for (int i = 0; i < len; i++) {
+                            out[i] = a[i] - x;
+                        }
+                        break;
+                    case MULTIPLY:
+                        for (int i = 0; i < len; i++) {
+                            out[i] = a[i] * x;
+                        }
+                        break;
+                    default:
+                        for (int i = 0; i < len; i++) {
+                            out[i] = a[i] / x;
+                        }
+                }
+                return;
+            }
+            double[] b = buffers[rhs];
+            switch (OPS[step[0]]) {
+                case ADD:
+                    for (int i = 0; i < len; i++) {
+                        out[i] = a[i] + b[i];
+                    }
+                    break;
+                case SUBTRACT:
+                    for (int i = 0; i < len; i++) {
+                        out[i] = a[i] - b[i];
+                    }
+                    break;
+                case MULTIPLY:
+                    for (int i = 0; i < len; i++) {
+                        out[i] = a[i] * b[i];
+                    }
+                    break;
+                default:
+                    for (int i = 0; i < len; i++) {
+                        out[i] = a[i] / b[i];
+                    }
+            }
+        }
+
+        private static void load(Matrix m, int row, int colStart, int len, double[] buffer) {
+            double[] data = m.array();
+            int pos = m.offset() + row * m.stride() + colStart * m.colStride();
+            int cs = m.colStride();
+            if (cs == 1) {
+                System.arraycopy(data, pos, buffer, 0, len);
+            } else {
+                for (int i = 0; i < len; i++) {
+                    buffer[i] = data[pos + i * cs];
+                }
+            }
+        }
+
+        private static void store(double[] buffer, Matrix m, int row, int colStart, int len) {
+            double[] data = m.array();
+            int pos = m.offset() + row * m.stride() + colStart * m.colStride();
+            int cs = m.colStride();
+            if (cs == 1) {
+                System.arraycopy(buffer, 0, data, pos, len);
+            } else {
+                for (int i = 0; i < len; i++) {
+                    data[pos + i * cs] = buffer[i];
+                }
+            }
+        }
+    }
+}
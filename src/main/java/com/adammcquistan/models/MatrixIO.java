@@ -0,0 +1,363 @@
+package com.adammcquistan.models;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads and writes Matrix and Vector in a compact binary format, a 32 byte
+ * header followed by the raw values:
+ *
+ * <pre>
+ *   bytes 0-3    magic "DMAT"
+ *   byte  4      format version, 1
+ *   byte  5      dtype, 1 = 64 bit IEEE 754 double
+ *   byte  6      byte order of everything after the first 8 bytes, 0 = little-endian, 1 = big-endian
+ *   byte  7      rank, 1 = vector, 2 = matrix
+ *   bytes 8-11   rows, the size for a vector
+ *   bytes 12-15  cols, 1 for a vector
+ *   bytes 16-31  reserved, zero
+ * </pre>
+ *
+ * then rows * cols doubles row by row, whatever the layout of the matrix
+ * that was written. The header keeps the values 8 byte aligned, so a
+ * little-endian matrix file can be mapped in place with {@link #map}.
+ */
+public final class MatrixIO {
+    public static final int HEADER_BYTES = 32;
+
+    private static final byte[] MAGIC = { 'D', 'M', 'A', 'T' };
+    private static final byte VERSION = 1;
+    private static final byte DTYPE_FLOAT64 = 1;
+    private static final byte RANK_VECTOR = 1;
+    private static final byte RANK_MATRIX = 2;
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private MatrixIO() {
+    }
+
+    /**
+     * @return the number of bytes m takes in this format
+     */
+    public static long byteSize(Matrix m) {
+        return HEADER_BYTES + (long) m.rows() * m.cols() * Double.BYTES;
+    }
+
+    public static long byteSize(Vector v) {
+        return HEADER_BYTES + (long) v.size() * Double.BYTES;
+    }
+
+    /**
+     * Writes m at the position of dest in the byte order of dest, advancing
+     * its position past the values
+     */
+    public static void write(Matrix m, ByteBuffer dest) {
+        checkRemaining(dest, byteSize(m));
+        putHeader(dest, RANK_MATRIX, m.rows(), m.cols());
+        for (int r = 0; r < m.rows(); r++) {
+            putRow(m, r, 0, m.cols(), dest);
+        }
+    }
+
+    public static void write(Vector v, ByteBuffer dest) {
+        checkRemaining(dest, byteSize(v));
+        putHeader(dest, RANK_VECTOR, v.size(), 1);
+        putValues(v, 0, v.size(), dest);
+    }
+
+    public static void write(Matrix m, WritableByteChannel channel) throws IOException {
+        write(m, channel, ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Streams m to channel through one fixed size buffer, rows longer than
+     * the buffer are split across several writes
+     */
+    public static void write(Matrix m, WritableByteChannel channel, ByteOrder order) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(order);
+        putHeader(buffer, RANK_MATRIX, m.rows(), m.cols());
+        int cols = m.cols();
+        for (int r = 0; r < m.rows() && cols > 0; r++) {
+            int c = 0;
+            while (c < cols) {
+                int count = Math.min(buffer.remaining() / Double.BYTES, cols - c);
+                if (count == 0) {
+                    drain(buffer, channel);
+                    continue;
+                }
+                putRow(m, r, c, count, buffer);
+                c += count;
+            }
+        }
+        drain(buffer, channel);
+    }
+
+    public static void write(Vector v, WritableByteChannel channel) throws IOException {
+        write(v, channel, ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public static void write(Vector v, WritableByteChannel channel, ByteOrder order) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(order);
+        putHeader(buffer, RANK_VECTOR, v.size(), 1);
+        int i = 0;
+        while (i < v.size()) {
+            int count = Math.min(buffer.remaining() / Double.BYTES, v.size() - i);
+            if (count == 0) {
+                drain(buffer, channel);
+                continue;
+            }
+            putValues(v, i, count, buffer);
+            i += count;
+        }
+        drain(buffer, channel);
+    }
+
+    /**
+     * Writes m to path little-endian, replacing anything already there
+     */
+    public static void write(Matrix m, Path path) throws IOException {
+        try (FileChannel channel = openForWrite(path)) {
+            write(m, channel);
+        }
+    }
+
+    public static void write(Vector v, Path path) throws IOException {
+        try (FileChannel channel = openForWrite(path)) {
+            write(v, channel);
+        }
+    }
+
+    /**
+     * Reads a matrix from the position of src, whatever byte order src is
+     * set to, advancing its position past the values
+     */
+    public static Matrix readMatrix(ByteBuffer src) throws IOException {
+        Header header = readHeader(src);
+        header.expect(RANK_MATRIX);
+        double[] values = new double[header.length()];
+        getValues(src, header.order, values, 0, values.length);
+        return Matrix.wrap(values, header.rows, header.cols);
+    }
+
+    public static Vector readVector(ByteBuffer src) throws IOException {
+        Header header = readHeader(src);
+        header.expect(RANK_VECTOR);
+        double[] values = new double[header.length()];
+        getValues(src, header.order, values, 0, values.length);
+        return Vector.wrap(values);
+    }
+
+    public static Matrix readMatrix(ReadableByteChannel channel) throws IOException {
+        Header header = readHeader(channel);
+        header.expect(RANK_MATRIX);
+        double[] values = new double[header.length()];
+        readValues(channel, header.order, values);
+        return Matrix.wrap(values, header.rows, header.cols);
+    }
+
+    public static Vector readVector(ReadableByteChannel channel) throws IOException {
+        Header header = readHeader(channel);
+        header.expect(RANK_VECTOR);
+        double[] values = new double[header.length()];
+        readValues(channel, header.order, values);
+        return Vector.wrap(values);
+    }
+
+    public static Matrix readMatrix(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return readMatrix(channel);
+        }
+    }
+
+    public static Vector readVector(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return readVector(channel);
+        }
+    }
+
+    /**
+     * Maps the values of a matrix file in place instead of reading them onto
+     * the heap, writes through a writable mapping land straight in the file.
+     * A vector file maps as a single column. Only little-endian files, the
+     * default of every writer here, can be mapped.
+     */
+    public static MappedMatrix map(Path path, boolean writable) throws IOException {
+        Header header;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            header = readHeader(channel);
+        }
+        if (header.order != ByteOrder.LITTLE_ENDIAN) {
+            throw new IOException("Only little-endian files can be mapped, " + path + " is big-endian");
+        }
+        return MappedMatrix.open(path, HEADER_BYTES, header.rows, header.cols, writable);
+    }
+
+    private static FileChannel openForWrite(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+    }
+
+    private static void checkRemaining(ByteBuffer dest, long needed) {
+        if (dest.remaining() < needed) {
+            throw new IllegalArgumentException("Buffer has " + dest.remaining() + " bytes left, " + needed + " are needed");
+        }
+    }
+
+    private static void putHeader(ByteBuffer dest, byte rank, int rows, int cols) {
+        ByteBuffer header = dest.duplicate().order(dest.order());
+        header.put(MAGIC);
+        header.put(VERSION);
+        header.put(DTYPE_FLOAT64);
+        header.put((byte) (dest.order() == ByteOrder.LITTLE_ENDIAN ? 0 : 1));
+        header.put(rank);
+        header.putInt(rows);
+        header.putInt(cols);
+        for (int i = 16; i < HEADER_BYTES; i++) {
+            header.put((byte) 0);
+        }
+        dest.position(dest.position() + HEADER_BYTES);
+    }
+
+    /**
+     * Puts count values of row r starting at column c into dest
+     */
+    private static void putRow(Matrix m, int r, int c, int count, ByteBuffer dest) {
+        double[] data = m.array();
+        int base = m.offset() + r * m.stride() + c * m.colStride();
+        if (m.colStride() == 1) {
+            dest.asDoubleBuffer().put(data, base, count);
+        } else {
+            DoubleBuffer values = dest.asDoubleBuffer();
+            for (int j = 0; j < count; j++) {
+                values.put(data[base + j * m.colStride()]);
+            }
+        }
+        dest.position(dest.position() + count * Double.BYTES);
+    }
+
+    private static void putValues(Vector v, int from, int count, ByteBuffer dest) {
+        DoubleBuffer values = dest.asDoubleBuffer();
+        for (int i = from; i < from + count; i++) {
+            values.put(v.get(i));
+        }
+        dest.position(dest.position() + count * Double.BYTES);
+    }
+
+    private static void drain(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static void getValues(ByteBuffer src, ByteOrder order, double[] dest, int from, int count) throws IOException {
+        if (src.remaining() < (long) count * Double.BYTES) {
+            throw new EOFException("Buffer ends before the " + count + " values its header announces");
+        }
+        ByteBuffer ordered = src.duplicate().order(order);
+        ordered.asDoubleBuffer().get(dest, from, count);
+        src.position(src.position() + count * Double.BYTES);
+    }
+
+    private static void readValues(ReadableByteChannel channel, ByteOrder order, double[] dest) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(order);
+        int i = 0;
+        while (i < dest.length) {
+            int count = Math.min(BUFFER_BYTES / Double.BYTES, dest.length - i);
+            buffer.clear().limit(count * Double.BYTES);
+            readFully(channel, buffer);
+            buffer.flip();
+            buffer.asDoubleBuffer().get(dest, i, count);
+            i += count;
+        }
+    }
+
+    private static void readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Input ends before the values its header announces");
+            }
+        }
+    }
+
+    private static Header readHeader(ReadableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES);
+        readFully(channel, buffer);
+        buffer.flip();
+        return readHeader(buffer);
+    }
+
+    private static Header readHeader(ByteBuffer src) throws IOException {
+        if (src.remaining() < HEADER_BYTES) {
+            throw new EOFException("Input is too short to hold a header");
+        }
+        ByteBuffer header = src.duplicate();
+        for (byte b : MAGIC) {
+            if (header.get() != b) {
+                throw new IOException("Not a matrix file, bad magic number");
+            }
+        }
+        byte version = header.get();
+        if (version != VERSION) {
+            throw new IOException("Unsupported format version " + version);
+        }
+        byte dtype = header.get();
+        if (dtype != DTYPE_FLOAT64) {
+            throw new IOException("Unsupported dtype " + dtype);
+        }
+        byte orderFlag = header.get();
+        if (orderFlag != 0 && orderFlag != 1) {
+            throw new IOException("Unknown byte order flag " + orderFlag);
+        }
+        ByteOrder order = orderFlag == 0 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+        byte rank = header.get();
+        if (rank != RANK_VECTOR && rank != RANK_MATRIX) {
+            throw new IOException("Unknown rank " + rank);
+        }
+        header.order(order);
+        int rows = header.getInt();
+        int cols = header.getInt();
+        if (rows < 0 || cols < 0 || (rank == RANK_VECTOR && cols != 1)) {
+            throw new IOException("Invalid shape " + rows + " x " + cols);
+        }
+        src.position(src.position() + HEADER_BYTES);
+        return new Header(rank, rows, cols, order);
+    }
+
+    private static final class Header {
+        final byte rank;
+        final int rows;
+        final int cols;
+        final ByteOrder order;
+
+        Header(byte rank, int rows, int cols, ByteOrder order) {
+            this.rank = rank;
+            this.rows = rows;
+            this.cols = cols;
+            this.order = order;
+        }
+
+        void expect(byte expected) throws IOException {
+            if (rank != expected) {
+                throw new IOException("Expected a " + (expected == RANK_VECTOR ? "vector" : "matrix")
+                        + " but the input holds a " + (rank == RANK_VECTOR ? "vector" : "matrix"));
+            }
+        }
+
+        int length() throws IOException {
+            long length = (long) rows * cols;
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException(rows + " x " + cols + " values do not fit in one array, map the file instead");
+            }
+            return (int) length;
+        }
+    }
+}
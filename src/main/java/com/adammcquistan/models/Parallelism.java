@@ -0,0 +1,65 @@
+package com.adammcquistan.models;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Process wide settings for the parallel code paths: the fork/join pool they
+ * run on and the size cutoffs below which work stays on the calling thread.
+ */
+public final class Parallelism {
+    private static volatile ForkJoinPool pool = ForkJoinPool.commonPool();
+    private static volatile long matmulThreshold = 128L * 128 * 128;
+    private static volatile int vectorThreshold = 1 << 16;
+
+    private Parallelism() {
+    }
+
+    public static ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Sets the pool used by the parallel operations when none is given explicitly
+     */
+    public static void setPool(ForkJoinPool newPool) {
+        if (newPool == null) {
+            throw new IllegalArgumentException("Pool must not be null");
+        }
+        pool = newPool;
+    }
+
+    public static long getMatmulThreshold() {
+        return matmulThreshold;
+    }
+
+    /**
+     * Products with fewer multiply-adds (rows * inner * cols) than this run on
+     * the calling thread even when a parallel matmul is requested. The same
+     * bound decides when orthoNormalize splits its column updates and, as
+     * rows * cols, when gemv splits its rows.
+     */
+    public static void setMatmulThreshold(long threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Threshold must be non-negative, got " + threshold);
+        }
+        matmulThreshold = threshold;
+    }
+
+    public static int getVectorThreshold() {
+        return vectorThreshold;
+    }
+
+    /**
+     * Vector operations over fewer values than this run on the calling thread.
+     * Longer ones are split into fixed size chunks on the pool, and their
+     * reductions (sum, dot, norms) are combined in a fixed order, so they give
+     * the same result on any number of cores but may differ in the last bits
+     * from the single pass used below the threshold.
+     */
+    public static void setVectorThreshold(int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Threshold must be non-negative, got " + threshold);
+        }
+        vectorThreshold = threshold;
+    }
+}
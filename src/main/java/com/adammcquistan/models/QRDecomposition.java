@@ -0,0 +1,214 @@
+package com.adammcquistan.models;
+
+import java.util.Arrays;
+
+/**
+ * QR decomposition A = QR of an m x n matrix by Householder reflections.
+ *
+ * The factorization is done once, in place over a single column-major copy
+ * of the matrix so every reflection reads and updates whole contiguous
+ * columns. Below the diagonal each column k holds the Householder vector of
+ * step k, the strict upper triangle holds R and its diagonal is kept
+ * separately. Q is never formed unless asked for: solve applies the
+ * reflections straight to the right hand side.
+ */
+public class QRDecomposition {
+    private final double[] qr;
+    private final int m;
+    private final int n;
+    private final int steps;
+    private final double[] rDiag;
+    private final double tolerance;
+
+    public QRDecomposition(Matrix a) {
+        this.m = a.rows();
+        this.n = a.cols();
+        this.steps = Math.min(m, n);
+        // the rows of the transposed view are the columns of a
+        this.qr = a.T().toRowMajorArray();
+        this.rDiag = new double[steps];
+        double maxAbs = 0.0;
+        for (double x : qr) {
+            maxAbs = Math.max(maxAbs, Math.abs(x));
+        }
+        this.tolerance = Math.ulp(1.0) * Math.max(m, n) * maxAbs;
+        factor();
+    }
+
+    private void factor() {
+        for (int k = 0; k < steps; k++) {
+            int colK = k * m;
+            double norm = norm(colK + k, m - k);
+            if (norm == 0.0) {
+                rDiag[k] = 0.0;
+                continue;
+            }
+            if (qr[colK + k] < 0) {
+                norm = -norm;
+            }
+            for (int i = k; i < m; i++) {
+                qr[colK + i] /= norm;
+            }
+            qr[colK + k] += 1.0;
+
+            double vk = qr[colK + k];
+            for (int j = k + 1; j < n; j++) {
+                int colJ = j * m;
+                double s = 0.0;
+                for (int i = k; i < m; i++) {
+                    s += qr[colK + i] * qr[colJ + i];
+                }
+                s = -s / vk;
+                for (int i = k; i < m; i++) {
+                    qr[colJ + i] += s * qr[colK + i];
+                }
+            }
+            rDiag[k] = -norm;
+        }
+    }
+
+    /**
+     * Euclidean norm of len values starting at from, scaled by the largest
+     * value so squaring cannot overflow
+     */
+    private double norm(int from, int len) {
+        double scale = 0.0;
+        for (int i = from; i < from + len; i++) {
+            scale = Math.max(scale, Math.abs(qr[i]));
+        }
+        if (scale == 0.0) {
+            return 0.0;
+        }
+        double ss = 0.0;
+        for (int i = from; i < from + len; i++) {
+            double x = qr[i] / scale;
+            ss += x * x;
+        }
+        return scale * Math.sqrt(ss);
+    }
+
+    /**
+     * @return true when no diagonal value of R is negligible
+     */
+    public boolean isFullRank() {
+        for (double d : rDiag) {
+            if (Math.abs(d) <= tolerance) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the min(m, n) x n upper triangular factor R
+     */
+    public Matrix getR() {
+        Matrix r = new Matrix(steps, n);
+        for (int j = 0; j < n; j++) {
+            int colJ = j * m;
+            for (int i = 0; i < Math.min(j, steps); i++) {
+                r.set(i, j, qr[colJ + i]);
+            }
+            if (j < steps) {
+                r.set(j, j, rDiag[j]);
+            }
+        }
+        return r;
+    }
+
+    /**
+     * @return the m x min(m, n) factor Q with orthonormal columns, stored
+     * column-major
+     */
+    public Matrix getQ() {
+        double[] q = new double[m * steps];
+        for (int k = steps - 1; k >= 0; k--) {
+            int colK = k * m;
+            q[colK + k] = 1.0;
+            if (rDiag[k] == 0.0) {
+                continue;
+            }
+            double vk = qr[colK + k];
+            for (int j = k; j < steps; j++) {
+                int colJ = j * m;
+                double s = 0.0;
+                for (int i = k; i < m; i++) {
+                    s += qr[colK + i] * q[colJ + i];
+                }
+                s = -s / vk;
+                for (int i = k; i < m; i++) {
+                    q[colJ + i] += s * qr[colK + i];
+                }
+            }
+        }
+        return Matrix.wrapColumnMajor(q, m, steps);
+    }
+
+    /**
+     * Least squares solution of Ax = b, the x minimizing ||Ax - b||
+     * @return x
+     */
+    public Vector solve(Vector b) throws ArithmeticException {
+        if (b.size() != m) {
+            throw new ArithmeticException("Vector size (" + b.size() + ") <> matrix rows (" + m + ")");
+        }
+        double[] x = b.toArray();
+        solveInPlace(x, 1);
+        return Vector.wrap(Arrays.copyOf(x, n));
+    }
+
+    /**
+     * Least squares solution of AX = B for every column of B at once
+     * @return X
+     */
+    public Matrix solve(Matrix b) throws ArithmeticException {
+        if (b.rows() != m) {
+            throw new ArithmeticException("Matrix rows (" + b.rows() + ") <> matrix rows (" + m + ")");
+        }
+        int nrhs = b.cols();
+        double[] x = b.T().toRowMajorArray();
+        solveInPlace(x, nrhs);
+        Matrix result = new Matrix(n, nrhs);
+        for (int c = 0; c < nrhs; c++) {
+            for (int i = 0; i < n; i++) {
+                result.set(i, c, x[c * m + i]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Overwrites each of the nrhs column-major right hand sides in x with
+     * Q^T b, then with the solution of R x = (Q^T b)[0, n)
+     */
+    private void solveInPlace(double[] x, int nrhs) throws ArithmeticException {
+        if (m < n) {
+            throw new ArithmeticException("Least squares needs at least as many rows as columns, got " + m + " x " + n);
+        }
+        if (!isFullRank()) {
+            throw new ArithmeticException("Matrix is rank deficient");
+        }
+        for (int c = 0; c < nrhs; c++) {
+            int col = c * m;
+            for (int k = 0; k < n; k++) {
+                int colK = k * m;
+                double s = 0.0;
+                for (int i = k; i < m; i++) {
+                    s += qr[colK + i] * x[col + i];
+                }
+                s = -s / qr[colK + k];
+                for (int i = k; i < m; i++) {
+                    x[col + i] += s * qr[colK + i];
+                }
+            }
+            for (int k = n - 1; k >= 0; k--) {
+                x[col + k] /= rDiag[k];
+                double xk = x[col + k];
+                int colK = k * m;
+                for (int i = 0; i < k; i++) {
+                    x[col + i] -= xk * qr[colK + i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package com.adammcquistan.models;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Truncated SVD A ~ U S V^T of a tall m x n matrix by randomized subspace
+ * iteration (Halko, Martinsson and Tropp).
+ *
+ * For m far larger than n neither A nor an m x l sketch can be kept in
+ * memory, so the range finder runs on A^T: Y = A^T G for an m x l Gaussian
+ * G, then powerIterations rounds of Y = A^T (A Q) with Q an orthonormal basis
+ * of the previous Y. Every round is one pass over the row blocks of A adding
+ * B^T G_B, resp. B^T (B Q), of each block B into the n x l Y, and only n x l
+ * values outlive a block. The rows of G are drawn from a generator seeded by
+ * the row index, so the result depends neither on the block size nor on
+ * whether A was streamed. A last pass builds the R of A Q block by block
+ * (a stacked QR of the previous R and each new B Q); the singular values and
+ * right vectors come from the symmetric eigen decomposition of
+ * [0 R; R^T 0], whose eigenvalues are +-s without squaring the condition
+ * number the way R^T R would. Each block product runs on the Parallelism
+ * pool through parallelMatmul.
+ *
+ * Configure with oversampling(), powerIterations() and blockRows(), then call
+ * decompose().
+ */
+public class RandomizedSVD {
+    private static final int DEFAULT_OVERSAMPLING = 10;
+    private static final int DEFAULT_POWER_ITERATIONS = 2;
+    private static final int DEFAULT_BLOCK_ROWS = 4096;
+
+    /**
+     * A tall matrix visited a block of rows at a time. Every call must hand
+     * out the same rows in the same order, firstRow being the index of the
+     * first row of each block.
+     */
+    public interface RowBlocks {
+        void forEachBlock(DelimitedReader.BlockHandler handler) throws IOException;
+
+        static RowBlocks of(Matrix m, int blockRows) {
+            checkBlockRows(blockRows);
+            return handler -> {
+                for (int start = 0; start < m.rows(); start += blockRows) {
+                    handler.handle(m.rowBlock(start, Math.min(m.rows(), start + blockRows)), start);
+                }
+            };
+        }
+
+        static RowBlocks of(MappedMatrix m, int blockRows) {
+            checkBlockRows(blockRows);
+            return handler -> {
+                for (int start = 0; start < m.rows(); start += blockRows) {
+                    handler.handle(m.getRows(start, Math.min(m.rows(), start + blockRows)), start);
+                }
+            };
+        }
+
+        /**
+         * Rereads the file on every pass
+         */
+        static RowBlocks of(DelimitedReader reader, Path path, int blockRows) {
+            checkBlockRows(blockRows);
+            return handler -> reader.readBlocks(path, blockRows, handler);
+        }
+    }
+
+    private int oversampling = DEFAULT_OVERSAMPLING;
+    private int powerIterations = DEFAULT_POWER_ITERATIONS;
+    private int blockRows = DEFAULT_BLOCK_ROWS;
+    private long seed = 42L;
+
+    /**
+     * Extra columns sketched beyond the requested rank, 5 to 10 is usually
+     * enough
+     */
+    public RandomizedSVD oversampling(int p) {
+        if (p < 0) {
+            throw new IllegalArgumentException("Oversampling must not be negative, got " + p);
+        }
+        this.oversampling = p;
+        return this;
+    }
+
+    /**
+     * Rounds of A^T A applied to the sketch, each one a pass over the matrix.
+     * More rounds help when the singular values decay slowly.
+     */
+    public RandomizedSVD powerIterations(int q) {
+        if (q < 0) {
+            throw new IllegalArgumentException("Power iterations must not be negative, got " + q);
+        }
+        this.powerIterations = q;
+        return this;
+    }
+
+    /**
+     * Rows per block when decomposing an in-memory Matrix
+     */
+    public RandomizedSVD blockRows(int rows) {
+        checkBlockRows(rows);
+        this.blockRows = rows;
+        return this;
+    }
+
+    public RandomizedSVD seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Rank k decomposition of a matrix held in memory, U included
+     */
+    public Result decompose(Matrix a, int k) {
+        if (k <= 0 || k > Math.min(a.rows(), a.cols())) {
+            throw new IllegalArgumentException("Rank must be in [1, " + Math.min(a.rows(), a.cols()) + "], got " + k);
+        }
+        Result result;
+        try {
+            result = decompose(RowBlocks.of(a, blockRows), k);
+        } catch (IOException e) {
+            // a Matrix source never touches I/O
+            throw new UncheckedIOException(e);
+        }
+        result.u = result.leftVectors(a);
+        return result;
+    }
+
+    /**
+     * Rank k decomposition of a streamed matrix, taking powerIterations + 2
+     * passes over it. U is not kept, leftVectors() maps blocks of rows to
+     * the matching rows of U.
+     */
+    public Result decompose(RowBlocks a, int k) throws IOException {
+        if (k <= 0) {
+            throw new IllegalArgumentException("Rank must be positive, got " + k);
+        }
+        Pass pass = new Pass(k + oversampling);
+        a.forEachBlock(pass::sketch);
+        int n = pass.n;
+        if (k > Math.min(pass.m, n)) {
+            throw new IllegalArgumentException("Rank must be in [1, " + Math.min(pass.m, n) + "], got " + k);
+        }
+        for (int i = 0; i < powerIterations; i++) {
+            Matrix q = orthonormalBasis(pass.y);
+            pass.y = new Matrix(n, q.cols());
+            a.forEachBlock((block, firstRow) -> pass.y.axpy(1.0, block.T().parallelMatmul(block.parallelMatmul(q))));
+        }
+        Matrix q = orthonormalBasis(pass.y);
+        RFactor r = new RFactor();
+        a.forEachBlock((block, firstRow) -> r.append(block.parallelMatmul(q)));
+        return new Result(q, r.r, k);
+    }
+
+    /**
+     * First pass, Y = A^T G. The width l = min(k + oversampling, n) is only
+     * known once the first block shows n.
+     */
+    private final class Pass {
+        private final int width;
+        int n = -1;
+        int l;
+        long m;
+        Matrix y;
+
+        Pass(int width) {
+            this.width = width;
+        }
+
+        void sketch(Matrix block, long firstRow) {
+            if (n < 0) {
+                n = block.cols();
+                l = Math.min(width, n);
+                y = new Matrix(n, l);
+            } else if (block.cols() != n) {
+                throw new IllegalArgumentException("Block at row " + firstRow + " has " + block.cols() + " columns, expected " + n);
+            }
+            y.axpy(1.0, block.T().parallelMatmul(gaussianRows(firstRow, block.rows(), l)));
+            m = Math.max(m, firstRow + block.rows());
+        }
+    }
+
+    /**
+     * Rows [firstRow, firstRow + count) of the random test matrix G
+     */
+    private Matrix gaussianRows(long firstRow, int count, int l) {
+        double[] g = new double[count * l];
+        for (int i = 0; i < count; i++) {
+            Random random = new Random(mix(seed + firstRow + i));
+            for (int j = 0; j < l; j++) {
+                g[i * l + j] = random.nextGaussian();
+            }
+        }
+        return Matrix.wrap(g, count, l);
+    }
+
+    /**
+     * SplitMix64 finalizer, consecutive row indices give unrelated seeds
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static Matrix orthonormalBasis(Matrix y) {
+        return new QRDecomposition(y).getQ();
+    }
+
+    /**
+     * R of the stacked QR of all the blocks of A Q seen so far
+     */
+    private static final class RFactor {
+        Matrix r;
+
+        void append(Matrix z) {
+            if (r == null) {
+                r = new QRDecomposition(z).getR();
+                return;
+            }
+            Matrix stacked = new Matrix(r.rows() + z.rows(), r.cols());
+            for (int i = 0; i < r.rows(); i++) {
+                for (int j = 0; j < r.cols(); j++) {
+                    stacked.set(i, j, r.get(i, j));
+                }
+            }
+            for (int i = 0; i < z.rows(); i++) {
+                for (int j = 0; j < z.cols(); j++) {
+                    stacked.set(r.rows() + i, j, z.get(i, j));
+                }
+            }
+            r = new QRDecomposition(stacked).getR();
+        }
+    }
+
+    private static void checkBlockRows(int blockRows) {
+        if (blockRows <= 0) {
+            throw new IllegalArgumentException("Block rows must be positive, got " + blockRows);
+        }
+    }
+
+    /**
+     * The k leading singular values, descending, with their n x k right
+     * singular vectors and, for in-memory input, the m x k left ones
+     */
+    public static final class Result {
+        private final double[] s;
+        private final Matrix v;
+        private Matrix u;
+
+        /**
+         * A Q = Q_A R, so with R = W S X^T the decomposition is
+         * A ~ (Q_A W) S (Q X)^T
+         */
+        private Result(Matrix q, Matrix r, int k) {
+            int rr = r.rows();
+            int l = r.cols();
+            Matrix jw = new Matrix(rr + l, rr + l);
+            for (int i = 0; i < rr; i++) {
+                for (int j = 0; j < l; j++) {
+                    jw.set(i, rr + j, r.get(i, j));
+                    jw.set(rr + j, i, r.get(i, j));
+                }
+            }
+            EigenDecomposition eigen = new EigenDecomposition(jw);
+            // each eigenvector of +s is [w; x] / sqrt(2)
+            Matrix x = new Matrix(l, k);
+            this.s = new double[k];
+            for (int c = 0; c < k; c++) {
+                s[c] = Math.max(0.0, eigen.getEigenvalue(c));
+                Vector e = eigen.getEigenvector(c);
+                for (int i = 0; i < l; i++) {
+                    x.set(i, c, e.get(rr + i) * Math.sqrt(2.0));
+                }
+            }
+            this.v = q.matmul(x);
+        }
+
+        public int rank() {
+            return s.length;
+        }
+
+        public double[] getSingularValues() {
+            return s.clone();
+        }
+
+        /**
+         * @return the n x k right singular vectors as columns
+         */
+        public Matrix getV() {
+            return v.copy();
+        }
+
+        /**
+         * @return the m x k left singular vectors as columns
+         */
+        public Matrix getU() {
+            if (u == null) {
+                throw new UnsupportedOperationException("Left singular vectors are not kept for a streamed matrix, use leftVectors()");
+            }
+            return u.copy();
+        }
+
+        /**
+         * Maps rows of A to the matching rows of U, B V S^-1. Columns with a
+         * zero singular value come out as zeros.
+         */
+        public Matrix leftVectors(Matrix rows) {
+            if (rows.cols() != v.rows()) {
+                throw new ArithmeticException("Incompatible matrix dimensions [" + rows.rows() + " x " + rows.cols() + "] vs [" + v.rows() + " x " + v.cols() + "]");
+            }
+            Matrix result = rows.parallelMatmul(v);
+            for (int c = 0; c < s.length; c++) {
+                double inv = s[c] == 0.0 ? 0.0 : 1.0 / s[c];
+                for (int i = 0; i < result.rows(); i++) {
+                    result.set(i, c, result.get(i, c) * inv);
+                }
+            }
+            return result;
+        }
+    }
+}
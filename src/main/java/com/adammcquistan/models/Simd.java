@@ -0,0 +1,42 @@
+package com.adammcquistan.models;
+
+/**
+ * Decides once per JVM whether Vector, FloatVector and FloatMatrix may use
+ * the SIMD kernels. Their implementation, VectorApiKernels, is built from
+ * the simd source set only on JDK 16 or later and needs the incubating
+ * jdk.incubator.vector module at runtime (start the JVM with
+ * --add-modules jdk.incubator.vector). When the class is not on the class
+ * path, the module is missing, or the JVM was started with
+ * -Dcom.adammcquistan.simd=false, KERNELS is null and everything runs on
+ * the scalar loops.
+ */
+final class Simd {
+    /** below this length the scalar loops win, set up and tail handling dominate */
+    static final int MIN_LENGTH = 32;
+    private static final String IMPLEMENTATION = "com.adammcquistan.models.VectorApiKernels";
+
+    static final SimdKernels KERNELS = load();
+    static final boolean ENABLED = KERNELS != null;
+
+    private Simd() {
+    }
+
+    static boolean useFor(int length) {
+        return ENABLED && length >= MIN_LENGTH;
+    }
+
+    private static SimdKernels load() {
+        if (!Boolean.parseBoolean(System.getProperty("com.adammcquistan.simd", "true"))) {
+            return null;
+        }
+        try {
+            // initializing the class resolves the Vector API species, so a
+            // missing or broken module shows up here and not mid computation
+            SimdKernels kernels = (SimdKernels) Class.forName(IMPLEMENTATION)
+                    .getDeclaredConstructor().newInstance();
+            return kernels.lanes() > 1 ? kernels : null;
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException e) {
+            return null;
+        }
+    }
+}
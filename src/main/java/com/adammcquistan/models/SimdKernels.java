@@ -0,0 +1,67 @@
+package com.adammcquistan.models;
+
+/**
+ * SIMD versions of the Vector loops over contiguous slices of double arrays,
+ * plus the dot products and matmul panel of the single precision classes.
+ * The implementation is built against the incubating Vector API in its own
+ * source set; callers reach it through Simd.KERNELS once Simd has loaded it.
+ * Every kernel must give the same results as the scalar loop it replaces,
+ * up to the rounding of a different summation order.
+ */
+interface SimdKernels {
+
+    /**
+     * @return the number of doubles processed per vector operation
+     */
+    int lanes();
+
+    double dot(double[] a, int aOff, double[] b, int bOff, int n);
+
+    double sum(double[] a, int aOff, int n);
+
+    double sumOfSquares(double[] a, int aOff, int n);
+
+    double normL1(double[] a, int aOff, int n);
+
+    /**
+     * @return the largest absolute value, NaN as soon as one value is NaN
+     */
+    double normMax(double[] a, int aOff, int n);
+
+    void add(double[] a, int aOff, double[] b, int bOff, double[] dest, int dOff, int n);
+
+    void add(double[] a, int aOff, double x, double[] dest, int dOff, int n);
+
+    void subtract(double[] a, int aOff, double[] b, int bOff, double[] dest, int dOff, int n);
+
+    void subtract(double[] a, int aOff, double x, double[] dest, int dOff, int n);
+
+    void multiply(double[] a, int aOff, double[] b, int bOff, double[] dest, int dOff, int n);
+
+    void multiply(double[] a, int aOff, double x, double[] dest, int dOff, int n);
+
+    void divide(double[] a, int aOff, double[] b, int bOff, double[] dest, int dOff, int n);
+
+    void divide(double[] a, int aOff, double x, double[] dest, int dOff, int n);
+
+    /**
+     * y += alpha x
+     */
+    void axpy(double alpha, double[] x, int xOff, double[] y, int yOff, int n);
+
+    float dot(float[] a, int aOff, float[] b, int bOff, int n);
+
+    /**
+     * Float dot product accumulated in double
+     */
+    double dotDouble(float[] a, int aOff, float[] b, int bOff, int n);
+
+    /**
+     * C(rows, 0..width) += A(rows, 0..kc) * panel for a kc x nc panel of B
+     * packed row by row, as used by FloatGemm
+     * @return width, the number of leading columns done, the rest is left to
+     * the caller
+     */
+    int floatPanel(int rowStart, int rowEnd, int kc, int nc,
+            float[] a, int aOff, int aRs, int aCs, float[] bPack, float[] c, int cOff, int cRs);
+}
@@ -0,0 +1,275 @@
+package com.adammcquistan.models;
+
+import java.util.Arrays;
+import java.util.StringJoiner;
+
+/**
+ * Immutable compressed sparse matrix in either CSR (compressed rows) or CSC
+ * (compressed columns) layout. Memory and the cost of every operation scale
+ * with the number of stored non-zeros rather than rows * cols.
+ *
+ * For CSR, the non-zeros of row i are values[pointers[i] .. pointers[i + 1])
+ * with their column numbers in indices. CSC is the same with rows and
+ * columns swapped, which is also exactly the CSR layout of the transpose.
+ */
+public class SparseMatrix {
+    public enum Format { CSR, CSC }
+
+    private final Format format;
+    private final int rows;
+    private final int cols;
+    private final int[] pointers;
+    private final int[] indices;
+    private final double[] values;
+
+    SparseMatrix(Format format, int rows, int cols, int[] pointers, int[] indices, double[] values) {
+        this.format = format;
+        this.rows = rows;
+        this.cols = cols;
+        this.pointers = pointers;
+        this.indices = indices;
+        this.values = values;
+    }
+
+    /**
+     * Builds a CSR matrix from the non-zero values of a dense matrix
+     */
+    public static SparseMatrix fromMatrix(Matrix m) {
+        SparseMatrixBuilder builder = new SparseMatrixBuilder(m.rows(), m.cols());
+        for (int i = 0; i < m.rows(); i++) {
+            for (int j = 0; j < m.cols(); j++) {
+                double x = m.get(i, j);
+                if (x != 0.0) {
+                    builder.add(i, j, x);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    public Format format() {
+        return format;
+    }
+
+    /**
+     * @return number of stored values
+     */
+    public int nnz() {
+        return pointers[pointers.length - 1];
+    }
+
+    private int majorDim() {
+        return format == Format.CSR ? rows : cols;
+    }
+
+    public double get(int rowIdx, int colIdx) {
+        if (rowIdx < 0 || rowIdx >= rows || colIdx < 0 || colIdx >= cols) {
+            throw new ArrayIndexOutOfBoundsException("Index (" + rowIdx + ", " + colIdx + ") is outside a " + rows + " x " + cols + " matrix");
+        }
+        int major = format == Format.CSR ? rowIdx : colIdx;
+        int minor = format == Format.CSR ? colIdx : rowIdx;
+        int pos = Arrays.binarySearch(indices, pointers[major], pointers[major + 1], minor);
+        return pos >= 0 ? values[pos] : 0.0;
+    }
+
+    /**
+     * Transposes by reinterpreting CSR as CSC (or the other way round), the
+     * underlying arrays are shared and nothing is copied
+     */
+    public SparseMatrix transpose() {
+        Format flipped = format == Format.CSR ? Format.CSC : Format.CSR;
+        return new SparseMatrix(flipped, cols, rows, pointers, indices, values);
+    }
+
+    public SparseMatrix T() {
+        return transpose();
+    }
+
+    public SparseMatrix toCSR() {
+        return format == Format.CSR ? this : convert(Format.CSR);
+    }
+
+    public SparseMatrix toCSC() {
+        return format == Format.CSC ? this : convert(Format.CSC);
+    }
+
+    /**
+     * Switches layout with a counting sort over the minor indices, O(nnz + rows + cols)
+     */
+    private SparseMatrix convert(Format target) {
+        int major = majorDim();
+        int minor = format == Format.CSR ? cols : rows;
+        int nnz = nnz();
+        int[] newPointers = new int[minor + 1];
+        for (int k = 0; k < nnz; k++) {
+            newPointers[indices[k] + 1]++;
+        }
+        for (int i = 0; i < minor; i++) {
+            newPointers[i + 1] += newPointers[i];
+        }
+        int[] next = Arrays.copyOf(newPointers, minor);
+        int[] newIndices = new int[nnz];
+        double[] newValues = new double[nnz];
+        for (int i = 0; i < major; i++) {
+            for (int k = pointers[i]; k < pointers[i + 1]; k++) {
+                int dest = next[indices[k]]++;
+                newIndices[dest] = i;
+                newValues[dest] = values[k];
+            }
+        }
+        return new SparseMatrix(target, rows, cols, newPointers, newIndices, newValues);
+    }
+
+    /**
+     * Sparse matrix times dense vector (SpMV)
+     * @return this * x
+     */
+    public Vector matvec(Vector x) {
+        if (x.size() != cols) {
+            throw new ArithmeticException("Incompatible vector size " + x.size() + " for a matrix with " + cols + " columns");
+        }
+        double[] in = x.toArray();
+        double[] out = new double[rows];
+        if (format == Format.CSR) {
+            for (int i = 0; i < rows; i++) {
+                double s = 0.0;
+                for (int k = pointers[i]; k < pointers[i + 1]; k++) {
+                    s += values[k] * in[indices[k]];
+                }
+                out[i] = s;
+            }
+        } else {
+            for (int j = 0; j < cols; j++) {
+                double xj = in[j];
+                for (int k = pointers[j]; k < pointers[j + 1]; k++) {
+                    out[indices[k]] += values[k] * xj;
+                }
+            }
+        }
+        return Vector.wrap(out);
+    }
+
+    /**
+     * Sparse times dense, every stored value scales one row of m into one
+     * row of the result
+     */
+    public Matrix matmul(Matrix m) {
+        if (cols != m.rows()) {
+            throw new ArithmeticException("Incompatible matrix dimensions [" + rows + " x " + cols + "] vs [" + m.rows() + " x " + m.cols() + "]");
+        }
+        int n = m.cols();
+        double[] b = m.array();
+        int bOff = m.offset();
+        int bRs = m.stride();
+        int bCs = m.colStride();
+        Matrix result = new Matrix(rows, n);
+        double[] c = result.array();
+        for (int major = 0; major < majorDim(); major++) {
+            for (int k = pointers[major]; k < pointers[major + 1]; k++) {
+                int row = format == Format.CSR ? major : indices[k];
+                int inner = format == Format.CSR ? indices[k] : major;
+                double v = values[k];
+                int bp = bOff + inner * bRs;
+                int cp = row * n;
+                for (int j = 0; j < n; j++) {
+                    c[cp + j] += v * b[bp + j * bCs];
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sparse times sparse using Gustavson's row by row algorithm with a dense
+     * accumulator, the result is in CSR layout
+     */
+    public SparseMatrix matmul(SparseMatrix m) {
+        if (cols != m.rows) {
+            throw new ArithmeticException("Incompatible matrix dimensions [" + rows + " x " + cols + "] vs [" + m.rows + " x " + m.cols + "]");
+        }
+        SparseMatrix a = toCSR();
+        SparseMatrix b = m.toCSR();
+        int n = b.cols;
+
+        double[] acc = new double[n];
+        int[] marker = new int[n];
+        Arrays.fill(marker, -1);
+        int[] rowCols = new int[n];
+
+        int[] outPointers = new int[rows + 1];
+        int[] outIndices = new int[Math.max(16, a.nnz() + b.nnz())];
+        double[] outValues = new double[outIndices.length];
+        int nnz = 0;
+
+        for (int i = 0; i < rows; i++) {
+            int count = 0;
+            for (int ka = a.pointers[i]; ka < a.pointers[i + 1]; ka++) {
+                int inner = a.indices[ka];
+                double av = a.values[ka];
+                for (int kb = b.pointers[inner]; kb < b.pointers[inner + 1]; kb++) {
+                    int j = b.indices[kb];
+                    if (marker[j] != i) {
+                        marker[j] = i;
+                        acc[j] = 0.0;
+                        rowCols[count++] = j;
+                    }
+                    acc[j] += av * b.values[kb];
+                }
+            }
+            Arrays.sort(rowCols, 0, count);
+            if (nnz + count > outIndices.length) {
+                int capacity = Math.max(nnz + count, outIndices.length + (outIndices.length >> 1));
+                outIndices = Arrays.copyOf(outIndices, capacity);
+                outValues = Arrays.copyOf(outValues, capacity);
+            }
+            for (int c = 0; c < count; c++) {
+                outIndices[nnz] = rowCols[c];
+                outValues[nnz] = acc[rowCols[c]];
+                nnz++;
+            }
+            outPointers[i + 1] = nnz;
+        }
+        return new SparseMatrix(Format.CSR, rows, n, outPointers,
+                Arrays.copyOf(outIndices, nnz), Arrays.copyOf(outValues, nnz));
+    }
+
+    public Matrix toMatrix() {
+        Matrix result = new Matrix(rows, cols);
+        for (int major = 0; major < majorDim(); major++) {
+            for (int k = pointers[major]; k < pointers[major + 1]; k++) {
+                if (format == Format.CSR) {
+                    result.set(major, indices[k], values[k]);
+                } else {
+                    result.set(indices[k], major, values[k]);
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        String s = "SparseMatrix[" + rows + " x " + cols + ", nnz=" + nnz() + ", " + format + "]";
+        StringJoiner sj = new StringJoiner(", ");
+        int shown = 0;
+        for (int major = 0; major < majorDim() && shown < 8; major++) {
+            for (int k = pointers[major]; k < pointers[major + 1] && shown < 8; k++, shown++) {
+                int row = format == Format.CSR ? major : indices[k];
+                int col = format == Format.CSR ? indices[k] : major;
+                sj.add("(" + row + ", " + col + ")=" + String.format("%.4f", values[k]));
+            }
+        }
+        if (nnz() > shown) {
+            sj.add("...");
+        }
+        return s + " {" + sj + "}";
+    }
+}
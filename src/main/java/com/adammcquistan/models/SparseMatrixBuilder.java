@@ -0,0 +1,116 @@
+package com.adammcquistan.models;
+
+import java.util.Arrays;
+
+/**
+ * Collects (row, col, value) triples in coordinate (COO) form and compresses
+ * them into a SparseMatrix. Triples may arrive in any order, duplicates of
+ * the same position are summed.
+ */
+public class SparseMatrixBuilder {
+    private static final int INIT_CAPACITY = 100;
+
+    private final int rows;
+    private final int cols;
+    private int[] rowIdx;
+    private int[] colIdx;
+    private double[] vals;
+    private int size;
+
+    public SparseMatrixBuilder(int rows, int cols) {
+        this(rows, cols, INIT_CAPACITY);
+    }
+
+    /**
+     * @param expectedNnz capacity hint for the number of triples
+     */
+    public SparseMatrixBuilder(int rows, int cols, int expectedNnz) {
+        if (rows < 0 || cols < 0) {
+            throw new IllegalArgumentException("Matrix dimensions must be non-negative, got " + rows + " x " + cols);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        int capacity = Math.max(1, expectedNnz);
+        this.rowIdx = new int[capacity];
+        this.colIdx = new int[capacity];
+        this.vals = new double[capacity];
+    }
+
+    public SparseMatrixBuilder add(int row, int col, double value) {
+        if (row < 0 || row >= rows || col < 0 || col >= cols) {
+            throw new ArrayIndexOutOfBoundsException("Index (" + row + ", " + col + ") is outside a " + rows + " x " + cols + " matrix");
+        }
+        if (size == rowIdx.length) {
+            int capacity = rowIdx.length + (rowIdx.length >> 1) + 1;
+            rowIdx = Arrays.copyOf(rowIdx, capacity);
+            colIdx = Arrays.copyOf(colIdx, capacity);
+            vals = Arrays.copyOf(vals, capacity);
+        }
+        rowIdx[size] = row;
+        colIdx[size] = col;
+        vals[size] = value;
+        size++;
+        return this;
+    }
+
+    public SparseMatrix build() {
+        return build(SparseMatrix.Format.CSR);
+    }
+
+    /**
+     * Two stable counting sorts (by column, then by row) leave every row with
+     * its columns in order, after which duplicates sit next to each other
+     */
+    public SparseMatrix build(SparseMatrix.Format format) {
+        int[] byCol = countingOrder(colIdx, cols, null);
+        int[] order = countingOrder(rowIdx, rows, byCol);
+
+        int[] pointers = new int[rows + 1];
+        int[] indices = new int[size];
+        double[] values = new double[size];
+        int nnz = 0;
+        int prevRow = -1;
+        int prevCol = -1;
+        for (int k = 0; k < size; k++) {
+            int t = order[k];
+            int r = rowIdx[t];
+            int c = colIdx[t];
+            if (r == prevRow && c == prevCol) {
+                values[nnz - 1] += vals[t];
+                continue;
+            }
+            indices[nnz] = c;
+            values[nnz] = vals[t];
+            nnz++;
+            pointers[r + 1]++;
+            prevRow = r;
+            prevCol = c;
+        }
+        for (int i = 0; i < rows; i++) {
+            pointers[i + 1] += pointers[i];
+        }
+        SparseMatrix csr = new SparseMatrix(SparseMatrix.Format.CSR, rows, cols, pointers,
+                Arrays.copyOf(indices, nnz), Arrays.copyOf(values, nnz));
+        return format == SparseMatrix.Format.CSR ? csr : csr.toCSC();
+    }
+
+    /**
+     * @return the triple positions ordered by key, keeping the relative order
+     * of the positions in previous (or insertion order when null) among equal keys
+     */
+    private int[] countingOrder(int[] keys, int range, int[] previous) {
+        int[] start = new int[range + 1];
+        for (int k = 0; k < size; k++) {
+            start[keys[k] + 1]++;
+        }
+        for (int i = 0; i < range; i++) {
+            start[i + 1] += start[i];
+        }
+        int[] order = new int[size];
+        for (int k = 0; k < size; k++) {
+            int t = previous == null ? k : previous[k];
+            order[start[keys[t]]++] = t;
+        }
+        return order;
+    }
+}
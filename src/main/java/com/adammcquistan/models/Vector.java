@@ -5,14 +5,22 @@ import java.util.StringJoiner;
 public class Vector {
     private static final int INIT_CAPACITY = 100;
     private static final int MAX_CAPACITY = 1000000;
+    private static final double[] EMPTY = new double[0];
 
     private int currentIdx = -1;
     private double[] data;
+    private int offset;
+    private int stride = 1;
+    private boolean view;
     
     public Vector() {
-        data = new double[INIT_CAPACITY];
+        data = EMPTY;
     }
     
+    /**
+     * Creates an empty vector with room for size values before append has
+     * to grow the backing array
+     */
     public Vector(int size) {
         data = new double[size];
     }
@@ -23,40 +31,113 @@ public class Vector {
         currentIdx = arr.length - 1;
     }
     
+    /**
+     * Wraps a slice of an existing array without copying it, reads and writes
+     * go straight through to the backing array. Used by Matrix to hand out rows.
+     */
+    Vector(double[] data, int offset, int size) {
+        this(data, offset, size, 1);
+    }
+    
+    /**
+     * Wraps every stride-th value of an existing array starting at offset,
+     * used by Matrix to hand out columns without copying them
+     */
+    Vector(double[] data, int offset, int size, int stride) {
+        this.data = data;
+        this.offset = offset;
+        this.stride = stride;
+        this.currentIdx = size - 1;
+        this.view = true;
+    }
+    
+    /**
+     * Wraps arr as a vector of arr.length values without copying it
+     */
+    static Vector wrap(double[] arr) {
+        Vector v = new Vector(0);
+        v.data = arr;
+        v.currentIdx = arr.length - 1;
+        return v;
+    }
+    
+    private static Vector sized(int n) {
+        return wrap(new double[n]);
+    }
+    
     public boolean append(double item) {
-        if (currentIdx > (data.length - 10)) {
-            int newLength = (int) 1.5 * data.length;
-            if (MAX_CAPACITY < newLength) {
-                return false;
-            }
-            
-            double[] newData = new double[newLength];
-            System.arraycopy(data, 0, newData, 0, data.length);
-            data = newData;
+        if (!ensureCapacity(size() + 1)) {
+            return false;
         }
         data[++currentIdx] = item;
         return true;
     }
     
+    /**
+     * Appends every value of arr with a single capacity check and copy
+     * @return false, appending nothing, when the result would exceed the maximum size
+     */
+    public boolean appendAll(double[] arr) {
+        if (!ensureCapacity(size() + arr.length)) {
+            return false;
+        }
+        System.arraycopy(arr, 0, data, currentIdx + 1, arr.length);
+        currentIdx += arr.length;
+        return true;
+    }
+    
+    public boolean appendAll(Vector v) {
+        if (!ensureCapacity(size() + v.size())) {
+            return false;
+        }
+        v.copyTo(data, currentIdx + 1);
+        currentIdx += v.size();
+        return true;
+    }
+    
+    /**
+     * Grows the backing array by half again (amortized O(1) appends) when it
+     * cannot hold minCapacity values. A view always gets its own array here so
+     * that growing it never writes into the storage it was sliced from.
+     */
+    private boolean ensureCapacity(int minCapacity) {
+        if (!view && minCapacity <= data.length) {
+            return true;
+        }
+        if (minCapacity > MAX_CAPACITY || minCapacity < 0) {
+            return false;
+        }
+        int current = view ? size() : data.length;
+        int newLength = Math.max(INIT_CAPACITY, current + (current >> 1));
+        newLength = Math.min(Math.max(newLength, minCapacity), MAX_CAPACITY);
+        double[] newData = new double[newLength];
+        copyTo(newData, 0);
+        data = newData;
+        offset = 0;
+        stride = 1;
+        view = false;
+        return true;
+    }
+    
     public void fill(double x) {
         for (int i = 0; i < this.size(); i++) {
-            this.data[i] = x;
+            this.data[offset + i * stride] = x;
         }
     }
     
     public double get(int idx) {
-        if (idx > currentIdx) {
+        if (idx < 0 || idx > currentIdx) {
             throw new ArrayIndexOutOfBoundsException();
         }
         
-        return this.data[idx];
+        return this.data[offset + idx * stride];
     }
     
     public void replace(int idx, double value) {
-        if (idx > (size() - 1)) {
+        if (idx < 0 || idx > (size() - 1)) {
             throw new ArrayIndexOutOfBoundsException("Attempting to replace value @ index " + idx + " in an array of size " + size());
         }
-        this.data[idx] = value;
+        this.data[offset + idx * stride] = value;
     }
     
     public int size() {
@@ -64,93 +145,383 @@ public class Vector {
     }
     
     public Vector add(Vector v) {
-        if (v.size() == 1) {
-            return add(v.get(0));
+        return add(v, sized(this.size()));
+    }
+    
+    public Vector add(double x) {
+        return add(x, sized(this.size()));
+    }
+    
+    public Vector subtract(Vector v) {
+        return subtract(v, sized(this.size()));
+    }
+    
+    public Vector subtract(double x) {
+        return subtract(x, sized(this.size()));
+    }
+    
+    public Vector multiply(Vector v) {
+        return multiply(v, sized(this.size()));
+    }
+    
+    public Vector multiply(double x) {
+        return multiply(x, sized(this.size()));
+    }
+    
+    public Vector divide(Vector v) {
+        return divide(v, sized(this.size()));
+    }
+    
+    public Vector divide(double x) {
+        return divide(x, sized(this.size()));
+    }
+    
+    /*
+     * The "into" variants write their result into a caller supplied vector of
+     * the same size instead of allocating one, dest may be this vector or v.
+     * The InPlace variants overwrite this vector and return it for chaining.
+     */
+    
+    public Vector add(Vector v, Vector dest) {
+        if (v.size() == 1 && this.size() != 1) {
+            return add(v.get(0), dest);
         }
         checkSizeCompatibility(v);
-
-        Vector result = new Vector(v.size());
-        for (int i = 0; i < this.size(); i++) {
-            result.append(this.data[i] + v.data[i]);
+        checkSizeCompatibility(dest);
+        
+        int n = this.size();
+        if (VectorTasks.useFor(n)) {
+            VectorTasks.forEach(n, (from, to) -> addRange(v, dest, from, to));
+        } else {
+            addRange(v, dest, 0, n);
         }
-        return result;
+        return dest;
     }
     
-    public Vector add(double x) {
-        Vector result = new Vector(this.size());
-        for (int i = 0; i < this.size(); i++) {
-            result.append(this.data[i] + x);
+    private void addRange(Vector v, Vector dest, int from, int to) {
+        if (stride != 1 || v.stride != 1 || dest.stride != 1) {
+            for (int i = from; i < to; i++) {
+                dest.data[dest.offset + i * dest.stride] = this.data[offset + i * stride] + v.data[v.offset + i * v.stride];
+            }
+            return;
+        }
+        if (Simd.useFor(to - from)) {
+            Simd.KERNELS.add(data, offset + from, v.data, v.offset + from, dest.data, dest.offset + from, to - from);
+            return;
+        }
+        for (int i = from; i < to; i++) {
+            dest.data[dest.offset + i] = this.data[offset + i] + v.data[v.offset + i];
         }
-        return result;
     }
     
-    public Vector subtract(Vector v) {
-        if (v.size() == 1) {
-            return subtract(v.get(0));
+    public Vector add(double x, Vector dest) {
+        checkSizeCompatibility(dest);
+        
+        int n = this.size();
+        if (VectorTasks.useFor(n)) {
+            VectorTasks.forEach(n, (from, to) -> addRange(x, dest, from, to));
+        } else {
+            addRange(x, dest, 0, n);
+        }
+        return dest;
+    }
+    
+    private void addRange(double x, Vector dest, int from, int to) {
+        if (stride != 1 || dest.stride != 1) {
+            for (int i = from; i < to; i++) {
+                dest.data[dest.offset + i * dest.stride] = this.data[offset + i * stride] + x;
+            }
+            return;
+        }
+        if (Simd.useFor(to - from)) {
+            Simd.KERNELS.add(data, offset + from, x, dest.data, dest.offset + from, to - from);
+            return;
+        }
+        for (int i = from; i < to; i++) {
+            dest.data[dest.offset + i] = this.data[offset + i] + x;
+        }
+    }
+    
+    public Vector addInPlace(Vector v) {
+        return add(v, this);
+    }
+    
+    public Vector addInPlace(double x) {
+        return add(x, this);
+    }
+    
+    public Vector subtract(Vector v, Vector dest) {
+        if (v.size() == 1 && this.size() != 1) {
+            return subtract(v.get(0), dest);
         }
         checkSizeCompatibility(v);
+        checkSizeCompatibility(dest);
         
-        Vector result = new Vector(v.size());
-        for (int i = 0; i < this.size(); i++) {
-            result.append(this.data[i] - v.data[i]);
+        int n = this.size();
+        if (VectorTasks.useFor(n)) {
+            VectorTasks.forEach(n, (from, to) -> subtractRange(v, dest, from, to));
+        } else {
+            subtractRange(v, dest, 0, n);
         }
-        return result;
+        return dest;
     }
     
-    public Vector subtract(double x) {
-        Vector result = new Vector(this.size());
-        for (int i = 0; i < this.size(); i++) {
-            result.append(this.data[i] - x);
+    private void subtractRange(Vector v, Vector dest, int from, int to) {
+        if (stride != 1 || v.stride != 1 || dest.stride != 1) {
+            for (int i = from; i < to; i++) {
+                dest.data[dest.offset + i * dest.stride] = this.data[offset + i * stride] - v.data[v.offset + i * v.stride];
+            }
+            return;
+        }
+        if (Simd.useFor(to - from)) {
+            Simd.KERNELS.subtract(data, offset + from, v.data, v.offset + from, dest.data, dest.offset + from, to - from);
+            return;
+        }
+        for (int i = from; i < to; i++) {
+            dest.data[dest.offset + i] = this.data[offset + i] - v.data[v.offset + i];
         }
-        return result;
     }
     
-    public Vector multiply(Vector v) {
-        if (v.size() == 1) {
-            return multiply(v.get(0));
-        }
+    public Vector subtract(double x, Vector dest) {
+        checkSizeCompatibility(dest);
         
+        int n = this.size();
+        if (VectorTasks.useFor(n)) {
+            VectorTasks.forEach(n, (from, to) -> subtractRange(x, dest, from, to));
+        } else {
+            subtractRange(x, dest, 0, n);
+        }
+        return dest;
+    }
+    
+    private void subtractRange(double x, Vector dest, int from, int to) {
+        if (stride != 1 || dest.stride != 1) {
+            for (int i = from; i < to; i++) {
+                dest.data[dest.offset + i * dest.stride] = this.data[offset + i * stride] - x;
+            }
+            return;
+        }
+        if (Simd.useFor(to - from)) {
+            Simd.KERNELS.subtract(data, offset + from, x, dest.data, dest.offset + from, to - from);
+            return;
+        }
+        for (int i = from; i < to; i++) {
+            dest.data[dest.offset + i] = this.data[offset + i] - x;
+        }
+    }
+    
+    public Vector subtractInPlace(Vector v) {
+        return subtract(v, this);
+    }
+    
+    public Vector subtractInPlace(double x) {
+        return subtract(x, this);
+    }
+    
+    public Vector multiply(Vector v, Vector dest) {
+        if (v.size() == 1 && this.size() != 1) {
+            return multiply(v.get(0), dest);
+        }
         checkSizeCompatibility(v);
+        checkSizeCompatibility(dest);
         
-        Vector result = new Vector(v.size());
-        for (int i = 0; i < this.size(); i++) {
-            result.append(this.data[i] * v.data[i]);
+        int n = this.size();
+        if (VectorTasks.useFor(n)) {
+            VectorTasks.forEach(n, (from, to) -> multiplyRange(v, dest, from, to));
+        } else {
+            multiplyRange(v, dest, 0, n);
         }
-        return result;
+        return dest;
     }
     
-    public Vector multiply(double x) {
-        Vector result = new Vector(this.size());
-        for (int i = 0; i < this.size(); i++) {
-            result.append(this.data[i] * x);
+    private void multiplyRange(Vector v, Vector dest, int from, int to) {
+        if (stride != 1 || v.stride != 1 || dest.stride != 1) {
+            for (int i = from; i < to; i++) {
+                dest.data[dest.offset + i * dest.stride] = this.data[offset + i * stride] * v.data[v.offset + i * v.stride];
+            }
+            return;
+        }
+        if (Simd.useFor(to - from)) {
+            Simd.KERNELS.multiply(data, offset + from, v.data, v.offset + from, dest.data, dest.offset + from, to - from);
+            return;
+        }
+        for (int i = from; i < to; i++) {
+            dest.data[dest.offset + i] = this.data[offset + i] * v.data[v.offset + i];
         }
-        return result;
     }
     
-    public Vector divide(Vector v) {
+    public Vector multiply(double x, Vector dest) {
+        checkSizeCompatibility(dest);
+        
+        int n = this.size();
+        if (VectorTasks.useFor(n)) {
+            VectorTasks.forEach(n, (from, to) -> multiplyRange(x, dest, from, to));
+        } else {
+            multiplyRange(x, dest, 0, n);
+        }
+        return dest;
+    }
+    
+    private void multiplyRange(double x, Vector dest, int from, int to) {
+        if (stride != 1 || dest.stride != 1) {
+            for (int i = from; i < to; i++) {
+                dest.data[dest.offset + i * dest.stride] = this.data[offset + i * stride] * x;
+            }
+            return;
+        }
+        if (Simd.useFor(to - from)) {
+            Simd.KERNELS.multiply(data, offset + from, x, dest.data, dest.offset + from, to - from);
+            return;
+        }
+        for (int i = from; i < to; i++) {
+            dest.data[dest.offset + i] = this.data[offset + i] * x;
+        }
+    }
+    
+    public Vector multiplyInPlace(Vector v) {
+        return multiply(v, this);
+    }
+    
+    public Vector multiplyInPlace(double x) {
+        return multiply(x, this);
+    }
+    
+    /**
+     * Unlike add, subtract and multiply a one element v is not broadcast,
+     * any size mismatch throws as divide always has
+     */
+    public Vector divide(Vector v, Vector dest) {
         checkSizeCompatibility(v);
+        checkSizeCompatibility(dest);
         
-        Vector result = new Vector(v.size());
-        for (int i = 0; i < this.size(); i++) {
-            result.append(this.data[i] / v.data[i]);
+        int n = this.size();
+        if (VectorTasks.useFor(n)) {
+            VectorTasks.forEach(n, (from, to) -> divideRange(v, dest, from, to));
+        } else {
+            divideRange(v, dest, 0, n);
         }
-        return result;
+        return dest;
     }
     
-    public Vector divide(double x) {
-        Vector result = new Vector(this.size());
-        for (int i = 0; i < this.size(); i++) {
-            result.append(this.data[i] / x);
+    private void divideRange(Vector v, Vector dest, int from, int to) {
+        if (stride != 1 || v.stride != 1 || dest.stride != 1) {
+            for (int i = from; i < to; i++) {
+                dest.data[dest.offset + i * dest.stride] = this.data[offset + i * stride] / v.data[v.offset + i * v.stride];
+            }
+            return;
+        }
+        if (Simd.useFor(to - from)) {
+            Simd.KERNELS.divide(data, offset + from, v.data, v.offset + from, dest.data, dest.offset + from, to - from);
+            return;
+        }
+        for (int i = from; i < to; i++) {
+            dest.data[dest.offset + i] = this.data[offset + i] / v.data[v.offset + i];
         }
-        return result;
     }
-
+    
+    public Vector divide(double x, Vector dest) {
+        checkSizeCompatibility(dest);
+        
+        int n = this.size();
+        if (VectorTasks.useFor(n)) {
+            VectorTasks.forEach(n, (from, to) -> divideRange(x, dest, from, to));
+        } else {
+            divideRange(x, dest, 0, n);
+        }
+        return dest;
+    }
+    
+    private void divideRange(double x, Vector dest, int from, int to) {
+        if (stride != 1 || dest.stride != 1) {
+            for (int i = from; i < to; i++) {
+                dest.data[dest.offset + i * dest.stride] = this.data[offset + i * stride] / x;
+            }
+            return;
+        }
+        if (Simd.useFor(to - from)) {
+            Simd.KERNELS.divide(data, offset + from, x, dest.data, dest.offset + from, to - from);
+            return;
+        }
+        for (int i = from; i < to; i++) {
+            dest.data[dest.offset + i] = this.data[offset + i] / x;
+        }
+    }
+    
+    public Vector divideInPlace(Vector v) {
+        return divide(v, this);
+    }
+    
+    public Vector divideInPlace(double x) {
+        return divide(x, this);
+    }
+    
+    public Vector scaleInPlace(double alpha) {
+        return multiply(alpha, this);
+    }
+    
+    /**
+     * y = alpha * x + y, updating this vector (y) in place
+     * @return this vector
+     */
+    public Vector axpy(double alpha, Vector x) {
+        checkSizeCompatibility(x);
+        
+        int n = this.size();
+        if (VectorTasks.useFor(n)) {
+            VectorTasks.forEach(n, (from, to) -> axpyRange(alpha, x, from, to));
+        } else {
+            axpyRange(alpha, x, 0, n);
+        }
+        return this;
+    }
+    
+    private void axpyRange(double alpha, Vector x, int from, int to) {
+        if (stride != 1 || x.stride != 1) {
+            for (int i = from; i < to; i++) {
+                this.data[offset + i * stride] += alpha * x.data[x.offset + i * x.stride];
+            }
+            return;
+        }
+        if (Simd.useFor(to - from)) {
+            Simd.KERNELS.axpy(alpha, x.data, x.offset + from, data, offset + from, to - from);
+            return;
+        }
+        for (int i = from; i < to; i++) {
+            this.data[offset + i] += alpha * x.data[x.offset + i];
+        }
+    }
+    
+    /*
+     * Reductions over at least Parallelism.getVectorThreshold() values are
+     * summed chunk by chunk and the partial results combined pairwise in a
+     * fixed tree (see VectorTasks), so they come out bit for bit the same
+     * whatever the number of threads.
+     */
+    
     public double dot(Vector v) {
         checkSizeCompatibility(v);
         
+        int n = this.size();
+        if (VectorTasks.useFor(n)) {
+            return VectorTasks.reduce(n, (from, to) -> dotRange(v, from, to), Double::sum);
+        }
+        return dotRange(v, 0, n);
+    }
+    
+    private double dotRange(Vector v, int from, int to) {
+        if (stride != 1 || v.stride != 1) {
+            double product = 0.0d;
+            for (int i = from; i < to; i++) {
+                product += (this.data[offset + i * stride] * v.data[v.offset + i * v.stride]);
+            }
+            return product;
+        }
+        if (Simd.useFor(to - from)) {
+            return Simd.KERNELS.dot(data, offset + from, v.data, v.offset + from, to - from);
+        }
         double product = 0.0d;
-        for (int i = 0; i < this.size(); i++) {
-            product += (this.data[i] * v.data[i]);
+        for (int i = from; i < to; i++) {
+            product += (this.data[offset + i] * v.data[v.offset + i]);
         }
         return product;
     }
@@ -160,9 +531,27 @@ public class Vector {
      * @return Manhattan norm
      */
     public double normL1() {
+        int n = this.size();
+        if (VectorTasks.useFor(n)) {
+            return VectorTasks.reduce(n, this::normL1Range, Double::sum);
+        }
+        return normL1Range(0, n);
+    }
+    
+    private double normL1Range(int from, int to) {
+        if (stride != 1) {
+            double norm = 0.0d;
+            for (int i = from; i < to; i++) {
+                norm += Math.abs(this.data[offset + i * stride]);
+            }
+            return norm;
+        }
+        if (Simd.useFor(to - from)) {
+            return Simd.KERNELS.normL1(data, offset + from, to - from);
+        }
         double norm = 0.0d;
-        for (int i = 0; i < this.size(); i++) {
-            norm += Math.abs(this.data[i]);
+        for (int i = from; i < to; i++) {
+            norm += Math.abs(this.data[offset + i]);
         }
         return norm;
     }
@@ -176,28 +565,82 @@ public class Vector {
     }
     
     public double normMax() {
-        double absMax = Math.abs(this.data[0]);
-        for (int i = 0; i < this.size(); i++) {
-            double cur = Math.abs(this.data[i]);
-            if (cur > absMax) {
-                absMax = cur;
+        int n = this.size();
+        if (VectorTasks.useFor(n)) {
+            return VectorTasks.reduce(n, this::normMaxRange, Math::max);
+        }
+        return normMaxRange(0, n);
+    }
+    
+    /**
+     * NaN as soon as one value is NaN, like Math.max and the SIMD kernel
+     */
+    private double normMaxRange(int from, int to) {
+        if (stride != 1) {
+            double absMax = 0.0;
+            for (int i = from; i < to; i++) {
+                absMax = Math.max(absMax, Math.abs(this.data[offset + i * stride]));
             }
+            return absMax;
+        }
+        if (Simd.useFor(to - from)) {
+            return Simd.KERNELS.normMax(data, offset + from, to - from);
+        }
+        double absMax = 0.0;
+        for (int i = from; i < to; i++) {
+            absMax = Math.max(absMax, Math.abs(this.data[offset + i]));
         }
         return absMax;
     }
     
     public double sum() {
+        int n = this.size();
+        if (VectorTasks.useFor(n)) {
+            return VectorTasks.reduce(n, this::sumRange, Double::sum);
+        }
+        return sumRange(0, n);
+    }
+    
+    private double sumRange(int from, int to) {
+        if (stride != 1) {
+            double s = 0.0d;
+            for (int i = from; i < to; i++) {
+                s += this.data[offset + i * stride];
+            }
+            return s;
+        }
+        if (Simd.useFor(to - from)) {
+            return Simd.KERNELS.sum(data, offset + from, to - from);
+        }
         double s = 0.0d;
-        for (int i = 0; i < this.size(); i++) {
-            s += this.data[i];
+        for (int i = from; i < to; i++) {
+            s += this.data[offset + i];
         }
         return s;
     }
     
     public double sumOfSquares() {
+        int n = this.size();
+        if (VectorTasks.useFor(n)) {
+            return VectorTasks.reduce(n, this::sumOfSquaresRange, Double::sum);
+        }
+        return sumOfSquaresRange(0, n);
+    }
+    
+    private double sumOfSquaresRange(int from, int to) {
+        if (stride != 1) {
+            double ss = 0.0d;
+            for (int i = from; i < to; i++) {
+                ss += (this.data[offset + i * stride] * this.data[offset + i * stride]);
+            }
+            return ss;
+        }
+        if (Simd.useFor(to - from)) {
+            return Simd.KERNELS.sumOfSquares(data, offset + from, to - from);
+        }
         double ss = 0.0d;
-        for (int i = 0; i < this.size(); i++) {
-            ss += (this.data[i] * this.data[i]);
+        for (int i = from; i < to; i++) {
+            ss += (this.data[offset + i] * this.data[offset + i]);
         }
         return ss;
     }
@@ -209,10 +652,38 @@ public class Vector {
     
     public double[] toArray() {
         double[] result = new double[this.size()];
+        copyTo(result, 0);
+        return result;
+    }
+    
+    /*
+     * Raw storage access for the kernels in this package, element i is
+     * array()[offset() + i * stride()]
+     */
+    
+    double[] array() {
+        return data;
+    }
+    
+    int offset() {
+        return offset;
+    }
+    
+    int stride() {
+        return stride;
+    }
+    
+    /**
+     * Copies the elements of this vector into dest starting at destPos
+     */
+    void copyTo(double[] dest, int destPos) {
+        if (stride == 1) {
+            System.arraycopy(data, offset, dest, destPos, this.size());
+            return;
+        }
         for (int i = 0; i < this.size(); i++) {
-            result[i] = this.get(i);
+            dest[destPos + i] = data[offset + i * stride];
         }
-        return result;
     }
     
     @Override
@@ -221,15 +692,15 @@ public class Vector {
         StringJoiner sj = new StringJoiner(",");
         if (this.size() > 8) {
             for (int i = 0; i < 3; i++) {
-                sj.add(String.format("%10.4f", this.data[i]));
+                sj.add(String.format("%10.4f", this.data[offset + i * stride]));
             }
             sj.add("...");
             for (int i = this.size() - 3; i < this.size(); i++) {
-                sj.add(String.format("%10.4f", this.data[i]));
+                sj.add(String.format("%10.4f", this.data[offset + i * stride]));
             }
         } else {
             for (int i = 0; i < this.size(); i++) {
-                sj.add(String.format("%10.4f", this.data[i]));
+                sj.add(String.format("%10.4f", this.data[offset + i * stride]));
             }
         }
         return s + "[" + sj + "]";
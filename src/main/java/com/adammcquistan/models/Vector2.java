@@ -0,0 +1,172 @@
+package com.adammcquistan.models;
+
+import java.util.StringJoiner;
+
+/**
+ * Immutable 2D vector kept in two final fields instead of an array, so there
+ * is no backing array to allocate and no bounds to check. Every operation
+ * returns a new instance; short lived ones in a hot loop never escape and
+ * the JIT scalar replaces them, so they cost no allocation at all.
+ */
+public final class Vector2 {
+    public static final Vector2 ZERO = new Vector2(0.0, 0.0);
+
+    private final double x;
+    private final double y;
+
+    public Vector2(double x, double y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * @return the 2 values of v, which must have size 2
+     */
+    public static Vector2 of(Vector v) {
+        if (v.size() != 2) {
+            throw new IllegalArgumentException("Vector size (" + v.size() + ") <> 2");
+        }
+        return new Vector2(v.get(0), v.get(1));
+    }
+
+    public double x() {
+        return x;
+    }
+
+    public double y() {
+        return y;
+    }
+
+    public double get(int idx) {
+        switch (idx) {
+            case 0:
+                return x;
+            case 1:
+                return y;
+            default:
+                throw new ArrayIndexOutOfBoundsException("Attempting to get value @ index " + idx + " in a vector of size 2");
+        }
+    }
+
+    public Vector2 add(Vector2 v) {
+        return new Vector2(x + v.x, y + v.y);
+    }
+
+    public Vector2 add(double s) {
+        return new Vector2(x + s, y + s);
+    }
+
+    public Vector2 subtract(Vector2 v) {
+        return new Vector2(x - v.x, y - v.y);
+    }
+
+    public Vector2 subtract(double s) {
+        return new Vector2(x - s, y - s);
+    }
+
+    public Vector2 multiply(Vector2 v) {
+        return new Vector2(x * v.x, y * v.y);
+    }
+
+    public Vector2 multiply(double s) {
+        return new Vector2(x * s, y * s);
+    }
+
+    public Vector2 divide(Vector2 v) {
+        return new Vector2(x / v.x, y / v.y);
+    }
+
+    public Vector2 divide(double s) {
+        return new Vector2(x / s, y / s);
+    }
+
+    public Vector2 negate() {
+        return new Vector2(-x, -y);
+    }
+
+    public double dot(Vector2 v) {
+        return x * v.x + y * v.y;
+    }
+
+    /**
+     * @return the z component of the 3D cross product, the signed area of
+     * the parallelogram spanned by this vector and v
+     */
+    public double cross(Vector2 v) {
+        return x * v.y - y * v.x;
+    }
+
+    public double sum() {
+        return x + y;
+    }
+
+    public double sumOfSquares() {
+        return x * x + y * y;
+    }
+
+    /**
+     * This is the Manhattan norm
+     * @return Manhattan norm
+     */
+    public double normL1() {
+        return Math.abs(x) + Math.abs(y);
+    }
+
+    /**
+     * This is the Euclidean norm
+     * @return Euclidean norm
+     */
+    public double normL2() {
+        return Math.sqrt(sumOfSquares());
+    }
+
+    public double normMax() {
+        return Math.max(Math.abs(x), Math.abs(y));
+    }
+
+    /**
+     * @return this vector scaled to unit Euclidean length
+     */
+    public Vector2 normalize() throws ArithmeticException {
+        double norm = normL2();
+        if (norm == 0.0) {
+            throw new ArithmeticException("Cannot normalize a zero vector");
+        }
+        return divide(norm);
+    }
+
+    public Vector toVector() {
+        return Vector.wrap(toArray());
+    }
+
+    public double[] toArray() {
+        return new double[] { x, y };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Vector2)) {
+            return false;
+        }
+        Vector2 v = (Vector2) o;
+        return Double.compare(x, v.x) == 0 && Double.compare(y, v.y) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = Double.hashCode(x);
+        h = 31 * h + Double.hashCode(y);
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner sj = new StringJoiner(",");
+        sj.add(String.format("%10.4f", x));
+        sj.add(String.format("%10.4f", y));
+        return "Vector2 => [" + sj + "]";
+    }
+}
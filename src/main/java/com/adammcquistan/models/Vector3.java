@@ -0,0 +1,175 @@
+package com.adammcquistan.models;
+
+import java.util.StringJoiner;
+
+/**
+ * Immutable 3D vector in three final fields, the 3D counterpart of Vector2
+ */
+public final class Vector3 {
+    public static final Vector3 ZERO = new Vector3(0.0, 0.0, 0.0);
+
+    private final double x;
+    private final double y;
+    private final double z;
+
+    public Vector3(double x, double y, double z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    /**
+     * @return the 3 values of v, which must have size 3
+     */
+    public static Vector3 of(Vector v) {
+        if (v.size() != 3) {
+            throw new IllegalArgumentException("Vector size (" + v.size() + ") <> 3");
+        }
+        return new Vector3(v.get(0), v.get(1), v.get(2));
+    }
+
+    public double x() {
+        return x;
+    }
+
+    public double y() {
+        return y;
+    }
+
+    public double z() {
+        return z;
+    }
+
+    public double get(int idx) {
+        switch (idx) {
+            case 0:
+                return x;
+            case 1:
+                return y;
+            case 2:
+                return z;
+            default:
+                throw new ArrayIndexOutOfBoundsException("Attempting to get value @ index " + idx + " in a vector of size 3");
+        }
+    }
+
+    public Vector3 add(Vector3 v) {
+        return new Vector3(x + v.x, y + v.y, z + v.z);
+    }
+
+    public Vector3 add(double s) {
+        return new Vector3(x + s, y + s, z + s);
+    }
+
+    public Vector3 subtract(Vector3 v) {
+        return new Vector3(x - v.x, y - v.y, z - v.z);
+    }
+
+    public Vector3 subtract(double s) {
+        return new Vector3(x - s, y - s, z - s);
+    }
+
+    public Vector3 multiply(Vector3 v) {
+        return new Vector3(x * v.x, y * v.y, z * v.z);
+    }
+
+    public Vector3 multiply(double s) {
+        return new Vector3(x * s, y * s, z * s);
+    }
+
+    public Vector3 divide(Vector3 v) {
+        return new Vector3(x / v.x, y / v.y, z / v.z);
+    }
+
+    public Vector3 divide(double s) {
+        return new Vector3(x / s, y / s, z / s);
+    }
+
+    public Vector3 negate() {
+        return new Vector3(-x, -y, -z);
+    }
+
+    public double dot(Vector3 v) {
+        return x * v.x + y * v.y + z * v.z;
+    }
+
+    public Vector3 cross(Vector3 v) {
+        return new Vector3(y * v.z - z * v.y, z * v.x - x * v.z, x * v.y - y * v.x);
+    }
+
+    public double sum() {
+        return x + y + z;
+    }
+
+    public double sumOfSquares() {
+        return x * x + y * y + z * z;
+    }
+
+    /**
+     * This is the Manhattan norm
+     * @return Manhattan norm
+     */
+    public double normL1() {
+        return Math.abs(x) + Math.abs(y) + Math.abs(z);
+    }
+
+    /**
+     * This is the Euclidean norm
+     * @return Euclidean norm
+     */
+    public double normL2() {
+        return Math.sqrt(sumOfSquares());
+    }
+
+    public double normMax() {
+        return Math.max(Math.max(Math.abs(x), Math.abs(y)), Math.abs(z));
+    }
+
+    /**
+     * @return this vector scaled to unit Euclidean length
+     */
+    public Vector3 normalize() throws ArithmeticException {
+        double norm = normL2();
+        if (norm == 0.0) {
+            throw new ArithmeticException("Cannot normalize a zero vector");
+        }
+        return divide(norm);
+    }
+
+    public Vector toVector() {
+        return Vector.wrap(toArray());
+    }
+
+    public double[] toArray() {
+        return new double[] { x, y, z };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Vector3)) {
+            return false;
+        }
+        Vector3 v = (Vector3) o;
+        return Double.compare(x, v.x) == 0 && Double.compare(y, v.y) == 0 && Double.compare(z, v.z) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = Double.hashCode(x);
+        h = 31 * h + Double.hashCode(y);
+        h = 31 * h + Double.hashCode(z);
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner sj = new StringJoiner(",");
+        sj.add(String.format("%10.4f", x));
+        sj.add(String.format("%10.4f", y));
+        sj.add(String.format("%10.4f", z));
+        return "Vector3 => [" + sj + "]";
+    }
+}
@@ -0,0 +1,181 @@
+package com.adammcquistan.models;
+
+import java.util.StringJoiner;
+
+/**
+ * Immutable 4D vector in four final fields, the 4D counterpart of Vector2
+ */
+public final class Vector4 {
+    public static final Vector4 ZERO = new Vector4(0.0, 0.0, 0.0, 0.0);
+
+    private final double x;
+    private final double y;
+    private final double z;
+    private final double w;
+
+    public Vector4(double x, double y, double z, double w) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.w = w;
+    }
+
+    /**
+     * @return the 4 values of v, which must have size 4
+     */
+    public static Vector4 of(Vector v) {
+        if (v.size() != 4) {
+            throw new IllegalArgumentException("Vector size (" + v.size() + ") <> 4");
+        }
+        return new Vector4(v.get(0), v.get(1), v.get(2), v.get(3));
+    }
+
+    public double x() {
+        return x;
+    }
+
+    public double y() {
+        return y;
+    }
+
+    public double z() {
+        return z;
+    }
+
+    public double w() {
+        return w;
+    }
+
+    public double get(int idx) {
+        switch (idx) {
+            case 0:
+                return x;
+            case 1:
+                return y;
+            case 2:
+                return z;
+            case 3:
+                return w;
+            default:
+                throw new ArrayIndexOutOfBoundsException("Attempting to get value @ index " + idx + " in a vector of size 4");
+        }
+    }
+
+    public Vector4 add(Vector4 v) {
+        return new Vector4(x + v.x, y + v.y, z + v.z, w + v.w);
+    }
+
+    public Vector4 add(double s) {
+        return new Vector4(x + s, y + s, z + s, w + s);
+    }
+
+    public Vector4 subtract(Vector4 v) {
+        return new Vector4(x - v.x, y - v.y, z - v.z, w - v.w);
+    }
+
+    public Vector4 subtract(double s) {
+        return new Vector4(x - s, y - s, z - s, w - s);
+    }
+
+    public Vector4 multiply(Vector4 v) {
+        return new Vector4(x * v.x, y * v.y, z * v.z, w * v.w);
+    }
+
+    public Vector4 multiply(double s) {
+        return new Vector4(x * s, y * s, z * s, w * s);
+    }
+
+    public Vector4 divide(Vector4 v) {
+        return new Vector4(x / v.x, y / v.y, z / v.z, w / v.w);
+    }
+
+    public Vector4 divide(double s) {
+        return new Vector4(x / s, y / s, z / s, w / s);
+    }
+
+    public Vector4 negate() {
+        return new Vector4(-x, -y, -z, -w);
+    }
+
+    public double dot(Vector4 v) {
+        return x * v.x + y * v.y + z * v.z + w * v.w;
+    }
+
+    public double sum() {
+        return x + y + z + w;
+    }
+
+    public double sumOfSquares() {
+        return x * x + y * y + z * z + w * w;
+    }
+
+    /**
+     * This is the Manhattan norm
+     * @return Manhattan norm
+     */
+    public double normL1() {
+        return Math.abs(x) + Math.abs(y) + Math.abs(z) + Math.abs(w);
+    }
+
+    /**
+     * This is the Euclidean norm
+     * @return Euclidean norm
+     */
+    public double normL2() {
+        return Math.sqrt(sumOfSquares());
+    }
+
+    public double normMax() {
+        return Math.max(Math.max(Math.max(Math.abs(x), Math.abs(y)), Math.abs(z)), Math.abs(w));
+    }
+
+    /**
+     * @return this vector scaled to unit Euclidean length
+     */
+    public Vector4 normalize() throws ArithmeticException {
+        double norm = normL2();
+        if (norm == 0.0) {
+            throw new ArithmeticException("Cannot normalize a zero vector");
+        }
+        return divide(norm);
+    }
+
+    public Vector toVector() {
+        return Vector.wrap(toArray());
+    }
+
+    public double[] toArray() {
+        return new double[] { x, y, z, w };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Vector4)) {
+            return false;
+        }
+        Vector4 v = (Vector4) o;
+        return Double.compare(x, v.x) == 0 && Double.compare(y, v.y) == 0 && Double.compare(z, v.z) == 0 && Double.compare(w, v.w) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = Double.hashCode(x);
+        h = 31 * h + Double.hashCode(y);
+        h = 31 * h + Double.hashCode(z);
+        h = 31 * h + Double.hashCode(w);
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner sj = new StringJoiner(",");
+        sj.add(String.format("%10.4f", x));
+        sj.add(String.format("%10.4f", y));
+        sj.add(String.format("%10.4f", z));
+        sj.add(String.format("%10.4f", w));
+        return "Vector4 => [" + sj + "]";
+    }
+}
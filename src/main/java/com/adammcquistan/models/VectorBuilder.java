@@ -0,0 +1,79 @@
+package com.adammcquistan.models;
+
+import java.util.Arrays;
+
+/**
+ * Accumulates values for a Vector in a growable array, for ingesting more
+ * values than Vector.append is meant for. Growth is geometric so adds are
+ * amortized O(1), and build() hands over the array without copying it when
+ * the capacity hint was exact.
+ */
+public class VectorBuilder {
+    private static final int INIT_CAPACITY = 100;
+
+    private double[] data;
+    private int size;
+
+    public VectorBuilder() {
+        this(INIT_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize capacity hint, the number of values expected
+     */
+    public VectorBuilder(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size must be non-negative, got " + expectedSize);
+        }
+        data = new double[expectedSize];
+    }
+
+    public VectorBuilder add(double x) {
+        ensureCapacity(size + 1);
+        data[size++] = x;
+        return this;
+    }
+
+    public VectorBuilder addAll(double[] arr) {
+        return addAll(arr, 0, arr.length);
+    }
+
+    public VectorBuilder addAll(double[] arr, int from, int length) {
+        ensureCapacity(size + length);
+        System.arraycopy(arr, from, data, size, length);
+        size += length;
+        return this;
+    }
+
+    public VectorBuilder addAll(Vector v) {
+        ensureCapacity(size + v.size());
+        v.copyTo(data, size);
+        size += v.size();
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void ensureCapacity(int minCapacity) {
+        if (minCapacity < 0) {
+            throw new IllegalStateException("Vector would exceed the maximum array size");
+        }
+        if (minCapacity > data.length) {
+            long grown = Math.max((long) INIT_CAPACITY, data.length + (long) (data.length >> 1));
+            int capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(grown, minCapacity));
+            data = Arrays.copyOf(data, capacity);
+        }
+    }
+
+    /**
+     * Creates the vector and resets this builder to empty
+     */
+    public Vector build() {
+        double[] values = size == data.length ? data : Arrays.copyOf(data, size);
+        data = new double[0];
+        size = 0;
+        return Vector.wrap(values);
+    }
+}
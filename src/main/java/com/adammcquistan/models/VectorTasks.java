@@ -0,0 +1,129 @@
+package com.adammcquistan.models;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * Runs Vector operations over large vectors on the Parallelism pool.
+ *
+ * The index range is cut into chunks of CHUNK values. Element-wise work may
+ * run the chunks in any order. Reductions always evaluate every chunk on its
+ * own and combine the partial results along the same balanced binary tree
+ * over the chunk indices, whether the tree is walked by one thread or by many,
+ * so a sum only depends on the values and never on the number of cores.
+ */
+final class VectorTasks {
+    /** fixed so that the reduction tree does not change with the pool */
+    static final int CHUNK = 8192;
+
+    /** subtrees of at most this many chunks are walked without forking */
+    private static final int LEAF_CHUNKS = 4;
+
+    interface RangeAction {
+        void apply(int from, int to);
+    }
+
+    interface RangeReduction {
+        double apply(int from, int to);
+    }
+
+    private VectorTasks() {
+    }
+
+    static boolean useFor(int length) {
+        return length >= Parallelism.getVectorThreshold();
+    }
+
+    static void forEach(int n, RangeAction action) {
+        ForkJoinPool pool = Parallelism.getPool();
+        if (pool.getParallelism() <= 1) {
+            action.apply(0, n);
+            return;
+        }
+        pool.invoke(new ForEachTask(n, action, 0, chunks(n)));
+    }
+
+    static double reduce(int n, RangeReduction leaf, DoubleBinaryOperator combine) {
+        ForkJoinPool pool = Parallelism.getPool();
+        if (pool.getParallelism() <= 1) {
+            return reduce(n, leaf, combine, 0, chunks(n));
+        }
+        return pool.invoke(new ReduceTask(n, leaf, combine, 0, chunks(n)));
+    }
+
+    private static int chunks(int n) {
+        return Math.max(1, (n + CHUNK - 1) / CHUNK);
+    }
+
+    /**
+     * Reduction over chunks [c0, c1) on the calling thread
+     */
+    private static double reduce(int n, RangeReduction leaf, DoubleBinaryOperator combine, int c0, int c1) {
+        if (c1 - c0 == 1) {
+            return leaf.apply(c0 * CHUNK, Math.min(n, c1 * CHUNK));
+        }
+        int mid = c0 + (c1 - c0) / 2;
+        return combine.applyAsDouble(reduce(n, leaf, combine, c0, mid), reduce(n, leaf, combine, mid, c1));
+    }
+
+    private static final class ForEachTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int n;
+        private final RangeAction action;
+        private final int c0, c1;
+
+        ForEachTask(int n, RangeAction action, int c0, int c1) {
+            this.n = n;
+            this.action = action;
+            this.c0 = c0;
+            this.c1 = c1;
+        }
+
+        @Override
+        protected void compute() {
+            if (c1 - c0 <= LEAF_CHUNKS) {
+                action.apply(c0 * CHUNK, Math.min(n, c1 * CHUNK));
+                return;
+            }
+            int mid = c0 + (c1 - c0) / 2;
+            invokeAll(new ForEachTask(n, action, c0, mid), new ForEachTask(n, action, mid, c1));
+        }
+    }
+
+    /**
+     * Splits at the same midpoints as the sequential reduce, so the partial
+     * results meet in the same order
+     */
+    private static final class ReduceTask extends RecursiveTask<Double> {
+        private static final long serialVersionUID = 1L;
+
+        private final int n;
+        private final RangeReduction leaf;
+        private final DoubleBinaryOperator combine;
+        private final int c0, c1;
+
+        ReduceTask(int n, RangeReduction leaf, DoubleBinaryOperator combine, int c0, int c1) {
+            this.n = n;
+            this.leaf = leaf;
+            this.combine = combine;
+            this.c0 = c0;
+            this.c1 = c1;
+        }
+
+        @Override
+        protected Double compute() {
+            if (c1 - c0 <= LEAF_CHUNKS) {
+                return reduce(n, leaf, combine, c0, c1);
+            }
+            int mid = c0 + (c1 - c0) / 2;
+            ReduceTask left = new ReduceTask(n, leaf, combine, c0, mid);
+            ReduceTask right = new ReduceTask(n, leaf, combine, mid, c1);
+            left.fork();
+            double r = right.compute();
+            return combine.applyAsDouble(left.join(), r);
+        }
+    }
+}
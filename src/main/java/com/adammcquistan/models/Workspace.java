@@ -0,0 +1,176 @@
+package com.adammcquistan.models;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Pool of scratch arrays for kernels and decompositions, so that a loop
+ * repeating the same kind of work stops allocating once it has warmed up.
+ *
+ * acquire hands out an array of at least the requested length, rounded up to
+ * a power of two, and release takes it back for the next acquire of the same
+ * size class. Arrays come back with whatever the last user left in them.
+ * Every acquired array should be released exactly once and not touched
+ * afterwards. The workspace keeps track of the arrays it has handed out and
+ * refuses any other array, including one released a second time.
+ *
+ * A Workspace is not thread safe, local() gives each thread its own. Only
+ * code handed a workspace draws from one, the plain API keeps allocating
+ * so that nothing stays pinned after a one-off large call; trim() lets go
+ * of the pooled arrays. highWaterMark() reports the most bytes that were
+ * ever out at the same time, allocatedBytes() how many bytes the pool ever
+ * had to allocate, the latter stays put once a loop is in its steady state.
+ */
+public final class Workspace {
+    /** 2^30 elements is the largest size class an int length can ask for */
+    private static final int CLASSES = 31;
+
+    private static final ThreadLocal<Workspace> LOCAL = ThreadLocal.withInitial(Workspace::new);
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private final ArrayDeque<double[]>[] doubles = new ArrayDeque[CLASSES];
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private final ArrayDeque<float[]>[] floats = new ArrayDeque[CLASSES];
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private final ArrayDeque<int[]>[] ints = new ArrayDeque[CLASSES];
+
+    /** arrays handed out and not yet released, compared by identity */
+    private final Set<Object> outstanding = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private long inUse;
+    private long highWaterMark;
+    private long allocated;
+
+    /**
+     * @return the workspace of the calling thread
+     */
+    public static Workspace local() {
+        return LOCAL.get();
+    }
+
+    private static int sizeClass(int length) {
+        if (length < 0) {
+            throw new IllegalArgumentException("Buffer length must not be negative, got " + length);
+        }
+        if (length > 1 << (CLASSES - 1)) {
+            throw new IllegalArgumentException("Buffer length " + length + " is larger than the largest size class");
+        }
+        return length <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(length - 1);
+    }
+
+    /**
+     * Size class of a returned array, refusing arrays that are not checked out
+     * of this workspace
+     */
+    private int returnedClass(Object buffer, int length) {
+        if (!outstanding.remove(buffer)) {
+            throw new IllegalArgumentException("Buffer of length " + length + " is not checked out of this workspace");
+        }
+        return Integer.numberOfTrailingZeros(length);
+    }
+
+    private void taken(Object buffer, long bytes) {
+        outstanding.add(buffer);
+        inUse += bytes;
+        highWaterMark = Math.max(highWaterMark, inUse);
+    }
+
+    public double[] acquire(int length) {
+        int c = sizeClass(length);
+        ArrayDeque<double[]> free = doubles[c];
+        double[] buffer = free == null ? null : free.pollLast();
+        if (buffer == null) {
+            buffer = new double[1 << c];
+            allocated += (long) Double.BYTES << c;
+        }
+        taken(buffer, (long) Double.BYTES << c);
+        return buffer;
+    }
+
+    public void release(double[] buffer) {
+        int c = returnedClass(buffer, buffer.length);
+        if (doubles[c] == null) {
+            doubles[c] = new ArrayDeque<>();
+        }
+        doubles[c].addLast(buffer);
+        inUse -= (long) Double.BYTES << c;
+    }
+
+    public float[] acquireFloats(int length) {
+        int c = sizeClass(length);
+        ArrayDeque<float[]> free = floats[c];
+        float[] buffer = free == null ? null : free.pollLast();
+        if (buffer == null) {
+            buffer = new float[1 << c];
+            allocated += (long) Float.BYTES << c;
+        }
+        taken(buffer, (long) Float.BYTES << c);
+        return buffer;
+    }
+
+    public void release(float[] buffer) {
+        int c = returnedClass(buffer, buffer.length);
+        if (floats[c] == null) {
+            floats[c] = new ArrayDeque<>();
+        }
+        floats[c].addLast(buffer);
+        inUse -= (long) Float.BYTES << c;
+    }
+
+    public int[] acquireInts(int length) {
+        int c = sizeClass(length);
+        ArrayDeque<int[]> free = ints[c];
+        int[] buffer = free == null ? null : free.pollLast();
+        if (buffer == null) {
+            buffer = new int[1 << c];
+            allocated += (long) Integer.BYTES << c;
+        }
+        taken(buffer, (long) Integer.BYTES << c);
+        return buffer;
+    }
+
+    public void release(int[] buffer) {
+        int c = returnedClass(buffer, buffer.length);
+        if (ints[c] == null) {
+            ints[c] = new ArrayDeque<>();
+        }
+        ints[c].addLast(buffer);
+        inUse -= (long) Integer.BYTES << c;
+    }
+
+    /**
+     * @return bytes currently acquired and not yet released
+     */
+    public long inUse() {
+        return inUse;
+    }
+
+    /**
+     * @return the most bytes that were acquired at the same time, the size
+     * the pool needs to cover the work done so far
+     */
+    public long highWaterMark() {
+        return highWaterMark;
+    }
+
+    /**
+     * @return the bytes of every array this workspace ever allocated
+     */
+    public long allocatedBytes() {
+        return allocated;
+    }
+
+    /**
+     * Drops every pooled array so the garbage collector can have them, the
+     * statistics are kept
+     */
+    public void trim() {
+        for (int c = 0; c < CLASSES; c++) {
+            doubles[c] = null;
+            floats[c] = null;
+            ints[c] = null;
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package com.adammcquistan.models;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SimdKernels on the incubating Vector API. This is the only class built
+ * against jdk.incubator.vector, it lives in the simd source set and Simd
+ * loads it reflectively, so the rest of the library compiles and runs
+ * without the module. Reductions keep one lane wise accumulator and fold
+ * the lanes at the end, so their results can differ from the scalar loops
+ * in the last bits.
+ */
+final class VectorApiKernels implements SimdKernels {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    // spelled out in full, FloatVector alone is this package's single precision vector
+    private static final VectorSpecies<Float> FLOAT_SPECIES = jdk.incubator.vector.FloatVector.SPECIES_PREFERRED;
+    /** doubles in the same vector shape, half as many lanes as FLOAT_SPECIES */
+    private static final VectorSpecies<Double> WIDE_SPECIES = VectorSpecies.of(double.class, FLOAT_SPECIES.vectorShape());
+
+    VectorApiKernels() {
+    }
+
+    @Override
+    public int lanes() {
+        return SPECIES.length();
+    }
+
+    @Override
+    public double dot(double[] a, int aOff, double[] b, int bOff, int n) {
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += SPECIES.length()) {
+            DoubleVector va = DoubleVector.fromArray(SPECIES, a, aOff + i);
+            DoubleVector vb = DoubleVector.fromArray(SPECIES, b, bOff + i);
+            acc = acc.add(va.mul(vb));
+        }
+        double s = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < n; i++) {
+            s += a[aOff + i] * b[bOff + i];
+        }
+        return s;
+    }
+
+    @Override
+    public double sum(double[] a, int aOff, int n) {
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += SPECIES.length()) {
+            acc = acc.add(DoubleVector.fromArray(SPECIES, a, aOff + i));
+        }
+        double s = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < n; i++) {
+            s += a[aOff + i];
+        }
+        return s;
+    }
+
+    @Override
+    public double sumOfSquares(double[] a, int aOff, int n) {
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += SPECIES.length()) {
+            DoubleVector va = DoubleVector.fromArray(SPECIES, a, aOff + i);
+            acc = acc.add(va.mul(va));
+        }
+        double s = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < n; i++) {
+            s += a[aOff + i] * a[aOff + i];
+        }
+        return s;
+    }
+
+    @Override
+    public double normL1(double[] a, int aOff, int n) {
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += SPECIES.length()) {
+            acc = acc.add(DoubleVector.fromArray(SPECIES, a, aOff + i).abs());
+        }
+        double s = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < n; i++) {
+            s += Math.abs(a[aOff + i]);
+        }
+        return s;
+    }
+
+    @Override
+    public double normMax(double[] a, int aOff, int n) {
+        DoubleVector acc = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += SPECIES.length()) {
+            acc = acc.max(DoubleVector.fromArray(SPECIES, a, aOff + i).abs());
+        }
+        double m = acc.reduceLanes(VectorOperators.MAX);
+        for (; i < n; i++) {
+            m = Math.max(m, Math.abs(a[aOff + i]));
+        }
+        return m;
+    }
+
+    @Override
+    public void add(double[] a, int aOff, double[] b, int bOff, double[] dest, int dOff, int n) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += SPECIES.length()) {
+            DoubleVector va = DoubleVector.fromArray(SPECIES, a, aOff + i);
+            DoubleVector vb = DoubleVector.fromArray(SPECIES, b, bOff + i);
+            va.add(vb).intoArray(dest, dOff + i);
+        }
+        for (; i < n; i++) {
+            dest[dOff + i] = a[aOff + i] + b[bOff + i];
+        }
+    }
+
+    @Override
+    public void add(double[] a, int aOff, double x, double[] dest, int dOff, int n) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, a, aOff + i).add(x).intoArray(dest, dOff + i);
+        }
+        for (; i < n; i++) {
+            dest[dOff + i] = a[aOff + i] + x;
+        }
+    }
+
+    @Override
+    public void subtract(double[] a, int aOff, double[] b, int bOff, double[] dest, int dOff, int n) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += SPECIES.length()) {
+            DoubleVector va = DoubleVector.fromArray(SPECIES, a, aOff + i);
+            DoubleVector vb = DoubleVector.fromArray(SPECIES, b, bOff + i);
+            va.sub(vb).intoArray(dest, dOff + i);
+        }
+        for (; i < n; i++) {
+            dest[dOff + i] = a[aOff + i] - b[bOff + i];
+        }
+    }
+
+    @Override
+    public void subtract(double[] a, int aOff, double x, double[] dest, int dOff, int n) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, a, aOff + i).sub(x).intoArray(dest, dOff + i);
+        }
+        for (; i < n; i++) {
+            dest[dOff + i] = a[aOff + i] - x;
+        }
+    }
+
+    @Override
+    public void multiply(double[] a, int aOff, double[] b, int bOff, double[] dest, int dOff, int n) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += SPECIES.length()) {
+            DoubleVector va = DoubleVector.fromArray(SPECIES, a, aOff + i);
+            DoubleVector vb = DoubleVector.fromArray(SPECIES, b, bOff + i);
+            va.mul(vb).intoArray(dest, dOff + i);
+        }
+        for (; i < n; i++) {
+            dest[dOff + i] = a[aOff + i] * b[bOff + i];
+        }
+    }
+
+    @Override
+    public void multiply(double[] a, int aOff, double x, double[] dest, int dOff, int n) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, a, aOff + i).mul(x).intoArray(dest, dOff + i);
+        }
+        for (; i < n; i++) {
+            dest[dOff + i] = a[aOff + i] * x;
+        }
+    }
+
+    @Override
+    public void divide(double[] a, int aOff, double[] b, int bOff, double[] dest, int dOff, int n) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += SPECIES.length()) {
+            DoubleVector va = DoubleVector.fromArray(SPECIES, a, aOff + i);
+            DoubleVector vb = DoubleVector.fromArray(SPECIES, b, bOff + i);
+            va.div(vb).intoArray(dest, dOff + i);
+        }
+        for (; i < n; i++) {
+            dest[dOff + i] = a[aOff + i] / b[bOff + i];
+        }
+    }
+
+    @Override
+    public void divide(double[] a, int aOff, double x, double[] dest, int dOff, int n) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, a, aOff + i).div(x).intoArray(dest, dOff + i);
+        }
+        for (; i < n; i++) {
+            dest[dOff + i] = a[aOff + i] / x;
+        }
+    }
+
+    @Override
+    public void axpy(double alpha, double[] x, int xOff, double[] y, int yOff, int n) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(n); i < bound; i += SPECIES.length()) {
+            DoubleVector vx = DoubleVector.fromArray(SPECIES, x, xOff + i);
+            DoubleVector vy = DoubleVector.fromArray(SPECIES, y, yOff + i);
+            vx.mul(alpha).add(vy).intoArray(y, yOff + i);
+        }
+        for (; i < n; i++) {
+            y[yOff + i] += alpha * x[xOff + i];
+        }
+    }
+
+    /*
+     * Single precision kernels for FloatVector
+     */
+
+    @Override
+    public float dot(float[] a, int aOff, float[] b, int bOff, int n) {
+        jdk.incubator.vector.FloatVector acc = jdk.incubator.vector.FloatVector.zero(FLOAT_SPECIES);
+        int i = 0;
+        for (int bound = FLOAT_SPECIES.loopBound(n); i < bound; i += FLOAT_SPECIES.length()) {
+            jdk.incubator.vector.FloatVector va = jdk.incubator.vector.FloatVector.fromArray(FLOAT_SPECIES, a, aOff + i);
+            jdk.incubator.vector.FloatVector vb = jdk.incubator.vector.FloatVector.fromArray(FLOAT_SPECIES, b, bOff + i);
+            acc = acc.add(va.mul(vb));
+        }
+        float s = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < n; i++) {
+            s += a[aOff + i] * b[bOff + i];
+        }
+        return s;
+    }
+
+    /**
+     * Widens each half of the float lanes to double before multiplying, the
+     * product of two floats is then exact and only the sum rounds
+     */
+    @Override
+    public double dotDouble(float[] a, int aOff, float[] b, int bOff, int n) {
+        DoubleVector lo = DoubleVector.zero(WIDE_SPECIES);
+        DoubleVector hi = DoubleVector.zero(WIDE_SPECIES);
+        int i = 0;
+        for (int bound = FLOAT_SPECIES.loopBound(n); i < bound; i += FLOAT_SPECIES.length()) {
+            jdk.incubator.vector.FloatVector va = jdk.incubator.vector.FloatVector.fromArray(FLOAT_SPECIES, a, aOff + i);
+            jdk.incubator.vector.FloatVector vb = jdk.incubator.vector.FloatVector.fromArray(FLOAT_SPECIES, b, bOff + i);
+            DoubleVector a0 = (DoubleVector) va.convertShape(VectorOperators.F2D, WIDE_SPECIES, 0);
+            DoubleVector a1 = (DoubleVector) va.convertShape(VectorOperators.F2D, WIDE_SPECIES, 1);
+            DoubleVector b0 = (DoubleVector) vb.convertShape(VectorOperators.F2D, WIDE_SPECIES, 0);
+            DoubleVector b1 = (DoubleVector) vb.convertShape(VectorOperators.F2D, WIDE_SPECIES, 1);
+            lo = lo.add(a0.mul(b0));
+            hi = hi.add(a1.mul(b1));
+        }
+        double s = lo.add(hi).reduceLanes(VectorOperators.ADD);
+        for (; i < n; i++) {
+            s += (double) a[aOff + i] * b[bOff + i];
+        }
+        return s;
+    }
+
+    /**
+     * C(rows, 0..nc) += A(rows, 0..kc) * panel for a kc x nc panel packed row
+     * by row: four rows of C by two vectors of columns are kept in registers
+     * across the whole of kc, so each packed row of the panel is loaded once
+     * per four rows of C. Columns past the last full pair of vectors are left
+     * to the caller.
+     * @return the number of columns done
+     */
+    @Override
+    public int floatPanel(int rowStart, int rowEnd, int kc, int nc,
+            float[] a, int aOff, int aRs, int aCs, float[] bPack, float[] c, int cOff, int cRs) {
+        int lanes = FLOAT_SPECIES.length();
+        int width = nc - nc % (2 * lanes);
+        int i = rowStart;
+        for (; i + 3 < rowEnd; i += 4) {
+            int a0 = aOff + i * aRs;
+            int a1 = a0 + aRs;
+            int a2 = a1 + aRs;
+            int a3 = a2 + aRs;
+            for (int j = 0; j < width; j += 2 * lanes) {
+                jdk.incubator.vector.FloatVector c00 = jdk.incubator.vector.FloatVector.zero(FLOAT_SPECIES);
+                jdk.incubator.vector.FloatVector c01 = c00, c10 = c00, c11 = c00, c20 = c00, c21 = c00, c30 = c00, c31 = c00;
+                for (int p = 0; p < kc; p++) {
+                    jdk.incubator.vector.FloatVector b0 = jdk.incubator.vector.FloatVector.fromArray(FLOAT_SPECIES, bPack, p * nc + j);
+                    jdk.incubator.vector.FloatVector b1 = jdk.incubator.vector.FloatVector.fromArray(FLOAT_SPECIES, bPack, p * nc + j + lanes);
+                    float x0 = a[a0 + p * aCs];
+                    float x1 = a[a1 + p * aCs];
+                    float x2 = a[a2 + p * aCs];
+                    float x3 = a[a3 + p * aCs];
+                    c00 = c00.add(b0.mul(x0));
+                    c01 = c01.add(b1.mul(x0));
+                    c10 = c10.add(b0.mul(x1));
+                    c11 = c11.add(b1.mul(x1));
+                    c20 = c20.add(b0.mul(x2));
+                    c21 = c21.add(b1.mul(x2));
+                    c30 = c30.add(b0.mul(x3));
+                    c31 = c31.add(b1.mul(x3));
+                }
+                addInto(c00, c, cOff + i * cRs + j);
+                addInto(c01, c, cOff + i * cRs + j + lanes);
+                addInto(c10, c, cOff + (i + 1) * cRs + j);
+                addInto(c11, c, cOff + (i + 1) * cRs + j + lanes);
+                addInto(c20, c, cOff + (i + 2) * cRs + j);
+                addInto(c21, c, cOff + (i + 2) * cRs + j + lanes);
+                addInto(c30, c, cOff + (i + 3) * cRs + j);
+                addInto(c31, c, cOff + (i + 3) * cRs + j + lanes);
+            }
+        }
+        for (; i < rowEnd; i++) {
+            int ai = aOff + i * aRs;
+            for (int j = 0; j < width; j += lanes) {
+                jdk.incubator.vector.FloatVector acc = jdk.incubator.vector.FloatVector.zero(FLOAT_SPECIES);
+                for (int p = 0; p < kc; p++) {
+                    acc = acc.add(jdk.incubator.vector.FloatVector.fromArray(FLOAT_SPECIES, bPack, p * nc + j).mul(a[ai + p * aCs]));
+                }
+                addInto(acc, c, cOff + i * cRs + j);
+            }
+        }
+        return width;
+    }
+
+    private static void addInto(jdk.incubator.vector.FloatVector v, float[] c, int off) {
+        jdk.incubator.vector.FloatVector.fromArray(FLOAT_SPECIES, c, off).add(v).intoArray(c, off);
+    }
+}
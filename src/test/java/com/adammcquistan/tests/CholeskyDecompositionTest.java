@@ -0,0 +1,145 @@
+package com.adammcquistan.tests;
+
+import static com.adammcquistan.tests.MatrixAssertions.assertMatrixEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.adammcquistan.models.CholeskyDecomposition;
+import com.adammcquistan.models.LUDecomposition;
+import com.adammcquistan.models.Matrix;
+import com.adammcquistan.models.Vector;
+
+public class CholeskyDecompositionTest {
+
+    private static Matrix spd;
+    private static CholeskyDecomposition cholesky;
+    private static final double ALLOWED_DELTA = 0.00001d;
+
+    /**
+     * X^T X + n I for an n x n X of small integers, spans several blocks
+     */
+    private static Matrix gram(int n, int seed) {
+        Matrix x = new Matrix(n, n);
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                x.set(i, j, ((i * 7 + j * 13 + seed) % 17) / 4.0 - 2);
+            }
+        }
+        Matrix g = x.T().matmul(x);
+        for (int i = 0; i < n; i++) {
+            g.set(i, i, g.get(i, i) + n);
+        }
+        return g;
+    }
+
+    @BeforeAll
+    public static void setUp() {
+        spd = gram(70, 3);
+        cholesky = new CholeskyDecomposition(spd);
+    }
+
+    @Test
+    public void testFactorReproducesMatrix() {
+        assertTrue(cholesky.isPositiveDefinite());
+        Matrix l = cholesky.getL();
+        for (int i = 0; i < 70; i++) {
+            for (int j = i + 1; j < 70; j++) {
+                assertEquals(0.0, l.get(i, j));
+            }
+        }
+        assertMatrixEquals(spd, l.matmul(l.T()));
+    }
+
+    @Test
+    public void testSolve() {
+        Vector b = new Vector(70);
+        for (int i = 0; i < 70; i++) {
+            b.append(i % 5 - 2);
+        }
+        Vector x = cholesky.solve(b);
+        Vector expected = new LUDecomposition(spd).solve(b);
+        for (int i = 0; i < 70; i++) {
+            assertEquals(expected.get(i), x.get(i), ALLOWED_DELTA);
+        }
+        Matrix bs = new Matrix(70, 3);
+        for (int i = 0; i < 70; i++) {
+            for (int j = 0; j < 3; j++) {
+                bs.set(i, j, (i * (j + 2)) % 9 - 4);
+            }
+        }
+        assertMatrixEquals(new LUDecomposition(spd).solve(bs), cholesky.solve(bs));
+    }
+
+    @Test
+    public void testInverseAndDeterminant() {
+        assertMatrixEquals(Matrix.makeIdentityMatrix(70), spd.matmul(cholesky.inverse()));
+        // getInverse takes the Cholesky route for this matrix
+        assertTrue(spd.isSymmetric());
+        assertMatrixEquals(cholesky.inverse(), spd.getInverse());
+
+        Matrix small = new Matrix(new double[][] {
+            { 4, 2, 0 },
+            { 2, 5, 1 },
+            { 0, 1, 3 }
+        });
+        CholeskyDecomposition c = new CholeskyDecomposition(small);
+        assertEquals(new LUDecomposition(small).determinant(), c.determinant(), ALLOWED_DELTA);
+        assertEquals(Math.log(44), c.logDeterminant(), ALLOWED_DELTA);
+    }
+
+    @Test
+    public void testNotPositiveDefinite() {
+        Matrix indefinite = new Matrix(new double[][] {
+            { 1, 2 },
+            { 2, 1 }
+        });
+        CholeskyDecomposition c = new CholeskyDecomposition(indefinite);
+        assertFalse(c.isPositiveDefinite());
+        assertThrows(ArithmeticException.class, () -> {
+            c.solve(new Vector(new double[] { 1, 1 }));
+        });
+        // falls back to LU
+        assertMatrixEquals(Matrix.makeIdentityMatrix(2), indefinite.matmul(indefinite.getInverse()));
+        assertFalse(new Matrix(new double[][] { { 1, 2 }, { 3, 1 } }).isSymmetric());
+    }
+
+    @Test
+    public void testBadlyScaledIsPositiveDefinite() {
+        Matrix scaled = new Matrix(new double[][] {
+            { 1e17, 0 },
+            { 0, 1 }
+        });
+        assertTrue(new CholeskyDecomposition(scaled).isPositiveDefinite());
+        Matrix inverse = scaled.getInverse();
+        assertEquals(1e-17, inverse.get(0, 0), 1e-30);
+        assertEquals(1.0, inverse.get(1, 1), ALLOWED_DELTA);
+    }
+
+    @Test
+    public void testRankOneUpdateAndDowndate() {
+        Matrix a = gram(40, 1);
+        CholeskyDecomposition c = new CholeskyDecomposition(a);
+        double[] values = new double[40];
+        for (int i = 0; i < 40; i++) {
+            values[i] = (i % 7) - 3;
+        }
+        Vector x = new Vector(values);
+        Matrix xx = new Matrix(new double[][] { values }).T().matmul(new Matrix(new double[][] { values }));
+
+        c.update(x);
+        assertMatrixEquals(new CholeskyDecomposition(a.add(xx)).getL(), c.getL());
+        c.downdate(x);
+        assertMatrixEquals(new CholeskyDecomposition(a).getL(), c.getL());
+
+        Matrix before = c.getL();
+        assertThrows(ArithmeticException.class, () -> {
+            c.downdate(x.multiply(100));
+        });
+        assertMatrixEquals(before, c.getL());
+    }
+}
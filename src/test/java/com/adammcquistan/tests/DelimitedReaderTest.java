@@ -0,0 +1,135 @@
+package com.adammcquistan.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import com.adammcquistan.models.DelimitedReader;
+import com.adammcquistan.models.Matrix;
+import com.adammcquistan.models.Parallelism;
+
+public class DelimitedReaderTest {
+
+    private static ReadableByteChannel channel(String text) {
+        return Channels.newChannel(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testReadCsv() throws IOException {
+        String text = "a,b,c\r\n"
+                + "1, 2.5 ,-3\r\n"
+                + "\n"
+                + "1e3,-0.125E-2,NaN\n"
+                + "+7,-Infinity,.5";
+        Matrix m = DelimitedReader.csv().skipHeader(true).read(channel(text));
+        assertEquals(3, m.rows());
+        assertEquals(3, m.cols());
+        assertEquals(2.5, m.get(0, 1));
+        assertEquals(-3.0, m.get(0, 2));
+        assertEquals(1000.0, m.get(1, 0));
+        assertEquals(-0.00125, m.get(1, 1));
+        assertEquals(Double.NaN, m.get(1, 2));
+        assertEquals(7.0, m.get(2, 0));
+        assertEquals(Double.NEGATIVE_INFINITY, m.get(2, 1));
+        assertEquals(0.5, m.get(2, 2));
+    }
+
+    @Test
+    public void testParsingMatchesDoubleParseDouble() throws IOException {
+        String[] values = {
+            "0.1", "123456789012345678901234", "3.141592653589793238", "1e-320",
+            "2.2250738585072014E-308", "1.7976931348623157e308", "9007199254740993",
+            "0.000000000000000000000000000001", "-0", "4.35", "1e23", "5e-22"
+        };
+        Matrix m = DelimitedReader.tsv().read(channel(String.join("\t", values) + "\n"));
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(Double.parseDouble(values[i]), m.get(0, i), values[i]);
+        }
+    }
+
+    @Test
+    public void testReadBlocksAcrossSmallChunks() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 103; i++) {
+            text.append(i).append(',').append(i * 0.5).append('\n');
+        }
+        List<Long> starts = new ArrayList<>();
+        double[] sum = new double[1];
+        // chunks shorter than some lines force the carry over and buffer growth
+        long rows = DelimitedReader.csv().chunkBytes(7).readBlocks(channel(text.toString()), 10, (block, firstRow) -> {
+            starts.add(firstRow);
+            assertEquals(firstRow == 100 ? 3 : 10, block.rows());
+            for (int r = 0; r < block.rows(); r++) {
+                assertEquals(firstRow + r, block.get(r, 0));
+                sum[0] += block.get(r, 1);
+            }
+        });
+        assertEquals(103, rows);
+        assertEquals(11, starts.size());
+        assertEquals(100L, (long) starts.get(10));
+        assertEquals(0.5 * 102 * 103 / 2, sum[0]);
+    }
+
+    @Test
+    public void testParallelMatchesSequential() throws IOException {
+        Random random = new Random(7);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            text.append(random.nextGaussian()).append(',')
+                .append(random.nextInt(1000)).append(',')
+                .append(String.format("%.6e", random.nextDouble())).append('\n');
+        }
+        Matrix sequential = DelimitedReader.csv().read(channel(text.toString()));
+        ForkJoinPool original = Parallelism.getPool();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Parallelism.setPool(pool);
+            Matrix parallel = DelimitedReader.csv().parallel(true).chunkBytes(100000).read(channel(text.toString()));
+            List<Matrix> blocks = new ArrayList<>();
+            DelimitedReader.csv().parallel(true).chunkBytes(100000).readBlocks(channel(text.toString()), 3000,
+                    (block, firstRow) -> blocks.add(block));
+            assertEquals(20000, parallel.rows());
+            assertEquals(7, blocks.size());
+            for (int i = 0; i < 20000; i++) {
+                for (int j = 0; j < 3; j++) {
+                    assertEquals(sequential.get(i, j), parallel.get(i, j));
+                    assertEquals(sequential.get(i, j), blocks.get(i / 3000).get(i % 3000, j));
+                }
+            }
+        } finally {
+            Parallelism.setPool(original);
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testMalformedInput() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            DelimitedReader.csv().read(channel("1,2\n3\n"));
+        });
+        NumberFormatException e = assertThrows(NumberFormatException.class, () -> {
+            DelimitedReader.csv().read(channel("1,2\n3,x4\n"));
+        });
+        assertEquals("Not a number: \"x4\" at byte 6", e.getMessage());
+        assertThrows(NumberFormatException.class, () -> {
+            DelimitedReader.csv().read(channel("1,2 3\n"));
+        });
+    }
+
+    @Test
+    public void testEmptyInput() throws IOException {
+        assertEquals(0, DelimitedReader.csv().read(channel("")).rows());
+        assertEquals(0, DelimitedReader.csv().skipHeader(true).read(channel("a,b\n")).rows());
+    }
+}
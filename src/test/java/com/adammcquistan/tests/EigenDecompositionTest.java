@@ -0,0 +1,129 @@
+package com.adammcquistan.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.adammcquistan.models.EigenDecomposition;
+import com.adammcquistan.models.Matrix;
+import com.adammcquistan.models.Vector;
+
+public class EigenDecompositionTest {
+
+    private static Matrix covariance;
+    private static final double ALLOWED_DELTA = 0.00001d;
+
+    /**
+     * X^T X / rows for a rows x n X with a few dominant directions
+     */
+    private static Matrix covariance(int rows, int n) {
+        Matrix x = new Matrix(rows, n);
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < n; j++) {
+                double noise = Math.sin(i * 12.9898 + j * 78.233) * 0.1;
+                double signal = Math.cos(i * 0.3) * (j % 3 == 0 ? 5 : 0) + Math.sin(i * 0.7) * (j % 5 == 1 ? 3 : 0);
+                x.set(i, j, signal + noise);
+            }
+        }
+        return x.T().matmul(x).multiply(1.0 / rows);
+    }
+
+    @BeforeAll
+    public static void setUp() {
+        covariance = covariance(300, 90);
+    }
+
+    private static void assertEigenpairs(Matrix a, EigenDecomposition eig) {
+        for (int i = 0; i < eig.size(); i++) {
+            Vector v = eig.getEigenvector(i);
+            assertEquals(1.0, v.normL2(), ALLOWED_DELTA);
+            Vector av = a.matvec(v);
+            for (int r = 0; r < a.rows(); r++) {
+                assertEquals(eig.getEigenvalue(i) * v.get(r), av.get(r), 1e-7);
+            }
+            if (i > 0) {
+                assertEquals(true, eig.getEigenvalue(i - 1) >= eig.getEigenvalue(i));
+            }
+        }
+    }
+
+    @Test
+    public void testSmallMatrix() {
+        Matrix a = new Matrix(new double[][] {
+            { 2, -1, 0 },
+            { -1, 2, -1 },
+            { 0, -1, 2 }
+        });
+        EigenDecomposition eig = new EigenDecomposition(a);
+        assertEquals(3, eig.size());
+        assertEquals(2 + Math.sqrt(2), eig.getEigenvalue(0), ALLOWED_DELTA);
+        assertEquals(2.0, eig.getEigenvalue(1), ALLOWED_DELTA);
+        assertEquals(2 - Math.sqrt(2), eig.getEigenvalue(2), ALLOWED_DELTA);
+        assertEigenpairs(a, eig);
+
+        // V diag(lambda) V^T gives back A
+        Matrix v = eig.getV();
+        Matrix scaled = v.multiply(eig.getEigenvalues());
+        Matrix back = scaled.matmul(v.T());
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                assertEquals(a.get(i, j), back.get(i, j), ALLOWED_DELTA);
+            }
+        }
+    }
+
+    @Test
+    public void testFullDecomposition() {
+        EigenDecomposition eig = new EigenDecomposition(covariance);
+        assertEquals(90, eig.size());
+        assertEigenpairs(covariance, eig);
+
+        EigenDecomposition valuesOnly = new EigenDecomposition(covariance, false);
+        for (int i = 0; i < 90; i++) {
+            assertEquals(eig.getEigenvalue(i), valuesOnly.getEigenvalue(i), 1e-9);
+        }
+        assertThrows(UnsupportedOperationException.class, () -> {
+            valuesOnly.getV();
+        });
+    }
+
+    @Test
+    public void testLargestByLanczos() {
+        EigenDecomposition full = new EigenDecomposition(covariance, false);
+        EigenDecomposition top = EigenDecomposition.largest(covariance, 5);
+        assertEquals(5, top.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(full.getEigenvalue(i), top.getEigenvalue(i), 1e-8);
+        }
+        assertEigenpairs(covariance, top);
+
+        // small enough to go dense
+        EigenDecomposition dense = EigenDecomposition.largest(covariance(50, 20), 3);
+        assertEquals(3, dense.size());
+        assertEquals(20, dense.getV().rows());
+    }
+
+    @Test
+    public void testRepeatedEigenvalues() {
+        // the identity plus a rank one term: one eigenvalue 41, the rest all 1
+        int n = 40;
+        Matrix a = Matrix.makeIdentityMatrix(n).add(1.0);
+        EigenDecomposition top = EigenDecomposition.largest(a, 3);
+        assertEquals(41.0, top.getEigenvalue(0), ALLOWED_DELTA);
+        assertEquals(1.0, top.getEigenvalue(1), ALLOWED_DELTA);
+        assertEquals(1.0, top.getEigenvalue(2), ALLOWED_DELTA);
+        assertEigenpairs(a, top);
+    }
+
+    @Test
+    public void testNotSymmetric() {
+        assertThrows(ArithmeticException.class, () -> {
+            new EigenDecomposition(new Matrix(new double[][] { { 1, 2 }, { 3, 4 } }));
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            EigenDecomposition.largest(covariance, 0);
+        });
+    }
+}
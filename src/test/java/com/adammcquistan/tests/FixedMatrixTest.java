@@ -0,0 +1,100 @@
+package com.adammcquistan.tests;
+
+import static com.adammcquistan.tests.MatrixAssertions.assertMatrixEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import com.adammcquistan.models.LUDecomposition;
+import com.adammcquistan.models.Matrix;
+import com.adammcquistan.models.Matrix2;
+import com.adammcquistan.models.Matrix3;
+import com.adammcquistan.models.Matrix4;
+import com.adammcquistan.models.Vector3;
+import com.adammcquistan.models.Vector4;
+
+public class FixedMatrixTest {
+
+    private static final double ALLOWED_DELTA = 0.00001d;
+
+    @Test
+    public void testMatrix2() {
+        Matrix2 a = new Matrix2(4, 7, 2, 6);
+        assertEquals(10.0, a.determinant(), ALLOWED_DELTA);
+        assertMatrixEquals(Matrix2.IDENTITY.toMatrix(), a.matmul(a.inverse()).toMatrix());
+        assertEquals(new Matrix2(4, 2, 7, 6), a.transpose());
+        assertThrows(ArithmeticException.class, () -> {
+            new Matrix2(1, 2, 2, 4).inverse();
+        });
+    }
+
+    @Test
+    public void testMatrix3MatchesMatrix() {
+        Matrix3 a = new Matrix3(
+                2, -1, 0,
+                -1, 2, -1,
+                0, -1, 2);
+        Matrix3 b = new Matrix3(
+                1, 2, 3,
+                0, 1, 4,
+                5, 6, 0);
+        Matrix ma = a.toMatrix();
+        Matrix mb = b.toMatrix();
+        assertMatrixEquals(ma.matmul(mb), a.matmul(b).toMatrix());
+        assertMatrixEquals(mb.getInverse(), b.inverse().toMatrix());
+        assertMatrixEquals(ma.add(mb), a.add(b).toMatrix());
+        assertEquals(1.0, b.determinant(), ALLOWED_DELTA);
+        assertEquals(4.0, a.determinant(), ALLOWED_DELTA);
+        assertEquals(new Vector3(0, 0, 4), a.matvec(new Vector3(1, 2, 3)));
+        assertEquals(new Vector3(3, 4, 0), b.getColumn(2));
+        assertEquals(b, Matrix3.of(mb));
+    }
+
+    @Test
+    public void testMatrix4() {
+        Matrix4 a = new Matrix4(
+                5, 1, 0, 2,
+                1, 4, 1, 0,
+                0, 1, 3, 1,
+                2, 0, 1, 6);
+        Matrix ma = a.toMatrix();
+        assertMatrixEquals(ma.getInverse(), a.inverse().toMatrix());
+        assertMatrixEquals(Matrix4.IDENTITY.toMatrix(), a.inverse().matmul(a).toMatrix());
+        double det = new LUDecomposition(ma).determinant();
+        assertEquals(det, a.determinant(), ALLOWED_DELTA);
+
+        // translation in homogeneous coordinates
+        Matrix4 translate = new Matrix4(
+                1, 0, 0, 10,
+                0, 1, 0, 20,
+                0, 0, 1, 30,
+                0, 0, 0, 1);
+        assertEquals(new Vector4(11, 22, 33, 1), translate.matvec(new Vector4(1, 2, 3, 1)));
+        assertThrows(IllegalArgumentException.class, () -> {
+            Matrix4.of(new Matrix(3, 3));
+        });
+    }
+
+    @Test
+    public void testBadlyScaledInverse() {
+        Matrix2 diagonal = new Matrix2(1e8, 0, 0, 1e-8).inverse();
+        assertEquals(1e-8, diagonal.get(0, 0), 1e-20);
+        assertEquals(1e8, diagonal.get(1, 1), 1e-4);
+
+        // scale down by 100 then translate, det is only 1e-6
+        Matrix4 affine = new Matrix4(
+                0.01, 0, 0, 1e5,
+                0, 0.01, 0, 2e5,
+                0, 0, 0.01, 0,
+                0, 0, 0, 1);
+        Vector4 p = new Vector4(3, 4, 5, 1);
+        Vector4 back = affine.inverse().matvec(affine.matvec(p));
+        for (int i = 0; i < 4; i++) {
+            assertEquals(p.get(i), back.get(i), ALLOWED_DELTA);
+        }
+        assertThrows(ArithmeticException.class, () -> {
+            new Matrix3(1, 2, 3, 2, 4, 6, 0, 0, 1).inverse();
+        });
+    }
+}
@@ -0,0 +1,76 @@
+package com.adammcquistan.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import com.adammcquistan.models.Vector;
+import com.adammcquistan.models.Vector2;
+import com.adammcquistan.models.Vector3;
+import com.adammcquistan.models.Vector4;
+
+public class FixedVectorTest {
+
+    private static final double ALLOWED_DELTA = 0.00001d;
+
+    @Test
+    public void testVector2() {
+        Vector2 a = new Vector2(3, 4);
+        Vector2 b = new Vector2(1, -2);
+        assertEquals(new Vector2(4, 2), a.add(b));
+        assertEquals(new Vector2(2, 6), a.subtract(b));
+        assertEquals(new Vector2(6, 8), a.multiply(2));
+        assertEquals(-5.0, a.dot(b), ALLOWED_DELTA);
+        assertEquals(-10.0, a.cross(b), ALLOWED_DELTA);
+        assertEquals(5.0, a.normL2(), ALLOWED_DELTA);
+        assertEquals(7.0, a.normL1(), ALLOWED_DELTA);
+        assertEquals(4.0, a.normMax(), ALLOWED_DELTA);
+        assertEquals(1.0, a.normalize().normL2(), ALLOWED_DELTA);
+        assertThrows(ArithmeticException.class, () -> {
+            Vector2.ZERO.normalize();
+        });
+    }
+
+    @Test
+    public void testVector3() {
+        Vector3 x = new Vector3(1, 0, 0);
+        Vector3 y = new Vector3(0, 1, 0);
+        assertEquals(new Vector3(0, 0, 1), x.cross(y));
+        assertEquals(new Vector3(0, 0, -1), y.cross(x));
+        Vector3 a = new Vector3(1, 2, 3);
+        assertEquals(14.0, a.sumOfSquares(), ALLOWED_DELTA);
+        assertEquals(6.0, a.sum(), ALLOWED_DELTA);
+        assertEquals(new Vector3(0.5, 1, 1.5), a.divide(2));
+        assertEquals(new Vector3(-1, -2, -3), a.negate());
+        assertEquals(3.0, a.get(2), ALLOWED_DELTA);
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> {
+            a.get(3);
+        });
+    }
+
+    @Test
+    public void testVector4() {
+        Vector4 a = new Vector4(1, 2, 3, 4);
+        Vector4 b = new Vector4(4, 3, 2, 1);
+        assertEquals(20.0, a.dot(b), ALLOWED_DELTA);
+        assertEquals(new Vector4(5, 5, 5, 5), a.add(b));
+        assertEquals(new Vector4(4, 6, 6, 4), a.multiply(b));
+        assertEquals(a.hashCode(), new Vector4(1, 2, 3, 4).hashCode());
+        assertNotEquals(a, b);
+    }
+
+    @Test
+    public void testConversions() {
+        Vector3 a = new Vector3(1, 2, 3);
+        Vector v = a.toVector();
+        assertEquals(3, v.size());
+        assertEquals(2.0, v.get(1), ALLOWED_DELTA);
+        assertEquals(a, Vector3.of(v));
+        assertEquals(new Vector2(1, 2), Vector2.of(new Vector(new double[] { 1, 2 })));
+        assertThrows(IllegalArgumentException.class, () -> {
+            Vector4.of(v);
+        });
+    }
+}
@@ -0,0 +1,131 @@
+package com.adammcquistan.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import com.adammcquistan.models.FloatMatrix;
+import com.adammcquistan.models.FloatVector;
+import com.adammcquistan.models.Matrix;
+import com.adammcquistan.models.Parallelism;
+import com.adammcquistan.models.Vector;
+
+public class FloatMatrixTest {
+
+    private static Matrix random(Random random, int rows, int cols) {
+        Matrix m = new Matrix(rows, cols);
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                m.set(i, j, random.nextGaussian());
+            }
+        }
+        return m;
+    }
+
+    private static void assertClose(Matrix expected, FloatMatrix actual, double tolerance) {
+        assertEquals(expected.rows(), actual.rows());
+        assertEquals(expected.cols(), actual.cols());
+        for (int i = 0; i < expected.rows(); i++) {
+            for (int j = 0; j < expected.cols(); j++) {
+                assertEquals(expected.get(i, j), actual.get(i, j), tolerance);
+            }
+        }
+    }
+
+    @Test
+    public void testBasics() {
+        FloatMatrix m = new FloatMatrix(new float[][] {
+            { 1, 2, 3 },
+            { 4, 5, 6 }
+        });
+        assertEquals(2, m.rows());
+        assertEquals(3, m.cols());
+        assertEquals(6.0f, m.get(1, 2));
+        assertEquals(5.0f, m.T().get(1, 1));
+        assertEquals(3.0f, m.T().get(2, 0));
+        assertEquals(5.0f, m.getColumn(1).get(1));
+
+        m.getRow(0).replace(0, 10f);
+        assertEquals(10.0f, m.get(0, 0));
+
+        FloatMatrix sum = m.add(m.multiply(2f));
+        assertEquals(30.0f, sum.get(0, 0));
+        assertEquals(18.0f, sum.get(1, 2));
+        FloatMatrix t = m.transpose();
+        t.set(0, 0, -1f);
+        assertEquals(10.0f, m.get(0, 0));
+        assertEquals(9.0f, m.T().add(t).get(0, 0));
+
+        assertThrows(ArithmeticException.class, () -> m.add(t));
+        assertThrows(ArithmeticException.class, () -> m.matmul(m));
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> m.get(2, 0));
+    }
+
+    @Test
+    public void testConversions() {
+        Matrix d = new Matrix(new double[][] { { 0.1, 0.2 }, { 1.0 / 3.0, 4.0 } });
+        FloatMatrix f = FloatMatrix.of(d);
+        assertEquals(0.1f, f.get(0, 0));
+        Matrix back = f.T().toMatrix();
+        assertEquals((double) (1.0f / 3.0f), back.get(0, 1));
+        assertEquals(4.0, back.get(1, 1));
+    }
+
+    @Test
+    public void testMatmulAgainstDouble() {
+        Random random = new Random(5);
+        // sizes around the kernel's block and vector widths, plus a transposed operand
+        int[][] shapes = { { 3, 4, 5 }, { 37, 300, 41 }, { 70, 520, 90 }, { 128, 64, 1030 } };
+        for (int[] s : shapes) {
+            Matrix a = random(random, s[0], s[1]);
+            Matrix b = random(random, s[1], s[2]);
+            Matrix expected = a.matmul(b);
+            double tolerance = 1e-5 * Math.sqrt(s[1]) * 10;
+            assertClose(expected, FloatMatrix.of(a).matmul(FloatMatrix.of(b)), tolerance);
+            assertClose(expected, FloatMatrix.of(a.transpose()).T().matmul(FloatMatrix.of(b)), tolerance);
+        }
+    }
+
+    @Test
+    public void testParallelMatmul() {
+        ForkJoinPool saved = Parallelism.getPool();
+        long savedThreshold = Parallelism.getMatmulThreshold();
+        Random random = new Random(6);
+        FloatMatrix a = FloatMatrix.of(random(random, 300, 80));
+        FloatMatrix b = FloatMatrix.of(random(random, 80, 50));
+        try {
+            Parallelism.setMatmulThreshold(1);
+            Parallelism.setPool(new ForkJoinPool(4));
+            FloatMatrix serial = a.matmul(b);
+            FloatMatrix parallel = a.parallelMatmul(b);
+            for (int i = 0; i < serial.rows(); i++) {
+                for (int j = 0; j < serial.cols(); j++) {
+                    assertEquals(serial.get(i, j), parallel.get(i, j));
+                }
+            }
+        } finally {
+            Parallelism.setPool(saved);
+            Parallelism.setMatmulThreshold(savedThreshold);
+        }
+    }
+
+    @Test
+    public void testMatvec() {
+        Random random = new Random(8);
+        Matrix a = random(random, 40, 100);
+        Vector x = random(random, 100, 1).getColumn(0);
+        Vector expected = a.matvec(x);
+        FloatVector fx = FloatVector.of(x);
+        FloatVector y = FloatMatrix.of(a).matvec(fx);
+        Vector yd = FloatMatrix.of(a).matvecDouble(fx);
+        for (int i = 0; i < 40; i++) {
+            assertEquals(expected.get(i), y.get(i), 1e-4);
+            assertEquals(expected.get(i), yd.get(i), 1e-5);
+        }
+        assertThrows(ArithmeticException.class, () -> FloatMatrix.of(a).matvec(new FloatVector(new float[] { 1 })));
+    }
+}
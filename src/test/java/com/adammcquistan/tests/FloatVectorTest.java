@@ -0,0 +1,140 @@
+package com.adammcquistan.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import com.adammcquistan.models.FloatVector;
+import com.adammcquistan.models.Parallelism;
+import com.adammcquistan.models.Vector;
+
+public class FloatVectorTest {
+
+    private static final float ALLOWED_DELTA = 0.0001f;
+
+    @Test
+    public void testElementWise() {
+        FloatVector a = new FloatVector(new float[] { 1, 2, 3, 4 });
+        FloatVector b = new FloatVector(new float[] { 4, 3, 2, 1 });
+        float[] sum = a.add(b).toArray();
+        float[] diff = a.subtract(b).toArray();
+        float[] prod = a.multiply(b).toArray();
+        float[] quot = a.divide(b).toArray();
+        for (int i = 0; i < 4; i++) {
+            assertEquals(5.0f, sum[i]);
+            assertEquals(a.get(i) - b.get(i), diff[i]);
+            assertEquals(a.get(i) * b.get(i), prod[i]);
+            assertEquals(a.get(i) / b.get(i), quot[i]);
+        }
+        assertEquals(3.5f, a.add(1.5f).get(1));
+        assertEquals(6.0f, a.multiply(2f).get(2));
+
+        FloatVector y = new FloatVector(new float[] { 1, 1, 1, 1 });
+        y.axpy(2f, a).addInPlace(1f);
+        assertEquals(10.0f, y.get(3));
+
+        assertThrows(ArithmeticException.class, () -> a.add(new FloatVector(new float[] { 1, 2, 3 })));
+        assertThrows(ArrayIndexOutOfBoundsException.class, () -> a.get(4));
+    }
+
+    @Test
+    public void testBroadcastMatchesVector() {
+        FloatVector a = new FloatVector(new float[] { 1, 2, 3, 4 });
+        FloatVector one = new FloatVector(new float[] { 2 });
+        assertEquals(8.0f, a.multiply(one).get(3));
+        assertThrows(ArithmeticException.class, () -> {
+            a.divide(one);
+        });
+    }
+
+    @Test
+    public void testReductions() {
+        FloatVector a = new FloatVector(new float[] { 3, -4, 1, 2 });
+        assertEquals(2.0f, a.sum());
+        assertEquals(2.0, a.sumDouble());
+        assertEquals(10.0f, a.normL1());
+        assertEquals(4.0f, a.normMax());
+        assertEquals(30.0f, a.sumOfSquares());
+        assertEquals((float) Math.sqrt(30.0), a.normL2(), ALLOWED_DELTA);
+        assertEquals(-1.0f, a.dot(new FloatVector(new float[] { 1, 1, 0, 0 })));
+    }
+
+    @Test
+    public void testNormMaxMatchesVectorOnNaN() {
+        double[] values = new double[64];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i - 32;
+        }
+        Vector v = new Vector(values);
+        assertEquals(v.normMax(), FloatVector.of(v).normMax(), ALLOWED_DELTA);
+        values[40] = Double.NaN;
+        v = new Vector(values);
+        assertEquals(Double.NaN, v.normMax());
+        assertEquals(Float.NaN, FloatVector.of(v).normMax());
+    }
+
+    @Test
+    public void testConversions() {
+        Vector v = new Vector(new double[] { 0.1, 1.0 / 3.0, 1e30 });
+        FloatVector f = FloatVector.of(v);
+        assertEquals(0.1f, f.get(0));
+        assertEquals(1.0f / 3.0f, f.get(1));
+        Vector back = f.toVector();
+        assertEquals((double) 0.1f, back.get(0));
+        assertEquals((double) 1e30f, back.get(2));
+    }
+
+    /**
+     * Many values of alternating magnitude, where float accumulation drifts
+     * and double accumulation does not
+     */
+    @Test
+    public void testDoubleAccumulation() {
+        int n = 100000;
+        float[] x = new float[n];
+        float[] ones = new float[n];
+        double exact = 0.0;
+        for (int i = 0; i < n; i++) {
+            x[i] = (i % 2 == 0) ? 1000.1f : 0.001f;
+            ones[i] = 1.0f;
+            exact += x[i];
+        }
+        FloatVector a = new FloatVector(x);
+        FloatVector b = new FloatVector(ones);
+        assertEquals(exact, a.dotDouble(b), exact * 1e-12);
+        assertEquals(exact, a.sumDouble(), exact * 1e-12);
+        assertEquals(exact, a.dot(b), exact * 1e-4);
+    }
+
+    @Test
+    public void testParallelOpsAreDeterministic() {
+        ForkJoinPool saved = Parallelism.getPool();
+        int savedThreshold = Parallelism.getVectorThreshold();
+        int n = 200000;
+        float[] x = new float[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = (float) Math.sin(i);
+        }
+        FloatVector a = new FloatVector(x);
+        try {
+            Parallelism.setVectorThreshold(1024);
+            Parallelism.setPool(new ForkJoinPool(1));
+            double d1 = a.dotDouble(a);
+            float f1 = a.dot(a);
+            float[] s1 = a.add(a).toArray();
+            Parallelism.setPool(new ForkJoinPool(4));
+            assertEquals(d1, a.dotDouble(a));
+            assertEquals(f1, a.dot(a));
+            float[] s4 = a.add(a).toArray();
+            for (int i = 0; i < n; i += 997) {
+                assertEquals(s1[i], s4[i]);
+            }
+        } finally {
+            Parallelism.setPool(saved);
+            Parallelism.setVectorThreshold(savedThreshold);
+        }
+    }
+}
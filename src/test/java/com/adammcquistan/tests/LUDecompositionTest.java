@@ -0,0 +1,150 @@
+package com.adammcquistan.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.adammcquistan.models.LUDecomposition;
+import com.adammcquistan.models.Matrix;
+import com.adammcquistan.models.Vector;
+
+public class LUDecompositionTest {
+
+    private static Matrix m;
+    private static LUDecomposition lu;
+    private static final double ALLOWED_DELTA = 0.00001d;
+
+    @BeforeAll
+    public static void setUp() {
+        // zero in the top left corner forces a row swap
+        m = new Matrix(new double[][] {
+            { 0, 2, 1 },
+            { 1, 1, 3 },
+            { 4, 1, 2 }
+        });
+        lu = new LUDecomposition(m);
+    }
+
+    @Test
+    public void testFactorsReproduceMatrix() {
+        Matrix product = lu.getL().matmul(lu.getU());
+        int[] pivot = lu.getPivot();
+        assertFalse(lu.isSingular());
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                assertEquals(m.get(pivot[i], j), product.get(i, j), ALLOWED_DELTA);
+            }
+        }
+        // partial pivoting picks the largest value in the first column
+        assertEquals(2, pivot[0]);
+    }
+
+    @Test
+    public void testDeterminant() {
+        // 0(2 - 3) - 2(2 - 12) + 1(1 - 4) = 17
+        assertEquals(17.0, lu.determinant(), ALLOWED_DELTA);
+    }
+
+    @Test
+    public void testSolveVector() {
+        Vector b = new Vector(new double[] { 5, 9, 12 });
+        Vector x = lu.solve(b);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(b.get(i), m.getRow(i).dot(x), ALLOWED_DELTA);
+        }
+    }
+
+    @Test
+    public void testSolveMatrix() {
+        Matrix b = new Matrix(new double[][] {
+            { 1, 2 },
+            { 3, 4 },
+            { 5, 6 }
+        });
+        Matrix x = lu.solve(b);
+        Matrix check = m.matmul(x);
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 2; j++) {
+                assertEquals(b.get(i, j), check.get(i, j), ALLOWED_DELTA);
+            }
+        }
+    }
+
+    @Test
+    public void testInverse() {
+        Matrix ident = m.matmul(lu.inverse());
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                assertEquals(i == j ? 1.0 : 0.0, ident.get(i, j), ALLOWED_DELTA);
+            }
+        }
+    }
+
+    @Test
+    public void testSingularMatrix() {
+        LUDecomposition singular = new LUDecomposition(new Matrix(new double[][] {
+            { 1, 1, 3 },
+            { 1, 2, 4 },
+            { 2, 3, 7 }
+        }));
+        assertTrue(singular.isSingular());
+        assertEquals(0.0, singular.determinant(), ALLOWED_DELTA);
+        assertThrows(ArithmeticException.class, () -> {
+            singular.solve(new Vector(new double[] { 1, 2, 3 }));
+        });
+    }
+
+    @Test
+    public void testBadlyScaledMatrixIsNotSingular() {
+        Matrix diagonal = new Matrix(new double[][] {
+            { 1e8, 0 },
+            { 0, 1e-8 }
+        });
+        Matrix inverse = diagonal.getInverse();
+        assertEquals(1e-8, inverse.get(0, 0), 1e-20);
+        assertEquals(1e8, inverse.get(1, 1), 1e-4);
+
+        Matrix mixed = new Matrix(new double[][] {
+            { 1e8, 1 },
+            { 2, 1e-8 }
+        });
+        LUDecomposition scaled = new LUDecomposition(mixed);
+        assertFalse(scaled.isSingular());
+        assertEquals(-1.0, scaled.determinant(), ALLOWED_DELTA);
+        Matrix product = mixed.matmul(scaled.inverse());
+        assertEquals(1.0, product.get(0, 0), ALLOWED_DELTA);
+        assertEquals(0.0, product.get(1, 0), ALLOWED_DELTA);
+        assertEquals(1.0, product.get(1, 1), ALLOWED_DELTA);
+    }
+
+    @Test
+    public void testConditionEstimate() {
+        assertEquals(1.0, new LUDecomposition(Matrix.makeIdentityMatrix(4)).conditionEstimate(), ALLOWED_DELTA);
+
+        // Hager's estimate of ||m^-1||_1 is a lower bound, ||m||_1 = 6
+        Matrix inverse = lu.inverse();
+        double inverseNorm = 0.0;
+        for (int j = 0; j < 3; j++) {
+            double sum = 0.0;
+            for (int i = 0; i < 3; i++) {
+                sum += Math.abs(inverse.get(i, j));
+            }
+            inverseNorm = Math.max(inverseNorm, sum);
+        }
+        double exact = 1.0 / (6.0 * inverseNorm);
+        double estimate = lu.conditionEstimate();
+        assertTrue(estimate >= exact - ALLOWED_DELTA);
+        assertTrue(estimate <= 3 * exact);
+
+        LUDecomposition nearlySingular = new LUDecomposition(new Matrix(new double[][] {
+            { 1, 1 },
+            { 1, 1 + 1e-12 }
+        }));
+        assertFalse(nearlySingular.isSingular());
+        assertTrue(nearlySingular.conditionEstimate() < 1e-11);
+    }
+}
@@ -0,0 +1,111 @@
+package com.adammcquistan.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.adammcquistan.models.MappedMatrix;
+import com.adammcquistan.models.Matrix;
+import com.adammcquistan.models.Vector;
+
+public class MappedMatrixTest {
+
+    private static final int ROWS = 300;
+    private static final int COLS = 5;
+    private static final double ALLOWED_DELTA = 0.00001d;
+    private static Path file;
+    private static double[][] arr;
+
+    @BeforeAll
+    public static void setUp() throws IOException {
+        arr = new double[ROWS][COLS];
+        ByteBuffer bytes = ByteBuffer.allocate(ROWS * COLS * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < ROWS; i++) {
+            for (int j = 0; j < COLS; j++) {
+                arr[i][j] = i * 10.0 + j;
+                bytes.putDouble(arr[i][j]);
+            }
+        }
+        file = Files.createTempFile("mapped-matrix", ".bin");
+        Files.write(file, bytes.array());
+    }
+
+    @AfterAll
+    public static void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testOpenReadOnly() throws IOException {
+        MappedMatrix mapped = MappedMatrix.open(file, COLS, false);
+        assertEquals(ROWS, mapped.rows());
+        assertEquals(COLS, mapped.cols());
+        assertEquals(arr[123][4], mapped.get(123, 4));
+
+        Vector row = mapped.getRow(42);
+        Vector column = mapped.getColumn(3);
+        for (int j = 0; j < COLS; j++) {
+            assertEquals(arr[42][j], row.get(j));
+        }
+        for (int i = 0; i < ROWS; i++) {
+            assertEquals(arr[i][3], column.get(i));
+        }
+        assertThrows(UnsupportedOperationException.class, () -> {
+            mapped.set(0, 0, 1.0);
+        });
+    }
+
+    @Test
+    public void testMatMulMatchesHeapMatrix() throws IOException {
+        MappedMatrix mapped = MappedMatrix.open(file, COLS, false);
+        Matrix weights = new Matrix(new double[][] {
+            { 1, 0 },
+            { 0, 1 },
+            { 2, 1 },
+            { 0, 3 },
+            { 1, 1 }
+        });
+        Matrix expected = new Matrix(arr).matmul(weights);
+        Matrix result = mapped.matmul(weights);
+        assertEquals(ROWS, result.rows());
+        assertEquals(2, result.cols());
+        for (int i = 0; i < ROWS; i++) {
+            for (int j = 0; j < 2; j++) {
+                assertEquals(expected.get(i, j), result.get(i, j), ALLOWED_DELTA);
+            }
+        }
+
+        Vector scores = mapped.dotRows(weights.getColumn(1));
+        for (int i = 0; i < ROWS; i++) {
+            assertEquals(expected.get(i, 1), scores.get(i), ALLOWED_DELTA);
+        }
+    }
+
+    @Test
+    public void testCreateAndWrite() throws IOException {
+        Path out = Files.createTempFile("mapped-matrix-out", ".bin");
+        try {
+            MappedMatrix created = MappedMatrix.create(out, 4, 3);
+            created.replaceRow(2, new Vector(new double[] { 1, 2, 3 }));
+            created.multiplyInPlace(2.0);
+            created.force();
+
+            MappedMatrix reopened = MappedMatrix.open(out, 3, false);
+            assertEquals(4, reopened.rows());
+            assertEquals(0.0, reopened.get(1, 1));
+            assertEquals(4.0, reopened.get(2, 1));
+            assertEquals(6.0, reopened.get(2, 2));
+        } finally {
+            Files.deleteIfExists(out);
+        }
+    }
+}
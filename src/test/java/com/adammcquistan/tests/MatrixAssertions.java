@@ -0,0 +1,33 @@
+package com.adammcquistan.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.adammcquistan.models.Matrix;
+
+/**
+ * Element by element matrix comparison shared by the test classes
+ */
+final class MatrixAssertions {
+
+    static final double ALLOWED_DELTA = 0.00001d;
+
+    private MatrixAssertions() {
+    }
+
+    static void assertMatrixEquals(Matrix expected, Matrix actual) {
+        assertMatrixEquals(expected, actual, ALLOWED_DELTA);
+    }
+
+    /**
+     * @param delta largest difference allowed per element, 0 for an exact match
+     */
+    static void assertMatrixEquals(Matrix expected, Matrix actual, double delta) {
+        assertEquals(expected.rows(), actual.rows());
+        assertEquals(expected.cols(), actual.cols());
+        for (int r = 0; r < expected.rows(); r++) {
+            for (int c = 0; c < expected.cols(); c++) {
+                assertEquals(expected.get(r, c), actual.get(r, c), delta, "element (" + r + ", " + c + ")");
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.adammcquistan.tests;
+
+import static com.adammcquistan.tests.MatrixAssertions.assertMatrixEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import com.adammcquistan.models.LUDecomposition;
+import com.adammcquistan.models.Matrix;
+import com.adammcquistan.models.MatrixBatch;
+import com.adammcquistan.models.Vector;
+
+public class MatrixBatchTest {
+
+    private static final double ALLOWED_DELTA = 0.00001d;
+
+    /**
+     * count well conditioned n x n matrices with different values
+     */
+    private static MatrixBatch batch(int count, int n, int seed) {
+        MatrixBatch b = new MatrixBatch(count, n, n);
+        for (int i = 0; i < count; i++) {
+            for (int r = 0; r < n; r++) {
+                for (int c = 0; c < n; c++) {
+                    double x = ((i * 7 + r * 5 + c * 3 + seed) % 11) - 5;
+                    b.set(i, r, c, r == c ? x + 20 : x);
+                }
+            }
+        }
+        return b;
+    }
+
+    @Test
+    public void testMatmulMatchesMatrix() {
+        // 2, 3 and 4 take the unrolled kernels, 5 the general loop
+        for (int n = 2; n <= 5; n++) {
+            MatrixBatch a = batch(6, n, 1);
+            MatrixBatch b = batch(6, n, 4);
+            MatrixBatch product = a.matmul(b);
+            for (int i = 0; i < 6; i++) {
+                assertMatrixEquals(a.getMatrix(i).matmul(b.getMatrix(i)), product.getMatrix(i));
+            }
+        }
+    }
+
+    @Test
+    public void testMatmulBroadcastsSingleMatrix() {
+        MatrixBatch a = batch(5, 3, 2);
+        Matrix m = new Matrix(new double[][] {
+            { 1, 2 },
+            { 0, 1 },
+            { 3, 0 }
+        });
+        MatrixBatch product = a.matmul(m);
+        assertEquals(5, product.count());
+        assertEquals(3, product.rows());
+        assertEquals(2, product.cols());
+        for (int i = 0; i < 5; i++) {
+            assertMatrixEquals(a.getMatrix(i).matmul(m), product.getMatrix(i));
+        }
+        assertThrows(ArithmeticException.class, () -> {
+            a.matmul(batch(4, 3, 0));
+        });
+    }
+
+    @Test
+    public void testInverse() {
+        for (int n = 2; n <= 5; n++) {
+            MatrixBatch a = batch(4, n, 3);
+            MatrixBatch identities = a.matmul(a.inverse());
+            for (int i = 0; i < 4; i++) {
+                assertMatrixEquals(Matrix.makeIdentityMatrix(n), identities.getMatrix(i));
+            }
+        }
+        MatrixBatch singular = batch(3, 4, 0);
+        for (int c = 0; c < 4; c++) {
+            singular.set(1, 3, c, singular.get(1, 0, c) * 2);
+        }
+        assertThrows(ArithmeticException.class, () -> {
+            singular.inverse();
+        });
+    }
+
+    @Test
+    public void testBadlyScaledInverse() {
+        // scale down by 100 then translate, det is only 1e-6
+        MatrixBatch affine = MatrixBatch.of(new Matrix(new double[][] {
+            { 0.01, 0, 0, 1e5 },
+            { 0, 0.01, 0, 2e5 },
+            { 0, 0, 0.01, 0 },
+            { 0, 0, 0, 1 }
+        }));
+        Matrix expected = new LUDecomposition(affine.getMatrix(0)).inverse();
+        assertMatrixEquals(expected, affine.inverse().getMatrix(0));
+    }
+
+    @Test
+    public void testTranspose() {
+        MatrixBatch a = MatrixBatch.of(
+                new Matrix(new double[][] { { 1, 2, 3 }, { 4, 5, 6 } }),
+                new Matrix(new double[][] { { 7, 8, 9 }, { 10, 11, 12 } }));
+        MatrixBatch t = a.transpose();
+        assertEquals(3, t.rows());
+        assertEquals(2, t.cols());
+        assertMatrixEquals(a.getMatrix(1).transpose(), t.getMatrix(1));
+    }
+
+    @Test
+    public void testMatvec() {
+        for (int n = 2; n <= 5; n++) {
+            MatrixBatch a = batch(3, n, 5);
+            Matrix xs = new Matrix(3, n);
+            for (int i = 0; i < 3; i++) {
+                for (int c = 0; c < n; c++) {
+                    xs.set(i, c, i + c * 0.5);
+                }
+            }
+            Matrix ys = a.matvec(xs);
+            Vector x = xs.getRow(2);
+            Matrix same = a.matvec(x);
+            for (int i = 0; i < 3; i++) {
+                Matrix m = a.getMatrix(i);
+                for (int r = 0; r < n; r++) {
+                    assertEquals(m.getRow(r).dot(xs.getRow(i)), ys.get(i, r), ALLOWED_DELTA);
+                    assertEquals(m.getRow(r).dot(x), same.get(i, r), ALLOWED_DELTA);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testPackedConstruction() {
+        MatrixBatch a = new MatrixBatch(new double[] { 1, 2, 3, 4, 5, 6, 7, 8 }, 2, 2);
+        assertEquals(2, a.count());
+        assertEquals(7.0, a.get(1, 1, 0), ALLOWED_DELTA);
+        assertThrows(IllegalArgumentException.class, () -> {
+            new MatrixBatch(new double[] { 1, 2, 3 }, 2, 2);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            MatrixBatch.of(new Matrix(2, 2), new Matrix(3, 3));
+        });
+    }
+}
@@ -0,0 +1,97 @@
+package com.adammcquistan.tests;
+
+import static com.adammcquistan.tests.MatrixAssertions.assertMatrixEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.adammcquistan.models.Matrix;
+import com.adammcquistan.models.MatrixExpression;
+
+public class MatrixExpressionTest {
+
+    private static Matrix a;
+    private static Matrix b;
+    private static Matrix c;
+    private static final double ALLOWED_DELTA = 0.00001d;
+
+    @BeforeAll
+    public static void setUp() {
+        // wider than one tile so rows are split
+        int rows = 5, cols = 300;
+        a = new Matrix(rows, cols);
+        b = new Matrix(rows, cols);
+        c = new Matrix(rows, cols);
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                a.set(i, j, i * 0.5 + j);
+                b.set(i, j, (i + j) % 7 + 1.0);
+                c.set(i, j, j % 3 - 1.0);
+            }
+        }
+    }
+
+    @Test
+    public void testMatchesEagerChain() {
+        Matrix eager = a.multiply(2.0).add(b).subtract(c).divide(b);
+        MatrixExpression lazy = a.lazy().multiply(2.0).add(b).subtract(c).divide(b);
+        assertEquals(4, lazy.steps());
+        assertMatrixEquals(eager, lazy.evaluate());
+    }
+
+    @Test
+    public void testCommonSubexpressions() {
+        // (a - c) appears twice and (b * a) matches (a * b), 7 operations in 5 steps
+        MatrixExpression centered = a.lazy().subtract(c);
+        MatrixExpression e = a.lazy().subtract(c).multiply(centered)
+                .add(b.lazy().multiply(a))
+                .add(a.lazy().multiply(b));
+        assertEquals(5, e.steps());
+
+        Matrix diff = a.subtract(c);
+        Matrix ab = a.multiply(b);
+        Matrix expected = diff.multiply(diff).add(ab).add(ab);
+        assertMatrixEquals(expected, e.evaluate());
+    }
+
+    @Test
+    public void testReadsOperandsAtEvaluation() {
+        Matrix x = new Matrix(new double[][] { { 1, 2 }, { 3, 4 } });
+        MatrixExpression e = x.lazy().add(1.0);
+        x.set(0, 0, 10.0);
+        assertEquals(11.0, e.evaluate().get(0, 0), ALLOWED_DELTA);
+        x.set(0, 0, 20.0);
+        assertEquals(21.0, e.evaluate().get(0, 0), ALLOWED_DELTA);
+    }
+
+    @Test
+    public void testEvaluateIntoOperand() {
+        Matrix x = new Matrix(new double[][] { { 1, 2, 3 }, { 4, 5, 6 } });
+        Matrix y = x.copy();
+        Matrix result = x.lazy().subtract(1.0).multiply(x).evaluate(x);
+        assertSame(x, result);
+        assertMatrixEquals(y.subtract(1.0).multiply(y), x);
+    }
+
+    @Test
+    public void testTransposedOperand() {
+        Matrix x = new Matrix(new double[][] { { 1, 2, 3 }, { 4, 5, 6 } });
+        Matrix y = new Matrix(new double[][] { { 1, 1 }, { 2, 2 }, { 3, 3 } });
+        Matrix expected = x.transpose().add(y);
+        assertMatrixEquals(expected, x.T().lazy().add(y).evaluate());
+    }
+
+    @Test
+    public void testIncompatibleDimensions() {
+        Matrix small = new Matrix(2, 2);
+        assertThrows(ArithmeticException.class, () -> {
+            a.lazy().add(small);
+        });
+        assertThrows(ArithmeticException.class, () -> {
+            a.lazy().add(1.0).evaluate(small);
+        });
+    }
+}
@@ -0,0 +1,119 @@
+package com.adammcquistan.tests;
+
+import static com.adammcquistan.tests.MatrixAssertions.assertMatrixEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.adammcquistan.models.MappedMatrix;
+import com.adammcquistan.models.Matrix;
+import com.adammcquistan.models.MatrixIO;
+import com.adammcquistan.models.Vector;
+
+public class MatrixIOTest {
+
+    private static Matrix m;
+    private static Path file;
+
+    @BeforeAll
+    public static void setUp() throws IOException {
+        // more values than one I/O buffer holds, so rows get split across writes
+        m = new Matrix(1000, 13);
+        for (int i = 0; i < m.rows(); i++) {
+            for (int j = 0; j < m.cols(); j++) {
+                m.set(i, j, i * 100.0 + j + 0.125);
+            }
+        }
+        file = Files.createTempFile("matrix-io", ".bin");
+    }
+
+    @AfterAll
+    public static void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testFileRoundTrip() throws IOException {
+        MatrixIO.write(m, file);
+        assertEquals(MatrixIO.byteSize(m), Files.size(file));
+        assertMatrixEquals(m, MatrixIO.readMatrix(file), 0.0);
+
+        // a transposed view is written in its logical row order
+        MatrixIO.write(m.T(), file);
+        assertMatrixEquals(m.transpose(), MatrixIO.readMatrix(file), 0.0);
+    }
+
+    @Test
+    public void testBigEndianChannelRoundTrip() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MatrixIO.write(m, channel, ByteOrder.BIG_ENDIAN);
+        }
+        assertMatrixEquals(m, MatrixIO.readMatrix(file), 0.0);
+        assertThrows(IOException.class, () -> {
+            MatrixIO.map(file, false);
+        });
+    }
+
+    @Test
+    public void testByteBufferRoundTrip() throws IOException {
+        Vector v = new Vector(new double[] { 1.5, -2, 3e100, Double.NaN });
+        ByteBuffer buffer = ByteBuffer.allocate((int) MatrixIO.byteSize(v) + 8).order(ByteOrder.BIG_ENDIAN);
+        buffer.putDouble(42);
+        MatrixIO.write(v, buffer);
+        assertEquals(buffer.capacity(), buffer.position());
+
+        buffer.flip();
+        buffer.order(ByteOrder.LITTLE_ENDIAN).position(8);
+        Vector read = MatrixIO.readVector(buffer);
+        assertEquals(4, read.size());
+        assertEquals(3e100, read.get(2));
+        assertEquals(Double.NaN, read.get(3));
+        assertEquals(buffer.limit(), buffer.position());
+
+        buffer.position(8);
+        assertThrows(IOException.class, () -> {
+            MatrixIO.readMatrix(buffer);
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            MatrixIO.write(m, ByteBuffer.allocate(64));
+        });
+    }
+
+    @Test
+    public void testMapInPlace() throws IOException {
+        MatrixIO.write(m, file);
+        MappedMatrix mapped = MatrixIO.map(file, true);
+        assertEquals(m.rows(), mapped.rows());
+        assertEquals(m.cols(), mapped.cols());
+        assertEquals(m.get(999, 12), mapped.get(999, 12));
+        mapped.set(3, 4, -1);
+        mapped.force();
+        assertEquals(-1.0, MatrixIO.readMatrix(file).get(3, 4));
+    }
+
+    @Test
+    public void testCorruptInput() throws IOException {
+        Files.write(file, new byte[] { 'n', 'o', 'p', 'e' });
+        assertThrows(IOException.class, () -> {
+            MatrixIO.readMatrix(file);
+        });
+        ByteBuffer truncated = ByteBuffer.allocate((int) MatrixIO.byteSize(m));
+        MatrixIO.write(m, truncated);
+        Files.write(file, Arrays.copyOf(truncated.array(), 100));
+        assertThrows(IOException.class, () -> {
+            MatrixIO.readMatrix(file);
+        });
+    }
+}
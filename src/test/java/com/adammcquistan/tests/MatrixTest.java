@@ -1,12 +1,19 @@
 package com.adammcquistan.tests;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 import com.adammcquistan.models.Matrix;
+import com.adammcquistan.models.MatrixBuilder;
+import com.adammcquistan.models.Parallelism;
 import com.adammcquistan.models.Vector;
 
 public class MatrixTest {
@@ -59,6 +66,71 @@ public class MatrixTest {
         }
     }
     
+    @Test
+    public void testMatrixCreationFromVectors() {
+        Matrix fromVectors = new Matrix(new Vector[] { new Vector(arr[0]), new Vector(arr[1]) });
+        assertEquals(m.rows(), fromVectors.rows());
+        assertEquals(m.cols(), fromVectors.cols());
+        for (int row = 0; row < arr.length; row++) {
+            for (int col = 0; col < arr[row].length; col++) {
+                assertEquals(arr[row][col], fromVectors.get(row, col), ALLOWED_DELTA);
+            }
+        }
+    }
+    
+    @Test
+    public void testMatrixAppendRowGrowsStorage() {
+        Matrix grown = new Matrix();
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(grown.appendRow(new Vector(new double[] { i, i * 2.0 })));
+        }
+        assertEquals(1000, grown.rows());
+        assertEquals(2, grown.cols());
+        assertEquals(999.0, grown.get(999, 0), ALLOWED_DELTA);
+        assertEquals(1998.0, grown.get(999, 1), ALLOWED_DELTA);
+        assertFalse(grown.appendRow(new Vector(new double[] { 1, 2, 3 })));
+    }
+    
+    @Test
+    public void testMatrixAppendRowsAndBuilder() {
+        Matrix bulk = new Matrix();
+        assertTrue(bulk.appendRows(arr));
+        assertTrue(bulk.appendRows(arr2));
+        assertFalse(bulk.appendRows(new double[][] { { 1, 2 } }));
+        assertEquals(4, bulk.rows());
+        assertEquals(arr2[1][2], bulk.get(3, 2), ALLOWED_DELTA);
+        
+        MatrixBuilder builder = new MatrixBuilder(3, 1);
+        for (int i = 0; i < 500; i++) {
+            builder.addRow(new double[] { i, i + 1, i + 2 });
+        }
+        builder.addRows(arr).addRow(m2.getRow(0));
+        Matrix built = builder.build();
+        assertEquals(503, built.rows());
+        assertEquals(3, built.cols());
+        assertEquals(501.0, built.get(499, 2), ALLOWED_DELTA);
+        assertEquals(arr[1][0], built.get(501, 0), ALLOWED_DELTA);
+        assertEquals(arr2[0][2], built.get(502, 2), ALLOWED_DELTA);
+        assertThrows(IllegalArgumentException.class, () -> {
+            builder.addRow(new double[] { 1 });
+        });
+    }
+    
+    @Test
+    public void testMatrixRowIsBackedByStorage() {
+        Matrix copy = m.copy();
+        Vector row = copy.getRow(1);
+        row.replace(2, 42.0);
+        assertEquals(42.0, copy.get(1, 2), ALLOWED_DELTA);
+        assertEquals(arr[1][2], m.get(1, 2), ALLOWED_DELTA);
+        
+        // appending to a row view must not spill into the next row
+        Vector first = copy.getRow(0);
+        first.append(7.0);
+        assertEquals(4, first.size());
+        assertEquals(arr[1][0], copy.get(1, 0), ALLOWED_DELTA);
+    }
+    
     @Test
     public void testMatrixAddition() {
         Matrix result = m.add(m2);
@@ -315,6 +387,30 @@ public class MatrixTest {
         }
     }
     
+    @Test
+    public void testMatrixInPlaceArithmetic() {
+        Matrix y = m.copy();
+        Matrix result = y.axpy(2.0, m2).divideInPlace(2.0);
+        assertSame(y, result);
+        for (int row = 0; row < arr.length; row++) {
+            for (int col = 0; col < arr[row].length; col++) {
+                assertEquals((arr[row][col] + 2.0 * arr2[row][col]) / 2.0, y.get(row, col), ALLOWED_DELTA);
+                assertEquals(arr[row][col], m.get(row, col), ALLOWED_DELTA);
+            }
+        }
+        
+        Matrix dest = new Matrix(m.rows(), m.cols());
+        m.subtract(m2, dest);
+        for (int row = 0; row < arr.length; row++) {
+            for (int col = 0; col < arr[row].length; col++) {
+                assertEquals(arr[row][col] - arr2[row][col], dest.get(row, col), ALLOWED_DELTA);
+            }
+        }
+        assertThrows(ArithmeticException.class, () -> {
+            m.add(m2, new Matrix(3, 2));
+        });
+    }
+    
     @Test
     public void testMatrixTranspose() {
         Matrix result = m.transpose();
@@ -365,7 +461,150 @@ public class MatrixTest {
             }
         }
     }
-    
+
+    @Test
+    public void testMatrixTranspose_large() {
+        // not a multiple of the block size in either direction
+        int n = 197, p = 75;
+        Matrix a = new Matrix(n, p);
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < p; j++) {
+                a.set(i, j, i * 1000 + j);
+            }
+        }
+        Matrix t = a.transpose();
+        Matrix back = a.T().transpose();
+        assertEquals(p, t.rows());
+        assertEquals(n, t.cols());
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < p; j++) {
+                assertEquals(a.get(i, j), t.get(j, i));
+                assertEquals(a.get(i, j), back.get(i, j));
+            }
+        }
+    }
+
+    @Test
+    public void testMatrixTransposeView() {
+        Matrix a = new Matrix(new double[][] {
+            { 1, 2, 3 },
+            { 4, 5, 6 }
+        });
+        Matrix view = a.T();
+        view.set(2, 0, 30.0);
+        assertEquals(30.0, a.get(0, 2), ALLOWED_DELTA);
+        a.set(1, 0, 40.0);
+        assertEquals(40.0, view.get(0, 1), ALLOWED_DELTA);
+
+        view.addInPlace(1.0);
+        assertEquals(2.0, a.get(0, 0), ALLOWED_DELTA);
+
+        // appending moves the view onto its own storage
+        assertTrue(view.appendRow(new Vector(new double[] { 7, 8 })));
+        assertEquals(4, view.rows());
+        view.set(0, 0, -1.0);
+        assertEquals(2.0, a.get(0, 0), ALLOWED_DELTA);
+        assertEquals(7.0, view.get(3, 0), ALLOWED_DELTA);
+        assertEquals(31.0, view.get(2, 0), ALLOWED_DELTA);
+    }
+
+    @Test
+    public void testMatrixMatMul_transposedOperands() {
+        int n = 90, k = 70, p = 80;
+        Matrix a = new Matrix(k, n);
+        Matrix b = new Matrix(p, k);
+        for (int i = 0; i < k; i++) {
+            for (int j = 0; j < n; j++) {
+                a.set(i, j, ((i * 7 + j * 3) % 11) - 5);
+            }
+            for (int j = 0; j < p; j++) {
+                b.set(j, i, ((i + j * 5) % 9) / 2.0);
+            }
+        }
+        Matrix viewed = a.T().matmul(b.T());
+        Matrix copied = a.transpose().matmul(b.transpose());
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < p; j++) {
+                assertEquals(copied.get(i, j), viewed.get(i, j), ALLOWED_DELTA);
+            }
+        }
+    }
+
+    @Test
+    public void testColumnViews() {
+        Matrix a = new Matrix(new double[][] {
+            { 1, 2, 3 },
+            { 4, 5, 6 }
+        });
+        Vector column = a.getColumn(1);
+        assertEquals(2, column.size());
+        assertEquals(5.0, column.get(1), ALLOWED_DELTA);
+
+        column.replace(0, 20.0);
+        assertEquals(20.0, a.get(0, 1), ALLOWED_DELTA);
+        column.multiplyInPlace(2.0);
+        assertEquals(40.0, a.get(0, 1), ALLOWED_DELTA);
+        assertEquals(10.0, a.get(1, 1), ALLOWED_DELTA);
+        assertEquals(40.0 * 3 + 10.0 * 6, column.dot(a.getColumn(2)), ALLOWED_DELTA);
+
+        a.replaceColumn(0, new Vector(new double[] { -1, -2 }));
+        assertEquals(-1.0, a.get(0, 0), ALLOWED_DELTA);
+        assertEquals(-2.0, a.get(1, 0), ALLOWED_DELTA);
+
+        // appending detaches the view from the matrix
+        column.append(7.0);
+        column.replace(0, 0.0);
+        assertEquals(40.0, a.get(0, 1), ALLOWED_DELTA);
+    }
+
+    @Test
+    public void testColumnMajorLayout() {
+        Matrix rowMajor = new Matrix(new double[][] {
+            { 1, 2, 3 },
+            { 4, 5, 6 }
+        });
+        Matrix colMajor = rowMajor.toColumnMajor();
+        assertTrue(colMajor.isColumnMajor());
+        assertFalse(rowMajor.isColumnMajor());
+        for (int i = 0; i < 2; i++) {
+            for (int j = 0; j < 3; j++) {
+                assertEquals(rowMajor.get(i, j), colMajor.get(i, j), ALLOWED_DELTA);
+            }
+        }
+
+        Vector row = colMajor.getRow(1);
+        row.replace(2, 60.0);
+        assertEquals(60.0, colMajor.get(1, 2), ALLOWED_DELTA);
+        colMajor.replaceColumn(0, new Vector(new double[] { 10, 40 }));
+        assertEquals(40.0, colMajor.get(1, 0), ALLOWED_DELTA);
+
+        Matrix square = new Matrix(new double[][] {
+            { 1, 0, 2 },
+            { 0, 1, 0 },
+            { 3, 0, 1 }
+        });
+        Matrix expected = new Matrix(new double[][] {
+            { 19, 2, 23 },
+            { 220, 5, 140 }
+        });
+        Matrix product = colMajor.matmul(square);
+        Matrix dest = Matrix.columnMajor(2, 3);
+        colMajor.matmul(square.toColumnMajor(), dest);
+        Matrix sum = colMajor.add(rowMajor);
+        for (int i = 0; i < 2; i++) {
+            for (int j = 0; j < 3; j++) {
+                assertEquals(expected.get(i, j), product.get(i, j), ALLOWED_DELTA);
+                assertEquals(expected.get(i, j), dest.get(i, j), ALLOWED_DELTA);
+                assertEquals(colMajor.get(i, j) + rowMajor.get(i, j), sum.get(i, j), ALLOWED_DELTA);
+            }
+        }
+
+        assertTrue(colMajor.appendRow(new Vector(new double[] { 7, 8, 9 })));
+        assertEquals(3, colMajor.rows());
+        assertEquals(60.0, colMajor.get(1, 2), ALLOWED_DELTA);
+        assertEquals(8.0, colMajor.get(2, 1), ALLOWED_DELTA);
+    }
+
     @Test
     public void testMatrixMatMul() {
         double[][] expArr = new double[][] {
@@ -388,6 +627,161 @@ public class MatrixTest {
         }
     }
     
+    @Test
+    public void testMatrixMatMul_blocked() {
+        // large enough to go through the blocked kernel, with ragged edge tiles
+        int n = 131, k = 267, p = 70;
+        double[][] aArr = new double[n][k];
+        double[][] bArr = new double[k][p];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < k; j++) {
+                aArr[i][j] = ((i * 31 + j * 7) % 13) - 6;
+            }
+        }
+        for (int i = 0; i < k; i++) {
+            for (int j = 0; j < p; j++) {
+                bArr[i][j] = ((i * 5 + j * 11) % 17) / 4.0;
+            }
+        }
+        Matrix result = new Matrix(aArr).matmul(new Matrix(bArr));
+        Matrix dest = new Matrix(n, p);
+        dest.fill(99.0);
+        new Matrix(aArr).matmul(new Matrix(bArr), dest);
+        
+        assertEquals(n, result.rows());
+        assertEquals(p, result.cols());
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < p; j++) {
+                double exp = 0.0;
+                for (int x = 0; x < k; x++) {
+                    exp += aArr[i][x] * bArr[x][j];
+                }
+                assertEquals(exp, result.get(i, j), ALLOWED_DELTA);
+                assertEquals(exp, dest.get(i, j), ALLOWED_DELTA);
+            }
+        }
+    }
+    
+    @Test
+    public void testMatrixParallelMatMul() {
+        int n = 300, k = 200, p = 260;
+        double[][] aArr = new double[n][k];
+        double[][] bArr = new double[k][p];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < k; j++) {
+                aArr[i][j] = ((i * 3 + j * 7) % 19) - 9;
+            }
+        }
+        for (int i = 0; i < k; i++) {
+            for (int j = 0; j < p; j++) {
+                bArr[i][j] = ((i * 13 + j) % 23) / 8.0;
+            }
+        }
+        Matrix a = new Matrix(aArr);
+        Matrix b = new Matrix(bArr);
+        Matrix serial = a.matmul(b);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Matrix parallel = a.parallelMatmul(b, pool);
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < p; j++) {
+                    assertEquals(serial.get(i, j), parallel.get(i, j));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+    
+    @Test
+    public void testMatrixGemv() {
+        Matrix a = new Matrix(new double[][] {
+            { 1, 2, 3 },
+            { 4, 5, 6 }
+        });
+        Vector x = new Vector(new double[] { 1, 0, -1 });
+        Vector ax = a.matvec(x);
+        assertEquals(2, ax.size());
+        assertEquals(-2.0, ax.get(0), ALLOWED_DELTA);
+        assertEquals(-2.0, ax.get(1), ALLOWED_DELTA);
+        
+        Vector atx = a.matvecTransposed(new Vector(new double[] { 1, 2 }));
+        assertEquals(3, atx.size());
+        assertEquals(9.0, atx.get(0), ALLOWED_DELTA);
+        assertEquals(12.0, atx.get(1), ALLOWED_DELTA);
+        assertEquals(15.0, atx.get(2), ALLOWED_DELTA);
+        
+        // y = 2 A x - y, and NaN in y is ignored when beta is 0
+        Vector y = new Vector(new double[] { 1, 1 });
+        assertSame(y, a.gemv(2.0, x, -1.0, y));
+        assertEquals(-5.0, y.get(0), ALLOWED_DELTA);
+        assertEquals(-5.0, y.get(1), ALLOWED_DELTA);
+        Vector nan = new Vector(new double[] { Double.NaN, Double.NaN });
+        a.gemv(1.0, x, 0.0, nan);
+        assertEquals(-2.0, nan.get(0), ALLOWED_DELTA);
+        
+        // column-major storage and strided vectors give the same answers
+        Matrix columnMajor = a.toColumnMajor();
+        Vector cx = columnMajor.matvec(x);
+        assertEquals(-2.0, cx.get(0), ALLOWED_DELTA);
+        assertEquals(-2.0, cx.get(1), ALLOWED_DELTA);
+        Matrix b = new Matrix(new double[][] { { 1, 7 }, { 2, 7 } });
+        Vector strided = b.getColumn(0);
+        Vector tx = columnMajor.gemvTransposed(1.0, strided, 0.0, new Vector(new double[3]));
+        assertEquals(9.0, tx.get(0), ALLOWED_DELTA);
+        assertEquals(15.0, tx.get(2), ALLOWED_DELTA);
+        
+        assertThrows(ArithmeticException.class, () -> {
+            a.matvec(new Vector(new double[] { 1, 2 }));
+        });
+        assertThrows(ArithmeticException.class, () -> {
+            a.gemv(1.0, x, 0.0, new Vector(new double[3]));
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            b.gemv(1.0, new Vector(new double[] { 1, 1 }), 0.0, b.getRow(0));
+        });
+    }
+    
+    @Test
+    public void testMatrixGemv_parallel() {
+        int n = 1200;
+        int k = 700;
+        Matrix a = new Matrix(n, k);
+        double[] values = new double[k];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < k; j++) {
+                a.set(i, j, Math.sin(i * 0.37 + j * 0.11));
+            }
+        }
+        for (int j = 0; j < k; j++) {
+            values[j] = Math.cos(j);
+        }
+        Vector x = new Vector(values);
+        Vector serial = a.matvec(x);
+        Vector serialT = a.matvecTransposed(serial);
+        ForkJoinPool original = Parallelism.getPool();
+        long threshold = Parallelism.getMatmulThreshold();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Parallelism.setPool(pool);
+            Parallelism.setMatmulThreshold(0);
+            Vector parallel = a.matvec(x);
+            Vector parallelT = a.matvecTransposed(serial);
+            for (int i = 0; i < n; i++) {
+                assertEquals(serial.get(i), parallel.get(i));
+                assertEquals(a.getRow(i).dot(x), parallel.get(i), ALLOWED_DELTA);
+            }
+            for (int j = 0; j < k; j++) {
+                assertEquals(serialT.get(j), parallelT.get(j));
+                assertEquals(a.getColumn(j).dot(serial), parallelT.get(j), ALLOWED_DELTA);
+            }
+        } finally {
+            Parallelism.setPool(original);
+            Parallelism.setMatmulThreshold(threshold);
+            pool.shutdown();
+        }
+    }
+    
     @Test
     public void testMatrixMatMul_incompatibleDimensions() {
         assertThrows(ArithmeticException.class, () -> {
@@ -563,4 +957,30 @@ public class MatrixTest {
             }
         }
     }
+    
+    @Test
+    public void testOrthoNormalize_blockedWithDependentColumn() {
+        // spans several column blocks, column 40 is column 3 plus column 7
+        int n = 80, k = 75;
+        Matrix a = new Matrix(n, k);
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < k; j++) {
+                a.set(i, j, ((i * 17 + j * 31 + i * j) % 23) - 11 + (i == j ? 40 : 0));
+            }
+            a.set(i, 40, a.get(i, 3) + a.get(i, 7));
+        }
+        Matrix q = a.orthoNormalize();
+        Matrix gram = q.T().matmul(q);
+        for (int i = 0; i < k; i++) {
+            for (int j = 0; j < k; j++) {
+                double exp = i == j && i != 40 ? 1.0 : 0.0;
+                assertEquals(exp, gram.get(i, j), ALLOWED_DELTA);
+            }
+        }
+        // the first column is only normalized
+        double norm = a.getColumn(0).normL2();
+        for (int i = 0; i < n; i++) {
+            assertEquals(a.get(i, 0) / norm, q.get(i, 0), ALLOWED_DELTA);
+        }
+    }
 }
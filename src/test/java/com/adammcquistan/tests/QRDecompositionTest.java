@@ -0,0 +1,120 @@
+package com.adammcquistan.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.adammcquistan.models.Matrix;
+import com.adammcquistan.models.QRDecomposition;
+import com.adammcquistan.models.Vector;
+
+public class QRDecompositionTest {
+
+    private static Matrix m;
+    private static QRDecomposition qr;
+    private static final double ALLOWED_DELTA = 0.00001d;
+
+    @BeforeAll
+    public static void setUp() {
+        // tall 4 x 3, full column rank
+        m = new Matrix(new double[][] {
+            { 1, 1, 1 },
+            { 1, 2, 4 },
+            { 1, 3, 9 },
+            { 1, 4, 16 }
+        });
+        qr = new QRDecomposition(m);
+    }
+
+    @Test
+    public void testFactorsReproduceMatrix() {
+        Matrix q = qr.getQ();
+        Matrix r = qr.getR();
+        assertEquals(4, q.rows());
+        assertEquals(3, q.cols());
+        assertEquals(3, r.rows());
+        assertEquals(3, r.cols());
+        assertTrue(qr.isFullRank());
+
+        Matrix product = q.matmul(r);
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 3; j++) {
+                assertEquals(m.get(i, j), product.get(i, j), ALLOWED_DELTA);
+            }
+        }
+        for (int i = 1; i < 3; i++) {
+            for (int j = 0; j < i; j++) {
+                assertEquals(0.0, r.get(i, j), ALLOWED_DELTA);
+            }
+        }
+    }
+
+    @Test
+    public void testQHasOrthonormalColumns() {
+        Matrix q = qr.getQ();
+        Matrix gram = q.T().matmul(q);
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                assertEquals(i == j ? 1.0 : 0.0, gram.get(i, j), ALLOWED_DELTA);
+            }
+        }
+    }
+
+    @Test
+    public void testLeastSquaresSolve() {
+        // y = 2 - x + 0.5 x^2 exactly, plus a residual orthogonal to the columns
+        Vector b = new Vector(new double[] { 1.5 + 1, 2 - 3, 3.5 + 3, 6 - 1 });
+        Vector x = qr.solve(b);
+        assertEquals(3, x.size());
+        assertEquals(2.0, x.get(0), ALLOWED_DELTA);
+        assertEquals(-1.0, x.get(1), ALLOWED_DELTA);
+        assertEquals(0.5, x.get(2), ALLOWED_DELTA);
+
+        Matrix bs = new Matrix(new double[][] {
+            { 2.5, 1 },
+            { -1, 2 },
+            { 6.5, 3 },
+            { 5, 4 }
+        });
+        Matrix xs = qr.solve(bs);
+        assertEquals(-1.0, xs.get(1, 0), ALLOWED_DELTA);
+        assertEquals(0.0, xs.get(0, 1), ALLOWED_DELTA);
+        assertEquals(1.0, xs.get(1, 1), ALLOWED_DELTA);
+        assertEquals(0.0, xs.get(2, 1), ALLOWED_DELTA);
+    }
+
+    @Test
+    public void testWideMatrix() {
+        Matrix wide = new Matrix(new double[][] {
+            { 3, 1, 2, 5 },
+            { 4, 2, 0, 1 }
+        });
+        QRDecomposition wideQr = new QRDecomposition(wide);
+        Matrix product = wideQr.getQ().matmul(wideQr.getR());
+        for (int i = 0; i < 2; i++) {
+            for (int j = 0; j < 4; j++) {
+                assertEquals(wide.get(i, j), product.get(i, j), ALLOWED_DELTA);
+            }
+        }
+        assertThrows(ArithmeticException.class, () -> {
+            wideQr.solve(new Vector(new double[] { 1, 2 }));
+        });
+    }
+
+    @Test
+    public void testRankDeficient() {
+        QRDecomposition deficient = new QRDecomposition(new Matrix(new double[][] {
+            { 1, 2 },
+            { 2, 4 },
+            { 3, 6 }
+        }));
+        assertFalse(deficient.isFullRank());
+        assertThrows(ArithmeticException.class, () -> {
+            deficient.solve(new Vector(new double[] { 1, 2, 3 }));
+        });
+    }
+}
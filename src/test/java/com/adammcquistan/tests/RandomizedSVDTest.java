@@ -0,0 +1,172 @@
+package com.adammcquistan.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.adammcquistan.models.DelimitedReader;
+import com.adammcquistan.models.MappedMatrix;
+import com.adammcquistan.models.Matrix;
+import com.adammcquistan.models.MatrixIO;
+import com.adammcquistan.models.QRDecomposition;
+import com.adammcquistan.models.RandomizedSVD;
+
+public class RandomizedSVDTest {
+
+    private static final int ROWS = 2000;
+    private static final int COLS = 60;
+    private static final double ALLOWED_DELTA = 0.00001d;
+    private static Matrix a;
+    private static double[] singularValues;
+
+    private static Matrix randomOrthonormal(Random random, int rows, int cols) {
+        Matrix g = new Matrix(rows, cols);
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                g.set(i, j, random.nextGaussian());
+            }
+        }
+        return new QRDecomposition(g).getQ();
+    }
+
+    /**
+     * U0 diag(s) V0^T with s halving from 100 down
+     */
+    @BeforeAll
+    public static void setUp() {
+        Random random = new Random(7);
+        Matrix u0 = randomOrthonormal(random, ROWS, COLS);
+        Matrix v0 = randomOrthonormal(random, COLS, COLS);
+        singularValues = new double[COLS];
+        Matrix us = new Matrix(ROWS, COLS);
+        for (int j = 0; j < COLS; j++) {
+            singularValues[j] = 100.0 * Math.pow(0.5, j);
+            for (int i = 0; i < ROWS; i++) {
+                us.set(i, j, u0.get(i, j) * singularValues[j]);
+            }
+        }
+        a = us.matmul(v0.T());
+    }
+
+    private static void assertOrthonormalColumns(Matrix m) {
+        Matrix gram = m.T().matmul(m);
+        for (int i = 0; i < gram.rows(); i++) {
+            for (int j = 0; j < gram.cols(); j++) {
+                assertEquals(i == j ? 1.0 : 0.0, gram.get(i, j), 1e-8);
+            }
+        }
+    }
+
+    @Test
+    public void testInMemory() {
+        RandomizedSVD.Result svd = new RandomizedSVD().blockRows(300).decompose(a, 5);
+        assertEquals(5, svd.rank());
+        double[] s = svd.getSingularValues();
+        for (int i = 0; i < 5; i++) {
+            assertEquals(singularValues[i], s[i], singularValues[i] * 1e-9);
+        }
+        Matrix u = svd.getU();
+        Matrix v = svd.getV();
+        assertEquals(ROWS, u.rows());
+        assertEquals(COLS, v.rows());
+        assertOrthonormalColumns(u);
+        assertOrthonormalColumns(v);
+
+        // A v_i = s_i u_i
+        Matrix av = a.matmul(v);
+        for (int i = 0; i < ROWS; i += 97) {
+            for (int c = 0; c < 5; c++) {
+                assertEquals(s[c] * u.get(i, c), av.get(i, c), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testWithoutPowerIterations() {
+        RandomizedSVD.Result svd = new RandomizedSVD().powerIterations(0).oversampling(15).decompose(a, 3);
+        double[] s = svd.getSingularValues();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(singularValues[i], s[i], singularValues[i] * 1e-6);
+        }
+    }
+
+    @Test
+    public void testStreamedMatchesInMemory() throws IOException {
+        RandomizedSVD rsvd = new RandomizedSVD().seed(3);
+        RandomizedSVD.Result inMemory = rsvd.decompose(a, 4);
+        RandomizedSVD.Result streamed = rsvd.decompose(RandomizedSVD.RowBlocks.of(a, 123), 4);
+        assertThrows(UnsupportedOperationException.class, () -> streamed.getU());
+        double[] expected = inMemory.getSingularValues();
+        double[] actual = streamed.getSingularValues();
+        for (int i = 0; i < 4; i++) {
+            assertEquals(expected[i], actual[i], expected[i] * 1e-12);
+        }
+
+        Matrix u = inMemory.getU();
+        Matrix block = streamed.leftVectors(a);
+        for (int i = 0; i < ROWS; i += 13) {
+            for (int c = 0; c < 4; c++) {
+                assertEquals(Math.abs(u.get(i, c)), Math.abs(block.get(i, c)), ALLOWED_DELTA);
+            }
+        }
+    }
+
+    @Test
+    public void testMappedAndDelimitedSources() throws IOException {
+        Path bin = Files.createTempFile("rsvd", ".bin");
+        Path csv = Files.createTempFile("rsvd", ".csv");
+        try {
+            MatrixIO.write(a, bin);
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < ROWS; i++) {
+                for (int j = 0; j < COLS; j++) {
+                    sb.append(j == 0 ? "" : ",").append(a.get(i, j));
+                }
+                sb.append('\n');
+            }
+            Files.write(csv, sb.toString().getBytes("US-ASCII"));
+
+            RandomizedSVD rsvd = new RandomizedSVD();
+            MappedMatrix mapped = MatrixIO.map(bin, false);
+            double[] fromMapped = rsvd.decompose(RandomizedSVD.RowBlocks.of(mapped, 256), 2).getSingularValues();
+            double[] fromCsv = rsvd.decompose(RandomizedSVD.RowBlocks.of(DelimitedReader.csv(), csv, 500), 2).getSingularValues();
+            for (int i = 0; i < 2; i++) {
+                assertEquals(singularValues[i], fromMapped[i], singularValues[i] * 1e-9);
+                assertEquals(singularValues[i], fromCsv[i], singularValues[i] * 1e-9);
+            }
+        } finally {
+            Files.deleteIfExists(bin);
+            Files.deleteIfExists(csv);
+        }
+    }
+
+    @Test
+    public void testFullWidth() {
+        // k + oversampling past n sketches all of the row space
+        Matrix small = a.copy();
+        RandomizedSVD.Result svd = new RandomizedSVD().decompose(small, COLS - 2);
+        double[] s = svd.getSingularValues();
+        for (int i = 0; i < 10; i++) {
+            assertEquals(singularValues[i], s[i], singularValues[i] * 1e-9);
+        }
+    }
+
+    @Test
+    public void testErrors() {
+        RandomizedSVD rsvd = new RandomizedSVD();
+        assertThrows(IllegalArgumentException.class, () -> rsvd.decompose(a, 0));
+        assertThrows(IllegalArgumentException.class, () -> rsvd.decompose(a, COLS + 1));
+        assertThrows(IllegalArgumentException.class, () -> rsvd.oversampling(-1));
+        assertThrows(IllegalArgumentException.class, () -> rsvd.powerIterations(-1));
+        assertThrows(IllegalArgumentException.class, () -> rsvd.blockRows(0));
+        RandomizedSVD.Result svd = rsvd.decompose(a, 2);
+        assertThrows(ArithmeticException.class, () -> svd.leftVectors(new Matrix(3, 4)));
+    }
+}
@@ -0,0 +1,112 @@
+package com.adammcquistan.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import com.adammcquistan.models.Matrix;
+import com.adammcquistan.models.SparseMatrix;
+import com.adammcquistan.models.SparseMatrixBuilder;
+import com.adammcquistan.models.Vector;
+
+public class SparseMatrixTest {
+
+    private static double[][] arr;
+    private static SparseMatrix s;
+    private static Matrix dense;
+    private static final double ALLOWED_DELTA = 0.00001d;
+
+    @BeforeAll
+    public static void setUp() {
+        arr = new double[][] {
+            { 0, 2, 0, 0 },
+            { 1, 0, 0, 3 },
+            { 0, 0, 0, 0 },
+            { 4, 0, 5, 0 }
+        };
+        dense = new Matrix(arr);
+        // out of order, with (1, 3) split into two duplicates
+        s = new SparseMatrixBuilder(4, 4)
+                .add(3, 2, 5)
+                .add(1, 3, 1)
+                .add(0, 1, 2)
+                .add(3, 0, 4)
+                .add(1, 0, 1)
+                .add(1, 3, 2)
+                .build();
+    }
+
+    private static void assertMatches(double[][] expected, SparseMatrix actual) {
+        assertEquals(expected.length, actual.rows());
+        assertEquals(expected[0].length, actual.cols());
+        for (int i = 0; i < expected.length; i++) {
+            for (int j = 0; j < expected[i].length; j++) {
+                assertEquals(expected[i][j], actual.get(i, j), ALLOWED_DELTA);
+            }
+        }
+    }
+
+    @Test
+    public void testBuildFromTriples() {
+        assertEquals(5, s.nnz());
+        assertEquals(SparseMatrix.Format.CSR, s.format());
+        assertMatches(arr, s);
+        assertMatches(arr, s.toCSC());
+        assertMatches(arr, SparseMatrix.fromMatrix(dense));
+    }
+
+    @Test
+    public void testTranspose() {
+        SparseMatrix t = s.transpose();
+        assertEquals(SparseMatrix.Format.CSC, t.format());
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 4; j++) {
+                assertEquals(arr[j][i], t.get(i, j), ALLOWED_DELTA);
+            }
+        }
+    }
+
+    @Test
+    public void testMatVec() {
+        Vector x = new Vector(new double[] { 1, 2, 3, 4 });
+        Vector expected = new Vector(new double[] { 4, 13, 0, 19 });
+        Vector fromCsr = s.matvec(x);
+        Vector fromCsc = s.toCSC().matvec(x);
+        for (int i = 0; i < 4; i++) {
+            assertEquals(expected.get(i), fromCsr.get(i), ALLOWED_DELTA);
+            assertEquals(expected.get(i), fromCsc.get(i), ALLOWED_DELTA);
+        }
+        assertThrows(ArithmeticException.class, () -> {
+            s.matvec(new Vector(new double[] { 1, 2 }));
+        });
+    }
+
+    @Test
+    public void testSparseDenseMatMul() {
+        Matrix b = new Matrix(new double[][] {
+            { 1, 2 },
+            { 3, 4 },
+            { 5, 6 },
+            { 7, 8 }
+        });
+        Matrix expected = dense.matmul(b);
+        Matrix fromCsr = s.matmul(b);
+        Matrix fromCsc = s.toCSC().matmul(b);
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 2; j++) {
+                assertEquals(expected.get(i, j), fromCsr.get(i, j), ALLOWED_DELTA);
+                assertEquals(expected.get(i, j), fromCsc.get(i, j), ALLOWED_DELTA);
+            }
+        }
+    }
+
+    @Test
+    public void testSparseSparseMatMul() {
+        SparseMatrix product = s.matmul(s.transpose());
+        assertMatches(dense.matmul(dense.transpose()).toArray(), product);
+        assertEquals(SparseMatrix.Format.CSR, product.format());
+        assertMatches(dense.matmul(dense).toArray(), s.toCSC().matmul(s));
+    }
+}
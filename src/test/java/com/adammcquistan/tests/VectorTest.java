@@ -1,12 +1,18 @@
 package com.adammcquistan.tests;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import com.adammcquistan.models.Parallelism;
 import com.adammcquistan.models.Vector;
+import com.adammcquistan.models.VectorBuilder;
 
 public class VectorTest {
     
@@ -138,6 +144,18 @@ public class VectorTest {
        assertEquals(exp3, result.get(3));
    }
    
+   @Test
+   public void testVectorDivisionDoesNotBroadcast() {
+       Vector one = new Vector(new double[] { 2.0 });
+       assertThrows(ArithmeticException.class, () -> {
+           v.divide(one);
+       });
+       assertThrows(ArithmeticException.class, () -> {
+           v.divide(one, new Vector(new double[4]));
+       });
+       assertEquals(v.get(0) * 2.0, v.multiply(one).get(0));
+   }
+   
    @Test
    public void testVectorScalarDivision() {
        double scalar = 2.0;
@@ -194,4 +212,179 @@ public class VectorTest {
        }
        assertEquals(exp, result);
    }
+   
+   @Test
+   public void testEmptyVectorNorms() {
+       Vector empty = new Vector();
+       assertEquals(0.0, empty.normMax());
+       assertEquals(0.0, empty.normL1());
+       assertEquals(0.0, empty.normL2());
+       assertEquals(0.0, empty.sum());
+       empty.append(-3);
+       assertEquals(3.0, empty.normMax());
+   }
+   
+   @Test
+   public void testNormMaxPropagatesNaN() {
+       // long enough for the SIMD kernel, NaN in the vector body and in the tail
+       for (int at : new int[] { 0, 10, 63 }) {
+           double[] values = new double[64];
+           for (int i = 0; i < values.length; i++) {
+               values[i] = -i;
+           }
+           values[at] = Double.NaN;
+           assertEquals(Double.NaN, new Vector(values).normMax());
+       }
+   }
+   
+   @Test
+   public void testVectorInPlaceArithmetic() {
+       Vector w = new Vector(arr);
+       w.addInPlace(v2).scaleInPlace(2.0).subtractInPlace(1.0);
+       for (int i = 0; i < arr.length; i++) {
+           assertEquals((arr[i] + arr2[i]) * 2.0 - 1.0, w.get(i));
+       }
+       // the source vectors are untouched
+       assertEquals(arr[0], v.get(0));
+       assertEquals(arr2[0], v2.get(0));
+   }
+   
+   @Test
+   public void testVectorAxpy() {
+       Vector y = new Vector(arr2);
+       Vector result = y.axpy(0.5, v);
+       assertSame(y, result);
+       for (int i = 0; i < arr.length; i++) {
+           assertEquals(arr2[i] + 0.5 * arr[i], y.get(i));
+       }
+   }
+   
+   @Test
+   public void testVectorArithmeticIntoDestination() {
+       Vector dest = new Vector(new double[arr.length]);
+       assertSame(dest, v.multiply(v2, dest));
+       for (int i = 0; i < arr.length; i++) {
+           assertEquals(arr[i] * arr2[i], dest.get(i));
+       }
+       assertThrows(ArithmeticException.class, () -> {
+           v.add(v2, new Vector(new double[] { 1, 2 }));
+       });
+   }
+   
+   @Test
+   public void testVectorLongReductionsAndArithmetic() {
+       // long enough to take the SIMD path when it is available, with a ragged tail
+       int n = 1003;
+       double[] a = new double[n];
+       double[] b = new double[n];
+       for (int i = 0; i < n; i++) {
+           a[i] = Math.sin(i) * 10;
+           b[i] = Math.cos(i) + 2;
+       }
+       Vector va = new Vector(a);
+       Vector vb = new Vector(b);
+       
+       double dot = 0.0, sum = 0.0, ss = 0.0, l1 = 0.0, max = 0.0;
+       for (int i = 0; i < n; i++) {
+           dot += a[i] * b[i];
+           sum += a[i];
+           ss += a[i] * a[i];
+           l1 += Math.abs(a[i]);
+           max = Math.max(max, Math.abs(a[i]));
+       }
+       assertEquals(dot, va.dot(vb), 1e-9);
+       assertEquals(sum, va.sum(), 1e-9);
+       assertEquals(ss, va.sumOfSquares(), 1e-9);
+       assertEquals(l1, va.normL1(), 1e-9);
+       assertEquals(max, va.normMax(), 1e-9);
+       
+       Vector dest = new Vector(new double[n]);
+       va.divide(vb, dest);
+       for (int i = 0; i < n; i++) {
+           assertEquals(a[i] / b[i], dest.get(i));
+       }
+       va.subtract(3.0, dest);
+       for (int i = 0; i < n; i++) {
+           assertEquals(a[i] - 3.0, dest.get(i));
+       }
+   }
+   
+   @Test
+   public void testVectorAppendGrowsPastInitialCapacity() {
+       Vector grown = new Vector();
+       for (int i = 0; i < 5000; i++) {
+           assertTrue(grown.append(i));
+       }
+       assertTrue(grown.appendAll(new double[] { -1, -2 }));
+       assertEquals(5002, grown.size());
+       assertEquals(4999.0, grown.get(4999));
+       assertEquals(-2.0, grown.get(5001));
+       
+       Vector presized = new Vector(2);
+       assertEquals(0, presized.size());
+       presized.append(1);
+       presized.append(2);
+       presized.append(3);
+       assertEquals(3, presized.size());
+       assertEquals(3.0, presized.get(2));
+   }
+   
+   @Test
+   public void testVectorBuilder() {
+       VectorBuilder builder = new VectorBuilder(3);
+       builder.add(1).addAll(new double[] { 2, 3 }).addAll(v);
+       Vector built = builder.build();
+       assertEquals(7, built.size());
+       assertEquals(3.0, built.get(2));
+       assertEquals(arr[3], built.get(6));
+       assertEquals(0, builder.size());
+   }
+   
+   @Test
+   public void testVectorParallelOps() {
+       int n = 300001;
+       Vector a = new Vector(n);
+       Vector b = new Vector(n);
+       for (int i = 0; i < n; i++) {
+           a.append(Math.sin(i) * 1e3 + 1e-3 * (i % 7));
+           b.append(Math.cos(i * 0.5));
+       }
+       ForkJoinPool original = Parallelism.getPool();
+       ForkJoinPool single = new ForkJoinPool(1);
+       ForkJoinPool four = new ForkJoinPool(4);
+       try {
+           Parallelism.setPool(single);
+           double[] expected = { a.sum(), a.sumOfSquares(), a.normL1(), a.normMax(), a.dot(b) };
+           Parallelism.setPool(four);
+           double[] actual = { a.sum(), a.sumOfSquares(), a.normL1(), a.normMax(), a.dot(b) };
+           for (int i = 0; i < expected.length; i++) {
+               // bit for bit, not within a delta
+               assertEquals(expected[i], actual[i]);
+           }
+           
+           Vector sum = a.add(b);
+           Vector scaled = a.multiply(2.0);
+           Vector y = new Vector(b.toArray()).axpy(3.0, a);
+           for (int i = 0; i < n; i += 997) {
+               assertEquals(a.get(i) + b.get(i), sum.get(i));
+               assertEquals(a.get(i) * 2.0, scaled.get(i));
+               assertEquals(b.get(i) + 3.0 * a.get(i), y.get(i));
+           }
+           assertEquals(a.get(n - 1) + b.get(n - 1), sum.get(n - 1));
+       } finally {
+           Parallelism.setPool(original);
+           single.shutdown();
+           four.shutdown();
+       }
+       
+       int threshold = Parallelism.getVectorThreshold();
+       try {
+           Parallelism.setVectorThreshold(Integer.MAX_VALUE);
+           double serial = a.dot(b);
+           Parallelism.setVectorThreshold(threshold);
+           assertEquals(serial, a.dot(b), 1e-9 * Math.abs(serial) + 1e-9);
+       } finally {
+           Parallelism.setVectorThreshold(threshold);
+       }
+   }
 }
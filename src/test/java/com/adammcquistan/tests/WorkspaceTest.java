@@ -0,0 +1,157 @@
+package com.adammcquistan.tests;
+
+import static com.adammcquistan.tests.MatrixAssertions.assertMatrixEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import com.adammcquistan.models.CholeskyDecomposition;
+import com.adammcquistan.models.LUDecomposition;
+import com.adammcquistan.models.Matrix;
+import com.adammcquistan.models.Vector;
+import com.adammcquistan.models.Workspace;
+
+public class WorkspaceTest {
+
+    private static final double ALLOWED_DELTA = 0.00001d;
+
+    /**
+     * Diagonally dominant n x n matrix, symmetric or not
+     */
+    private static Matrix dominant(int n, boolean symmetric) {
+        Matrix m = new Matrix(n, n);
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                int k = symmetric ? i * j + i + j : i * 7 + j * 3;
+                m.set(i, j, (k % 11) / 5.0 - 1);
+            }
+            m.set(i, i, m.get(i, i) + n);
+        }
+        return m;
+    }
+
+    @Test
+    public void testAcquireRoundsUpAndReuses() {
+        Workspace ws = new Workspace();
+        double[] a = ws.acquire(100);
+        assertEquals(128, a.length);
+        ws.release(a);
+        assertSame(a, ws.acquire(65));
+        assertEquals(16, ws.acquireFloats(9).length);
+        assertEquals(1, ws.acquireInts(0).length);
+    }
+
+    @Test
+    public void testStatistics() {
+        Workspace ws = new Workspace();
+        double[] a = ws.acquire(100);
+        int[] b = ws.acquireInts(10);
+        assertEquals(128 * 8 + 16 * 4, ws.inUse());
+        ws.release(a);
+        ws.release(b);
+        assertEquals(0, ws.inUse());
+        assertEquals(128 * 8 + 16 * 4, ws.highWaterMark());
+
+        ws.release(ws.acquire(128));
+        assertEquals(128 * 8 + 16 * 4, ws.allocatedBytes());
+        ws.trim();
+        ws.release(ws.acquire(128));
+        assertEquals(2 * 128 * 8 + 16 * 4, ws.allocatedBytes());
+    }
+
+    @Test
+    public void testRefusesForeignArrays() {
+        Workspace ws = new Workspace();
+        assertThrows(IllegalArgumentException.class, () -> ws.release(new double[100]));
+        assertThrows(IllegalArgumentException.class, () -> ws.release(new float[0]));
+        assertThrows(IllegalArgumentException.class, () -> ws.acquire(-1));
+        assertThrows(IllegalArgumentException.class, () -> ws.release(new double[128]));
+
+        // a second release must not put the same array in the pool twice
+        double[] a = ws.acquire(128);
+        ws.release(a);
+        assertThrows(IllegalArgumentException.class, () -> ws.release(a));
+        assertSame(a, ws.acquire(128));
+        assertNotSame(a, ws.acquire(128));
+
+        int[] b = new Workspace().acquireInts(16);
+        assertThrows(IllegalArgumentException.class, () -> ws.release(b));
+    }
+
+    @Test
+    public void testInverseIntoStopsAllocating() {
+        Workspace ws = new Workspace();
+        for (boolean symmetric : new boolean[] { false, true }) {
+            Matrix m = dominant(70, symmetric);
+            Matrix dest = new Matrix(70, 70);
+            m.getInverse(dest, ws);
+            long warm = ws.allocatedBytes();
+            for (int i = 0; i < 5; i++) {
+                m.getInverse(dest, ws);
+            }
+            assertEquals(warm, ws.allocatedBytes());
+            assertEquals(0, ws.inUse());
+            assertMatrixEquals(m.getInverse(), dest);
+            assertMatrixEquals(Matrix.makeIdentityMatrix(70), m.matmul(dest));
+        }
+    }
+
+    @Test
+    public void testPlainApiLeavesLocalPoolAlone() {
+        long before = Workspace.local().allocatedBytes();
+        Matrix m = dominant(300, false);
+        m.getInverse();
+        m.matmul(m);
+        m.matmul(m, new Matrix(300, 300).T());
+        assertEquals(before, Workspace.local().allocatedBytes());
+    }
+
+    @Test
+    public void testInverseInPlace() {
+        Matrix m = dominant(20, false);
+        Matrix expected = m.getInverse();
+        assertSame(m, m.getInverse(m, new Workspace()));
+        assertMatrixEquals(expected, m);
+    }
+
+    @Test
+    public void testSolveInto() {
+        Workspace ws = new Workspace();
+        Matrix m = dominant(40, true);
+        Vector b = new Vector(40);
+        for (int i = 0; i < 40; i++) {
+            b.append(i % 5 - 2);
+        }
+
+        LUDecomposition lu = new LUDecomposition(m, ws);
+        Vector x = new Vector(new double[40]);
+        lu.solve(b, x);
+        Vector expected = new LUDecomposition(m).solve(b);
+        for (int i = 0; i < 40; i++) {
+            assertEquals(expected.get(i), x.get(i), ALLOWED_DELTA);
+        }
+        lu.release();
+
+        CholeskyDecomposition cholesky = new CholeskyDecomposition(m, ws);
+        Vector y = new Vector(b.toArray());
+        assertSame(y, cholesky.solve(y, y));
+        for (int i = 0; i < 40; i++) {
+            assertEquals(expected.get(i), y.get(i), ALLOWED_DELTA);
+        }
+        cholesky.release();
+        assertEquals(0, ws.inUse());
+    }
+
+    @Test
+    public void testOrthoNormalizeInto() {
+        Matrix m = dominant(30, false);
+        Matrix dest = new Matrix(30, 30);
+        m.orthoNormalize(dest, new Workspace());
+        assertMatrixEquals(m.orthoNormalize(), dest);
+        assertMatrixEquals(m.orthoNormalize(), m.orthoNormalize(new Matrix(30, 30), null));
+        assertThrows(ArithmeticException.class, () -> m.orthoNormalize(new Matrix(30, 29), new Workspace()));
+    }
+}